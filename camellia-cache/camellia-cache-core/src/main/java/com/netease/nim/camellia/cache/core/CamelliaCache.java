@@ -10,7 +10,8 @@ import org.springframework.cache.Cache;
 
 import java.lang.reflect.Field;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 public class CamelliaCache implements Cache {
 
@@ -20,6 +21,8 @@ public class CamelliaCache implements Cache {
     private final ICamelliaCacheConfig cacheConfig;
     private final CamelliaCachePrefixGetter cachePrefixGetter;
 
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> loadingMap = new ConcurrentHashMap<>();
+
     public CamelliaCache(ICamelliaCacheConfig cacheConfig) {
         this.nativeCache = cacheConfig.getNativeCache();
         this.cacheConfig = cacheConfig;
@@ -174,6 +177,53 @@ public class CamelliaCache implements Cache {
         }
 
         String cacheKey = buildCacheKey(cachePrefix, key);
+        //同一个进程内同一个key的并发穿透请求合并，只有一个线程（leader）去竞争分布式锁和回源，其他线程等待leader的结果
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> loading = loadingMap.putIfAbsent(cacheKey, future);
+        if (loading != null) {
+            return waitLoading(cachePrefix, key, cacheKey, loading, valueLoader);
+        }
+        try {
+            T result = syncLoad(cachePrefix, key, cacheKey, valueLoader);
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingMap.remove(cacheKey, future);
+        }
+    }
+
+    private <T> T waitLoading(String cachePrefix, Object key, String cacheKey, CompletableFuture<Object> loading, Callable<T> valueLoader) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("CamelliaCache sync get, wait local loading, key = {}", cacheKey);
+        }
+        try {
+            return (T) loading.get(CamelliaCacheEnv.syncLoadExpireMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CamelliaCacheException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CamelliaCacheException) {
+                throw (CamelliaCacheException) cause;
+            }
+            throw new CamelliaCacheException(cause);
+        } catch (TimeoutException e) {
+            //leader超过锁的过期时间还没有完成，自己回源
+            try {
+                T result = valueLoader.call();
+                _put(cachePrefix, key, result);
+                return result;
+            } catch (Exception e1) {
+                logger.error("valueLoader call error", e1);
+                throw new CamelliaCacheException(e1);
+            }
+        }
+    }
+
+    private <T> T syncLoad(String cachePrefix, Object key, String cacheKey, Callable<T> valueLoader) {
         String lockKey = cacheKey + "~lock";
         try {
             T result;
@@ -363,11 +413,7 @@ public class CamelliaCache implements Cache {
                 }
                 //写到缓存
                 if (!batchPutKV.isEmpty()) {
-                    if (cacheConfig.getExpireMillis() > 0) {
-                        nativeCache.multiPut(batchPutKV, cacheConfig.getExpireMillis());
-                    } else {
-                        nativeCache.multiPut(batchPutKV);
-                    }
+                    _multiPut(batchPutKV);
                 }
             }
             return (T) result;
@@ -377,6 +423,145 @@ public class CamelliaCache implements Cache {
         }
     }
 
+    /**
+     * 批量缓存，适用于入参是一组id、返回是map的批量查询
+     * <p> 一次批量读缓存（超过multiOpBatchSize时分批），未命中的id只调用一次loader批量回源，回源结果一次批量回填缓存
+     * <p> 回填时每个key的过期时间带随机抖动（见CamelliaCacheEnv.multiPutExpireJitterPercent），避免同一批key同时过期
+     * @param ids id列表，重复的id只查询一次
+     * @param keyFunc id到缓存key的转换（会拼接上cachePrefix）
+     * @param loader 批量回源，入参是未命中缓存的id，loader没有返回的id视为null（cacheNull=true时会缓存null）
+     * @return id到value的映射，不包含value为null的id，顺序和ids一致
+     */
+    public <K, V> Map<K, V> multiGet(Collection<K> ids, Function<K, String> keyFunc, Function<List<K>, Map<K, V>> loader) {
+        if (ids == null || ids.isEmpty()) return new LinkedHashMap<>();
+        Map<String, K> keyMap = new LinkedHashMap<>(ids.size() * 2);
+        String cachePrefix = null;
+        if (CamelliaCacheEnv.enable) {
+            cachePrefix = getCachePrefix();
+        }
+        for (K id : ids) {
+            keyMap.put(buildCacheKey(cachePrefix, keyFunc.apply(id)), id);
+        }
+        if (!CamelliaCacheEnv.enable) {
+            return filterNull(keyMap, loader.apply(new ArrayList<>(keyMap.values())));
+        }
+        List<String> toGetKeys = new ArrayList<>(keyMap.keySet());
+        List<Object> cacheResult;
+        try {
+            cacheResult = new ArrayList<>(toGetKeys.size());
+            for (List<String> keys : splitKeys(toGetKeys, CamelliaCacheEnv.multiOpBatchSize)) {
+                cacheResult.addAll(nativeCache.multiGet(keys));
+            }
+        } catch (Exception e) {
+            logger.error("multiGet of loader error, keys.size = {}", toGetKeys.size(), e);
+            return filterNull(keyMap, loader.apply(new ArrayList<>(keyMap.values())));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("CamelliaCache multiGet, keys = {}", toGetKeys);
+        }
+        Map<K, Object> hit = new HashMap<>();
+        List<K> missIds = new ArrayList<>();
+        List<String> missKeys = new ArrayList<>();
+        for (int i=0; i<toGetKeys.size(); i++) {
+            String cacheKey = toGetKeys.get(i);
+            Object value = cacheResult.get(i);
+            if (value != null) {
+                hit.put(keyMap.get(cacheKey), value);
+            } else {
+                missIds.add(keyMap.get(cacheKey));
+                missKeys.add(cacheKey);
+            }
+        }
+        Map<K, V> loaded = Collections.emptyMap();
+        if (!missIds.isEmpty()) {
+            //未命中的id一次性回源
+            loaded = loader.apply(missIds);
+            if (loaded == null) {
+                loaded = Collections.emptyMap();
+            }
+            Map<String, Object> batchPutKV = new HashMap<>(missKeys.size() * 2);
+            for (int i=0; i<missIds.size(); i++) {
+                V value = loaded.get(missIds.get(i));
+                if (value != null) {
+                    batchPutKV.put(missKeys.get(i), value);
+                } else if (cacheConfig.isCacheNull()) {
+                    batchPutKV.put(missKeys.get(i), NullCache.INSTANCE);
+                }
+            }
+            if (!batchPutKV.isEmpty()) {
+                try {
+                    _multiPut(batchPutKV);
+                } catch (Exception e) {
+                    logger.error("multiGet of loader put error, keys.size = {}", batchPutKV.size(), e);
+                }
+            }
+        }
+        Map<K, V> result = new LinkedHashMap<>(keyMap.size() * 2);
+        for (K id : keyMap.values()) {
+            Object value = hit.get(id);
+            if (value == null) {
+                value = loaded.get(id);
+            }
+            if (value != null && !(value instanceof NullCache)) {
+                result.put(id, (V) value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量缓存，适用于入参是一组id、返回是list的批量查询，逻辑同multiGet
+     * @param ids id列表，重复的id只查询一次
+     * @param keyFunc id到缓存key的转换（会拼接上cachePrefix）
+     * @param idFunc 从value中获取id
+     * @param loader 批量回源，入参是未命中缓存的id
+     * @return value列表，不包含null，顺序和ids一致
+     */
+    public <K, V> List<V> multiGetList(Collection<K> ids, Function<K, String> keyFunc, Function<V, K> idFunc, Function<List<K>, List<V>> loader) {
+        Map<K, V> map = multiGet(ids, keyFunc, missIds -> {
+            List<V> list = loader.apply(missIds);
+            Map<K, V> loaded = new HashMap<>();
+            if (list != null) {
+                for (V value : list) {
+                    if (value != null) {
+                        loaded.put(idFunc.apply(value), value);
+                    }
+                }
+            }
+            return loaded;
+        });
+        return new ArrayList<>(map.values());
+    }
+
+    private <K, V> Map<K, V> filterNull(Map<String, K> keyMap, Map<K, V> loaded) {
+        Map<K, V> result = new LinkedHashMap<>(keyMap.size() * 2);
+        if (loaded == null) return result;
+        for (K id : keyMap.values()) {
+            V value = loaded.get(id);
+            if (value != null) {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    //批量写缓存，过期时间带随机抖动
+    private void _multiPut(Map<String, Object> kvs) {
+        long expireMillis = cacheConfig.getExpireMillis();
+        if (expireMillis > 0) {
+            long jitterMillis = expireMillis * CamelliaCacheEnv.multiPutExpireJitterPercent / 100;
+            nativeCache.multiPut(kvs, expireMillis, jitterMillis);
+            if (logger.isDebugEnabled()) {
+                logger.debug("CamelliaCache multiPut, keys.size = {}, expireMillis = {}, jitterMillis = {}", kvs.size(), expireMillis, jitterMillis);
+            }
+        } else {
+            nativeCache.multiPut(kvs);
+            if (logger.isDebugEnabled()) {
+                logger.debug("CamelliaCache multiPut, keys.size = {}, no expire", kvs.size());
+            }
+        }
+    }
+
     //1表示第二个参数是List
     //#.*表示List中的元素，#.id表示List中的元素的id字段
     //mevict|1|(xxxxx)(#.*)(yyyy)(#.id)
@@ -476,24 +661,19 @@ public class CamelliaCache implements Cache {
     }
 
     //增加一个本地缓存，提高一点性能
-    private final Map<Class<?>, Map<String, Field>> fieldCache = new HashMap<>();
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Field>> fieldCache = new ConcurrentHashMap<>();
     private Object getValue(Object obj, String keyField) throws NoSuchFieldException, IllegalAccessException {
         Class<?> clazz = obj.getClass();
-        Map<String, Field> subMap = fieldCache.get(clazz);
-        Field field;
-        if (subMap != null) {
-            field = subMap.get(keyField);
-            if (field != null) {
-                return field.get(obj);
-            }
-        }
+        ConcurrentHashMap<String, Field> subMap = fieldCache.get(clazz);
         if (subMap == null) {
-            subMap = new HashMap<>();
-            fieldCache.put(clazz, subMap);
+            subMap = fieldCache.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>());
+        }
+        Field field = subMap.get(keyField);
+        if (field == null) {
+            field = clazz.getDeclaredField(keyField);
+            field.setAccessible(true);
+            subMap.put(keyField, field);
         }
-        field = clazz.getDeclaredField(keyField);
-        field.setAccessible(true);
-        subMap.put(keyField, field);
         return field.get(obj);
     }
 
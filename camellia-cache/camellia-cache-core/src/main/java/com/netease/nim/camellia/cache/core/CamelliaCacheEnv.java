@@ -16,6 +16,8 @@ public class CamelliaCacheEnv {
     public static long syncLoadSleepMillis = 100;
     //缓存value值的最大值，超过则不存入缓存中
     public static int maxCacheValue = 2*1024*1024;
+    //批量回填缓存时，过期时间的随机抖动比例（百分比），每个key的过期时间在[expire*(100-percent)/100, expire]之间，0表示不抖动
+    public static int multiPutExpireJitterPercent = 5;
     //反序列化失败的情况下，要不要打印error日志，如果是false，则只打印debug日志
     public static boolean serializerErrorLogEnable = true;
 }
@@ -14,6 +14,14 @@ public interface INativeCache {
 
     void multiPut(Map<String, Object> kvs, long expireMillis);
 
+    /**
+     * 批量写入，每个key的过期时间在[expireMillis - jitterMillis, expireMillis]之间随机，避免同一批写入的缓存同时过期
+     * 默认实现忽略jitterMillis
+     */
+    default void multiPut(Map<String, Object> kvs, long expireMillis, long jitterMillis) {
+        multiPut(kvs, expireMillis);
+    }
+
     Object get(String key);
 
     List<Object> multiGet(Collection<String> keys);
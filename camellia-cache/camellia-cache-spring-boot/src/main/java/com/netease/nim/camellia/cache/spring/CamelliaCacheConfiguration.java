@@ -5,6 +5,10 @@ import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netease.nim.camellia.cache.core.*;
 import com.netease.nim.camellia.cache.spring.caffeine.CaffeineNativeCacheInitializer;
+import com.netease.nim.camellia.cache.spring.near.NearCacheInvalidator;
+import com.netease.nim.camellia.cache.spring.near.NearCacheMonitor;
+import com.netease.nim.camellia.cache.spring.near.NearNativeCache;
+import com.netease.nim.camellia.cache.spring.near.RedisNearCacheInvalidator;
 import com.netease.nim.camellia.cache.spring.redis.RedisNativeCacheInitializer;
 import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
 import org.slf4j.Logger;
@@ -70,6 +74,7 @@ public class CamelliaCacheConfiguration extends CachingConfigurerSupport {
         CamelliaCacheEnv.syncLoadMaxRetry = camelliaCacheProperties.getSyncLoadMaxRetry();
         CamelliaCacheEnv.syncLoadSleepMillis = camelliaCacheProperties.getSyncLoadSleepMillis();
         CamelliaCacheEnv.maxCacheValue = camelliaCacheProperties.getMaxCacheValue();
+        CamelliaCacheEnv.multiPutExpireJitterPercent = Math.max(0, Math.min(100, camelliaCacheProperties.getMultiPutExpireJitterPercent()));
         CamelliaCacheEnv.serializerErrorLogEnable = camelliaCacheProperties.isSerializerErrorLogEnable();
         logger.info("camellia-cache, enable = {}", CamelliaCacheEnv.enable);
         logger.info("camellia-cache, multiOpBatchSize = {}", CamelliaCacheEnv.multiOpBatchSize);
@@ -77,6 +82,7 @@ public class CamelliaCacheConfiguration extends CachingConfigurerSupport {
         logger.info("camellia-cache, syncLoadMaxRetry = {}", CamelliaCacheEnv.syncLoadMaxRetry);
         logger.info("camellia-cache, syncLoadSleepMillis = {}", CamelliaCacheEnv.syncLoadSleepMillis);
         logger.info("camellia-cache, maxCacheValue = {}", CamelliaCacheEnv.maxCacheValue);
+        logger.info("camellia-cache, multiPutExpireJitterPercent = {}", CamelliaCacheEnv.multiPutExpireJitterPercent);
         logger.info("camellia-cache, serializerErrorLogEnable = {}", CamelliaCacheEnv.serializerErrorLogEnable);
 
         CamelliaCacheSerializer<Object> serializer = camelliaCacheSerializer(camelliaCacheProperties);
@@ -110,13 +116,66 @@ public class CamelliaCacheConfiguration extends CachingConfigurerSupport {
         }
         RemoteNativeCache remoteNativeCache = remoteNativeCacheInitializer.init(serializer);
         if (remoteNativeCache != null) {
+            CamelliaCacheProperties.Near near = camelliaCacheProperties.getNear();
+            NearCacheInvalidator invalidator = null;
+            NearCacheMonitor monitor = null;
+            if (near.isEnable()) {
+                if (redisTemplate == null) {
+                    logger.warn("near camellia-cache disabled, CamelliaRedisTemplate is null");
+                } else {
+                    invalidator = new RedisNearCacheInvalidator(redisTemplate, near.getChannel());
+                    monitor = new NearCacheMonitor(near.getMonitorIntervalSeconds());
+                }
+            }
             for (CamelliaCacheNameEnum camelliaCacheNameEnum : CamelliaCacheNameEnum.values()) {
                 if (camelliaCacheNameEnum.getName().contains("REMOTE")) {
-                    camelliaCacheManager.addCamelliaCache(new CamelliaCacheConfig<>(cachePrefixGetter, camelliaCacheNameEnum, remoteNativeCache));
+                    INativeCache nativeCache = remoteNativeCache;
+                    if (invalidator != null) {
+                        NearNativeCache nearNativeCache = initNearNativeCache(near, camelliaCacheNameEnum, remoteNativeCache, invalidator, serializer);
+                        if (nearNativeCache != null) {
+                            monitor.register(nearNativeCache);
+                            nativeCache = nearNativeCache;
+                        }
+                    }
+                    camelliaCacheManager.addCamelliaCache(new CamelliaCacheConfig<>(cachePrefixGetter, camelliaCacheNameEnum, nativeCache));
                 }
             }
             logger.info("remote camellia-cache init success, RemoteNativeCacheInitializer = {}", remoteNativeCacheInitializer.getClass().getName());
         }
         return camelliaCacheManager;
     }
+
+    private NearNativeCache initNearNativeCache(CamelliaCacheProperties.Near near, CamelliaCacheNameEnum camelliaCacheNameEnum,
+                                                RemoteNativeCache remoteNativeCache, NearCacheInvalidator invalidator,
+                                                CamelliaCacheSerializer<Object> serializer) {
+        String name = camelliaCacheNameEnum.getName();
+        CamelliaCacheProperties.NearCache nearCache = near.getCaches().get(name);
+        if (!near.getCaches().isEmpty() && nearCache == null) {
+            return null;
+        }
+        long expireMillis = near.getExpireMillis();
+        int initialCapacity = near.getInitialCapacity();
+        int maxCapacity = near.getMaxCapacity();
+        if (nearCache != null) {
+            if (nearCache.getExpireMillis() > 0) {
+                expireMillis = nearCache.getExpireMillis();
+            }
+            if (nearCache.getInitialCapacity() > 0) {
+                initialCapacity = nearCache.getInitialCapacity();
+            }
+            if (nearCache.getMaxCapacity() > 0) {
+                maxCapacity = nearCache.getMaxCapacity();
+            }
+        }
+        //近端缓存的过期时间不超过缓存名本身的过期时间
+        if (camelliaCacheNameEnum.getExpireMillis() > 0) {
+            expireMillis = Math.min(expireMillis, camelliaCacheNameEnum.getExpireMillis());
+        }
+        if (expireMillis <= 0) {
+            return null;
+        }
+        logger.info("near camellia-cache init, name = {}, expireMillis = {}, initialCapacity = {}, maxCapacity = {}, safe = {}",
+                name, expireMillis, initialCapacity, maxCapacity, near.isSafe());
+        return new NearNativeCache(name, remoteNativeCache, invalidator, serializer, initialCapacity, maxCapacity, expireMillis, near.isSafe());
+    }
 }
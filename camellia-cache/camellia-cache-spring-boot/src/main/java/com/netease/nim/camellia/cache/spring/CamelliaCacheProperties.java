@@ -4,6 +4,9 @@ import com.netease.nim.camellia.cache.core.CamelliaCacheEnv;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "camellia-cache")
 public class CamelliaCacheProperties {
@@ -16,8 +19,10 @@ public class CamelliaCacheProperties {
     private boolean compressEnable = false;
     private int compressThreshold = 1024;
     private int maxCacheValue = CamelliaCacheEnv.maxCacheValue;//缓存value的最大值
+    private int multiPutExpireJitterPercent = CamelliaCacheEnv.multiPutExpireJitterPercent;//批量回填缓存时过期时间的随机抖动比例
     private boolean serializerErrorLogEnable = CamelliaCacheEnv.serializerErrorLogEnable;
     private Local local = new Local();
+    private Near near = new Near();
 
     public static class Local {
         private int initialCapacity = 10000;
@@ -40,6 +45,117 @@ public class CamelliaCacheProperties {
         }
     }
 
+    /**
+     * 近端缓存，开启后REMOTE缓存会变成两级缓存：本地Caffeine + 远程redis，通过redis的pub/sub通知其他实例失效近端缓存
+     */
+    public static class Near {
+        private boolean enable = false;
+        private String channel = "camellia_cache_near_invalidate";//失效通知的pub/sub通道
+        private boolean safe = true;//近端缓存是否存储序列化后的数据，避免获取的对象在外部被修改后影响缓存
+        private long expireMillis = 10000;//近端缓存的过期时间，不会超过缓存名本身的过期时间
+        private int initialCapacity = 1000;
+        private int maxCapacity = 10000;
+        private int monitorIntervalSeconds = 60;//命中统计的打印间隔
+        private Map<String, NearCache> caches = new HashMap<>();//按缓存名单独配置，如果不为空，则只有配置了的缓存名开启近端缓存
+
+        public boolean isEnable() {
+            return enable;
+        }
+
+        public void setEnable(boolean enable) {
+            this.enable = enable;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public void setChannel(String channel) {
+            this.channel = channel;
+        }
+
+        public boolean isSafe() {
+            return safe;
+        }
+
+        public void setSafe(boolean safe) {
+            this.safe = safe;
+        }
+
+        public long getExpireMillis() {
+            return expireMillis;
+        }
+
+        public void setExpireMillis(long expireMillis) {
+            this.expireMillis = expireMillis;
+        }
+
+        public int getInitialCapacity() {
+            return initialCapacity;
+        }
+
+        public void setInitialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+        }
+
+        public int getMaxCapacity() {
+            return maxCapacity;
+        }
+
+        public void setMaxCapacity(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+        }
+
+        public int getMonitorIntervalSeconds() {
+            return monitorIntervalSeconds;
+        }
+
+        public void setMonitorIntervalSeconds(int monitorIntervalSeconds) {
+            this.monitorIntervalSeconds = monitorIntervalSeconds;
+        }
+
+        public Map<String, NearCache> getCaches() {
+            return caches;
+        }
+
+        public void setCaches(Map<String, NearCache> caches) {
+            this.caches = caches;
+        }
+    }
+
+    /**
+     * 单个缓存名的近端缓存配置，小于等于0表示使用默认配置
+     */
+    public static class NearCache {
+        private long expireMillis = -1;
+        private int initialCapacity = -1;
+        private int maxCapacity = -1;
+
+        public long getExpireMillis() {
+            return expireMillis;
+        }
+
+        public void setExpireMillis(long expireMillis) {
+            this.expireMillis = expireMillis;
+        }
+
+        public int getInitialCapacity() {
+            return initialCapacity;
+        }
+
+        public void setInitialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+        }
+
+        public int getMaxCapacity() {
+            return maxCapacity;
+        }
+
+        public void setMaxCapacity(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+        }
+    }
+
     public boolean isEnable() {
         return enable;
     }
@@ -56,6 +172,14 @@ public class CamelliaCacheProperties {
         this.local = local;
     }
 
+    public Near getNear() {
+        return near;
+    }
+
+    public void setNear(Near near) {
+        this.near = near;
+    }
+
     public int getMultiOpBatchSize() {
         return multiOpBatchSize;
     }
@@ -112,6 +236,14 @@ public class CamelliaCacheProperties {
         this.maxCacheValue = maxCacheValue;
     }
 
+    public int getMultiPutExpireJitterPercent() {
+        return multiPutExpireJitterPercent;
+    }
+
+    public void setMultiPutExpireJitterPercent(int multiPutExpireJitterPercent) {
+        this.multiPutExpireJitterPercent = multiPutExpireJitterPercent;
+    }
+
     public boolean isSerializerErrorLogEnable() {
         return serializerErrorLogEnable;
     }
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -101,6 +102,19 @@ public class CaffeineNativeCache extends LocalNativeCache {
         }
     }
 
+    @Override
+    public void multiPut(Map<String, Object> kvs, long expireMillis, long jitterMillis) {
+        if (jitterMillis <= 0 || jitterMillis >= expireMillis) {
+            multiPut(kvs, expireMillis);
+            return;
+        }
+        if (kvs == null || kvs.isEmpty()) return;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (Map.Entry<String, Object> entry : kvs.entrySet()) {
+            put(entry.getKey(), entry.getValue(), expireMillis - random.nextLong(jitterMillis + 1));
+        }
+    }
+
     @Override
     public Object get(String key) {
         if (logger.isDebugEnabled()) {
@@ -196,6 +210,16 @@ public class CaffeineNativeCache extends LocalNativeCache {
         }
     }
 
+    /**
+     * 清空所有缓存
+     */
+    public void clear() {
+        cache.invalidateAll();
+        if (logger.isDebugEnabled()) {
+            logger.debug("clear, isSafe = {}", isSafe);
+        }
+    }
+
     private static class PutIfAbsentFunc implements Function<String, Item> {
         private boolean called = false;
         private final long expireMillis;
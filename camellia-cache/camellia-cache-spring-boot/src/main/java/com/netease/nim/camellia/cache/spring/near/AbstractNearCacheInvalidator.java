@@ -0,0 +1,54 @@
+package com.netease.nim.camellia.cache.spring.near;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 管理本实例的监听者，本实例内的失效通知同步分发，跨实例的广播由子类实现
+ */
+public abstract class AbstractNearCacheInvalidator implements NearCacheInvalidator {
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void invalidate(Listener source, Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) return;
+        for (Listener listener : listeners) {
+            if (listener != source) {
+                listener.onInvalidate(keys);
+            }
+        }
+        publish(keys);
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 广播给其他实例
+     * @param keys 缓存key
+     */
+    protected abstract void publish(Collection<String> keys);
+
+    /**
+     * 收到其他实例的失效通知
+     * @param keys 缓存key
+     */
+    protected void notifyInvalidate(Collection<String> keys) {
+        for (Listener listener : listeners) {
+            listener.onInvalidate(keys);
+        }
+    }
+
+    /**
+     * 通知通道（重新）建立
+     */
+    protected void notifyReset() {
+        for (Listener listener : listeners) {
+            listener.onReset();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.netease.nim.camellia.cache.spring.near;
+
+import java.util.Collection;
+
+/**
+ * 近端缓存的失效通知，某个近端缓存修改/删除了缓存后，通知本实例的其他近端缓存以及其他实例删除近端缓存
+ */
+public interface NearCacheInvalidator {
+
+    /**
+     * 失效通知
+     * <p> 本实例的其他监听者（不同的缓存名可能使用同一个远程key）同步收到通知，其他实例异步收到通知，本实例不会收到自己广播出去的通知
+     * @param source 发出通知的监听者，不会通知它自己
+     * @param keys 缓存key
+     */
+    void invalidate(Listener source, Collection<String> keys);
+
+    /**
+     * 添加监听
+     * @param listener 监听
+     */
+    void addListener(Listener listener);
+
+    interface Listener {
+
+        /**
+         * 收到失效通知
+         * @param keys 缓存key
+         */
+        void onInvalidate(Collection<String> keys);
+
+        /**
+         * 通知通道（重新）建立，期间可能丢失了通知，需要清空本地的近端缓存
+         */
+        void onReset();
+    }
+}
@@ -0,0 +1,47 @@
+package com.netease.nim.camellia.cache.spring.near;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 近端缓存的命中统计，定时打印日志
+ */
+public class NearCacheMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearCacheMonitor.class);
+
+    private final List<NearNativeCache> cacheList = new CopyOnWriteArrayList<>();
+
+    public NearCacheMonitor(int intervalSeconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "camellia-cache-near-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::print, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void register(NearNativeCache cache) {
+        cacheList.add(cache);
+    }
+
+    private void print() {
+        try {
+            for (NearNativeCache cache : cacheList) {
+                NearNativeCache.Stats stats = cache.sumThenResetStats();
+                long total = stats.getL1Hit() + stats.getL2Hit() + stats.getMiss();
+                if (total == 0) continue;
+                logger.info("near cache stats, name = {}, l1Hit = {}, l2Hit = {}, miss = {}, l1HitRate = {}",
+                        stats.getName(), stats.getL1Hit(), stats.getL2Hit(), stats.getMiss(), String.format("%.4f", stats.getL1Hit() / (double) total));
+            }
+        } catch (Exception e) {
+            logger.error("near cache stats error", e);
+        }
+    }
+}
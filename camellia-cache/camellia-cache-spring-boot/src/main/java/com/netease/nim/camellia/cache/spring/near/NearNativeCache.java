@@ -0,0 +1,277 @@
+package com.netease.nim.camellia.cache.spring.near;
+
+import com.netease.nim.camellia.cache.core.INativeCache;
+import com.netease.nim.camellia.cache.spring.CamelliaCacheSerializer;
+import com.netease.nim.camellia.cache.spring.RemoteNativeCache;
+import com.netease.nim.camellia.cache.spring.caffeine.CaffeineNativeCache;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存，一级是本地的近端缓存（Caffeine），二级是远程缓存（如redis）
+ * <p> 读：先读近端缓存，未命中再读远程缓存，并回填近端缓存
+ * <p> 写/删：先写远程缓存，再删除本地的近端缓存（不直接写入新值，避免并发写入时近端缓存留下先写的旧值），同步删除本实例其他缓存名的近端缓存（可能共用同一个远程key），并广播失效通知，其他实例收到后删除自己的近端缓存
+ * <p> 回填：读远程缓存前记录key所在分段的版本号，近端缓存的失效/更新会先增加版本号，版本号变化了的回填会被丢弃，避免把失效前读到的旧值写回近端缓存
+ * <p> 近端缓存的过期时间不超过远程缓存的过期时间，失效通知丢失或者乱序时，数据不一致的时间也不会超过近端缓存的过期时间
+ * <p> 分布式锁直接使用远程缓存
+ */
+public class NearNativeCache implements INativeCache, NearCacheInvalidator.Listener {
+
+    private static final int VERSION_SEGMENTS = 64;
+
+    private final String name;
+    private final CaffeineNativeCache local;
+    private final RemoteNativeCache remote;
+    private final NearCacheInvalidator invalidator;
+    private final long localExpireMillis;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_SEGMENTS);
+
+    private final LongAdder l1Hit = new LongAdder();
+    private final LongAdder l2Hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+
+    /**
+     * @param name 缓存名
+     * @param remote 远程缓存
+     * @param invalidator 失效通知
+     * @param serializer 序列化（safe=true时近端缓存存储序列化后的数据）
+     * @param initialCapacity 近端缓存的初始大小
+     * @param maxCapacity 近端缓存的最大大小
+     * @param localExpireMillis 近端缓存的过期时间
+     * @param safe 近端缓存是否是安全的（获取的对象在外部被修改不影响缓存）
+     */
+    public NearNativeCache(String name, RemoteNativeCache remote, NearCacheInvalidator invalidator, CamelliaCacheSerializer<Object> serializer,
+                           int initialCapacity, int maxCapacity, long localExpireMillis, boolean safe) {
+        if (localExpireMillis <= 0) {
+            throw new IllegalArgumentException("localExpireMillis should be positive");
+        }
+        this.name = name;
+        this.remote = remote;
+        this.invalidator = invalidator;
+        this.localExpireMillis = localExpireMillis;
+        this.local = new CaffeineNativeCache(initialCapacity, maxCapacity, safe, serializer);
+        invalidator.addListener(this);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        remote.put(key, value);
+        incrVersion(key);
+        local.delete(key);
+        invalidator.invalidate(this, Collections.singletonList(key));
+    }
+
+    @Override
+    public void put(String key, Object value, long expireMillis) {
+        remote.put(key, value, expireMillis);
+        incrVersion(key);
+        local.delete(key);
+        invalidator.invalidate(this, Collections.singletonList(key));
+    }
+
+    @Override
+    public void multiPut(Map<String, Object> kvs) {
+        if (kvs == null || kvs.isEmpty()) return;
+        remote.multiPut(kvs);
+        incrVersions(kvs.keySet());
+        local.multiDelete(kvs.keySet());
+        invalidator.invalidate(this, kvs.keySet());
+    }
+
+    @Override
+    public void multiPut(Map<String, Object> kvs, long expireMillis) {
+        if (kvs == null || kvs.isEmpty()) return;
+        remote.multiPut(kvs, expireMillis);
+        incrVersions(kvs.keySet());
+        local.multiDelete(kvs.keySet());
+        invalidator.invalidate(this, kvs.keySet());
+    }
+
+    @Override
+    public void multiPut(Map<String, Object> kvs, long expireMillis, long jitterMillis) {
+        if (kvs == null || kvs.isEmpty()) return;
+        remote.multiPut(kvs, expireMillis, jitterMillis);
+        incrVersions(kvs.keySet());
+        local.multiDelete(kvs.keySet());
+        invalidator.invalidate(this, kvs.keySet());
+    }
+
+    @Override
+    public Object get(String key) {
+        Object value = local.get(key);
+        if (value != null) {
+            l1Hit.increment();
+            return value;
+        }
+        long version = version(key);
+        value = remote.get(key);
+        if (value != null) {
+            l2Hit.increment();
+            fill(key, value, version);
+        } else {
+            miss.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public List<Object> multiGet(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) return Collections.emptyList();
+        List<Object> result = local.multiGet(keys);
+        List<String> missKeys = null;
+        List<Integer> missIndex = null;
+        int index = 0;
+        for (String key : keys) {
+            if (result.get(index) == null) {
+                if (missKeys == null) {
+                    missKeys = new ArrayList<>();
+                    missIndex = new ArrayList<>();
+                }
+                missKeys.add(key);
+                missIndex.add(index);
+            }
+            index ++;
+        }
+        l1Hit.add(keys.size() - (missKeys == null ? 0 : missKeys.size()));
+        if (missKeys == null) {
+            return result;
+        }
+        long[] missVersions = new long[missKeys.size()];
+        for (int i=0; i<missKeys.size(); i++) {
+            missVersions[i] = version(missKeys.get(i));
+        }
+        List<Object> remoteResult = remote.multiGet(missKeys);
+        int hit = 0;
+        for (int i=0; i<missKeys.size(); i++) {
+            Object value = remoteResult.get(i);
+            if (value != null) {
+                result.set(missIndex.get(i), value);
+                fill(missKeys.get(i), value, missVersions[i]);
+                hit ++;
+            }
+        }
+        l2Hit.add(hit);
+        miss.add(missKeys.size() - hit);
+        return result;
+    }
+
+    @Override
+    public void delete(String key) {
+        remote.delete(key);
+        incrVersion(key);
+        local.delete(key);
+        invalidator.invalidate(this, Collections.singletonList(key));
+    }
+
+    @Override
+    public void multiDelete(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) return;
+        remote.multiDelete(keys);
+        incrVersions(keys);
+        local.multiDelete(keys);
+        invalidator.invalidate(this, keys);
+    }
+
+    @Override
+    public boolean acquireLock(String key, long expireMillis) {
+        return remote.acquireLock(key, expireMillis);
+    }
+
+    @Override
+    public void releaseLock(String key) {
+        remote.releaseLock(key);
+    }
+
+    @Override
+    public void onInvalidate(Collection<String> keys) {
+        incrVersions(keys);
+        local.multiDelete(keys);
+    }
+
+    @Override
+    public void onReset() {
+        for (int i=0; i<VERSION_SEGMENTS; i++) {
+            versions.incrementAndGet(i);
+        }
+        local.clear();
+    }
+
+    /**
+     * 获取并重置统计数据
+     * @return 统计数据
+     */
+    public Stats sumThenResetStats() {
+        return new Stats(name, l1Hit.sumThenReset(), l2Hit.sumThenReset(), miss.sumThenReset());
+    }
+
+    //回填近端缓存，写入后再检查一次版本号，期间发生了失效的话删掉，避免失效前读到的旧值留在近端缓存
+    private void fill(String key, Object value, long version) {
+        if (version(key) != version) {
+            return;
+        }
+        local.put(key, value, localExpireMillis);
+        if (version(key) != version) {
+            local.delete(key);
+        }
+    }
+
+    private int segment(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_SEGMENTS - 1);
+    }
+
+    private long version(String key) {
+        return versions.get(segment(key));
+    }
+
+    private void incrVersion(String key) {
+        versions.incrementAndGet(segment(key));
+    }
+
+    private void incrVersions(Collection<String> keys) {
+        for (String key : keys) {
+            incrVersion(key);
+        }
+    }
+
+    public static class Stats {
+        private final String name;
+        private final long l1Hit;
+        private final long l2Hit;
+        private final long miss;
+
+        public Stats(String name, long l1Hit, long l2Hit, long miss) {
+            this.name = name;
+            this.l1Hit = l1Hit;
+            this.l2Hit = l2Hit;
+            this.miss = miss;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getL1Hit() {
+            return l1Hit;
+        }
+
+        public long getL2Hit() {
+            return l2Hit;
+        }
+
+        public long getMiss() {
+            return miss;
+        }
+
+        @Override
+        public String toString() {
+            return "name=" + name + ",l1Hit=" + l1Hit + ",l2Hit=" + l2Hit + ",miss=" + miss;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.netease.nim.camellia.cache.spring.near;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于redis的pub/sub实现的失效通知
+ * <p> 失效的key先放入队列，由后台线程合并后批量publish，避免每次写缓存都多一次同步的网络请求
+ * <p> 订阅断开后会自动重连，重连成功后会通知清空近端缓存（断开期间可能丢失了通知）
+ */
+public class RedisNearCacheInvalidator extends AbstractNearCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisNearCacheInvalidator.class);
+
+    private static final int maxBatch = 500;
+    private static final int queueSize = 100000;
+    private static final long reconnectIntervalMillis = 1000;
+
+    private final CamelliaRedisTemplate template;
+    private final String channel;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>(queueSize);
+
+    public RedisNearCacheInvalidator(CamelliaRedisTemplate template, String channel) {
+        this.template = template;
+        this.channel = channel;
+        Thread publishThread = new Thread(this::publishLoop, "camellia-cache-near-publish");
+        publishThread.setDaemon(true);
+        publishThread.start();
+        Thread subscribeThread = new Thread(this::subscribeLoop, "camellia-cache-near-subscribe");
+        subscribeThread.setDaemon(true);
+        subscribeThread.start();
+    }
+
+    @Override
+    protected void publish(Collection<String> keys) {
+        for (String key : keys) {
+            if (!queue.offer(key)) {
+                //丢失的通知只能依赖近端缓存的过期时间
+                logger.warn("near cache invalidate queue full, key = {}", key);
+            }
+        }
+    }
+
+    private void publishLoop() {
+        List<String> keys = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                String key = queue.poll(1, TimeUnit.SECONDS);
+                if (key == null) continue;
+                keys.add(key);
+                queue.drainTo(keys, maxBatch - 1);
+                Map<String, Object> message = new HashMap<>();
+                message.put("i", instanceId);
+                message.put("k", keys);
+                String json = objectMapper.writeValueAsString(message);
+                try (Jedis jedis = template.getWriteJedis(channel)) {
+                    jedis.publish(channel, json);
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("near cache invalidate publish, keys = {}", keys);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("near cache invalidate publish error, keys.size = {}", keys.size(), e);
+            } finally {
+                keys.clear();
+            }
+        }
+    }
+
+    private void subscribeLoop() {
+        while (true) {
+            try (Jedis jedis = template.getWriteJedis(channel)) {
+                jedis.subscribe(new JedisPubSub() {
+                    @Override
+                    public void onSubscribe(String channel, int subscribedChannels) {
+                        logger.info("near cache invalidate channel subscribed, channel = {}", channel);
+                        notifyReset();
+                    }
+
+                    @Override
+                    public void onMessage(String channel, String message) {
+                        onInvalidateMessage(message);
+                    }
+                }, channel);
+            } catch (Exception e) {
+                logger.error("near cache invalidate subscribe error, channel = {}, will retry", channel, e);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(reconnectIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void onInvalidateMessage(String message) {
+        try {
+            Map<?, ?> map = objectMapper.readValue(message, Map.class);
+            if (instanceId.equals(map.get("i"))) {
+                return;
+            }
+            List<String> keys = new ArrayList<>();
+            Object k = map.get("k");
+            if (k instanceof Collection) {
+                for (Object key : (Collection<?>) k) {
+                    keys.add(String.valueOf(key));
+                }
+            }
+            if (keys.isEmpty()) return;
+            notifyInvalidate(keys);
+        } catch (Exception e) {
+            logger.error("near cache invalidate message error, message = {}", message, e);
+        }
+    }
+}
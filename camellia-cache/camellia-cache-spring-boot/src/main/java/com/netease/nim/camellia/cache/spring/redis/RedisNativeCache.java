@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RedisNativeCache extends RemoteNativeCache {
 
@@ -93,6 +94,33 @@ public class RedisNativeCache extends RemoteNativeCache {
         }
     }
 
+    @Override
+    public void multiPut(Map<String, Object> kvs, long expireMillis, long jitterMillis) {
+        if (jitterMillis <= 0 || jitterMillis >= expireMillis) {
+            multiPut(kvs, expireMillis);
+            return;
+        }
+        if (kvs == null || kvs.isEmpty()) return;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (ICamelliaRedisPipeline pipelined = template.pipelined()) {
+            for (Map.Entry<String, Object> entry : kvs.entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                byte[] raw = serializer.serialize(value);
+                if (raw.length > CamelliaCacheEnv.maxCacheValue) {
+                    logger.warn("cache value.length[{}] exceed threshold[{}], key = {}", raw.length, CamelliaCacheEnv.maxCacheValue, key);
+                    continue;
+                }
+                pipelined.psetex(SafeEncoder.encode(key), expireMillis - random.nextLong(jitterMillis + 1), raw);
+            }
+            pipelined.sync();
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("multiPut, keys = {}, expireMillis = {}, jitterMillis = {}", kvs.keySet(), expireMillis, jitterMillis);
+            }
+        }
+    }
+
     @Override
     public Object get(String key) {
         byte[] bytes = template.get(SafeEncoder.encode(key));
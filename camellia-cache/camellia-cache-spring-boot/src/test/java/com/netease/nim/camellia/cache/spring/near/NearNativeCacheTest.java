@@ -0,0 +1,189 @@
+package com.netease.nim.camellia.cache.spring.near;
+
+import com.netease.nim.camellia.cache.spring.RemoteNativeCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一个实例上的多个缓存名共用同一个远程缓存
+ */
+public class NearNativeCacheTest {
+
+    @Test
+    public void testPutInvalidatesOtherCacheName() {
+        MapRemoteNativeCache remote = new MapRemoteNativeCache();
+        LocalInvalidator invalidator = new LocalInvalidator();
+        NearNativeCache cache1 = newCache("cache1", remote, invalidator);
+        NearNativeCache cache2 = newCache("cache2", remote, invalidator);
+
+        cache1.put("k", "v1");
+        Assert.assertEquals("v1", cache2.get("k"));
+
+        cache1.put("k", "v2");
+        Assert.assertEquals("v2", cache2.get("k"));
+        Assert.assertEquals("v2", cache1.get("k"));
+        Assert.assertEquals(Collections.singletonList("k"), invalidator.published.get(1));
+    }
+
+    @Test
+    public void testDeleteInvalidatesOtherCacheName() {
+        MapRemoteNativeCache remote = new MapRemoteNativeCache();
+        LocalInvalidator invalidator = new LocalInvalidator();
+        NearNativeCache cache1 = newCache("cache1", remote, invalidator);
+        NearNativeCache cache2 = newCache("cache2", remote, invalidator);
+
+        cache1.multiPut(Collections.singletonMap("k", "v1"));
+        Assert.assertEquals(Collections.singletonList("v1"), cache2.multiGet(Collections.singletonList("k")));
+
+        cache1.delete("k");
+        Assert.assertNull(cache2.get("k"));
+        Assert.assertEquals(Collections.singletonList(null), cache2.multiGet(Collections.singletonList("k")));
+    }
+
+    @Test
+    public void testFillAfterConcurrentInvalidateIsDropped() throws Exception {
+        MapRemoteNativeCache remote = new MapRemoteNativeCache();
+        LocalInvalidator invalidator = new LocalInvalidator();
+        NearNativeCache cache1 = newCache("cache1", remote, invalidator);
+        NearNativeCache cache2 = newCache("cache2", remote, invalidator);
+
+        remote.put("k", "v1");
+        CountDownLatch readDone = new CountDownLatch(1);
+        CountDownLatch writeDone = new CountDownLatch(1);
+        remote.afterGet = () -> {
+            readDone.countDown();
+            await(writeDone);
+        };
+        //cache2从远程读到了v1，回填之前cache1写入了v2
+        Thread reader = new Thread(() -> cache2.get("k"));
+        reader.start();
+        Assert.assertTrue(readDone.await(5, TimeUnit.SECONDS));
+        remote.afterGet = null;
+        cache1.put("k", "v2");
+        writeDone.countDown();
+        reader.join(5000);
+
+        Assert.assertEquals("v2", cache2.get("k"));
+    }
+
+    @Test
+    public void testConcurrentPutLeavesNoStaleLocalValue() throws Exception {
+        MapRemoteNativeCache remote = new MapRemoteNativeCache();
+        LocalInvalidator invalidator = new LocalInvalidator();
+        NearNativeCache cache1 = newCache("cache1", remote, invalidator);
+
+        CountDownLatch remoteWritten = new CountDownLatch(1);
+        CountDownLatch otherPutDone = new CountDownLatch(1);
+        remote.afterPut = () -> {
+            remoteWritten.countDown();
+            await(otherPutDone);
+        };
+        //写v1的线程写完远程之后暂停，期间另一个线程写入了v2
+        Thread writer = new Thread(() -> cache1.put("k", "v1"));
+        writer.start();
+        Assert.assertTrue(remoteWritten.await(5, TimeUnit.SECONDS));
+        remote.afterPut = null;
+        cache1.put("k", "v2");
+        otherPutDone.countDown();
+        writer.join(5000);
+
+        Assert.assertEquals(remote.get("k"), cache1.get("k"));
+    }
+
+    private static NearNativeCache newCache(String name, RemoteNativeCache remote, NearCacheInvalidator invalidator) {
+        return new NearNativeCache(name, remote, invalidator, null, 16, 1000, 60000, false);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class LocalInvalidator extends AbstractNearCacheInvalidator {
+        private final List<Collection<String>> published = new ArrayList<>();
+
+        @Override
+        protected void publish(Collection<String> keys) {
+            published.add(new ArrayList<>(keys));
+        }
+    }
+
+    private static class MapRemoteNativeCache extends RemoteNativeCache {
+        private final Map<String, Object> map = new ConcurrentHashMap<>();
+        private volatile Runnable afterGet;
+        private volatile Runnable afterPut;
+
+        @Override
+        public void put(String key, Object value) {
+            map.put(key, value);
+            Runnable runnable = afterPut;
+            if (runnable != null) {
+                runnable.run();
+            }
+        }
+
+        @Override
+        public void put(String key, Object value, long expireMillis) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void multiPut(Map<String, Object> kvs) {
+            map.putAll(kvs);
+        }
+
+        @Override
+        public void multiPut(Map<String, Object> kvs, long expireMillis) {
+            map.putAll(kvs);
+        }
+
+        @Override
+        public Object get(String key) {
+            Object value = map.get(key);
+            Runnable runnable = afterGet;
+            if (runnable != null) {
+                runnable.run();
+            }
+            return value;
+        }
+
+        @Override
+        public List<Object> multiGet(Collection<String> keys) {
+            List<Object> list = new ArrayList<>();
+            for (String key : keys) {
+                list.add(map.get(key));
+            }
+            return list;
+        }
+
+        @Override
+        public void delete(String key) {
+            map.remove(key);
+        }
+
+        @Override
+        public void multiDelete(Collection<String> keys) {
+            for (String key : keys) {
+                map.remove(key);
+            }
+        }
+
+        @Override
+        public boolean acquireLock(String key, long expireMillis) {
+            return map.putIfAbsent(key, Boolean.TRUE) == null;
+        }
+
+        @Override
+        public void releaseLock(String key) {
+            map.remove(key);
+        }
+    }
+}
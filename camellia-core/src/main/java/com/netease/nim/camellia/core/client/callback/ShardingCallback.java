@@ -12,7 +12,6 @@ import com.netease.nim.camellia.tools.utils.ExceptionUtils;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
-import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
@@ -21,18 +20,24 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- *
+ * sharding代理
+ * <p> 每个方法的sharding元数据（sharding参数下标、集合类型、数组类型、key前缀、结果合并方式）在构造时一次性解析好，调用时只需要一次map查询
+ * <p> 集合参数按元素直接分组到后端代理，不再经过中间的单元素数组/集合
+ * <p> 通过cglib生成的MethodProxy（FastClass）调用后端代理，不走Method.invoke反射
  * Created by caojiajun on 2019/5/17.
  */
 public class ShardingCallback<T> implements MethodInterceptor {
 
+    private static final byte[] EMPTY = new byte[0];
+
     private final IProxyHub<T> proxyHub;
     private ProxyEnv env = ProxyEnv.defaultProxyEnv();
+    private final ConcurrentHashMap<Method, MethodMeta> metaMap = new ConcurrentHashMap<>();
 
     public ShardingCallback(IProxyHub<T> proxyHub, Class<T> clazz, ProxyEnv env) {
         this.proxyHub = proxyHub;
         for (Method method : clazz.getMethods()) {
-            initCache(method);
+            metaMap.put(method, initMeta(method));
         }
         if (env != null) {
             this.env = env;
@@ -40,538 +45,337 @@ public class ShardingCallback<T> implements MethodInterceptor {
     }
 
     @Override
-    public Object intercept(Object o, final Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
+    public Object intercept(Object o, final Method method, Object[] objects, final MethodProxy methodProxy) throws Throwable {
         try {
-            if (!isOpMethod(method)) {
+            MethodMeta meta = getMeta(method);
+            if (!meta.op) {
                 return methodProxy.invokeSuper(o, objects);
             }
-            CollectionType collectionType = getCollectionType(method);
-
-            if (collectionType == CollectionType.NOT_COLLECTION) {
-                byte[][] key = parseShardingSimple(method, objects);
-                T proxy = proxyHub.chooseProxy(key);
-                return method.invoke(proxy, objects);
-            } else {
-                Map<T, List<Object[]>> proxyMap = new HashMap<>();
-                Map<byte[][], Object[]> map;
-                switch (collectionType) {
-                    case LIST:
-                        map = parseShardingListParam(method, objects);
-                        break;
-                    case SET:
-                        map = parseShardingSetParam(method, objects);
-                        break;
-                    case Map:
-                        map = parseShardingMapParam(method, objects);
-                        break;
-                    case ARRAY:
-                        map = parseShardingArrayParam(method, objects);
-                        break;
-                    default:
-                        throw new UnsupportedEncodingException("CollectionType only support List/Set/Map/Array");
-                }
-                for (Map.Entry<byte[][], Object[]> entry : map.entrySet()) {
-                    byte[][] key = entry.getKey();
-                    Object[] param = entry.getValue();
-                    T proxy = proxyHub.chooseProxy(key);
-                    List<Object[]> list = CamelliaMapUtils.computeIfAbsent(proxyMap, proxy, k -> new ArrayList<>());
-                    list.add(param);
-                }
-                Map<T, Object[]> finalProxyMap;
-                switch (collectionType) {
-                    case LIST:
-                        finalProxyMap = mergeProxyMapOfList(proxyMap, method, objects);
-                        break;
-                    case SET:
-                        finalProxyMap = mergeProxyMapOfSet(proxyMap, method, objects);
-                        break;
-                    case Map:
-                        finalProxyMap = mergeProxyMapOfMap(proxyMap, method, objects);
-                        break;
-                    case ARRAY:
-                        finalProxyMap = mergeProxyMapOfArray(proxyMap, method, objects);
-                        break;
-                    default:
-                        throw new UnsupportedEncodingException("CollectionType only support List/Set/Map/Array");
-                }
-
-                if (finalProxyMap.size() == 1) {
-                    for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
-                        T proxy = entry.getKey();
-                        Object[] params = entry.getValue();
-                        return method.invoke(proxy, params);
-                    }
-                    throw new RuntimeException("will not invoke here");
-                } else {
-                    if (env.isShardingConcurrentEnable()) {
-                        ThreadContextSwitchStrategy strategy = env.getThreadContextSwitchStrategy();
-                        final AtomicBoolean isInvokeError = new AtomicBoolean(false);
-                        final Throwable[] invokeError = new Throwable[1];
-                        List<Object> results = new ArrayList<>();
-                        List<Future<Object>> futureList = new ArrayList<>();
-                        for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
-                            final T proxy = entry.getKey();
-                            final Object[] params = entry.getValue();
-                            Future<Object> future = env.getShardingConcurrentExec().submit(strategy.wrapperCallable(() -> {
-                                try {
-                                    return method.invoke(proxy, params);
-                                } catch (Throwable e) {
-                                    invokeError[0] = e;
-                                    isInvokeError.set(true);
-                                    throw e;
-                                }
-                            }));
-                            futureList.add(future);
-                        }
-                        for (Future<Object> future : futureList) {
-                            if (isInvokeError.get() && invokeError[0] != null) {
-                                throw invokeError[0];
+            if (meta.collectionType == CollectionType.NOT_COLLECTION) {
+                T proxy = proxyHub.chooseProxy(parseShardingSimple(meta, objects));
+                return methodProxy.invoke(proxy, objects);
+            }
+            Map<T, Object> groupMap = groupByProxy(meta, objects);
+            if (groupMap.size() == 1) {
+                //都落在同一个后端上，直接使用原始参数
+                return methodProxy.invoke(groupMap.keySet().iterator().next(), objects);
+            }
+            Map<T, Object[]> finalProxyMap = new HashMap<>(groupMap.size() * 2);
+            for (Map.Entry<T, Object> entry : groupMap.entrySet()) {
+                Object[] param = copy(objects);
+                param[meta.collectionIndex] = toCollectionParam(meta, objects[meta.collectionIndex], entry.getValue());
+                finalProxyMap.put(entry.getKey(), param);
+            }
+            if (env.isShardingConcurrentEnable()) {
+                ThreadContextSwitchStrategy strategy = env.getThreadContextSwitchStrategy();
+                final AtomicBoolean isInvokeError = new AtomicBoolean(false);
+                final Throwable[] invokeError = new Throwable[1];
+                List<Object> results = new ArrayList<>(finalProxyMap.size());
+                List<Future<Object>> futureList = new ArrayList<>(finalProxyMap.size());
+                for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
+                    final T proxy = entry.getKey();
+                    final Object[] params = entry.getValue();
+                    Future<Object> future = env.getShardingConcurrentExec().submit(strategy.wrapperCallable(() -> {
+                        try {
+                            return methodProxy.invoke(proxy, params);
+                        } catch (Throwable e) {
+                            invokeError[0] = e;
+                            isInvokeError.set(true);
+                            if (e instanceof Exception) {
+                                throw (Exception) e;
                             }
-                            Object result = future.get();
-                            results.add(result);
+                            throw new ExecutionException(e);
                         }
-                        return mergeResult(results, method);
-                    } else {
-                        List<Object> results = new ArrayList<>();
-                        for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
-                            T proxy = entry.getKey();
-                            Object[] params = entry.getValue();
-                            Object result = method.invoke(proxy, params);
-                            results.add(result);
-                        }
-                        return mergeResult(results, method);
+                    }));
+                    futureList.add(future);
+                }
+                for (Future<Object> future : futureList) {
+                    if (isInvokeError.get() && invokeError[0] != null) {
+                        throw invokeError[0];
                     }
+                    Object result = future.get();
+                    results.add(result);
                 }
+                return mergeResult(results, meta.mergeType);
+            } else {
+                List<Object> results = new ArrayList<>(finalProxyMap.size());
+                for (Map.Entry<T, Object[]> entry : finalProxyMap.entrySet()) {
+                    Object result = methodProxy.invoke(entry.getKey(), entry.getValue());
+                    results.add(result);
+                }
+                return mergeResult(results, meta.mergeType);
             }
         } catch (Throwable e) {
             throw ExceptionUtils.onError(e);
         }
     }
 
-    private Map<T, Object[]> mergeProxyMapOfArray(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
+    private MethodMeta getMeta(Method method) {
+        MethodMeta meta = metaMap.get(method);
+        if (meta != null) return meta;
+        return CamelliaMapUtils.computeIfAbsent(metaMap, method, this::initMeta);
+    }
 
-            Object arrayParam;
-            String name = getShardingCollectionParamArrayParamType(method);
-            switch (name) {
-                case "java.lang.String":
-                    String[] strArrayParam = new String[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        String[] obj = (String[]) (value.get(i)[collectionShardingIndex]);
-                        strArrayParam[i] = obj[0];
-                    }
-                    arrayParam = strArrayParam;
-                    break;
-                case "java.lang.Long": {
-                    Long[] longArrayParam = new Long[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        Long[] obj = (Long[]) (value.get(i)[collectionShardingIndex]);
-                        longArrayParam[i] = obj[0];
-                    }
-                    arrayParam = longArrayParam;
-                    break;
-                }
-                case "java.lang.Integer": {
-                    Integer[] integerArrayParam = new Integer[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        Integer[] obj = (Integer[]) (value.get(i)[collectionShardingIndex]);
-                        integerArrayParam[i] = obj[0];
-                    }
-                    arrayParam = integerArrayParam;
-                    break;
-                }
-                case "java.lang.Byte": {
-                    Byte[] integerArrayParam = new Byte[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        Byte[] obj = (Byte[]) (value.get(i)[collectionShardingIndex]);
-                        integerArrayParam[i] = obj[0];
-                    }
-                    arrayParam = integerArrayParam;
-                    break;
-                }
-                case "long": {
-                    long[] longArrayParam = new long[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        long[] obj = (long[]) (value.get(i)[collectionShardingIndex]);
-                        longArrayParam[i] = obj[0];
-                    }
-                    arrayParam = longArrayParam;
-                    break;
+    /**
+     * 把集合参数的元素按后端代理分组
+     * @return 后端代理 -> 分到该后端的元素，List/Set为对应的集合，Map为子map，数组为元素下标
+     */
+    private Map<T, Object> groupByProxy(MethodMeta meta, Object[] objects) {
+        Map<T, Object> groupMap = new HashMap<>();
+        Object collectionParam = objects[meta.collectionIndex];
+        switch (meta.collectionType) {
+            case LIST: {
+                for (Object c : (List<?>) collectionParam) {
+                    T proxy = proxyHub.chooseProxy(shardingKey(meta, objects, toBytes(c)));
+                    List<Object> list = (List<Object>) CamelliaMapUtils.computeIfAbsent(groupMap, proxy, k -> new ArrayList<>());
+                    list.add(c);
                 }
-                case "int": {
-                    int[] intArrayParam = new int[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        int[] obj = (int[]) (value.get(i)[collectionShardingIndex]);
-                        intArrayParam[i] = obj[0];
-                    }
-                    arrayParam = intArrayParam;
-                    break;
+                break;
+            }
+            case SET: {
+                for (Object c : (Set<?>) collectionParam) {
+                    T proxy = proxyHub.chooseProxy(shardingKey(meta, objects, toBytes(c)));
+                    Set<Object> set = (Set<Object>) CamelliaMapUtils.computeIfAbsent(groupMap, proxy, k -> new HashSet<>());
+                    set.add(c);
                 }
-                case "byte": {
-                    byte[] byteArrayParam = new byte[value.size()];
-                    for (int i = 0; i < value.size(); i++) {
-                        byte[] obj = (byte[]) (value.get(i)[collectionShardingIndex]);
-                        byteArrayParam[i] = obj[0];
-                    }
-                    arrayParam = byteArrayParam;
-                    break;
+                break;
+            }
+            case Map: {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) collectionParam).entrySet()) {
+                    T proxy = proxyHub.chooseProxy(shardingKey(meta, objects, toBytes(entry.getKey())));
+                    Map<Object, Object> map = (Map<Object, Object>) CamelliaMapUtils.computeIfAbsent(groupMap, proxy, k -> new HashMap<>());
+                    map.put(entry.getKey(), entry.getValue());
                 }
-                case "[B": {
-                    byte[][] byte2ArrayParam = new byte[value.size()][0];
-                    for (int i = 0; i < value.size(); i++) {
-                        byte[][] obj = (byte[][]) (value.get(i)[collectionShardingIndex]);
-                        byte2ArrayParam[i] = obj[0];
-                    }
-                    arrayParam = byte2ArrayParam;
-                    break;
+                break;
+            }
+            case ARRAY: {
+                int length = arrayLength(meta.arrayType, collectionParam);
+                for (int i=0; i<length; i++) {
+                    T proxy = proxyHub.chooseProxy(shardingKey(meta, objects, arrayElementBytes(meta.arrayType, collectionParam, i)));
+                    IndexList indexList = (IndexList) CamelliaMapUtils.computeIfAbsent(groupMap, proxy, k -> new IndexList());
+                    indexList.add(i);
                 }
-                default:
-                    throw new UnsupportedOperationException("Unsupported array param type");
+                break;
             }
-
-            param[collectionShardingIndex] = arrayParam;
-            finalProxyMap.put(proxy, param);
+            default:
+                throw new UnsupportedOperationException("CollectionType only support List/Set/Map/Array");
         }
-        return finalProxyMap;
+        return groupMap;
     }
 
-    private Map<T, Object[]> mergeProxyMapOfSet(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
-            Set<Object> set = new HashSet<>();
-            for (Object[] obj : value) {
-                set.addAll((Set) obj[collectionShardingIndex]);
-            }
-            param[collectionShardingIndex] = set;
-            finalProxyMap.put(proxy, param);
+    private Object toCollectionParam(MethodMeta meta, Object collectionParam, Object group) {
+        if (meta.collectionType != CollectionType.ARRAY) {
+            return group;
         }
-        return finalProxyMap;
-    }
-
-    private Map<T, Object[]> mergeProxyMapOfMap(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
-            Map<Object, Object> map1 = new HashMap<>();
-            for (Object[] obj : value) {
-                map1.putAll((Map) obj[collectionShardingIndex]);
+        IndexList indexList = (IndexList) group;
+        int size = indexList.size;
+        int[] index = indexList.array;
+        switch (meta.arrayType) {
+            case STRING: {
+                String[] src = (String[]) collectionParam;
+                String[] dest = new String[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
+                }
+                return dest;
             }
-            param[collectionShardingIndex] = map1;
-            finalProxyMap.put(proxy, param);
-        }
-        return finalProxyMap;
-    }
-
-    private Map<T, Object[]> mergeProxyMapOfList(Map<T, List<Object[]>> proxyMap, Method method, Object[] objects) {
-        Map<T, Object[]> finalProxyMap = new HashMap<>();
-        int collectionShardingIndex = getShardingCollectionParamIndex(method);
-        for (Map.Entry<T, List<Object[]>> entry : proxyMap.entrySet()) {
-            T proxy = entry.getKey();
-            List<Object[]> value = entry.getValue();
-            Object[] param = copy(objects);
-            List<Object> list = new ArrayList<>();
-            for (Object[] obj : value) {
-                list.addAll((List) obj[collectionShardingIndex]);
+            case LONG_OBJ: {
+                Long[] src = (Long[]) collectionParam;
+                Long[] dest = new Long[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
+                }
+                return dest;
             }
-            param[collectionShardingIndex] = list;
-            finalProxyMap.put(proxy, param);
-        }
-        return finalProxyMap;
-    }
-
-    private Object mergeResult(List<Object> results, Method method) {
-        if (results.size() == 1) return results.get(0);
-        Class<?> returnType = method.getReturnType();
-        if (Boolean.class.isAssignableFrom(returnType) || boolean.class.isAssignableFrom(returnType)) {
-            for (Object result : results) {
-                if (result == null) continue;
-                if (!(boolean) result) {
-                    return false;
+            case INTEGER_OBJ: {
+                Integer[] src = (Integer[]) collectionParam;
+                Integer[] dest = new Integer[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
                 }
+                return dest;
             }
-            return true;
-        } else if (Map.class.isAssignableFrom(returnType)){
-            Map map = new HashMap();
-            for (Object result : results) {
-                if (result == null) continue;
-                map.putAll((Map) result);
+            case BYTE_OBJ: {
+                Byte[] src = (Byte[]) collectionParam;
+                Byte[] dest = new Byte[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
+                }
+                return dest;
             }
-            return map;
-        } else if (Integer.class.isAssignableFrom(returnType) || int.class.isAssignableFrom(returnType)) {
-            int ret = 0;
-            for (Object result : results) {
-                if (result == null) continue;
-                ret += (int) result;
+            case LONG: {
+                long[] src = (long[]) collectionParam;
+                long[] dest = new long[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
+                }
+                return dest;
             }
-            return ret;
-        } else if (Long.class.isAssignableFrom(returnType) || long.class.isAssignableFrom(returnType)) {
-            long ret = 0;
-            for (Object result : results) {
-                if (result == null) continue;
-                ret += (long) result;
+            case INT: {
+                int[] src = (int[]) collectionParam;
+                int[] dest = new int[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
+                }
+                return dest;
             }
-            return ret;
-        } else if (Set.class.isAssignableFrom(returnType)) {
-            Set set = new HashSet();
-            for (Object result : results) {
-                if (result == null) continue;
-                set.addAll((Set) result);
+            case BYTE: {
+                byte[] src = (byte[]) collectionParam;
+                byte[] dest = new byte[size];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
+                }
+                return dest;
             }
-            return set;
-        } else if (List.class.isAssignableFrom(returnType)) {
-            //注意，不保证List的顺序
-            List list = new ArrayList();
-            for (Object result : results) {
-                if (result == null) continue;
-                list.addAll((List) result);
+            case BYTES: {
+                byte[][] src = (byte[][]) collectionParam;
+                byte[][] dest = new byte[size][];
+                for (int i=0; i<size; i++) {
+                    dest[i] = src[index[i]];
+                }
+                return dest;
             }
-            return list;
-        } else if (void.class.isAssignableFrom(returnType)) {
-            return results.get(0);
-        } else {
-            return results.get(0);
+            default:
+                throw new UnsupportedOperationException("Unsupported array param type");
         }
     }
 
-    private Object[] copy(Object[] objects) {
-        Object[] copy = new Object[objects.length];
-        System.arraycopy(objects, 0, copy, 0, copy.length);
-        return copy;
+    private int arrayLength(ArrayType arrayType, Object arrayParam) {
+        if (arrayType == null) {
+            throw new UnsupportedOperationException("Unsupported array param type");
+        }
+        switch (arrayType) {
+            case STRING:
+            case LONG_OBJ:
+            case INTEGER_OBJ:
+            case BYTE_OBJ:
+            case BYTES:
+                return ((Object[]) arrayParam).length;
+            case LONG:
+                return ((long[]) arrayParam).length;
+            case INT:
+                return ((int[]) arrayParam).length;
+            case BYTE:
+                return ((byte[]) arrayParam).length;
+            default:
+                throw new UnsupportedOperationException("Unsupported array param type");
+        }
     }
 
-    private Map<byte[][], Object[]> parseShardingArrayParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
-
-        List<Object> arrayParamList = new ArrayList<>();
-        List<Object> arrayParamInnerList = new ArrayList<>();
-        Object arrayParam = objects[shardingCollectionParamIndex];
-        String name = getShardingCollectionParamArrayParamType(method);
-        switch (name) {
-            case "java.lang.String":
-                String[] strArr = (String[]) arrayParam;
-                for (String s : strArr) {
-                    arrayParamList.add(new String[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "java.lang.Integer":
-                Integer[] integerArr = (Integer[]) arrayParam;
-                for (Integer s : integerArr) {
-                    arrayParamList.add(new Integer[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "java.lang.Long":
-                Long[] longArr = (Long[]) arrayParam;
-                for (Long s : longArr) {
-                    arrayParamList.add(new Long[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "java.lang.Byte":
-                Byte[] byteArr = (Byte[]) arrayParam;
-                for (Byte s : byteArr) {
-                    arrayParamList.add(new Byte[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "int":
-                int[] intArr2 = (int[]) arrayParam;
-                for (int s : intArr2) {
-                    arrayParamList.add(new int[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "long":
-                long[] longArr2 = (long[]) arrayParam;
-                for (long s : longArr2) {
-                    arrayParamList.add(new long[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "byte":
-                byte[] byteArr2 = (byte[]) arrayParam;
-                for (byte s : byteArr2) {
-                    arrayParamList.add(new byte[] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
-            case "[B":
-                byte[][] byteArr3 = (byte[][]) arrayParam;
-                for (byte[] s : byteArr3) {
-                    arrayParamList.add(new byte[][] {s});
-                    arrayParamInnerList.add(s);
-                }
-                break;
+    private byte[] arrayElementBytes(ArrayType arrayType, Object arrayParam, int index) {
+        switch (arrayType) {
+            case STRING:
+            case LONG_OBJ:
+            case INTEGER_OBJ:
+            case BYTE_OBJ:
+            case BYTES:
+                return toBytes(((Object[]) arrayParam)[index]);
+            case LONG:
+                return String.valueOf(((long[]) arrayParam)[index]).getBytes(StandardCharsets.UTF_8);
+            case INT:
+                return String.valueOf(((int[]) arrayParam)[index]).getBytes(StandardCharsets.UTF_8);
+            case BYTE:
+                return String.valueOf(((byte[]) arrayParam)[index]).getBytes(StandardCharsets.UTF_8);
             default:
                 throw new UnsupportedOperationException("Unsupported array param type");
         }
-        for (int i=0; i<arrayParamList.size(); i++) {
-            Object c = arrayParamList.get(i);
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
-            }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(arrayParamInnerList.get(i)));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int j=0; j<objects.length; j++) {
-                if (j != shardingCollectionParamIndex) {
-                    param[j] = objects[j];
-                } else {
-                    param[j] = c;
-                }
-            }
-            map.put(key, param);
-        }
-        return map;
     }
 
-    private Map<byte[][], Object[]> parseShardingSetParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
-
-        Set setParam = (Set) objects[shardingCollectionParamIndex];
-        for (Object c : setParam) {
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
+    private Object mergeResult(List<Object> results, MergeType mergeType) {
+        if (results.size() == 1) return results.get(0);
+        switch (mergeType) {
+            case BOOLEAN: {
+                for (Object result : results) {
+                    if (result == null) continue;
+                    if (!(boolean) result) {
+                        return false;
+                    }
+                }
+                return true;
             }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(c));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
+            case MAP: {
+                Map map = new HashMap();
+                for (Object result : results) {
+                    if (result == null) continue;
+                    map.putAll((Map) result);
                 }
+                return map;
             }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int i=0; i<objects.length; i++) {
-                if (i != shardingCollectionParamIndex) {
-                    param[i] = objects[i];
-                } else {
-                    Set<Object> set = new HashSet<>();
-                    set.add(c);
-                    param[i] = set;
+            case INT: {
+                int ret = 0;
+                for (Object result : results) {
+                    if (result == null) continue;
+                    ret += (int) result;
                 }
+                return ret;
             }
-            map.put(key, param);
-        }
-        return map;
-    }
-
-    private Map<byte[][], Object[]> parseShardingMapParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
-
-        Map mapParam = (Map) objects[shardingCollectionParamIndex];
-        for (Object k : mapParam.keySet()) {
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
+            case LONG: {
+                long ret = 0;
+                for (Object result : results) {
+                    if (result == null) continue;
+                    ret += (long) result;
+                }
+                return ret;
             }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(k));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
+            case SET: {
+                Set set = new HashSet();
+                for (Object result : results) {
+                    if (result == null) continue;
+                    set.addAll((Set) result);
                 }
+                return set;
             }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int i=0; i<objects.length; i++) {
-                if (i != shardingCollectionParamIndex) {
-                    param[i] = objects[i];
-                } else {
-                    Map<Object, Object> map1 = new HashMap<>();
-                    map1.put(k, mapParam.get(k));
-                    param[i] = map1;
+            case LIST: {
+                //注意，不保证List的顺序
+                List list = new ArrayList();
+                for (Object result : results) {
+                    if (result == null) continue;
+                    list.addAll((List) result);
                 }
+                return list;
             }
-            map.put(key, param);
+            default:
+                return results.get(0);
         }
-        return map;
     }
 
-    private Map<byte[][], Object[]> parseShardingListParam(Method method, Object[] objects) {
-        List<Integer> shardingParamIndex = getShardingParamIndex(method);
-        int shardingCollectionParamIndex = getShardingCollectionParamIndex(method);
-
-        Map<byte[][], Object[]> map = new HashMap<>();
+    private Object[] copy(Object[] objects) {
+        Object[] copy = new Object[objects.length];
+        System.arraycopy(objects, 0, copy, 0, copy.length);
+        return copy;
+    }
 
-        List listParam = (List) objects[shardingCollectionParamIndex];
-        for (Object c : listParam) {
-            List<byte[]> shardingKey = new ArrayList<>();
-            byte[] prefix = getPrefix(method);
-            if (prefix != null && prefix.length > 0) {
-                shardingKey.add(prefix);
-            }
-            for (Integer index : shardingParamIndex) {
-                if (index == shardingCollectionParamIndex) {
-                    shardingKey.add(toBytes(c));
-                } else {
-                    shardingKey.add(toBytes(objects[index]));
-                }
-            }
-            byte[][] key = shardingKey.toArray(new byte[0][0]);
-            Object[] param = new Object[objects.length];
-            for (int i=0; i<objects.length; i++) {
-                if (i != shardingCollectionParamIndex) {
-                    param[i] = objects[i];
-                } else {
-                    List<Object> list = new ArrayList<>();
-                    list.add(c);
-                    param[i] = list;
-                }
-            }
-            map.put(key, param);
+    private byte[][] parseShardingSimple(MethodMeta meta, Object[] objects) {
+        int[] paramIndex = meta.shardingParamIndex;
+        byte[][] key = new byte[meta.keyOffset + paramIndex.length][];
+        if (meta.keyOffset > 0) {
+            key[0] = meta.prefix;
         }
-        return map;
+        for (int i=0; i<paramIndex.length; i++) {
+            key[meta.keyOffset + i] = toBytes(objects[paramIndex[i]]);
+        }
+        return key;
     }
 
-    private byte[][] parseShardingSimple(Method method, Object[] objects) {
-        List<Integer> paramIndex = getShardingParamIndex(method);
-        List<byte[]> shardingKey = new ArrayList<>();
-        byte[] prefix = getPrefix(method);
-        if (prefix != null && prefix.length > 0) {
-            shardingKey.add(prefix);
+    private byte[][] shardingKey(MethodMeta meta, Object[] objects, byte[] element) {
+        int[] paramIndex = meta.shardingParamIndex;
+        byte[][] key = new byte[meta.keyOffset + paramIndex.length][];
+        if (meta.keyOffset > 0) {
+            key[0] = meta.prefix;
         }
-        for (Integer index : paramIndex) {
-            shardingKey.add(toBytes(objects[index]));
+        for (int i=0; i<paramIndex.length; i++) {
+            int index = paramIndex[i];
+            if (index == meta.collectionIndex) {
+                key[meta.keyOffset + i] = element;
+            } else {
+                key[meta.keyOffset + i] = toBytes(objects[index]);
+            }
         }
-        return shardingKey.toArray(new byte[0][0]);
+        return key;
     }
 
     private byte[] toBytes(Object object) {
-        if (object == null) return new byte[0];
+        if (object == null) return EMPTY;
         if (object instanceof byte[]) {
             return (byte[]) object;
         } else {
@@ -579,48 +383,6 @@ public class ShardingCallback<T> implements MethodInterceptor {
         }
     }
 
-    private final Map<Method, List<Integer>> shardingParamIndex = new HashMap<>();
-    private final Map<Method, Integer> shardingCollectionParamIndex = new HashMap<>();
-    private final Map<Method, CollectionType> collectionTypeMap = new HashMap<>();
-    private final Map<Method, byte[]> prefixCache = new HashMap<>();
-    private final Map<Method, Boolean> isOpMethodCache = new HashMap<>();
-    private final Map<Method, String> shardingCollectionParamArrayParamType = new HashMap<>();
-
-    private byte[] getPrefix(Method method) {
-        byte[] prefix = prefixCache.get(method);
-        if (prefix != null) return prefix;
-        initCache(method);
-        return prefixCache.get(method);
-    }
-
-    private String getShardingCollectionParamArrayParamType(Method method) {
-        String name = shardingCollectionParamArrayParamType.get(method);
-        if (name != null) return name;
-        initCache(method);
-        return shardingCollectionParamArrayParamType.get(method);
-    }
-
-    private CollectionType getCollectionType(Method method) {
-        CollectionType collectionType = collectionTypeMap.get(method);
-        if (collectionType != null) return collectionType;
-        initCache(method);
-        return collectionTypeMap.get(method);
-    }
-
-    private int getShardingCollectionParamIndex(Method method) {
-        Integer index = shardingCollectionParamIndex.get(method);
-        if (index != null) return index;
-        initCache(method);
-        return shardingCollectionParamIndex.get(method);
-    }
-
-    private List<Integer> getShardingParamIndex(Method method) {
-        List<Integer> index = shardingParamIndex.get(method);
-        if (index != null) return index;
-        initCache(method);
-        return shardingParamIndex.get(method);
-    }
-
     private ShardingParam getShardingParam(Annotation[] annotations) {
         for (Annotation annotation : annotations) {
             if (ShardingParam.class.isAssignableFrom(annotation.annotationType())) {
@@ -630,17 +392,13 @@ public class ShardingCallback<T> implements MethodInterceptor {
         return null;
     }
 
-    private boolean isOpMethod(Method method) {
-        Boolean cache = isOpMethodCache.get(method);
-        if (cache != null) return cache;
-        cache = method.getAnnotation(WriteOp.class) != null || method.getAnnotation(ReadOp.class) != null;
-        isOpMethodCache.put(method, cache);
-        return cache;
-    }
-
-    private void initCache(Method method) {
-        if (!isOpMethod(method)) return;
+    private MethodMeta initMeta(Method method) {
+        boolean op = method.getAnnotation(WriteOp.class) != null || method.getAnnotation(ReadOp.class) != null;
+        if (!op) return MethodMeta.NOT_OP;
         int shardingCollectionParamIndexCount = 0;
+        int collectionIndex = -1;
+        CollectionType collectionType = CollectionType.NOT_COLLECTION;
+        ArrayType arrayType = null;
         List<Integer> paramIndex = new ArrayList<>();
         Class<?>[] parameterTypes = method.getParameterTypes();
         Annotation[][] parameterAnnotations = method.getParameterAnnotations();
@@ -650,17 +408,16 @@ public class ShardingCallback<T> implements MethodInterceptor {
             if (shardingParam != null) {
                 if (shardingParam.type() == ShardingParam.Type.Collection) {
                     shardingCollectionParamIndexCount ++;
-                    shardingCollectionParamIndex.put(method, i);
+                    collectionIndex = i;
                     if (List.class.isAssignableFrom(parameterTypes[i])) {
-                        collectionTypeMap.put(method, CollectionType.LIST);
+                        collectionType = CollectionType.LIST;
                     } else if (Set.class.isAssignableFrom(parameterTypes[i])) {
-                        collectionTypeMap.put(method, CollectionType.SET);
+                        collectionType = CollectionType.SET;
                     } else if (Map.class.isAssignableFrom(parameterTypes[i])) {
-                        collectionTypeMap.put(method, CollectionType.Map);
+                        collectionType = CollectionType.Map;
                     } else if (parameterTypes[i].isArray()) {
-                        collectionTypeMap.put(method, CollectionType.ARRAY);
-                        String name = parameterTypes[i].getComponentType().getName();
-                        shardingCollectionParamArrayParamType.put(method, name);
+                        collectionType = CollectionType.ARRAY;
+                        arrayType = ArrayType.byComponentType(parameterTypes[i].getComponentType());
                     } else {
                         throw new UnsupportedOperationException("collection type param only support List/Set/Map/Array");
                     }
@@ -671,9 +428,9 @@ public class ShardingCallback<T> implements MethodInterceptor {
         if (shardingCollectionParamIndexCount > 1) {
             throw new UnsupportedOperationException("only support one param is collection type");
         }
-        shardingParamIndex.put(method, paramIndex);
-        if (!collectionTypeMap.containsKey(method)) {
-            collectionTypeMap.put(method, CollectionType.NOT_COLLECTION);
+        int[] shardingParamIndex = new int[paramIndex.size()];
+        for (int i=0; i<shardingParamIndex.length; i++) {
+            shardingParamIndex[i] = paramIndex.get(i);
         }
 
         byte[] prefix = null;
@@ -688,9 +445,54 @@ public class ShardingCallback<T> implements MethodInterceptor {
             }
         }
         if (prefix == null) {
-            prefix = new byte[0];
+            prefix = EMPTY;
+        }
+        return new MethodMeta(true, collectionType, collectionIndex, arrayType, shardingParamIndex, prefix,
+                MergeType.byReturnType(method.getReturnType()));
+    }
+
+    /**
+     * 方法的sharding元数据，构造后不可变
+     */
+    private static class MethodMeta {
+
+        private static final MethodMeta NOT_OP = new MethodMeta(false, CollectionType.NOT_COLLECTION, -1, null, new int[0], EMPTY, MergeType.FIRST);
+
+        private final boolean op;
+        private final CollectionType collectionType;
+        private final int collectionIndex;
+        private final ArrayType arrayType;
+        private final int[] shardingParamIndex;
+        private final byte[] prefix;
+        private final int keyOffset;
+        private final MergeType mergeType;
+
+        MethodMeta(boolean op, CollectionType collectionType, int collectionIndex, ArrayType arrayType,
+                   int[] shardingParamIndex, byte[] prefix, MergeType mergeType) {
+            this.op = op;
+            this.collectionType = collectionType;
+            this.collectionIndex = collectionIndex;
+            this.arrayType = arrayType;
+            this.shardingParamIndex = shardingParamIndex;
+            this.prefix = prefix;
+            this.keyOffset = prefix.length > 0 ? 1 : 0;
+            this.mergeType = mergeType;
+        }
+    }
+
+    /**
+     * 数组参数拆分时记录元素下标，避免装箱
+     */
+    private static class IndexList {
+        private int[] array = new int[8];
+        private int size;
+
+        void add(int index) {
+            if (size == array.length) {
+                array = Arrays.copyOf(array, size * 2);
+            }
+            array[size ++] = index;
         }
-        prefixCache.put(method, prefix);
     }
 
     private enum CollectionType {
@@ -701,4 +503,58 @@ public class ShardingCallback<T> implements MethodInterceptor {
         Map,
         ;
     }
+
+    private enum ArrayType {
+        STRING,
+        LONG_OBJ,
+        INTEGER_OBJ,
+        BYTE_OBJ,
+        LONG,
+        INT,
+        BYTE,
+        BYTES,
+        ;
+
+        static ArrayType byComponentType(Class<?> componentType) {
+            if (componentType == String.class) return STRING;
+            if (componentType == Long.class) return LONG_OBJ;
+            if (componentType == Integer.class) return INTEGER_OBJ;
+            if (componentType == Byte.class) return BYTE_OBJ;
+            if (componentType == long.class) return LONG;
+            if (componentType == int.class) return INT;
+            if (componentType == byte.class) return BYTE;
+            if (componentType == byte[].class) return BYTES;
+            //调用时再抛异常，和之前的行为保持一致
+            return null;
+        }
+    }
+
+    private enum MergeType {
+        BOOLEAN,
+        MAP,
+        INT,
+        LONG,
+        SET,
+        LIST,
+        FIRST,
+        ;
+
+        static MergeType byReturnType(Class<?> returnType) {
+            if (Boolean.class.isAssignableFrom(returnType) || boolean.class.isAssignableFrom(returnType)) {
+                return BOOLEAN;
+            } else if (Map.class.isAssignableFrom(returnType)) {
+                return MAP;
+            } else if (Integer.class.isAssignableFrom(returnType) || int.class.isAssignableFrom(returnType)) {
+                return INT;
+            } else if (Long.class.isAssignableFrom(returnType) || long.class.isAssignableFrom(returnType)) {
+                return LONG;
+            } else if (Set.class.isAssignableFrom(returnType)) {
+                return SET;
+            } else if (List.class.isAssignableFrom(returnType)) {
+                return LIST;
+            } else {
+                return FIRST;
+            }
+        }
+    }
 }
@@ -0,0 +1,291 @@
+package com.netease.nim.camellia.core.client.callback;
+
+import com.netease.nim.camellia.core.client.annotation.ReadOp;
+import com.netease.nim.camellia.core.client.annotation.ShardingConfig;
+import com.netease.nim.camellia.core.client.annotation.ShardingParam;
+import com.netease.nim.camellia.core.client.annotation.WriteOp;
+import com.netease.nim.camellia.core.client.env.ProxyEnv;
+import com.netease.nim.camellia.core.client.hub.standard.StandardProxyGenerator;
+import com.netease.nim.camellia.core.model.Resource;
+import com.netease.nim.camellia.core.util.ResourceTableUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 集合参数拆分到多个分片后的调用结果，应该和按元素逐个调用单key方法再合并的结果一致
+ */
+public class ShardingCallbackTest {
+
+    private static final int BUCKET_SIZE = 4;
+
+    @Test
+    public void testSerial() {
+        check(newProxy(false));
+    }
+
+    @Test
+    public void testConcurrent() {
+        check(newProxy(true));
+    }
+
+    private void check(TestClient proxy) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            keys.add("k" + i);
+        }
+        Set<String> routes = new HashSet<>();
+        for (String key : keys) {
+            routes.add(proxy.get(key));
+        }
+        Assert.assertEquals(BUCKET_SIZE, routes.size());
+
+        //未标注ReadOp/WriteOp的方法直接调用sharding代理自身
+        Assert.assertNull(proxy.url());
+
+        //List -> MAP合并
+        Map<String, String> expect = new HashMap<>();
+        for (String key : keys) {
+            expect.put(key, proxy.get(key));
+        }
+        Assert.assertEquals(expect, proxy.mget(keys));
+
+        //List -> LIST合并，重复元素不会被去重
+        List<String> list = new ArrayList<>(keys);
+        list.add(keys.get(0));
+        assertRouted(proxy, list, proxy.lget(list));
+
+        //Set -> SET合并
+        Set<String> expectSet = new HashSet<>();
+        for (String key : keys) {
+            expectSet.add(key + "@" + proxy.get(key));
+        }
+        Assert.assertEquals(expectSet, proxy.sget(new HashSet<>(keys)));
+
+        //Map -> BOOLEAN合并，每个分片只收到自己的key
+        Map<String, String> kvs = new HashMap<>();
+        for (String key : keys) {
+            kvs.put(key, "v");
+        }
+        TestClient.STORE.clear();
+        Assert.assertTrue(proxy.mset(kvs));
+        for (String key : keys) {
+            Assert.assertEquals("v", TestClient.STORE.get(proxy.get(key)).get(key));
+        }
+        int stored = 0;
+        for (Map<String, String> map : TestClient.STORE.values()) {
+            stored += map.size();
+        }
+        Assert.assertEquals(keys.size(), stored);
+        kvs.put(keys.get(7), TestClient.FAIL);
+        Assert.assertFalse(proxy.mset(kvs));
+
+        //多个sharding参数和key前缀
+        Map<String, String> expect2 = new HashMap<>();
+        Map<String, String> expectPrefix = new HashMap<>();
+        for (String key : keys) {
+            expect2.put(key, proxy.get2("ns", key));
+            expectPrefix.put(key, proxy.getWithPrefix(key));
+        }
+        Assert.assertEquals(expect2, proxy.mget2("ns", keys));
+        Assert.assertEquals(expectPrefix, proxy.mgetWithPrefix(keys));
+
+        //无法合并的返回值取其中一个分片的结果
+        Assert.assertTrue(routes.contains(proxy.first(keys)));
+
+        //都落在同一个分片上
+        List<String> sameShard = new ArrayList<>();
+        for (String key : keys) {
+            if (proxy.get(key).equals(proxy.get(keys.get(0)))) {
+                sameShard.add(key);
+            }
+        }
+        Assert.assertEquals(proxy.get(keys.get(0)), proxy.first(sameShard));
+
+        //各种数组类型
+        String[] strings = keys.toArray(new String[0]);
+        Long[] longObjs = new Long[50];
+        Integer[] intObjs = new Integer[50];
+        Byte[] byteObjs = new Byte[50];
+        long[] longs = new long[50];
+        int[] ints = new int[50];
+        byte[] bytes = new byte[50];
+        byte[][] bytesArray = new byte[50][];
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            longObjs[i] = (long) i;
+            intObjs[i] = i;
+            byteObjs[i] = (byte) i;
+            longs[i] = i;
+            ints[i] = i;
+            bytes[i] = (byte) i;
+            bytesArray[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+            numbers.add(String.valueOf(i));
+        }
+        assertRouted(proxy, keys, proxy.strings(strings));
+        assertRouted(proxy, numbers, proxy.longObjs(longObjs));
+        assertRouted(proxy, numbers, proxy.intObjs(intObjs));
+        assertRouted(proxy, numbers, proxy.byteObjs(byteObjs));
+        assertRouted(proxy, numbers, proxy.bytesArray(numbers.stream().map(s -> s.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new)));
+        assertRouted(proxy, keys, proxy.bytesArray(bytesArray));
+        assertRouted(proxy, numbers, proxy.bytes(bytes));
+        //LONG/INT合并
+        Assert.assertEquals(50L, proxy.longs(longs));
+        Assert.assertEquals(50, proxy.ints(ints));
+        Assert.assertEquals(0L, proxy.longs(new long[0]));
+        Assert.assertEquals(0, proxy.ints(new int[0]));
+    }
+
+    //每个元素都应该被路由到单key调用时的分片上
+    private static void assertRouted(TestClient proxy, List<String> elements, List<String> result) {
+        List<String> expect = new ArrayList<>();
+        for (String element : elements) {
+            expect.add(element + "@" + proxy.get(element));
+        }
+        Collections.sort(expect);
+        List<String> actual = new ArrayList<>(result);
+        Collections.sort(actual);
+        Assert.assertEquals(expect, actual);
+    }
+
+    private static TestClient newProxy(boolean concurrent) {
+        Map<Integer, Resource> resourceMap = new HashMap<>();
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            resourceMap.put(i, new Resource("test://" + i));
+        }
+        ProxyEnv env = new ProxyEnv.Builder().shardingConcurrentEnable(concurrent).build();
+        return new StandardProxyGenerator<>(TestClient.class, ResourceTableUtil.simpleShardingTable(resourceMap, BUCKET_SIZE), null, env).generate();
+    }
+
+    public static class TestClient {
+
+        static final String FAIL = "fail";
+        static final Map<String, Map<String, String>> STORE = new ConcurrentHashMap<>();
+
+        private final String url;
+
+        public TestClient(Resource resource) {
+            this.url = resource == null ? null : resource.getUrl();
+        }
+
+        public String url() {
+            return url;
+        }
+
+        @ReadOp
+        public String get(@ShardingParam String key) {
+            return url;
+        }
+
+        @ReadOp
+        public String get2(@ShardingParam String ns, @ShardingParam String key) {
+            return url;
+        }
+
+        @ShardingConfig(prefix = "p")
+        @ReadOp
+        public String getWithPrefix(@ShardingParam String key) {
+            return url;
+        }
+
+        @ReadOp
+        public Map<String, String> mget(@ShardingParam(type = ShardingParam.Type.Collection) List<String> keys) {
+            Map<String, String> map = new HashMap<>();
+            for (String key : keys) {
+                map.put(key, url);
+            }
+            return map;
+        }
+
+        @ReadOp
+        public Map<String, String> mget2(@ShardingParam String ns, @ShardingParam(type = ShardingParam.Type.Collection) List<String> keys) {
+            return mget(keys);
+        }
+
+        @ShardingConfig(prefix = "p")
+        @ReadOp
+        public Map<String, String> mgetWithPrefix(@ShardingParam(type = ShardingParam.Type.Collection) List<String> keys) {
+            return mget(keys);
+        }
+
+        @ReadOp
+        public List<String> lget(@ShardingParam(type = ShardingParam.Type.Collection) List<String> keys) {
+            return routed(keys);
+        }
+
+        @ReadOp
+        public Set<String> sget(@ShardingParam(type = ShardingParam.Type.Collection) Set<String> keys) {
+            return new HashSet<>(routed(keys));
+        }
+
+        @WriteOp
+        public boolean mset(@ShardingParam(type = ShardingParam.Type.Collection) Map<String, String> kvs) {
+            STORE.computeIfAbsent(url, k -> new ConcurrentHashMap<>()).putAll(kvs);
+            return !kvs.containsValue(FAIL);
+        }
+
+        @ReadOp
+        public String first(@ShardingParam(type = ShardingParam.Type.Collection) List<String> keys) {
+            return url;
+        }
+
+        @ReadOp
+        public List<String> strings(@ShardingParam(type = ShardingParam.Type.Collection) String[] keys) {
+            return routed(Arrays.asList(keys));
+        }
+
+        @ReadOp
+        public List<String> longObjs(@ShardingParam(type = ShardingParam.Type.Collection) Long[] keys) {
+            return routed(Arrays.asList(keys));
+        }
+
+        @ReadOp
+        public List<String> intObjs(@ShardingParam(type = ShardingParam.Type.Collection) Integer[] keys) {
+            return routed(Arrays.asList(keys));
+        }
+
+        @ReadOp
+        public List<String> byteObjs(@ShardingParam(type = ShardingParam.Type.Collection) Byte[] keys) {
+            return routed(Arrays.asList(keys));
+        }
+
+        @ReadOp
+        public List<String> bytes(@ShardingParam(type = ShardingParam.Type.Collection) byte[] keys) {
+            List<Object> list = new ArrayList<>();
+            for (byte key : keys) {
+                list.add(key);
+            }
+            return routed(list);
+        }
+
+        @ReadOp
+        public List<String> bytesArray(@ShardingParam(type = ShardingParam.Type.Collection) byte[][] keys) {
+            List<Object> list = new ArrayList<>();
+            for (byte[] key : keys) {
+                list.add(new String(key, StandardCharsets.UTF_8));
+            }
+            return routed(list);
+        }
+
+        @WriteOp
+        public long longs(@ShardingParam(type = ShardingParam.Type.Collection) long[] keys) {
+            return keys.length;
+        }
+
+        @WriteOp
+        public int ints(@ShardingParam(type = ShardingParam.Type.Collection) int[] keys) {
+            return keys.length;
+        }
+
+        private List<String> routed(Collection<?> keys) {
+            List<String> list = new ArrayList<>();
+            for (Object key : keys) {
+                list.add(key + "@" + url);
+            }
+            return list;
+        }
+    }
+}
@@ -22,6 +22,25 @@ public class CamelliaDelayQueueConstants {
     //服务器轮询判断消息是否就绪或者消费超时的轮询周期，单位ms，默认100ms
     public static final long msgScheduleMillis = 100;
 
+    //服务器兜底全量扫描所有topic的周期，单位s，默认10s，正常情况下只会调度有到期消息的topic，全量扫描用于修复索引和检查ready队列中过期的消息
+    public static final long msgFullScanSeconds = 10;
+
+    //服务器调度时每批处理的topic数和消息数，默认1000
+    public static final int msgScheduleBatch = 1000;
+
+    //客户端每次pull消息的最大批量，客户端传入的batch超过该值时按该值处理，默认1000
+    public static final int maxPullBatch = 1000;
+
+    //消息在redis中的存储格式，json或者binary，默认json（老版本的格式），读取时两种格式都兼容
+    //binary需要显式开启，并且需要所有server节点都升级到能读取binary格式的版本之后再开启
+    public static final String msgCodec = "json";
+
+    //binary格式下，是否压缩消息内容，默认false
+    public static final boolean msgCompressEnable = false;
+
+    //binary格式下，消息内容超过多少字节才压缩，默认1024
+    public static final int msgCompressThreshold = 1024;
+
     //服务器轮询定时器线程池大小，一般不需要调整
     public static final int scheduleThreadNum = SysUtils.getCpuNum();
 
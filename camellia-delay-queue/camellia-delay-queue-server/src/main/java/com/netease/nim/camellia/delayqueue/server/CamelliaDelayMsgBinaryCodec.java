@@ -0,0 +1,142 @@
+package com.netease.nim.camellia.delayqueue.server;
+
+import com.netease.nim.camellia.delayqueue.common.domain.CamelliaDelayMsg;
+import com.netease.nim.camellia.tools.compress.CamelliaCompressor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 紧凑的二进制格式，元数据在固定的位置，只解析元数据时不需要解析（解压）消息内容，更新状态时也不需要重新编码消息内容
+ * <p> magic(1) + version(1) + flags(1) + status(4) + retry(4) + maxRetry(4) + produceTime(8) + triggerTime(8) + expireTime(8)
+ * + topicLen(2) + topic + msgIdLen(2) + msgId + msg
+ * <p> 可以选择对消息内容进行压缩（超过阈值才压缩）
+ * <p> 兼容json格式（老版本的数据），topic或者msgId过长时也会使用json格式
+ * <p> 需要显式开启，老版本的server无法读取binary格式，滚动升级完成之后再开启
+ */
+public class CamelliaDelayMsgBinaryCodec implements CamelliaDelayMsgCodec {
+
+    private static final byte MAGIC = (byte) 0xDC;
+    private static final byte VERSION = 1;
+
+    private static final byte FLAG_COMPRESSED = 1;
+    private static final byte FLAG_NULL_MSG = 2;
+
+    private static final int STATUS_OFFSET = 3;
+    private static final int RETRY_OFFSET = 7;
+    private static final int HEADER_LEN = 3 + 4 + 4 + 4 + 8 + 8 + 8;
+    private static final int MAX_STR_LEN = 0xFFFF;
+
+    private final CamelliaCompressor compressor;
+
+    /**
+     * 不压缩
+     */
+    public CamelliaDelayMsgBinaryCodec() {
+        this(null);
+    }
+
+    /**
+     * @param compressor 压缩器，为null则不压缩
+     */
+    public CamelliaDelayMsgBinaryCodec(CamelliaCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public byte[] encode(CamelliaDelayMsg delayMsg) {
+        byte[] topic = toBytes(delayMsg.getTopic());
+        byte[] msgId = toBytes(delayMsg.getMsgId());
+        if (topic.length > MAX_STR_LEN || msgId.length > MAX_STR_LEN) {
+            return CamelliaDelayMsgJsonCodec.INSTANCE.encode(delayMsg);
+        }
+        byte flags = 0;
+        byte[] msg;
+        if (delayMsg.getMsg() == null) {
+            flags |= FLAG_NULL_MSG;
+            msg = new byte[0];
+        } else {
+            msg = delayMsg.getMsg().getBytes(StandardCharsets.UTF_8);
+            if (compressor != null) {
+                byte[] compressed = compressor.compress(msg);
+                if (compressed != msg) {
+                    flags |= FLAG_COMPRESSED;
+                    msg = compressed;
+                }
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LEN + 2 + topic.length + 2 + msgId.length + msg.length);
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put(flags);
+        buffer.putInt(delayMsg.getStatus());
+        buffer.putInt(delayMsg.getRetry());
+        buffer.putInt(delayMsg.getMaxRetry());
+        buffer.putLong(delayMsg.getProduceTime());
+        buffer.putLong(delayMsg.getTriggerTime());
+        buffer.putLong(delayMsg.getExpireTime());
+        buffer.putShort((short) topic.length);
+        buffer.put(topic);
+        buffer.putShort((short) msgId.length);
+        buffer.put(msgId);
+        buffer.put(msg);
+        return buffer.array();
+    }
+
+    @Override
+    public CamelliaDelayMsg decode(byte[] data, boolean withPayload) {
+        if (data == null || data.length == 0) return null;
+        if (!isBinary(data)) {
+            return CamelliaDelayMsgJsonCodec.INSTANCE.decode(data, withPayload);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(2);
+        byte flags = buffer.get();
+        CamelliaDelayMsg delayMsg = new CamelliaDelayMsg();
+        delayMsg.setStatus(buffer.getInt());
+        delayMsg.setRetry(buffer.getInt());
+        delayMsg.setMaxRetry(buffer.getInt());
+        delayMsg.setProduceTime(buffer.getLong());
+        delayMsg.setTriggerTime(buffer.getLong());
+        delayMsg.setExpireTime(buffer.getLong());
+        delayMsg.setTopic(readString(buffer));
+        delayMsg.setMsgId(readString(buffer));
+        if (withPayload && (flags & FLAG_NULL_MSG) == 0) {
+            byte[] msg = new byte[buffer.remaining()];
+            buffer.get(msg);
+            if ((flags & FLAG_COMPRESSED) != 0) {
+                msg = (compressor != null ? compressor : CamelliaCompressor.DEFAULT).decompress(msg);
+            }
+            delayMsg.setMsg(new String(msg, StandardCharsets.UTF_8));
+        }
+        return delayMsg;
+    }
+
+    @Override
+    public byte[] updateMeta(byte[] data, CamelliaDelayMsg delayMsg) {
+        if (!isBinary(data)) {
+            return CamelliaDelayMsgJsonCodec.INSTANCE.updateMeta(data, delayMsg);
+        }
+        byte[] result = new byte[data.length];
+        System.arraycopy(data, 0, result, 0, data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        buffer.putInt(STATUS_OFFSET, delayMsg.getStatus());
+        buffer.putInt(RETRY_OFFSET, delayMsg.getRetry());
+        return result;
+    }
+
+    static boolean isBinary(byte[] data) {
+        return data.length >= HEADER_LEN && data[0] == MAGIC && data[1] == VERSION;
+    }
+
+    private static byte[] toBytes(String str) {
+        return str == null ? new byte[0] : str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getShort() & 0xFFFF;
+        String str = new String(buffer.array(), buffer.position(), len, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + len);
+        return str;
+    }
+}
@@ -0,0 +1,32 @@
+package com.netease.nim.camellia.delayqueue.server;
+
+import com.netease.nim.camellia.delayqueue.common.domain.CamelliaDelayMsg;
+
+/**
+ * 延迟消息在redis中的存储格式
+ */
+public interface CamelliaDelayMsgCodec {
+
+    /**
+     * 编码
+     * @param delayMsg 消息
+     * @return 编码后的数据
+     */
+    byte[] encode(CamelliaDelayMsg delayMsg);
+
+    /**
+     * 解码
+     * @param data 数据
+     * @param withPayload 是否需要解析消息内容，为false时只解析元数据（状态、触发时间、重试次数等），msg字段为null
+     * @return 消息，无法解析则返回null
+     */
+    CamelliaDelayMsg decode(byte[] data, boolean withPayload);
+
+    /**
+     * 更新元数据（状态、重试次数），消息内容保持不变，适用于只解析了元数据的消息
+     * @param data 原始数据
+     * @param delayMsg 新的元数据
+     * @return 更新后的数据
+     */
+    byte[] updateMeta(byte[] data, CamelliaDelayMsg delayMsg);
+}
@@ -0,0 +1,42 @@
+package com.netease.nim.camellia.delayqueue.server;
+
+import com.alibaba.fastjson.JSONObject;
+import com.netease.nim.camellia.delayqueue.common.domain.CamelliaDelayMsg;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * json格式，老版本的存储格式，默认的格式
+ * <p> 写入json格式，读取时兼容binary格式，从binary格式切换回json格式时已经写入的数据仍然可以读取
+ */
+public class CamelliaDelayMsgJsonCodec implements CamelliaDelayMsgCodec {
+
+    public static final CamelliaDelayMsgJsonCodec INSTANCE = new CamelliaDelayMsgJsonCodec();
+
+    private static final CamelliaDelayMsgBinaryCodec binaryCodec = new CamelliaDelayMsgBinaryCodec();
+
+    @Override
+    public byte[] encode(CamelliaDelayMsg delayMsg) {
+        return JSONObject.toJSONString(delayMsg).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public CamelliaDelayMsg decode(byte[] data, boolean withPayload) {
+        if (data == null) return null;
+        if (CamelliaDelayMsgBinaryCodec.isBinary(data)) {
+            return binaryCodec.decode(data, withPayload);
+        }
+        return JSONObject.parseObject(new String(data, StandardCharsets.UTF_8), CamelliaDelayMsg.class);
+    }
+
+    @Override
+    public byte[] updateMeta(byte[] data, CamelliaDelayMsg delayMsg) {
+        if (CamelliaDelayMsgBinaryCodec.isBinary(data)) {
+            return binaryCodec.updateMeta(data, delayMsg);
+        }
+        CamelliaDelayMsg msg = decode(data, true);
+        msg.setStatus(delayMsg.getStatus());
+        msg.setRetry(delayMsg.getRetry());
+        return encode(msg);
+    }
+}
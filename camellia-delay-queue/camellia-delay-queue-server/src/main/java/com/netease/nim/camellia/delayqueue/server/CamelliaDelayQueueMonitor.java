@@ -34,6 +34,8 @@ public class CamelliaDelayQueueMonitor {
     private static ConcurrentHashMap<String, CamelliaStatistics> pullMsgTimeGapMap = new ConcurrentHashMap<>();
     //统计ready队列消息延迟，表示消息到达触发时间，到delay-queue轮询线程把消息移动到ready队列的时间间隔，如果很大，说明服务器处理有瓶颈
     private static ConcurrentHashMap<String, CamelliaStatistics> readyQueueTimeGapMap = new ConcurrentHashMap<>();
+    //统计调度延迟，表示topic下最早的消息到达触发时间，到调度线程发现该topic的时间间隔（提前发现则为0），如果很大，说明调度有瓶颈
+    private static ConcurrentHashMap<String, CamelliaStatistics> triggerScheduleTimeGapMap = new ConcurrentHashMap<>();
 
     private static CamelliaDelayQueueMonitorData monitorData = new CamelliaDelayQueueMonitorData();
 
@@ -107,6 +109,11 @@ public class CamelliaDelayQueueMonitor {
         }
     }
 
+    public static void scheduleTrigger(String topic, long timeGap) {
+        CamelliaStatistics statistics = CamelliaMapUtils.computeIfAbsent(triggerScheduleTimeGapMap, topic, k -> new CamelliaStatistics());
+        statistics.update(Math.max(0, timeGap));
+    }
+
     public static void triggerMsgEndLife(String topic, Map<String, CamelliaDelayMsg> msgMap) {
         log("triggerMsgEndLife", topic, msgMap, null);
         CamelliaDelayMsgCounter counter = CamelliaMapUtils.computeIfAbsent(msgCountMap, topic, k -> new CamelliaDelayMsgCounter());
@@ -178,6 +185,18 @@ public class CamelliaDelayQueueMonitor {
             }
             monitorData.setReadyQueueTimeGapStatsList(readyQueueTimeGapStatsList);
 
+            //triggerScheduleTimeGap
+            List<CamelliaDelayQueueMonitorData.TimeGapStats> triggerScheduleTimeGapStatsList = new ArrayList<>();
+            ConcurrentHashMap<String, CamelliaStatistics> triggerScheduleTimeGapMap = CamelliaDelayQueueMonitor.triggerScheduleTimeGapMap;
+            CamelliaDelayQueueMonitor.triggerScheduleTimeGapMap = new ConcurrentHashMap<>();
+            for (Map.Entry<String, CamelliaStatistics> entry : triggerScheduleTimeGapMap.entrySet()) {
+                CamelliaStatsData data = entry.getValue().getStatsDataAndReset();
+                CamelliaDelayQueueMonitorData.TimeGapStats timeGapStats = new CamelliaDelayQueueMonitorData.TimeGapStats(entry.getKey(),
+                        data.getCount(), data.getAvg(), data.getMax());
+                triggerScheduleTimeGapStatsList.add(timeGapStats);
+            }
+            monitorData.setTriggerScheduleTimeGapStatsList(triggerScheduleTimeGapStatsList);
+
             CamelliaDelayQueueMonitor.monitorData = monitorData;
         } catch (Exception e) {
             logger.error("calc monitor data error", e);
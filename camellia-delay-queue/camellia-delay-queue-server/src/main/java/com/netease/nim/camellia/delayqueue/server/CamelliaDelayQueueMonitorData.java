@@ -11,6 +11,7 @@ public class CamelliaDelayQueueMonitorData {
     private List<RequestStats> requestStatsList = new ArrayList<>();
     private List<TimeGapStats> pullMsgTimeGapStatsList = new ArrayList<>();
     private List<TimeGapStats> readyQueueTimeGapStatsList = new ArrayList<>();
+    private List<TimeGapStats> triggerScheduleTimeGapStatsList = new ArrayList<>();
 
     public List<RequestStats> getRequestStatsList() {
         return requestStatsList;
@@ -36,6 +37,14 @@ public class CamelliaDelayQueueMonitorData {
         this.readyQueueTimeGapStatsList = readyQueueTimeGapStatsList;
     }
 
+    public List<TimeGapStats> getTriggerScheduleTimeGapStatsList() {
+        return triggerScheduleTimeGapStatsList;
+    }
+
+    public void setTriggerScheduleTimeGapStatsList(List<TimeGapStats> triggerScheduleTimeGapStatsList) {
+        this.triggerScheduleTimeGapStatsList = triggerScheduleTimeGapStatsList;
+    }
+
     public static class TimeGapStats {
         private final String topic;
         private final long count;
@@ -16,6 +16,7 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.Response;
+import redis.clients.jedis.Tuple;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -36,14 +37,23 @@ public class CamelliaDelayQueueServer {
     private final ExecutorService checkTimeoutExecutor;
     private final ExecutorService checkExpireExecutor;
     private final AtomicBoolean msgScheduledLock = new AtomicBoolean(false);
+    private final AtomicBoolean msgFullScanLock = new AtomicBoolean(false);
     private final ScheduledExecutorService msgScheduledExecutor;
     private final AtomicBoolean topicScheduledLock = new AtomicBoolean(false);
     private final ScheduledExecutorService topicScheduledExecutor;
     private final CamelliaRedisLockManager lockManager;
+    private final CamelliaDelayMsgCodec codec;
+
+    private static final byte[] NX = toBytes("NX");
+    private static final byte[] PX = toBytes("PX");
+
+    //消息提前多久移动到ready队列
+    private static final long TRIGGER_LOOKAHEAD_MILLIS = 100;
 
     public CamelliaDelayQueueServer(CamelliaDelayQueueServerConfig serverConfig, CamelliaRedisTemplate template) {
         this.serverConfig = serverConfig;
         this.template = template;
+        this.codec = serverConfig.getMsgCodec();
         checkTriggerExecutor = new ThreadPoolExecutor(serverConfig.getCheckTriggerThreadNum(), serverConfig.getCheckTriggerThreadNum(),
                 0, TimeUnit.SECONDS, new LinkedBlockingDeque<>(100000),
                 new CamelliaThreadFactory("camellia-delay-msg-check-trigger"), new ThreadPoolExecutor.AbortPolicy());
@@ -116,8 +126,8 @@ public class CamelliaDelayQueueServer {
             if (!ok) {
                 //如果已经存在了，则返回老消息，用于消息去重
                 String msgKey = msgKey(topic, msg.getMsgId());
-                String value = template.get(msgKey);
-                CamelliaDelayMsg delayMsg = JSONObject.parseObject(value, CamelliaDelayMsg.class);
+                byte[] value = template.get(toBytes(msgKey));
+                CamelliaDelayMsg delayMsg = codec.decode(value, true);
                 if (delayMsg != null) {
                     //如果老消息已经endLife了，则需要替换掉，而不是被去重
                     CamelliaDelayMsgStatus status = CamelliaDelayMsgStatus.getByValue(delayMsg.getStatus());
@@ -141,6 +151,8 @@ public class CamelliaDelayQueueServer {
                 //如果是等待状态，则塞到zset中
                 String waitingQueueKey = waitingQueueKey(msg.getTopic());
                 template.zadd(waitingQueueKey, msg.getTriggerTime(), msg.getMsgId());
+                //更新topic的下一次触发时间
+                updateDueIndex(triggerIndexKey(), msg.getTopic(), msg.getTriggerTime(), System.currentTimeMillis() + TRIGGER_LOOKAHEAD_MILLIS);
             } else if (msg.getStatus() == CamelliaDelayMsgStatus.READY.getValue()) {
                 //如果是就绪状态，则塞到就绪set中
                 String readyQueueKey = readyQueueKey(msg.getTopic());
@@ -183,12 +195,18 @@ public class CamelliaDelayQueueServer {
         return template.llen(readyQueueKey) > 0;
     }
 
-    //从list中rpop，如果有，则zadd到zset中
-    private static final String PULL_MSG_SCRIPT = "local msgid = redis.call(\"rpop\", KEYS[1])\n" +
-            "if msgid then\n" +
+    //从list中rpop最多ARGV[2]个，并zadd到zset中，一次调用完成一批
+    private static final String PULL_MSG_SCRIPT = "local msgids = {}\n" +
+            "local n = tonumber(ARGV[2])\n" +
+            "for i = 1, n do\n" +
+            " local msgid = redis.call(\"rpop\", KEYS[1])\n" +
+            " if not msgid then\n" +
+            "  break\n" +
+            " end\n" +
             " redis.call(\"zadd\", KEYS[2], ARGV[1], tostring(msgid))\n" +
+            " msgids[i] = msgid\n" +
             "end\n" +
-            "return msgid";
+            "return msgids";
 
     /**
      * 拉消息
@@ -208,6 +226,11 @@ public class CamelliaDelayQueueServer {
             if (batch <= 0) {
                 batch = 1;
             }
+            //batch由客户端传入，需要限制上限，避免一次脚本调用搬运过多消息
+            int maxPullBatch = Math.max(1, serverConfig.getMaxPullBatch());
+            if (batch > maxPullBatch) {
+                batch = maxPullBatch;
+            }
             CamelliaDelayMsgPullResponse response = new CamelliaDelayMsgPullResponse();
             response.setCode(CamelliaDelayMsgErrorCode.SUCCESS.getValue());
 
@@ -221,24 +244,29 @@ public class CamelliaDelayQueueServer {
                 long now = System.currentTimeMillis();
                 //从ready queue中取出，并放到ack queue中
                 Set<String> msgIdSet = new HashSet<>();
-                List<String> keys = new ArrayList<>();
+                List<String> keys = new ArrayList<>(2);
                 keys.add(readyQueueKey);
                 keys.add(ackQueueKey);
-                List<String> args = new ArrayList<>();
+                List<String> args = new ArrayList<>(2);
                 args.add(String.valueOf(now + ackTimeoutMillis));
-                for (int i = 0; i < batch; i++) {
-                    Object ret = template.eval(PULL_MSG_SCRIPT, keys, args);
-                    if (ret == null) break;
-                    String msgId = new String((byte[]) ret, StandardCharsets.UTF_8);
-                    msgIdSet.add(msgId);
+                args.add(String.valueOf(batch));
+                Object ret = template.eval(PULL_MSG_SCRIPT, keys, args);
+                if (ret instanceof List) {
+                    for (Object msgId : (List<?>) ret) {
+                        if (msgId instanceof byte[]) {
+                            msgIdSet.add(new String((byte[]) msgId, StandardCharsets.UTF_8));
+                        }
+                    }
                 }
                 if (msgIdSet.isEmpty()) {
                     response.setDelayMsgList(new ArrayList<>());
                     CamelliaDelayQueueMonitor.pullMsg(request, response);
                     return response;
                 }
+                //更新topic的下一次消费超时检查时间
+                updateDueIndex(timeoutIndexKey(), topic, now + ackTimeoutMillis, System.currentTimeMillis());
                 //校验消息生命周期
-                MsgCheckStatusResult result = checkMsgLife(topic, msgIdSet, true);
+                MsgCheckStatusResult result = checkMsgLife(topic, msgIdSet, true, true);
                 if (!result.endLifeMsgMap.isEmpty()) {
                     //生命周期已经结束的消息，直接从ackQueue中删除
                     template.zrem(ackQueueKey, result.endLifeMsgMap.keySet().toArray(new String[0]));
@@ -283,7 +311,7 @@ public class CamelliaDelayQueueServer {
                 throw new CamelliaDelayQueueException(CamelliaDelayMsgErrorCode.PARAM_WRONG, "msgId is empty");
             }
             active(topic);
-            MsgCheckStatusResult result = checkMsgLife(topic, Collections.singletonList(msgId), false);
+            MsgCheckStatusResult result = checkMsgLife(topic, Collections.singletonList(msgId), false, true);
             if (request.isRelease()) {
                 deleteMsg(topic, msgId);//直接删除吧
             }
@@ -330,7 +358,7 @@ public class CamelliaDelayQueueServer {
                 throw new CamelliaDelayQueueException(CamelliaDelayMsgErrorCode.PARAM_WRONG, "msgId is empty");
             }
             active(topic);
-            MsgCheckStatusResult result = checkMsgLife(topic, Collections.singletonList(msgId), false);
+            MsgCheckStatusResult result = checkMsgLife(topic, Collections.singletonList(msgId), false, true);
             CamelliaDelayMsgGetResponse response = new CamelliaDelayMsgGetResponse();
             CamelliaDelayMsg delayMsg = result.inLifeMsgMap.get(msgId);
             if (delayMsg == null) {
@@ -378,11 +406,11 @@ public class CamelliaDelayQueueServer {
             if (request.isAck()) {
                 //如果ack成功了，则标记消息状态，并从ack队列中移除
                 String msgKey = msgKey(topic, msgId);
-                String value = template.get(msgKey);
-                if (value != null) {
-                    CamelliaDelayMsg delayMsg = JSONObject.parseObject(value, CamelliaDelayMsg.class);
+                byte[] value = template.get(toBytes(msgKey));
+                CamelliaDelayMsg delayMsg = codec.decode(value, false);
+                if (delayMsg != null) {
                     delayMsg.setStatus(CamelliaDelayMsgStatus.CONSUME_OK.getValue());
-                    saveOrUpdateMsg(delayMsg, false,true);
+                    saveOrUpdateMsg(delayMsg, codec.updateMeta(value, delayMsg), false, true);
                 }
                 String ackQueueKey = ackQueueKey(topic);
                 template.zrem(ackQueueKey, msgId);
@@ -490,9 +518,25 @@ public class CamelliaDelayQueueServer {
 
     //定时任务
     private void startSchedule() {
+        //只唤醒有到期消息的topic
         long msgScheduleMillis = serverConfig.getMsgScheduleMillis();
         msgScheduledExecutor.scheduleAtFixedRate(() -> {
             if (msgScheduledLock.compareAndSet(false, true)) {
+                try {
+                    scheduleDueTopic(triggerIndexKey(), TRIGGER_LOOKAHEAD_MILLIS, true);
+                    scheduleDueTopic(timeoutIndexKey(), 0, false);
+                } catch (Exception e) {
+                    logger.error("msg schedule error", e);
+                } finally {
+                    msgScheduledLock.compareAndSet(true, false);
+                }
+            }
+        }, ThreadLocalRandom.current().nextLong(msgScheduleMillis), msgScheduleMillis, TimeUnit.MILLISECONDS);
+
+        //兜底的全量扫描，修复索引（如升级前已经存在的消息），并检查ready队列中的过期消息
+        long msgFullScanSeconds = serverConfig.getMsgFullScanSeconds();
+        msgScheduledExecutor.scheduleAtFixedRate(() -> {
+            if (msgFullScanLock.compareAndSet(false, true)) {
                 try {
                     //topicsKey
                     String topicsKey = topicsKey();
@@ -503,12 +547,12 @@ public class CamelliaDelayQueueServer {
                     Long topicNumTmp = template.zcard(topicsKeyTmp);
                     scheduleMsg(topicsKeyTmp, topicNumTmp);
                 } catch (Exception e) {
-                    logger.error("msg schedule error", e);
+                    logger.error("msg full scan error", e);
                 } finally {
-                    msgScheduledLock.compareAndSet(true, false);
+                    msgFullScanLock.compareAndSet(true, false);
                 }
             }
-        }, ThreadLocalRandom.current().nextLong(msgScheduleMillis), msgScheduleMillis, TimeUnit.MILLISECONDS);
+        }, ThreadLocalRandom.current().nextLong(msgFullScanSeconds * 1000L), msgFullScanSeconds * 1000L, TimeUnit.MILLISECONDS);
 
         long topicScheduleSeconds = serverConfig.getTopicScheduleSeconds();
         topicScheduledExecutor.scheduleAtFixedRate(() -> {
@@ -531,52 +575,142 @@ public class CamelliaDelayQueueServer {
         }, ThreadLocalRandom.current().nextLong(topicScheduleSeconds), topicScheduleSeconds, TimeUnit.SECONDS);
     }
 
+    //从索引中取出已经到期的topic，提交检查任务
+    private void scheduleDueTopic(String indexKey, long lookaheadMillis, boolean trigger) {
+        long now = System.currentTimeMillis();
+        int batch = serverConfig.getMsgScheduleBatch();
+        int offset = 0;
+        while (true) {
+            Set<Tuple> tuples = template.zrangeByScoreWithScores(indexKey, 0, now + lookaheadMillis, offset, batch);
+            for (Tuple tuple : tuples) {
+                String topic = tuple.getElement();
+                double dueTime = tuple.getScore();
+                if (trigger) {
+                    CamelliaDelayQueueMonitor.scheduleTrigger(topic, now - (long) dueTime);
+                    submitCheckTrigger(topic, dueTime);
+                } else {
+                    submitCheckTimeout(topic, dueTime);
+                }
+            }
+            if (tuples.size() < batch) {
+                return;
+            }
+            offset += batch;
+        }
+    }
+
     private void scheduleMsg(String redisKey, Long topicNum) {
         if (topicNum != null && topicNum > 0) {
             for (int i = 0; i < topicNum; i += 100) {
                 Set<String> topics = template.zrange(redisKey, i, i + 99);
                 for (String topic : topics) {
-                    try {
-                        checkTriggerExecutor.submit(() -> {
-                            //通过加锁分散一下各个server的工作，提高一下效率
-                            try {
-                                lockManager.tryLockAndRun(checkTriggerLockKey(topic), () -> checkTriggerMsg(topic));
-                            } catch (Exception e) {
-                                logger.error("check trigger msg error, topic = {}", topic, e);
-                            }
-                        });
-                    } catch (Exception e) {
-                        logger.error("submit checkTriggerMsg error", e);
-                    }
-                    try {
-                        checkTimeoutExecutor.submit(() -> {
-                            //通过加锁分散一下各个server的工作，提高一下效率
-                            try {
-                                lockManager.tryLockAndRun(checkTimeoutLockKey(topic), () -> checkTimeoutMsg(topic));
-                            } catch (Exception e) {
-                                logger.error("check timeout msg error, topic = {}", topic, e);
-                            }
-                        });
-                    } catch (Exception e) {
-                        logger.error("submit checkTimeoutMsg error", e);
-                    }
-                    try {
-                        checkExpireExecutor.submit(() -> {
-                            //通过加锁分散一下各个server的工作，提高一下效率
-                            try {
-                                lockManager.tryLockAndRun(checkExpireLockKey(topic), () -> checkExpireMsg(topic));
-                            } catch (Exception e) {
-                                logger.error("check expire msg error, topic = {}", topic, e);
-                            }
-                        });
-                    } catch (Exception e) {
-                        logger.error("submit checkExpireMsg error", e);
-                    }
+                    submitCheckTrigger(topic, null);
+                    submitCheckTimeout(topic, null);
+                    submitCheckExpire(topic);
                 }
             }
         }
     }
 
+    private void submitCheckTrigger(String topic, Double dueTime) {
+        try {
+            checkTriggerExecutor.submit(() -> {
+                //通过加锁分散一下各个server的工作，提高一下效率
+                try {
+                    lockManager.tryLockAndRun(checkTriggerLockKey(topic), () -> checkTriggerMsg(topic, dueTime));
+                } catch (Exception e) {
+                    logger.error("check trigger msg error, topic = {}", topic, e);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("submit checkTriggerMsg error", e);
+        }
+    }
+
+    private void submitCheckTimeout(String topic, Double dueTime) {
+        try {
+            checkTimeoutExecutor.submit(() -> {
+                //通过加锁分散一下各个server的工作，提高一下效率
+                try {
+                    lockManager.tryLockAndRun(checkTimeoutLockKey(topic), () -> checkTimeoutMsg(topic, dueTime));
+                } catch (Exception e) {
+                    logger.error("check timeout msg error, topic = {}", topic, e);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("submit checkTimeoutMsg error", e);
+        }
+    }
+
+    private void submitCheckExpire(String topic) {
+        try {
+            checkExpireExecutor.submit(() -> {
+                //通过加锁分散一下各个server的工作，提高一下效率
+                try {
+                    lockManager.tryLockAndRun(checkExpireLockKey(topic), () -> checkExpireMsg(topic));
+                } catch (Exception e) {
+                    logger.error("check expire msg error, topic = {}", topic, e);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("submit checkExpireMsg error", e);
+        }
+    }
+
+    //更新topic的到期时间索引：
+    //索引中不存在或者比新的到期时间晚，则更新为新的到期时间
+    //索引中的时间已经到期（可能正在被处理），则把分数减1，让处理线程的CAS失败，确保不会丢掉本次的更新
+    private static final String UPDATE_DUE_INDEX_SCRIPT = "local s = redis.call('zscore', KEYS[1], ARGV[1])\n" +
+            "if not s then\n" +
+            " redis.call('zadd', KEYS[1], ARGV[2], ARGV[1])\n" +
+            "elseif tonumber(s) <= tonumber(ARGV[3]) then\n" +
+            " redis.call('zadd', KEYS[1], tonumber(s) - 1, ARGV[1])\n" +
+            "elseif tonumber(s) > tonumber(ARGV[2]) then\n" +
+            " redis.call('zadd', KEYS[1], ARGV[2], ARGV[1])\n" +
+            "end";
+
+    private void updateDueIndex(String indexKey, String topic, long dueTime, long now) {
+        List<String> keys = new ArrayList<>(1);
+        keys.add(indexKey);
+        List<String> args = new ArrayList<>(3);
+        args.add(topic);
+        args.add(String.valueOf(dueTime));
+        args.add(String.valueOf(now));
+        template.eval(UPDATE_DUE_INDEX_SCRIPT, keys, args);
+    }
+
+    //处理完成后设置topic的下一次到期时间：
+    //如果索引中的分数还是处理开始时的分数，则替换为下一次到期时间（没有则删除）
+    //否则（处理期间有更新，或者是全量扫描触发的），只在新的时间更早时更新
+    private static final String RESET_DUE_INDEX_SCRIPT = "local s = redis.call('zscore', KEYS[1], ARGV[1])\n" +
+            "if ARGV[2] ~= '' and s and tonumber(s) == tonumber(ARGV[2]) then\n" +
+            " if ARGV[3] == '' then\n" +
+            "  redis.call('zrem', KEYS[1], ARGV[1])\n" +
+            " else\n" +
+            "  redis.call('zadd', KEYS[1], ARGV[3], ARGV[1])\n" +
+            " end\n" +
+            " return 1\n" +
+            "end\n" +
+            "if ARGV[3] ~= '' and (not s or tonumber(s) > tonumber(ARGV[3])) then\n" +
+            " redis.call('zadd', KEYS[1], ARGV[3], ARGV[1])\n" +
+            "end\n" +
+            "return 0";
+
+    private void resetDueIndex(String indexKey, String topic, Double dueTime, String queueKey) {
+        Set<Tuple> head = template.zrangeWithScores(queueKey, 0, 0);
+        String nextDueTime = "";
+        if (!head.isEmpty()) {
+            nextDueTime = String.valueOf((long) head.iterator().next().getScore());
+        }
+        List<String> keys = new ArrayList<>(1);
+        keys.add(indexKey);
+        List<String> args = new ArrayList<>(3);
+        args.add(topic);
+        args.add(dueTime == null ? "" : String.valueOf(dueTime.longValue()));
+        args.add(nextDueTime);
+        template.eval(RESET_DUE_INDEX_SCRIPT, keys, args);
+    }
+
     private void scheduleTopic(String redisKey, Long topicNum) {
         if (topicNum != null && topicNum > 0) {
             for (int i = 0; i < topicNum; i += 100) {
@@ -600,18 +734,20 @@ public class CamelliaDelayQueueServer {
             "redis.call('lpush', KEYS[2], ARGV[i])\n" +
             "end";
     //扫描即将到期的消息到ready队列
-    private void checkTriggerMsg(String topic) {
+    private void checkTriggerMsg(String topic, Double dueTime) {
         if (logger.isDebugEnabled()) {
             logger.debug("checkTriggerMsg, topic = {}", topic);
         }
         String waitingQueueKey = waitingQueueKey(topic);
         String readyQueueKey = readyQueueKey(topic);
+        int batch = serverConfig.getMsgScheduleBatch();
         while (true) {
-            Set<String> toTriggerMsgIdSet = template.zrangeByScore(waitingQueueKey, 0, System.currentTimeMillis() + 100, 0, 100);
+            Set<String> toTriggerMsgIdSet = template.zrangeByScore(waitingQueueKey, 0, System.currentTimeMillis() + TRIGGER_LOOKAHEAD_MILLIS, 0, batch);
             if (toTriggerMsgIdSet.isEmpty()) {
+                resetDueIndex(triggerIndexKey(), topic, dueTime, waitingQueueKey);
                 return;
             }
-            MsgCheckStatusResult result = checkMsgLife(topic, toTriggerMsgIdSet, false);
+            MsgCheckStatusResult result = checkMsgLife(topic, toTriggerMsgIdSet, false, false);
             //生命周期已经结束的消息直接删除
             if (!result.endLifeMsgMap.isEmpty()) {
                 active(topic);
@@ -714,20 +850,22 @@ public class CamelliaDelayQueueServer {
     }
 
     //扫描正在消费的消息，取出timeout的去重试
-    private void checkTimeoutMsg(String topic) {
+    private void checkTimeoutMsg(String topic, Double dueTime) {
         if (logger.isDebugEnabled()) {
             logger.debug("checkTimeoutMsg, topic = {}", topic);
         }
         String ackQueueKey = ackQueueKey(topic);
         String readyQueueKey = readyQueueKey(topic);
+        int batch = serverConfig.getMsgScheduleBatch();
         while (true) {
             //扫描消费过期的消息
-            Set<String> acKMsgIdSet = template.zrangeByScore(ackQueueKey, 0, System.currentTimeMillis(), 0, 100);
+            Set<String> acKMsgIdSet = template.zrangeByScore(ackQueueKey, 0, System.currentTimeMillis(), 0, batch);
             if (acKMsgIdSet.isEmpty()) {
+                resetDueIndex(timeoutIndexKey(), topic, dueTime, ackQueueKey);
                 return;
             }
             //校验消息生命周期
-            MsgCheckStatusResult result = checkMsgLife(topic, acKMsgIdSet, false);
+            MsgCheckStatusResult result = checkMsgLife(topic, acKMsgIdSet, false, false);
             //生命周期已经结束的消息直接删除
             if (!result.endLifeMsgMap.isEmpty()) {
                 active(topic);
@@ -759,7 +897,7 @@ public class CamelliaDelayQueueServer {
         for (int i=0; i<len; i+=100) {
             List<String> readyMsgIdSet = template.lrange(readyQueueKey, i, i + 99);
             //校验消息生命周期
-            MsgCheckStatusResult result = checkMsgLife(topic, readyMsgIdSet, false);
+            MsgCheckStatusResult result = checkMsgLife(topic, readyMsgIdSet, false, false);
             //生命周期已经结束的消息直接删除
             if (!result.endLifeMsgMap.isEmpty()) {
                 active(topic);
@@ -843,17 +981,22 @@ public class CamelliaDelayQueueServer {
         Map<String, CamelliaDelayMsg> inLifeMsgMap = new HashMap<>();
     }
 
-    private MsgCheckStatusResult checkMsgLife(String topic, Collection<String> msgIdSet, boolean pullMsg) {
+    //withPayload=false时只解析元数据，返回的消息不带msg字段
+    private MsgCheckStatusResult checkMsgLife(String topic, Collection<String> msgIdSet, boolean pullMsg, boolean withPayload) {
         MsgCheckStatusResult result = new MsgCheckStatusResult();
-        List<String> keys = new ArrayList<>();
+        byte[][] keys = new byte[msgIdSet.size()][];
         List<String> msgIdList = new ArrayList<>();
         for (String msgId : msgIdSet) {
-            keys.add(msgKey(topic, msgId));
+            keys[msgIdList.size()] = toBytes(msgKey(topic, msgId));
             msgIdList.add(msgId);
         }
-        List<String> list = template.mget(keys.toArray(new String[0]));
+        List<byte[]> list = template.mget(keys);
+        //需要更新的消息在最后通过pipeline批量写回，写回时只更新元数据，不会重新编码消息内容
+        Map<String, byte[]> rawMap = new HashMap<>();
+        List<CamelliaDelayMsg> updateMsgList = new ArrayList<>();
+        List<CamelliaDelayMsg> endLifeMsgList = new ArrayList<>();
         for (int i=0; i<list.size(); i++) {
-            String msg = list.get(i);
+            byte[] msg = list.get(i);
             String msgId = msgIdList.get(i);
             //消息不存在
             if (msg == null) {
@@ -864,7 +1007,7 @@ public class CamelliaDelayQueueServer {
                 continue;
             }
             //消息不存在
-            CamelliaDelayMsg delayMsg = JSONObject.parseObject(msg, CamelliaDelayMsg.class);
+            CamelliaDelayMsg delayMsg = codec.decode(msg, withPayload);
             if (delayMsg == null) {
                 result.endLifeMsgMap.put(msgId, null);
                 if (logger.isDebugEnabled()) {
@@ -872,6 +1015,7 @@ public class CamelliaDelayQueueServer {
                 }
                 continue;
             }
+            rawMap.put(delayMsg.getMsgId(), msg);
             //消息状态异常，或者已经是终态
             CamelliaDelayMsgStatus status = CamelliaDelayMsgStatus.getByValue(delayMsg.getStatus());
             if (status == null || status.isEndLife()) {
@@ -891,7 +1035,7 @@ public class CamelliaDelayQueueServer {
                 } else {
                     delayMsg.setStatus(CamelliaDelayMsgStatus.RETRY_EXHAUST.getValue());
                 }
-                saveOrUpdateMsg(delayMsg, false, true);
+                endLifeMsgList.add(delayMsg);
                 result.endLifeMsgMap.put(delayMsg.getMsgId(), delayMsg);
                 continue;
             }
@@ -900,17 +1044,18 @@ public class CamelliaDelayQueueServer {
                 //如果超过了最大重试次数，则设置为RETRY_EXHAUST
                 if (retry > delayMsg.getMaxRetry()) {
                     delayMsg.setStatus(CamelliaDelayMsgStatus.RETRY_EXHAUST.getValue());
-                    saveOrUpdateMsg(delayMsg, false, true);
+                    endLifeMsgList.add(delayMsg);
                     result.endLifeMsgMap.put(delayMsg.getMsgId(), delayMsg);
                     continue;
                 }
                 //设置为CONSUMING，并返回
                 delayMsg.setStatus(CamelliaDelayMsgStatus.CONSUMING.getValue());
                 delayMsg.setRetry(retry + 1);
-                saveOrUpdateMsg(delayMsg, false, false);
+                updateMsgList.add(delayMsg);
             }
             result.inLifeMsgMap.put(delayMsg.getMsgId(), delayMsg);
         }
+        updateMsgList(updateMsgList, endLifeMsgList, rawMap);
         if (!result.endLifeMsgMap.isEmpty()) {
             CamelliaDelayQueueMonitor.triggerMsgEndLife(topic, result.endLifeMsgMap);
         }
@@ -927,21 +1072,66 @@ public class CamelliaDelayQueueServer {
     }
 
     private boolean saveOrUpdateMsg(CamelliaDelayMsg delayMsg, boolean checkExists, boolean endLife) {
+        return saveOrUpdateMsg(delayMsg, codec.encode(delayMsg), checkExists, endLife);
+    }
+
+    private boolean saveOrUpdateMsg(CamelliaDelayMsg delayMsg, byte[] value, boolean checkExists, boolean endLife) {
         long now = System.currentTimeMillis();
-        String msgKey = msgKey(delayMsg.getTopic(), delayMsg.getMsgId());
+        byte[] msgKey = toBytes(msgKey(delayMsg.getTopic(), delayMsg.getMsgId()));
         if (checkExists) {
-            String set = template.set(msgKey, JSONObject.toJSONString(delayMsg), "NX", "PX", delayMsg.getExpireTime() - now + serverConfig.getEndLifeMsgExpireMillis() * 3);
+            String set = template.set(msgKey, value, NX, PX, delayMsg.getExpireTime() - now + serverConfig.getEndLifeMsgExpireMillis() * 3);
             return set != null && set.equalsIgnoreCase("ok");
         } else {
             if (!endLife) {
-                template.psetex(msgKey, delayMsg.getExpireTime() - now + serverConfig.getEndLifeMsgExpireMillis() * 3, JSONObject.toJSONString(delayMsg));
+                template.psetex(msgKey, delayMsg.getExpireTime() - now + serverConfig.getEndLifeMsgExpireMillis() * 3, value);
             } else {
-                template.psetex(msgKey, serverConfig.getEndLifeMsgExpireMillis(), JSONObject.toJSONString(delayMsg));
+                template.psetex(msgKey, serverConfig.getEndLifeMsgExpireMillis(), value);
             }
             return true;
         }
     }
 
+    //有原始数据的消息只更新元数据
+    private byte[] encodeMsg(CamelliaDelayMsg delayMsg, Map<String, byte[]> rawMap) {
+        byte[] raw = rawMap.get(delayMsg.getMsgId());
+        if (raw != null) {
+            return codec.updateMeta(raw, delayMsg);
+        }
+        return codec.encode(delayMsg);
+    }
+
+    private void updateMsgList(List<CamelliaDelayMsg> updateMsgList, List<CamelliaDelayMsg> endLifeMsgList, Map<String, byte[]> rawMap) {
+        if (updateMsgList.isEmpty() && endLifeMsgList.isEmpty()) {
+            return;
+        }
+        if (updateMsgList.size() + endLifeMsgList.size() == 1) {
+            if (updateMsgList.isEmpty()) {
+                CamelliaDelayMsg delayMsg = endLifeMsgList.get(0);
+                saveOrUpdateMsg(delayMsg, encodeMsg(delayMsg, rawMap), false, true);
+            } else {
+                CamelliaDelayMsg delayMsg = updateMsgList.get(0);
+                saveOrUpdateMsg(delayMsg, encodeMsg(delayMsg, rawMap), false, false);
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (ICamelliaRedisPipeline pipeline = template.pipelined()) {
+            for (CamelliaDelayMsg delayMsg : updateMsgList) {
+                pipeline.psetex(toBytes(msgKey(delayMsg.getTopic(), delayMsg.getMsgId())),
+                        delayMsg.getExpireTime() - now + serverConfig.getEndLifeMsgExpireMillis() * 3, encodeMsg(delayMsg, rawMap));
+            }
+            for (CamelliaDelayMsg delayMsg : endLifeMsgList) {
+                pipeline.psetex(toBytes(msgKey(delayMsg.getTopic(), delayMsg.getMsgId())),
+                        serverConfig.getEndLifeMsgExpireMillis(), encodeMsg(delayMsg, rawMap));
+            }
+            pipeline.sync();
+        }
+    }
+
+    private static byte[] toBytes(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
     private String genMsgId() {
         return UUID.randomUUID().toString().replaceAll("-", "");
     }
@@ -971,6 +1161,16 @@ public class CamelliaDelayQueueServer {
         return CacheUtil.buildCacheKey("camellia_delay_queue_topics", serverConfig.getNamespace());
     }
 
+    //zset，记录每个topic下一次需要检查waiting队列的时间
+    private String triggerIndexKey() {
+        return CacheUtil.buildCacheKey("camellia_delay_queue_trigger_index", serverConfig.getNamespace());
+    }
+
+    //zset，记录每个topic下一次需要检查ack队列的时间
+    private String timeoutIndexKey() {
+        return CacheUtil.buildCacheKey("camellia_delay_queue_timeout_index", serverConfig.getNamespace());
+    }
+
     //zset，用于记录清理非活跃topic时的临时存储
     private String topicsKeyTmp() {
         return CacheUtil.buildCacheKey("camellia_delay_queue_topics_tmp", serverConfig.getNamespace());
@@ -13,6 +13,9 @@ public class CamelliaDelayQueueServerConfig {
     private int checkTimeoutThreadNum = CamelliaDelayQueueConstants.checkTimeoutThreadNum;
 
     private long msgScheduleMillis = CamelliaDelayQueueConstants.msgScheduleMillis;
+    private long msgFullScanSeconds = CamelliaDelayQueueConstants.msgFullScanSeconds;
+    private int msgScheduleBatch = CamelliaDelayQueueConstants.msgScheduleBatch;
+    private int maxPullBatch = CamelliaDelayQueueConstants.maxPullBatch;
     private int scheduleThreadNum = CamelliaDelayQueueConstants.scheduleThreadNum;
     private long topicScheduleSeconds = CamelliaDelayQueueConstants.topicScheduleSeconds;
 
@@ -24,6 +27,16 @@ public class CamelliaDelayQueueServerConfig {
 
     private int monitorIntervalSeconds = CamelliaDelayQueueConstants.monitorIntervalSeconds;
 
+    private CamelliaDelayMsgCodec msgCodec = CamelliaDelayMsgJsonCodec.INSTANCE;
+
+    public CamelliaDelayMsgCodec getMsgCodec() {
+        return msgCodec;
+    }
+
+    public void setMsgCodec(CamelliaDelayMsgCodec msgCodec) {
+        this.msgCodec = msgCodec;
+    }
+
     public String getNamespace() {
         return namespace;
     }
@@ -56,6 +69,30 @@ public class CamelliaDelayQueueServerConfig {
         this.msgScheduleMillis = msgScheduleMillis;
     }
 
+    public long getMsgFullScanSeconds() {
+        return msgFullScanSeconds;
+    }
+
+    public void setMsgFullScanSeconds(long msgFullScanSeconds) {
+        this.msgFullScanSeconds = msgFullScanSeconds;
+    }
+
+    public int getMsgScheduleBatch() {
+        return msgScheduleBatch;
+    }
+
+    public void setMsgScheduleBatch(int msgScheduleBatch) {
+        this.msgScheduleBatch = msgScheduleBatch;
+    }
+
+    public int getMaxPullBatch() {
+        return maxPullBatch;
+    }
+
+    public void setMaxPullBatch(int maxPullBatch) {
+        this.maxPullBatch = maxPullBatch;
+    }
+
     public int getScheduleThreadNum() {
         return scheduleThreadNum;
     }
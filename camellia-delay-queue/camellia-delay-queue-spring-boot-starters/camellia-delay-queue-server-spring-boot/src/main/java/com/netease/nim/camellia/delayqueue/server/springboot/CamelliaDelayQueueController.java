@@ -178,6 +178,10 @@ public class CamelliaDelayQueueController {
         readyQueueTimeGapJsonArray.addAll(monitorData.getReadyQueueTimeGapStatsList());
         monitorJson.put("readyQueueTimeGapStats", readyQueueTimeGapJsonArray);
 
+        JSONArray triggerScheduleTimeGapJsonArray = new JSONArray();
+        triggerScheduleTimeGapJsonArray.addAll(monitorData.getTriggerScheduleTimeGapStatsList());
+        monitorJson.put("triggerScheduleTimeGapStats", triggerScheduleTimeGapJsonArray);
+
         //topicInfoList
         List<CamelliaDelayQueueTopicInfo> topicInfoList = server.getTopicInfoList();
         JSONArray topicInfoJsonArray = new JSONArray();
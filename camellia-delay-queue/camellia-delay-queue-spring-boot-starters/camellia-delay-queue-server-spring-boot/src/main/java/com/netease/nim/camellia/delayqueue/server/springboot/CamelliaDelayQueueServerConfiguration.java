@@ -1,8 +1,11 @@
 package com.netease.nim.camellia.delayqueue.server.springboot;
 
+import com.netease.nim.camellia.delayqueue.server.CamelliaDelayMsgBinaryCodec;
+import com.netease.nim.camellia.delayqueue.server.CamelliaDelayMsgJsonCodec;
 import com.netease.nim.camellia.delayqueue.server.CamelliaDelayQueueServer;
 import com.netease.nim.camellia.delayqueue.server.CamelliaDelayQueueServerConfig;
 import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import com.netease.nim.camellia.tools.compress.CamelliaCompressor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -29,12 +32,22 @@ public class CamelliaDelayQueueServerConfiguration {
         serverConfig.setCheckTimeoutThreadNum(properties.getCheckTimeoutThreadNum());
         serverConfig.setCheckTriggerThreadNum(properties.getCheckTriggerThreadNum());
         serverConfig.setMsgScheduleMillis(properties.getMsgScheduleMillis());
+        serverConfig.setMsgFullScanSeconds(properties.getMsgFullScanSeconds());
+        serverConfig.setMsgScheduleBatch(properties.getMsgScheduleBatch());
+        serverConfig.setMaxPullBatch(properties.getMaxPullBatch());
         serverConfig.setTopicScheduleSeconds(properties.getTopicScheduleSeconds());
         serverConfig.setTtlMillis(properties.getTtlMillis());
         serverConfig.setScheduleThreadNum(properties.getScheduleThreadNum());
         serverConfig.setEndLifeMsgExpireMillis(properties.getEndLifeMsgExpireMillis());
         serverConfig.setTopicActiveTagTimeoutMillis(properties.getTopicActiveTagTimeoutMillis());
         serverConfig.setMonitorIntervalSeconds(properties.getMonitorIntervalSeconds());
+        if (!"binary".equalsIgnoreCase(properties.getMsgCodec())) {
+            serverConfig.setMsgCodec(CamelliaDelayMsgJsonCodec.INSTANCE);
+        } else if (properties.isMsgCompressEnable()) {
+            serverConfig.setMsgCodec(new CamelliaDelayMsgBinaryCodec(new CamelliaCompressor(properties.getMsgCompressThreshold())));
+        } else {
+            serverConfig.setMsgCodec(new CamelliaDelayMsgBinaryCodec());
+        }
         if (template == null) {
             throw new IllegalArgumentException("redis template not found");
         }
@@ -15,6 +15,9 @@ public class CamelliaDelayQueueServerProperties {
     private int checkTimeoutThreadNum = CamelliaDelayQueueConstants.checkTimeoutThreadNum;
 
     private long msgScheduleMillis = CamelliaDelayQueueConstants.msgScheduleMillis;
+    private long msgFullScanSeconds = CamelliaDelayQueueConstants.msgFullScanSeconds;
+    private int msgScheduleBatch = CamelliaDelayQueueConstants.msgScheduleBatch;
+    private int maxPullBatch = CamelliaDelayQueueConstants.maxPullBatch;
     private int scheduleThreadNum = CamelliaDelayQueueConstants.scheduleThreadNum;
     private long topicScheduleSeconds = CamelliaDelayQueueConstants.topicScheduleSeconds;
 
@@ -26,6 +29,10 @@ public class CamelliaDelayQueueServerProperties {
 
     private int monitorIntervalSeconds = CamelliaDelayQueueConstants.monitorIntervalSeconds;
 
+    private String msgCodec = CamelliaDelayQueueConstants.msgCodec;
+    private boolean msgCompressEnable = CamelliaDelayQueueConstants.msgCompressEnable;
+    private int msgCompressThreshold = CamelliaDelayQueueConstants.msgCompressThreshold;
+
     private int longPollingScheduledThreadSize = CamelliaDelayQueueConstants.longPollingScheduledThreadSize;
     private int longPollingScheduledQueueSize = CamelliaDelayQueueConstants.longPollingScheduledQueueSize;
     private int longPollingMsgReadyCallbackThreadSize = CamelliaDelayQueueConstants.longPollingMsgReadyCallbackThreadSize;
@@ -33,6 +40,30 @@ public class CamelliaDelayQueueServerProperties {
     private int longPollingTaskQueueSize = CamelliaDelayQueueConstants.longPollingTaskQueueSize;
     private long longPollingTimeoutMillis = CamelliaDelayQueueConstants.longPollingTimeoutMillis;
 
+    public String getMsgCodec() {
+        return msgCodec;
+    }
+
+    public void setMsgCodec(String msgCodec) {
+        this.msgCodec = msgCodec;
+    }
+
+    public boolean isMsgCompressEnable() {
+        return msgCompressEnable;
+    }
+
+    public void setMsgCompressEnable(boolean msgCompressEnable) {
+        this.msgCompressEnable = msgCompressEnable;
+    }
+
+    public int getMsgCompressThreshold() {
+        return msgCompressThreshold;
+    }
+
+    public void setMsgCompressThreshold(int msgCompressThreshold) {
+        this.msgCompressThreshold = msgCompressThreshold;
+    }
+
     public String getNamespace() {
         return namespace;
     }
@@ -65,6 +96,30 @@ public class CamelliaDelayQueueServerProperties {
         this.msgScheduleMillis = msgScheduleMillis;
     }
 
+    public long getMsgFullScanSeconds() {
+        return msgFullScanSeconds;
+    }
+
+    public void setMsgFullScanSeconds(long msgFullScanSeconds) {
+        this.msgFullScanSeconds = msgFullScanSeconds;
+    }
+
+    public int getMsgScheduleBatch() {
+        return msgScheduleBatch;
+    }
+
+    public void setMsgScheduleBatch(int msgScheduleBatch) {
+        this.msgScheduleBatch = msgScheduleBatch;
+    }
+
+    public int getMaxPullBatch() {
+        return maxPullBatch;
+    }
+
+    public void setMaxPullBatch(int maxPullBatch) {
+        this.maxPullBatch = maxPullBatch;
+    }
+
     public int getScheduleThreadNum() {
         return scheduleThreadNum;
     }
@@ -55,6 +55,8 @@ public class HotKeyConstants {
         public static final int maxNamespace = 1000;
         public static final int hotKeyCacheCounterCapacity = 100000;
         public static final int hotKeyCacheCapacity = 10000;
+        public static final boolean hotKeyPrefilterEnable = false;
+        public static final int hotKeyPrefilterPromotePercent = 50;
 
         public static final int callbackExecutorSize = SysUtils.getCpuHalfNum();
         public static final int hotKeyCallbackIntervalSeconds = 10;
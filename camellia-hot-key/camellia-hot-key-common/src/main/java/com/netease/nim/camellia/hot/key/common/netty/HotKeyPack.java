@@ -101,7 +101,9 @@ public class HotKeyPack {
                     unpack.popMarshallable(body);
                     break;
                 case PUSH:
-                    body = new PushPack();
+                    PushPack pushPack = new PushPack();
+                    pushPack.setCompact(header.isCompactBody());
+                    body = pushPack;
                     unpack.popMarshallable(body);
                     break;
                 case GET_CONFIG:
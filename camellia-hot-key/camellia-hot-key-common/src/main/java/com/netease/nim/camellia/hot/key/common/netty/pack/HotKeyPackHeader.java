@@ -33,6 +33,7 @@ public class HotKeyPackHeader implements Marshallable {
         DEFAULT((byte) 0),
         EMPTY_BODY((byte) 1),//是否空包
         ACK((byte) 2),//是否是响应包
+        COMPACT_BODY((byte) 4),//body是否是紧凑格式，目前只有PushPack支持
 
         ;
 
@@ -103,4 +104,12 @@ public class HotKeyPackHeader implements Marshallable {
     public boolean isEmptyBody() {
         return 0 != (tag & Tag.EMPTY_BODY.getValue());
     }
+
+    public void setCompactBody() {
+        tag |= Tag.COMPACT_BODY.getValue();
+    }
+
+    public boolean isCompactBody() {
+        return 0 != (tag & Tag.COMPACT_BODY.getValue());
+    }
 }
@@ -1,20 +1,28 @@
 package com.netease.nim.camellia.hot.key.common.netty.pack;
 
-import com.netease.nim.camellia.codec.ArrayMable;
-import com.netease.nim.camellia.codec.Pack;
-import com.netease.nim.camellia.codec.Props;
-import com.netease.nim.camellia.codec.Unpack;
+import com.netease.nim.camellia.codec.*;
 import com.netease.nim.camellia.hot.key.common.model.KeyCounter;
 import com.netease.nim.camellia.hot.key.common.model.KeyAction;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
+ * 有两种编码格式：
+ * <p> 默认格式，每个KeyCounter一个Props
+ * <p> 紧凑格式（header带有COMPACT_BODY标记），按namespace分组，namespace只写一次，key是变长的utf-8，count是varint，
+ * 解码时不会生成中间对象，而是在遍历时才逐个解析
+ * <p> 只有server在PushRepPack里声明支持紧凑格式之后，client才会使用紧凑格式
  * Created by caojiajun on 2023/5/8
  */
 public class PushPack extends HotKeyPackBody {
 
+    public static final int VERSION_DEFAULT = 1;
+    public static final int VERSION_COMPACT = 2;
+
     private static enum Tag {
         namespace(1),
         key(2),
@@ -30,20 +38,86 @@ public class PushPack extends HotKeyPackBody {
     }
 
     private List<KeyCounter> list;
+    private boolean compact;
+    private int size;
+    private Unpack unpack;//紧凑格式下，尚未解析的body
 
     public PushPack(List<KeyCounter> list) {
         this.list = list;
     }
 
+    public PushPack(List<KeyCounter> list, boolean compact) {
+        this.list = list;
+        this.compact = compact;
+    }
+
     public PushPack() {
     }
 
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * KeyCounter的个数
+     * @return size
+     */
+    public int size() {
+        return list != null ? list.size() : size;
+    }
+
+    /**
+     * 获取所有KeyCounter，紧凑格式下会先全部解析出来
+     * @return list
+     */
     public List<KeyCounter> getList() {
+        if (list == null && unpack != null) {
+            List<KeyCounter> result = new ArrayList<>(size);
+            forEach(result::add);
+            list = result;
+        }
         return list;
     }
 
+    /**
+     * 遍历所有KeyCounter，紧凑格式下边解析边回调，body只会被解析一次
+     * @param consumer consumer
+     */
+    public void forEach(Consumer<KeyCounter> consumer) {
+        if (list != null) {
+            for (KeyCounter counter : list) {
+                consumer.accept(counter);
+            }
+            return;
+        }
+        Unpack unpack = this.unpack;
+        if (unpack == null) return;
+        this.unpack = null;
+        int groups = Varint.readInt(unpack);
+        for (int i = 0; i < groups; i++) {
+            String namespace = unpack.popVarstr();
+            int count = Varint.readInt(unpack);
+            for (int j = 0; j < count; j++) {
+                KeyCounter counter = new KeyCounter();
+                counter.setNamespace(namespace);
+                counter.setKey(unpack.popVarstr());
+                counter.setAction(KeyAction.getByValue(unpack.popByte()));
+                counter.setCount(unpack.popVarUlong());
+                consumer.accept(counter);
+            }
+        }
+    }
+
     @Override
     public void marshal(Pack pack) {
+        if (compact) {
+            marshalCompact(pack);
+            return;
+        }
         ArrayMable<Props> arrayMable = new ArrayMable<>(new ArrayList<>(list.size()), Props.class);
         for (KeyCounter counter : list) {
             Props props = new Props();
@@ -58,6 +132,12 @@ public class PushPack extends HotKeyPackBody {
 
     @Override
     public void unmarshal(Unpack unpack) {
+        if (compact) {
+            //先只读出总数，剩下的部分在遍历时再解析
+            size = Varint.readInt(unpack);
+            this.unpack = unpack;
+            return;
+        }
         ArrayMable<Props> arrayMable = new ArrayMable<>(Props.class);
         unpack.popMarshallable(arrayMable);
         list = new ArrayList<>(arrayMable.list.size());
@@ -70,4 +150,29 @@ public class PushPack extends HotKeyPackBody {
             list.add(counter);
         }
     }
+
+    //size + groups + (namespace + count + (key + action + count) * count) * groups
+    private void marshalCompact(Pack pack) {
+        Map<String, List<KeyCounter>> map = new HashMap<>();
+        for (KeyCounter counter : list) {
+            List<KeyCounter> counters = map.get(counter.getNamespace());
+            if (counters == null) {
+                counters = new ArrayList<>();
+                map.put(counter.getNamespace(), counters);
+            }
+            counters.add(counter);
+        }
+        Varint.writeInt(list.size(), pack);
+        Varint.writeInt(map.size(), pack);
+        for (Map.Entry<String, List<KeyCounter>> entry : map.entrySet()) {
+            pack.putVarstr(entry.getKey());
+            List<KeyCounter> counters = entry.getValue();
+            Varint.writeInt(counters.size(), pack);
+            for (KeyCounter counter : counters) {
+                pack.putVarstr(counter.getKey());
+                pack.putByte((byte) counter.getAction().getValue());
+                pack.putVarUlong(counter.getCount());
+            }
+        }
+    }
 }
@@ -10,9 +10,31 @@ import com.netease.nim.camellia.codec.Unpack;
  */
 public class PushRepPack extends HotKeyPackBody {
 
-    public static final PushRepPack INSTANCE = new PushRepPack();
+    public static final PushRepPack INSTANCE = new PushRepPack(PushPack.VERSION_COMPACT);
 
-    private static final Props props = new Props();//预留一个参数
+    private static enum Tag {
+        pushPackVersion(1),//server支持的PushPack的最高版本，老版本server不返回
+        ;
+
+        private final int value;
+
+        Tag(int value) {
+            this.value = value;
+        }
+    }
+
+    private Props props = new Props();
+
+    public PushRepPack() {
+    }
+
+    public PushRepPack(int pushPackVersion) {
+        props.putInteger(Tag.pushPackVersion.value, pushPackVersion);
+    }
+
+    public int getPushPackVersion() {
+        return props.getInteger(Tag.pushPackVersion.value, PushPack.VERSION_DEFAULT);
+    }
 
     @Override
     public void marshal(Pack pack) {
@@ -21,6 +43,7 @@ public class PushRepPack extends HotKeyPackBody {
 
     @Override
     public void unmarshal(Unpack unpack) {
-        unpack.popMarshallable(new Props());
+        props = new Props();
+        unpack.popMarshallable(props);
     }
 }
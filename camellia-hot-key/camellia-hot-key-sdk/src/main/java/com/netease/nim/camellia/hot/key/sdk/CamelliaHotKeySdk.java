@@ -70,6 +70,8 @@ public class CamelliaHotKeySdk implements ICamelliaHotKeySdk {
             this.collector = new ConcurrentLinkedHashMapCollector(config.getCapacity());
         } else if (collectorType == CollectorType.ConcurrentHashMap) {
             this.collector = new ConcurrentHashMapCollector(config.getCapacity());
+        } else if (collectorType == CollectorType.StripedArray) {
+            this.collector = new StripedArrayCollector(config.getCapacity());
         } else {
             throw new IllegalArgumentException("unknown collectorType");
         }
@@ -212,8 +214,17 @@ public class CamelliaHotKeySdk implements ICamelliaHotKeySdk {
                 }
                 List<List<KeyCounter>> split = CollectionSplitUtil.split(counters, config.getPushBatch());
                 for (List<KeyCounter> list : split) {
-                    CompletableFuture<HotKeyPack> future = client.sendPack(HotKeyPack.newPack(HotKeyCommand.PUSH, new PushPack(list)));
+                    //server声明支持之后才使用紧凑格式，兼容老版本server
+                    boolean compact = client.getPushPackVersion() >= PushPack.VERSION_COMPACT;
+                    HotKeyPack hotKeyPack = HotKeyPack.newPack(HotKeyCommand.PUSH, new PushPack(list, compact));
+                    if (compact) {
+                        hotKeyPack.getHeader().setCompactBody();
+                    }
+                    CompletableFuture<HotKeyPack> future = client.sendPack(hotKeyPack);
                     future.thenAccept(pack -> {
+                        if (pack != null && pack.getBody() instanceof PushRepPack) {
+                            client.setPushPackVersion(((PushRepPack) pack.getBody()).getPushPackVersion());
+                        }
                         if (logger.isDebugEnabled()) {
                             logger.debug("send push pack to server success, size = {}", list.size());
                         }
@@ -7,6 +7,7 @@ public enum CollectorType {
     Caffeine(1),//lfu效果好，性能开销相比后两者更大
     ConcurrentLinkedHashMap(2),//性能好，且有lru
     ConcurrentHashMap(3),//性能好，但是满了就直接丢弃了
+    StripedArray(4),//性能最好，无锁且不拼接字符串，capacity是每个namespace的上限，满了就直接丢弃了
     ;
 
     private final int value;
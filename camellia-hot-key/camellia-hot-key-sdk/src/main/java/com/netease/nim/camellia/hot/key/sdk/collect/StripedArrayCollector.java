@@ -0,0 +1,300 @@
+package com.netease.nim.camellia.hot.key.sdk.collect;
+
+import com.netease.nim.camellia.hot.key.common.model.KeyAction;
+import com.netease.nim.camellia.hot.key.common.model.KeyCounter;
+import com.netease.nim.camellia.hot.key.sdk.util.HotKeySdkUtils;
+import com.netease.nim.camellia.tools.executor.CamelliaThreadFactory;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按线程分段的开放寻址表，直接用(namespace, key, action)做key，不需要拼接字符串，push过程无锁
+ * <p> 和其他collector一样，capacity是每个namespace的上限，超过capacity的新key的计数会被丢弃，并记录在overflowCount里
+ * <p> 每个namespace一组分段，线程优先写自己的分段，分段满了（或者探测不到空位）就顺延到下一个分段，单线程push也能用满capacity
+ * <p> 有两份表交替使用，collect时直接切换引用，不会阻塞push
+ * <p> push时在表上登记（active计数），登记后再确认表没有被切换；collect切换引用后等待旧表上正在进行的push结束，再取走计数，保证计数不会丢失
+ */
+public class StripedArrayCollector implements IHotKeyCounterCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedArrayCollector.class);
+    //累计值，不会重置
+    private static final LongAdder overflowCount = new LongAdder();
+
+    //第一次使用StripedArrayCollector时才启动日志线程
+    private static class OverflowMonitor {
+        private static long lastCount = 0;
+        static {
+            Executors.newSingleThreadScheduledExecutor(new CamelliaThreadFactory(StripedArrayCollector.class))
+                    .scheduleAtFixedRate(() -> {
+                        long count = overflowCount.sum();
+                        long delta = count - lastCount;
+                        lastCount = count;
+                        if (delta > 0) {
+                            logger.warn("StripedArrayCollector full, drop count = {}, total drop count = {}", delta, count);
+                        }
+                    }, 30, 30, TimeUnit.SECONDS);
+        }
+
+        static void init() {
+        }
+    }
+
+    private static final int PROBE = 16;
+    //active计数之间的间隔，避免伪共享
+    private static final int PADDING = 16;
+
+    private final int capacity;
+    private final int stripes;
+    private final int stripeCapacity;
+    private final AtomicBoolean collecting = new AtomicBoolean(false);
+    private volatile Table current;
+    private Table standby;
+    private int listInitSize = HotKeySdkUtils.update(0);
+
+    /**
+     * @param capacity 每个namespace的容量
+     */
+    public StripedArrayCollector(int capacity) {
+        this(capacity, Math.min(Runtime.getRuntime().availableProcessors(), 16));
+    }
+
+    StripedArrayCollector(int capacity, int minStripes) {
+        OverflowMonitor.init();
+        int stripes = 1;
+        while (stripes < minStripes) {
+            stripes <<= 1;
+        }
+        this.capacity = capacity;
+        this.stripes = stripes;
+        this.stripeCapacity = Math.max(16, (capacity + stripes - 1) / stripes);
+        this.current = new Table(stripes);
+        this.standby = new Table(stripes);
+    }
+
+    /**
+     * 被丢弃的计数（所有StripedArrayCollector共享的累计值，不会重置）
+     * @return count
+     */
+    public static long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+    @Override
+    public void push(String namespace, String key, KeyAction keyAction, long count) {
+        int index = (int) Thread.currentThread().getId() & (stripes - 1);
+        while (true) {
+            Table table = current;
+            table.active.incrementAndGet(index * PADDING);
+            try {
+                if (table != current) {
+                    //登记前表已经被collect切换，旧表可能已经在清理，重新获取
+                    continue;
+                }
+                NamespaceTable namespaceTable = CamelliaMapUtils.computeIfAbsent(table.namespaceMap, namespace,
+                        n -> new NamespaceTable(stripes, stripeCapacity, capacity));
+                if (!namespaceTable.add(index, namespace, key, keyAction, count)) {
+                    overflowCount.add(count);
+                }
+                return;
+            } finally {
+                table.active.decrementAndGet(index * PADDING);
+            }
+        }
+    }
+
+    /**
+     * 只会有一个线程在collect，并发的collect直接返回空（计数留到下一轮）
+     */
+    @Override
+    public List<KeyCounter> collect() {
+        if (!collecting.compareAndSet(false, true)) {
+            return new ArrayList<>();
+        }
+        try {
+            Table table = current;
+            current = standby;
+            //等待切换前已经登记在旧表上的push结束，push可能顺延写到其他分段，所以要等所有分段都结束
+            for (int i = 0; i < stripes; i++) {
+                while (table.active.get(i * PADDING) != 0) {
+                    Thread.yield();
+                }
+            }
+            //同一个key可能分布在多个分段里，需要合并
+            Map<Entry, KeyCounter> map = new HashMap<>(listInitSize * 2);
+            for (NamespaceTable namespaceTable : table.namespaceMap.values()) {
+                for (Stripe stripe : namespaceTable.stripes) {
+                    AtomicReferenceArray<Entry> slots = stripe.slots;
+                    for (int i = 0; i < slots.length(); i++) {
+                        Entry entry = slots.getAndSet(i, null);
+                        if (entry == null) continue;
+                        KeyCounter counter = map.get(entry);
+                        if (counter == null) {
+                            counter = new KeyCounter();
+                            counter.setNamespace(entry.namespace);
+                            counter.setKey(entry.key);
+                            counter.setAction(entry.action);
+                            map.put(entry, counter);
+                        }
+                        counter.setCount(counter.getCount() + entry.count);
+                    }
+                    stripe.size.set(0);
+                }
+                namespaceTable.size.set(0);
+            }
+            standby = table;
+            List<KeyCounter> result = new ArrayList<>(map.values());
+            this.listInitSize = HotKeySdkUtils.update(result.size());
+            return result;
+        } finally {
+            collecting.set(false);
+        }
+    }
+
+    private static class Table {
+        private final ConcurrentHashMap<String, NamespaceTable> namespaceMap = new ConcurrentHashMap<>();
+        //正在这个表上push的线程数，按线程分段
+        private final AtomicIntegerArray active;
+
+        Table(int stripes) {
+            this.active = new AtomicIntegerArray(stripes * PADDING);
+        }
+    }
+
+    private static class NamespaceTable {
+        private final Stripe[] stripes;
+        private final int capacity;
+        //这个namespace下的key数
+        private final AtomicInteger size = new AtomicInteger();
+
+        NamespaceTable(int stripes, int stripeCapacity, int capacity) {
+            this.capacity = capacity;
+            this.stripes = new Stripe[stripes];
+            for (int i = 0; i < stripes; i++) {
+                this.stripes[i] = new Stripe(stripeCapacity);
+            }
+        }
+
+        boolean add(int index, String namespace, String key, KeyAction action, long count) {
+            int hash = hash(namespace, key, action);
+            for (int i = 0; i < stripes.length; i++) {
+                //自己的分段满了就顺延到下一个分段
+                Stripe stripe = stripes[(index + i) & (stripes.length - 1)];
+                if (stripe.add(this, hash, namespace, key, action, count, PROBE)) {
+                    return true;
+                }
+            }
+            if (size.get() >= capacity) {
+                return false;
+            }
+            //namespace还没满，只是探测窗口内没有空位，放宽探测长度再试一次（很少发生）
+            for (int i = 0; i < stripes.length; i++) {
+                Stripe stripe = stripes[(index + i) & (stripes.length - 1)];
+                if (stripe.add(this, hash, namespace, key, action, count, stripe.slots.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Stripe {
+        private final int capacity;
+        private final int mask;
+        private final AtomicReferenceArray<Entry> slots;
+        private final AtomicInteger size = new AtomicInteger();
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            int n = 1;
+            while (n < capacity * 2) {
+                n <<= 1;
+            }
+            this.mask = n - 1;
+            this.slots = new AtomicReferenceArray<>(n);
+        }
+
+        boolean add(NamespaceTable namespaceTable, int hash, String namespace, String key, KeyAction action, long count, int probe) {
+            int base = hash & mask;
+            for (int i = 0; i < probe; i++) {
+                int index = (base + i) & mask;
+                Entry entry = slots.get(index);
+                if (entry == null) {
+                    if (size.get() >= capacity || namespaceTable.size.get() >= namespaceTable.capacity) {
+                        return false;
+                    }
+                    Entry newEntry = new Entry(hash, namespace, key, action, count);
+                    if (slots.compareAndSet(index, null, newEntry)) {
+                        size.incrementAndGet();
+                        namespaceTable.size.incrementAndGet();
+                        return true;
+                    }
+                    entry = slots.get(index);
+                    if (entry == null) {
+                        continue;
+                    }
+                }
+                if (entry.match(hash, namespace, key, action)) {
+                    Entry.COUNT.addAndGet(entry, count);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Entry {
+        private static final AtomicLongFieldUpdater<Entry> COUNT = AtomicLongFieldUpdater.newUpdater(Entry.class, "count");
+
+        private final int hash;
+        private final String namespace;
+        private final String key;
+        private final KeyAction action;
+        private volatile long count;
+
+        Entry(int hash, String namespace, String key, KeyAction action, long count) {
+            this.hash = hash;
+            this.namespace = namespace;
+            this.key = key;
+            this.action = action;
+            this.count = count;
+        }
+
+        boolean match(int hash, String namespace, String key, KeyAction action) {
+            return this.hash == hash && this.action == action && this.key.equals(key) && this.namespace.equals(namespace);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry)) return false;
+            Entry entry = (Entry) o;
+            return match(entry.hash, entry.namespace, entry.key, entry.action);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static int hash(String namespace, String key, KeyAction action) {
+        int h = namespace.hashCode() * 31 + key.hashCode();
+        h = (h * 31 + action.getValue()) * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -3,6 +3,7 @@ package com.netease.nim.camellia.hot.key.sdk.netty;
 import com.netease.nim.camellia.hot.key.common.netty.*;
 import com.netease.nim.camellia.hot.key.common.netty.handler.HotKeyPackDecoder;
 import com.netease.nim.camellia.hot.key.common.netty.handler.HotKeyPackEncoder;
+import com.netease.nim.camellia.hot.key.common.netty.pack.PushPack;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -29,6 +30,7 @@ public class HotKeyClient {
 
     private Channel channel = null;
     private volatile boolean valid;
+    private volatile int pushPackVersion = PushPack.VERSION_DEFAULT;
 
     public HotKeyClient(HotKeyServerAddr addr, HotKeyPackConsumer consumer) {
         this.id = idGen.incrementAndGet();
@@ -101,6 +103,18 @@ public class HotKeyClient {
         return valid;
     }
 
+    /**
+     * server支持的PushPack版本，连接建立后默认使用老版本，收到server的PushRepPack后更新
+     * @return version
+     */
+    public int getPushPackVersion() {
+        return pushPackVersion;
+    }
+
+    public void setPushPackVersion(int pushPackVersion) {
+        this.pushPackVersion = pushPackVersion;
+    }
+
     /**
      * 发送一个包到服务器
      * @param hotKeyPack pack
@@ -0,0 +1,59 @@
+package com.netease.nim.camellia.hot.key.sdk.collect;
+
+import com.netease.nim.camellia.hot.key.common.model.KeyAction;
+import com.netease.nim.camellia.hot.key.common.model.KeyCounter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * 单线程push（如sdk的异步模式）也要能用满每个namespace的capacity
+ */
+public class StripedArrayCollectorTest {
+
+    private static final int CAPACITY = 100000;
+
+    @Test
+    public void testSingleThreadFillCapacity() {
+        testSingleThreadFillCapacity(1);
+        testSingleThreadFillCapacity(16);
+    }
+
+    private void testSingleThreadFillCapacity(int stripes) {
+        StripedArrayCollector collector = new StripedArrayCollector(CAPACITY, stripes);
+        long overflow = StripedArrayCollector.getOverflowCount();
+        for (int i=0; i<CAPACITY; i++) {
+            collector.push("ns", "key" + i, KeyAction.QUERY, 1);
+        }
+        Assert.assertEquals(overflow, StripedArrayCollector.getOverflowCount());
+        //已经存在的key还可以继续计数，新key被丢弃
+        collector.push("ns", "key0", KeyAction.QUERY, 1);
+        collector.push("ns", "key" + CAPACITY, KeyAction.QUERY, 5);
+        Assert.assertEquals(overflow + 5, StripedArrayCollector.getOverflowCount());
+
+        List<KeyCounter> list = collector.collect();
+        Assert.assertEquals(CAPACITY, list.size());
+        long total = 0;
+        for (KeyCounter counter : list) {
+            total += counter.getCount();
+        }
+        Assert.assertEquals(CAPACITY + 1, total);
+
+        //collect之后容量恢复
+        collector.push("ns", "key" + CAPACITY, KeyAction.QUERY, 1);
+        Assert.assertEquals(1, collector.collect().size());
+    }
+
+    @Test
+    public void testCapacityPerNamespace() {
+        StripedArrayCollector collector = new StripedArrayCollector(CAPACITY, 16);
+        long overflow = StripedArrayCollector.getOverflowCount();
+        for (int i=0; i<CAPACITY; i++) {
+            collector.push("ns1", "key" + i, KeyAction.QUERY, 1);
+            collector.push("ns2", "key" + i, KeyAction.UPDATE, 1);
+        }
+        Assert.assertEquals(overflow, StripedArrayCollector.getOverflowCount());
+        Assert.assertEquals(CAPACITY * 2, collector.collect().size());
+    }
+}
@@ -96,18 +96,18 @@ public class HotKeyPackBizServerHandler implements HotKeyPackBizHandler {
         try {
             ServerStatus.updateLastUseTime();
             if (logger.isDebugEnabled()) {
-                logger.debug("receive PushPack, size = {}", pack.getList().size());
+                logger.debug("receive PushPack, size = {}, compact = {}", pack.size(), pack.isCompact());
             }
             ChannelInfo channelInfo = ChannelInfo.get(channel);
             String source = channelInfo.getSource();
-            List<KeyCounter> keyCounterList = pack.getList();
-            int size = keyCounterList.size();
+            int size = pack.size();
             Map<HotKeyCalculatorQueue, List<KeyCounter>> buffer = new HashMap<>();
-            for (KeyCounter counter : keyCounterList) {
+            //紧凑格式下边解析边分发，不会先生成完整的list
+            pack.forEach(counter -> {
                 HotKeyCalculatorQueue queue = selectQueue(counter);
                 List<KeyCounter> list = CamelliaMapUtils.computeIfAbsent(buffer, queue, k -> new ArrayList<>(size));
                 list.add(counter);
-            }
+            });
             for (Map.Entry<HotKeyCalculatorQueue, List<KeyCounter>> entry : buffer.entrySet()) {
                 entry.getKey().push(entry.getValue(), source);
             }
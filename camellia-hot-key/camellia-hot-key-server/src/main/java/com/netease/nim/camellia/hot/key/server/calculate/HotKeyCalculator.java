@@ -20,7 +20,7 @@ public class HotKeyCalculator {
 
     private final int id;
     private final CacheableHotKeyConfigService configService;
-    private final HotKeyCounterManager hotKeyCounterManager;
+    private final HotKeyCounterStore hotKeyCounterStore;
     private final HotKeyEventHandler hotKeyEventHandler;
     private final TopNCounterManager topNCounterManager;
     private final HotKeyCalculatorMonitor monitor = new HotKeyCalculatorMonitor();
@@ -29,7 +29,7 @@ public class HotKeyCalculator {
                             HotKeyCounterManager hotKeyCounterManager, TopNCounterManager topNCounterManager, HotKeyEventHandler hotKeyEventHandler) {
         this.id = id;
         this.configService = configService;
-        this.hotKeyCounterManager = hotKeyCounterManager;
+        this.hotKeyCounterStore = hotKeyCounterManager.newStore(monitor);
 
         this.topNCounterManager = topNCounterManager;
         this.hotKeyEventHandler = hotKeyEventHandler;
@@ -52,22 +52,22 @@ public class HotKeyCalculator {
             monitor.updateRuleNotMatch(counter.getNamespace(), 1);
             return;
         }
-        String uniqueKey = counter.getKey() + "|" + counter.getAction().getValue();
         //计算是否是热点
-        HotKeyCounter hotKeyCounter = hotKeyCounterManager.getHotKeyCounter(counter.getNamespace(), uniqueKey, rule);
-        long current = hotKeyCounter.update(counter.getCount(), source);
+        long current = hotKeyCounterStore.update(counter.getNamespace(), counter.getKey(), counter.getAction(), counter.getCount(), source, rule);
         boolean hot = current >= rule.getCheckThreshold();
         if (hot) {
             //如果是热点，推给hotKeyEventHandler处理
             HotKey hotKey = new HotKey(counter.getNamespace(), counter.getKey(), counter.getAction(), rule.getExpireMillis());
-            hotKeyEventHandler.newHotKey(hotKey, rule, current, hotKeyCounter.getSourceSet());
+            hotKeyEventHandler.newHotKey(hotKey, rule, current, hotKeyCounterStore.getSourceSet());
         }
         //如果是key的更新/删除操作，则需要看看是否需要广播
         if (counter.getAction() == KeyAction.DELETE || counter.getAction() == KeyAction.UPDATE) {
             hotKeyEventHandler.hotKeyUpdate(counter);
         }
-        //计算topN
-        topNCounterManager.update(counter, source);
+        //计算topN，开启预过滤时只统计通过预过滤的key
+        if (current >= 0) {
+            topNCounterManager.update(counter, source);
+        }
 
         //监控埋点
         if (hot) {
@@ -1,17 +1,14 @@
 package com.netease.nim.camellia.hot.key.server.calculate;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
-import com.netease.nim.camellia.hot.key.common.model.Rule;
 import com.netease.nim.camellia.hot.key.server.conf.HotKeyServerProperties;
-import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
-import com.netease.nim.camellia.tools.utils.MathUtil;
+import com.netease.nim.camellia.hot.key.server.monitor.HotKeyCalculatorMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -21,51 +18,55 @@ public class HotKeyCounterManager {
 
     private static final Logger logger = LoggerFactory.getLogger(HotKeyCounterManager.class);
 
-    private final ConcurrentLinkedHashMap<String, List<Cache<String, HotKeyCounter>>> counterMap;
-    private final int capacity;
-    private final int cacheCount;
-    private final boolean is2Power;
+    private final List<HotKeyCounterStore> storeList = new CopyOnWriteArrayList<>();
+    private final int maxNamespace;
+    private final int maxSlots;
+    private final HotKeyPrefilterConfig prefilterConfig;
 
     public HotKeyCounterManager(HotKeyServerProperties properties) {
-        this.capacity = properties.getHotKeyCacheCounterCapacity();
-        this.cacheCount = properties.getCacheCount();
-        this.is2Power = MathUtil.is2Power(cacheCount);
-        this.counterMap = new ConcurrentLinkedHashMap.Builder<String, List<Cache<String, HotKeyCounter>>>()
-                .initialCapacity(properties.getMaxNamespace())
-                .maximumWeightedCapacity(properties.getMaxNamespace())
-                .build();
-        logger.info("HotKeyCounterManager init success, maxNamespace = {}, capacity = {}, cacheCount = {}",
-                properties.getMaxNamespace(), capacity, cacheCount);
+        this.maxNamespace = properties.getMaxNamespace();
+        //同一个namespace+key总是由同一个calculator线程计算，因此每个线程只需要承担1/bizWorkThread的容量
+        int capacity = properties.getHotKeyCacheCounterCapacity();
+        int bizWorkThread = Math.max(1, properties.getBizWorkThread());
+        this.maxSlots = tableSizeFor((capacity + bizWorkThread - 1) / bizWorkThread);
+        //预过滤的sketch在一个线程内的所有namespace之间共享
+        Set<String> prefilterNamespaces = new HashSet<>();
+        String namespaces = properties.getHotKeyPrefilterNamespaces();
+        if (namespaces != null) {
+            for (String namespace : namespaces.split(",")) {
+                if (!namespace.trim().isEmpty()) {
+                    prefilterNamespaces.add(namespace.trim());
+                }
+            }
+        }
+        this.prefilterConfig = new HotKeyPrefilterConfig(properties.isHotKeyPrefilterEnable(), prefilterNamespaces,
+                properties.getHotKeyPrefilterPromotePercent(), tableSizeFor(maxSlots * 4));
+        logger.info("HotKeyCounterManager init success, maxNamespace = {}, capacity = {}, bizWorkThread = {}, maxSlots = {}, prefilterEnable = {}, prefilterNamespaces = {}",
+                maxNamespace, capacity, bizWorkThread, maxSlots, properties.isHotKeyPrefilterEnable(), prefilterNamespaces);
     }
 
-    public HotKeyCounter getHotKeyCounter(String namespace, String key, Rule rule) {
-        List<Cache<String, HotKeyCounter>> list = getMap(namespace);
-        HotKeyCounter counter;
-        if (cacheCount == 1) {
-            counter = list.get(0).get(key, k -> new HotKeyCounter(rule.getCheckMillis()));
-        } else {
-            int code = Math.abs(key.hashCode());
-            int index = MathUtil.mod(is2Power, code, cacheCount);
-            counter = list.get(index).get(key, k -> new HotKeyCounter(rule.getCheckMillis()));
-        }
-        return counter;
+    /**
+     * 给一个calculator线程新建计数器存储
+     * @param monitor monitor
+     * @return HotKeyCounterStore
+     */
+    public HotKeyCounterStore newStore(HotKeyCalculatorMonitor monitor) {
+        HotKeyCounterStore store = new HotKeyCounterStore(maxNamespace, maxSlots, prefilterConfig, monitor);
+        storeList.add(store);
+        return store;
     }
 
     public void remove(String namespace) {
-        counterMap.remove(namespace);
+        for (HotKeyCounterStore store : storeList) {
+            store.remove(namespace);
+        }
     }
 
-    private List<Cache<String, HotKeyCounter>> getMap(String namespace) {
-        return CamelliaMapUtils.computeIfAbsent(counterMap, namespace, n -> {
-            List<Cache<String, HotKeyCounter>> list = new ArrayList<>(cacheCount);
-            for (int i=0; i<cacheCount; i++) {
-                Cache<String, HotKeyCounter> cache = Caffeine.newBuilder()
-                        .initialCapacity(capacity)
-                        .maximumSize(capacity)
-                        .build();
-                list.add(cache);
-            }
-            return list;
-        });
+    private static int tableSizeFor(int capacity) {
+        int n = 1;
+        while (n < capacity && n < (1 << 30)) {
+            n <<= 1;
+        }
+        return Math.max(n, 16);
     }
 }
@@ -0,0 +1,164 @@
+package com.netease.nim.camellia.hot.key.server.calculate;
+
+import com.netease.nim.camellia.hot.key.common.model.KeyAction;
+import com.netease.nim.camellia.hot.key.common.model.Rule;
+import com.netease.nim.camellia.hot.key.server.monitor.HotKeyCalculatorMonitor;
+import com.netease.nim.camellia.hot.key.server.utils.TimeCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 一个HotKeyCalculator线程独占的热key计数器存储，不需要拼接namespace/key/action字符串，也不需要为每个key分配计数器对象
+ * <p> 开启预过滤的namespace，key需要先通过{@link HotKeyPrefilter}的估计值检查，才会进入精确计数
+ * <p> 晋升时以sketch当前周期的估计值作为初始计数，并在sketch当前周期结束时失效，这些计数在此之前都还在真实的检测窗口内，不会因为晋升而高估
+ * <p> 线程不安全的，除了remove方法，其他方法务必只在calculator线程调用
+ */
+public class HotKeyCounterStore {
+
+    private static final HotKeyCounterTable[] EMPTY = new HotKeyCounterTable[0];
+
+    private final int maxSlots;
+    private final HotKeyPrefilterConfig prefilterConfig;
+    private final HotKeyCalculatorMonitor monitor;
+    private final LinkedHashMap<String, HotKeyCounterTable[]> tableMap;
+    private final Queue<String> removeQueue = new ConcurrentLinkedQueue<>();
+
+    private HotKeyPrefilter[] prefilters = new HotKeyPrefilter[0];
+    private HotKeyCounterTable lastTable;
+    private int lastSlot;
+
+    public HotKeyCounterStore(int maxNamespace, int maxSlots, HotKeyPrefilterConfig prefilterConfig, HotKeyCalculatorMonitor monitor) {
+        this.maxSlots = maxSlots;
+        this.prefilterConfig = prefilterConfig;
+        this.monitor = monitor;
+        this.tableMap = new LinkedHashMap<String, HotKeyCounterTable[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HotKeyCounterTable[]> eldest) {
+                return size() > maxNamespace;
+            }
+        };
+    }
+
+    /**
+     * 计数
+     * @param namespace namespace
+     * @param key key
+     * @param action action
+     * @param count count
+     * @param source source
+     * @param rule rule
+     * @return 当前窗口内的计数，被预过滤的key返回-1
+     */
+    public long update(String namespace, String key, KeyAction action, long count, String source, Rule rule) {
+        return update(namespace, key, action, count, source, rule, TimeCache.currentMillis);
+    }
+
+    long update(String namespace, String key, KeyAction action, long count, String source, Rule rule, long now) {
+        if (!removeQueue.isEmpty()) {
+            String ns;
+            while ((ns = removeQueue.poll()) != null) {
+                tableMap.remove(ns);
+            }
+        }
+        HotKeyCounterTable table = getTable(namespace, rule.getCheckMillis());
+        int hash = hash(namespace, key, action);
+        byte actionValue = (byte) action.getValue();
+        int slot;
+        if (prefilterConfig.isEnable(namespace)) {
+            slot = table.find(hash, key, actionValue, now);
+            if (slot < 0) {
+                HotKeyPrefilter prefilter = getPrefilter(table.getWindowMillis(), now);
+                long estimate = prefilter.increment(hash, count, now);
+                if (estimate * 100 < rule.getCheckThreshold() * prefilterConfig.getPromotePercent()) {
+                    lastTable = null;
+                    return -1;
+                }
+                slot = table.slot(hash, key, actionValue, now);
+                //晋升前被sketch吸收的计数不能丢，否则key需要超过阈值很多才会被识别为热key
+                //只取sketch当前周期的部分（不含本次count），并在当前周期结束时失效，上一个周期的计数可能已经滑出窗口，计入的话稳定在阈值一半左右的key也会被误报
+                long seed = Math.max(0, prefilter.currentEstimate(hash) - count);
+                table.seed(slot, seed, prefilter.currentEpochEnd());
+            }
+        } else {
+            slot = table.slot(hash, key, actionValue, now);
+        }
+        int evictCount = table.drainEvictCount();
+        if (evictCount > 0) {
+            monitor.updateCounterEvict(namespace, evictCount);
+        }
+        long current = table.update(slot, count, now);
+        if (source != null) {
+            table.updateSource(slot, source, rule.getCheckThreshold() / 2);
+        }
+        lastTable = table;
+        lastSlot = slot;
+        return current;
+    }
+
+    /**
+     * 最近一次update的key的来源
+     * @return source set
+     */
+    public Set<String> getSourceSet() {
+        return lastTable == null ? null : lastTable.getSourceSet(lastSlot);
+    }
+
+    /**
+     * 删除namespace下的所有计数器，可以在任意线程调用，会在calculator线程下一次update时生效
+     * @param namespace namespace
+     */
+    public void remove(String namespace) {
+        removeQueue.offer(namespace);
+    }
+
+    private HotKeyCounterTable getTable(String namespace, long checkMillis) {
+        int bucketSize = HotKeyCounterTable.bucketSize(checkMillis);
+        HotKeyCounterTable[] tables = tableMap.get(namespace);
+        if (tables == null) {
+            tables = EMPTY;
+        }
+        for (HotKeyCounterTable table : tables) {
+            if (table.getBucketSize() == bucketSize) {
+                return table;
+            }
+        }
+        //一般一个namespace下只有一个或者少数几个不同的检测周期
+        HotKeyCounterTable table = new HotKeyCounterTable(checkMillis, maxSlots);
+        HotKeyCounterTable[] newTables = new HotKeyCounterTable[tables.length + 1];
+        System.arraycopy(tables, 0, newTables, 0, tables.length);
+        newTables[tables.length] = table;
+        tableMap.put(namespace, newTables);
+        return table;
+    }
+
+    //预过滤的sketch在namespace之间共享（hash里包含了namespace），每个检测周期一个
+    private HotKeyPrefilter getPrefilter(long windowMillis, long now) {
+        for (HotKeyPrefilter prefilter : prefilters) {
+            if (prefilter.getWindowMillis() == windowMillis) {
+                return prefilter;
+            }
+        }
+        HotKeyPrefilter prefilter = new HotKeyPrefilter(windowMillis, prefilterConfig.getWidth(), now);
+        HotKeyPrefilter[] newPrefilters = new HotKeyPrefilter[prefilters.length + 1];
+        System.arraycopy(prefilters, 0, newPrefilters, 0, prefilters.length);
+        newPrefilters[prefilters.length] = prefilter;
+        prefilters = newPrefilters;
+        return prefilter;
+    }
+
+    private static int hash(String namespace, String key, KeyAction action) {
+        int h = namespace.hashCode();
+        h = h * 31 + key.hashCode();
+        h = h * 31 + action.getValue();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
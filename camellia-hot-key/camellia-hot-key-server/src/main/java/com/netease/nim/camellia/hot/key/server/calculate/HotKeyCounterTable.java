@@ -0,0 +1,342 @@
+package com.netease.nim.camellia.hot.key.server.calculate;
+
+import com.netease.nim.camellia.hot.key.common.netty.HotKeyConstants;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 基于滑动窗口的热key检测计数器表，一个namespace下相同窗口长度的key共用一个表
+ * <p> 开放寻址，每个key的计数器都放在原始类型数组里，滑动窗口的桶放在一个共享的long[]里（每个key占bucketSize个连续的long）
+ * <p> 表会按需扩容，直到maxSlots，之后新key会替换探测窗口内最久没有更新的key（记为淘汰）
+ * <p> 线程不安全的，上层务必只有单线程调用
+ */
+public class HotKeyCounterTable {
+
+    private static final int PROBE = 8;
+    private static final int INIT_SLOTS = 256;
+    private static final long MILLIS_PER_BUCKET = 100;
+
+    private final int bucketSize;
+    private final long windowMillis;
+    private final int maxSlots;
+
+    private int mask;
+    private int size;
+    private int[] hashes;
+    private String[] keys;
+    private byte[] actions;//0表示空的slot
+    private long[] lastUpdateTimes;
+    private int[] indexes;
+    private long[] totals;
+    private long[] seeds;//晋升时的初始计数，不进入滑动窗口的桶，到期后整体失效
+    private long[] seedExpireTimes;
+    private long[] buckets;
+    private String[] sources;
+    private Set<String>[] sourceSets;
+    private int evictCount;
+
+    /**
+     * @param checkMillis 检测周期
+     * @param maxSlots 最大容量，2的幂次
+     */
+    public HotKeyCounterTable(long checkMillis, int maxSlots) {
+        this.bucketSize = bucketSize(checkMillis);
+        this.windowMillis = bucketSize * MILLIS_PER_BUCKET;
+        this.maxSlots = maxSlots;
+        init(Math.min(INIT_SLOTS, maxSlots));
+    }
+
+    /**
+     * 检测周期对应的桶个数，每个桶100ms
+     * @param checkMillis 检测周期
+     * @return 桶个数
+     */
+    public static int bucketSize(long checkMillis) {
+        return (int) Math.max(1, checkMillis / MILLIS_PER_BUCKET);
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * 查找key对应的slot，不会新建
+     * @param hash hash
+     * @param key key
+     * @param action action
+     * @param now 当前时间
+     * @return slot，不存在或者已经过期则返回-1
+     */
+    public int find(int hash, String key, byte action, long now) {
+        int base = hash & mask;
+        for (int i = 0; i < PROBE; i++) {
+            int slot = (base + i) & mask;
+            byte a = actions[slot];
+            if (a == 0) {
+                return -1;
+            }
+            if (hashes[slot] == hash && a == action && keys[slot].equals(key)) {
+                return now - lastUpdateTimes[slot] >= windowMillis ? -1 : slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找key对应的slot，不存在则新建（可能淘汰其他key）
+     * @param hash hash
+     * @param key key
+     * @param action action
+     * @param now 当前时间
+     * @return slot
+     */
+    public int slot(int hash, String key, byte action, long now) {
+        while (true) {
+            int base = hash & mask;
+            int candidate = -1;
+            boolean candidateLive = false;
+            long candidateTime = Long.MAX_VALUE;
+            boolean empty = false;
+            for (int i = 0; i < PROBE; i++) {
+                int slot = (base + i) & mask;
+                byte a = actions[slot];
+                if (a == 0) {
+                    //从不删除slot，遇到空的slot说明后面不会有这个key了
+                    if (candidate < 0 || candidateLive) {
+                        candidate = slot;
+                        candidateLive = false;
+                    }
+                    empty = true;
+                    break;
+                }
+                if (hashes[slot] == hash && a == action && keys[slot].equals(key)) {
+                    return slot;
+                }
+                long time = lastUpdateTimes[slot];
+                if (now - time >= windowMillis) {
+                    //已经过期的计数器可以直接复用
+                    if (candidate < 0 || candidateLive) {
+                        candidate = slot;
+                        candidateLive = false;
+                    }
+                } else if ((candidate < 0 || candidateLive) && time < candidateTime) {
+                    candidate = slot;
+                    candidateLive = true;
+                    candidateTime = time;
+                }
+            }
+            int slots = mask + 1;
+            if (slots < maxSlots && (candidateLive || (empty && (size + 1) * 4L > slots * 3L))) {
+                resize(slots * 2, now);
+                continue;
+            }
+            if (candidateLive) {
+                evictCount ++;
+            }
+            if (actions[candidate] == 0) {
+                size ++;
+            }
+            reset(candidate, hash, key, action, now);
+            return candidate;
+        }
+    }
+
+    /**
+     * 设置初始计数，在expireTime之前计入窗口内的计数
+     * @param slot slot
+     * @param seed 初始计数
+     * @param expireTime 失效时间
+     */
+    public void seed(int slot, long seed, long expireTime) {
+        seeds[slot] = seed;
+        seedExpireTimes[slot] = expireTime;
+    }
+
+    /**
+     * 计数
+     * @param slot slot
+     * @param count count
+     * @param now 当前时间
+     * @return 当前窗口内的计数
+     */
+    public long update(int slot, long count, long now) {
+        int slideStep = (int) ((now - lastUpdateTimes[slot]) / MILLIS_PER_BUCKET);
+        int offset = slot * bucketSize;
+        if (slideStep > 0) {
+            slideToNextBucket(slot, offset, slideStep);
+            //按整桶推进，不足一个桶的时间留到下一次，否则稀疏更新的key窗口会被拉长
+            lastUpdateTimes[slot] += slideStep * MILLIS_PER_BUCKET;
+            long c = 0;
+            for (int i = offset; i < offset + bucketSize; i++) {
+                c += buckets[i];
+            }
+            totals[slot] = c;
+        }
+        buckets[offset + indexes[slot]] += count;
+        totals[slot] += count;
+        if (seeds[slot] > 0) {
+            if (now < seedExpireTimes[slot]) {
+                return totals[slot] + seeds[slot];
+            }
+            seeds[slot] = 0;
+        }
+        return totals[slot];
+    }
+
+    /**
+     * 记录来源，计数达到sourceThreshold之前只记录最近的一个来源，避免给大量非热点的key分配集合
+     * @param slot slot
+     * @param source source
+     * @param sourceThreshold sourceThreshold
+     */
+    public void updateSource(int slot, String source, long sourceThreshold) {
+        Set<String> sourceSet = sourceSets[slot];
+        if (sourceSet == null) {
+            if (totals[slot] < sourceThreshold) {
+                sources[slot] = source;
+                return;
+            }
+            sourceSet = new HashSet<>();
+            if (sources[slot] != null) {
+                sourceSet.add(sources[slot]);
+            }
+            sourceSets[slot] = sourceSet;
+        }
+        if (sourceSet.size() >= HotKeyConstants.Server.maxHotKeySourceSetSize) {
+            sourceSet.clear();
+        }
+        sourceSet.add(source);
+    }
+
+    /**
+     * 获取来源
+     * @param slot slot
+     * @return source set
+     */
+    public Set<String> getSourceSet(int slot) {
+        Set<String> sourceSet = sourceSets[slot];
+        if (sourceSet != null) {
+            return sourceSet;
+        }
+        String source = sources[slot];
+        return source == null ? null : Collections.singleton(source);
+    }
+
+    /**
+     * 获取并重置淘汰次数
+     * @return 淘汰次数
+     */
+    public int drainEvictCount() {
+        int count = evictCount;
+        evictCount = 0;
+        return count;
+    }
+
+    private void reset(int slot, int hash, String key, byte action, long now) {
+        hashes[slot] = hash;
+        keys[slot] = key;
+        actions[slot] = action;
+        lastUpdateTimes[slot] = now;
+        indexes[slot] = 0;
+        totals[slot] = 0;
+        seeds[slot] = 0;
+        sources[slot] = null;
+        sourceSets[slot] = null;
+        int offset = slot * bucketSize;
+        for (int i = offset; i < offset + bucketSize; i++) {
+            buckets[i] = 0;
+        }
+    }
+
+    private void slideToNextBucket(int slot, int offset, int step) {
+        int index = indexes[slot];
+        if (step >= bucketSize) {
+            for (int i = 0; i < bucketSize; i++) {
+                buckets[offset + i] = 0;
+            }
+            indexes[slot] = 0;
+            return;
+        }
+        if (index + step < bucketSize) {
+            for (int i = index + 1; i <= index + step; i++) {
+                buckets[offset + i] = 0;
+            }
+            indexes[slot] = index + step;
+        } else {
+            for (int i = index + 1; i < bucketSize; i++) {
+                buckets[offset + i] = 0;
+            }
+            for (int i = 0; i <= (index + step - bucketSize); i++) {
+                buckets[offset + i] = 0;
+            }
+            indexes[slot] = index + step - bucketSize;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void init(int slots) {
+        this.mask = slots - 1;
+        this.size = 0;
+        this.hashes = new int[slots];
+        this.keys = new String[slots];
+        this.actions = new byte[slots];
+        this.lastUpdateTimes = new long[slots];
+        this.indexes = new int[slots];
+        this.totals = new long[slots];
+        this.seeds = new long[slots];
+        this.seedExpireTimes = new long[slots];
+        this.buckets = new long[slots * bucketSize];
+        this.sources = new String[slots];
+        this.sourceSets = new Set[slots];
+    }
+
+    //扩容时丢弃已经过期的计数器
+    private void resize(int slots, long now) {
+        int[] oldHashes = hashes;
+        String[] oldKeys = keys;
+        byte[] oldActions = actions;
+        long[] oldLastUpdateTimes = lastUpdateTimes;
+        int[] oldIndexes = indexes;
+        long[] oldTotals = totals;
+        long[] oldSeeds = seeds;
+        long[] oldSeedExpireTimes = seedExpireTimes;
+        long[] oldBuckets = buckets;
+        String[] oldSources = sources;
+        Set<String>[] oldSourceSets = sourceSets;
+        init(slots);
+        for (int i = 0; i < oldActions.length; i++) {
+            if (oldActions[i] == 0 || now - oldLastUpdateTimes[i] >= windowMillis) continue;
+            int base = oldHashes[i] & mask;
+            int target = -1;
+            for (int j = 0; j < PROBE; j++) {
+                int slot = (base + j) & mask;
+                if (actions[slot] == 0) {
+                    target = slot;
+                    break;
+                }
+            }
+            if (target < 0) {
+                evictCount ++;
+                continue;
+            }
+            hashes[target] = oldHashes[i];
+            keys[target] = oldKeys[i];
+            actions[target] = oldActions[i];
+            lastUpdateTimes[target] = oldLastUpdateTimes[i];
+            indexes[target] = oldIndexes[i];
+            totals[target] = oldTotals[i];
+            seeds[target] = oldSeeds[i];
+            seedExpireTimes[target] = oldSeedExpireTimes[i];
+            sources[target] = oldSources[i];
+            sourceSets[target] = oldSourceSets[i];
+            System.arraycopy(oldBuckets, i * bucketSize, buckets, target * bucketSize, bucketSize);
+            size ++;
+        }
+    }
+}
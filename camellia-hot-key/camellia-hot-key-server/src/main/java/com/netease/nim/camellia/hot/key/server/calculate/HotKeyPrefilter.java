@@ -0,0 +1,109 @@
+package com.netease.nim.camellia.hot.key.server.calculate;
+
+import java.util.Arrays;
+
+/**
+ * 热key计算前的预过滤，基于滑动窗口的count-min sketch
+ * <p> 维护当前和上一个周期两份sketch，周期长度等于规则的检测周期，两份sketch相加的估计值不会低于key在最近一个检测周期内的真实计数
+ * <p> 只有估计值达到阈值的key才会晋升到{@link HotKeyCounterTable}做精确计数，冷key只占用sketch里的几个计数器
+ * <p> 线程不安全的，上层务必只有单线程调用
+ */
+public class HotKeyPrefilter {
+
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = new int[] {0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f};
+
+    private final long windowMillis;
+    private final int width;
+    private final int mask;
+    private int[] current;
+    private int[] previous;
+    private long epochStart;
+
+    /**
+     * @param windowMillis 检测周期
+     * @param width 每一行的计数器个数，2的幂次
+     * @param now 当前时间
+     */
+    public HotKeyPrefilter(long windowMillis, int width, long now) {
+        this.windowMillis = windowMillis;
+        this.width = width;
+        this.mask = width - 1;
+        this.current = new int[DEPTH * width];
+        this.previous = new int[DEPTH * width];
+        this.epochStart = now;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * 计数
+     * @param hash key的hash
+     * @param count count
+     * @param now 当前时间
+     * @return 最近一个检测周期内的计数估计值（只会高估，不会低估）
+     */
+    public long increment(int hash, long count, long now) {
+        rotate(now);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = i * width + (indexHash(hash, i) & mask);
+            long c = Math.min((long) current[index] + count, Integer.MAX_VALUE);
+            current[index] = (int) c;
+            long estimate = c + previous[index];
+            if (estimate < min) {
+                min = estimate;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 当前周期内的计数估计值（只会高估，不会低估），需要在increment之后调用
+     * @param hash key的hash
+     * @return 估计值
+     */
+    public long currentEstimate(int hash) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = i * width + (indexHash(hash, i) & mask);
+            if (current[index] < min) {
+                min = current[index];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 当前周期的结束时间，当前周期内的计数在这之前都还在最近一个检测周期内
+     * @return 结束时间
+     */
+    public long currentEpochEnd() {
+        return epochStart + windowMillis;
+    }
+
+    private void rotate(long now) {
+        long elapsed = now - epochStart;
+        if (elapsed < windowMillis) {
+            return;
+        }
+        if (elapsed >= windowMillis * 2) {
+            Arrays.fill(previous, 0);
+            Arrays.fill(current, 0);
+            epochStart = now;
+        } else {
+            int[] tmp = previous;
+            previous = current;
+            current = tmp;
+            Arrays.fill(current, 0);
+            epochStart += windowMillis;
+        }
+    }
+
+    private static int indexHash(int hash, int i) {
+        int h = hash * SEEDS[i];
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,39 @@
+package com.netease.nim.camellia.hot.key.server.calculate;
+
+import java.util.Set;
+
+/**
+ * 预过滤的配置
+ */
+public class HotKeyPrefilterConfig {
+
+    private final boolean enable;
+    private final Set<String> namespaces;
+    private final int promotePercent;
+    private final int width;
+
+    /**
+     * @param enable 是否开启
+     * @param namespaces 开启的namespace，为空表示所有namespace
+     * @param promotePercent 估计值达到checkThreshold的百分之多少时晋升到精确计数
+     * @param width sketch每一行的计数器个数，2的幂次
+     */
+    public HotKeyPrefilterConfig(boolean enable, Set<String> namespaces, int promotePercent, int width) {
+        this.enable = enable;
+        this.namespaces = namespaces;
+        this.promotePercent = promotePercent;
+        this.width = width;
+    }
+
+    public boolean isEnable(String namespace) {
+        return enable && (namespaces == null || namespaces.isEmpty() || namespaces.contains(namespace));
+    }
+
+    public int getPromotePercent() {
+        return promotePercent;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
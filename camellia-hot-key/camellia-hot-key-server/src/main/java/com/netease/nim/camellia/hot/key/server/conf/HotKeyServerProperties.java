@@ -44,6 +44,9 @@ public class HotKeyServerProperties {
     private String hotKeyConfigServiceClassName = FileBasedHotKeyConfigService.class.getName();
     private int hotKeyCacheCounterCapacity = HotKeyConstants.Server.hotKeyCacheCounterCapacity;
     private int hotKeyCacheCapacity = HotKeyConstants.Server.hotKeyCacheCapacity;
+    private boolean hotKeyPrefilterEnable = HotKeyConstants.Server.hotKeyPrefilterEnable;
+    private String hotKeyPrefilterNamespaces;
+    private int hotKeyPrefilterPromotePercent = HotKeyConstants.Server.hotKeyPrefilterPromotePercent;
     private int hotKeyCallbackIntervalSeconds = HotKeyConstants.Server.hotKeyCallbackIntervalSeconds;
 
     private int topnCount = HotKeyConstants.Server.topnCount;
@@ -225,6 +228,30 @@ public class HotKeyServerProperties {
         this.hotKeyCacheCounterCapacity = hotKeyCacheCounterCapacity;
     }
 
+    public boolean isHotKeyPrefilterEnable() {
+        return hotKeyPrefilterEnable;
+    }
+
+    public void setHotKeyPrefilterEnable(boolean hotKeyPrefilterEnable) {
+        this.hotKeyPrefilterEnable = hotKeyPrefilterEnable;
+    }
+
+    public String getHotKeyPrefilterNamespaces() {
+        return hotKeyPrefilterNamespaces;
+    }
+
+    public void setHotKeyPrefilterNamespaces(String hotKeyPrefilterNamespaces) {
+        this.hotKeyPrefilterNamespaces = hotKeyPrefilterNamespaces;
+    }
+
+    public int getHotKeyPrefilterPromotePercent() {
+        return hotKeyPrefilterPromotePercent;
+    }
+
+    public void setHotKeyPrefilterPromotePercent(int hotKeyPrefilterPromotePercent) {
+        this.hotKeyPrefilterPromotePercent = hotKeyPrefilterPromotePercent;
+    }
+
     public int getHotKeyCacheCapacity() {
         return hotKeyCacheCapacity;
     }
@@ -32,12 +32,19 @@ public class HotKeyCalculatorMonitor {
         update(namespace, TrafficStats.Type.HOT, count);
     }
 
+    public void updateCounterEvict(String namespace, long count) {
+        update(namespace, TrafficStats.Type.COUNTER_EVICT, count);
+    }
+
     private void update(String namespace, TrafficStats.Type type, long count) {
         try {
             String key = namespace + "|" + type.getValue();
             Counter counter = CamelliaMapUtils.computeIfAbsent(map, key, k -> new Counter());
             counter.update(count);
-            total.update(count);
+            //计数器淘汰不是流量
+            if (type != TrafficStats.Type.COUNTER_EVICT) {
+                total.update(count);
+            }
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
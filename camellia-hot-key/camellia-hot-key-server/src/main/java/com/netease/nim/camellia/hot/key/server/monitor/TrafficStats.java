@@ -61,6 +61,7 @@ public class TrafficStats {
         RULE_NOT_MATCH(1),
         NORMAL(2),
         HOT(3),
+        COUNTER_EVICT(4),//热key计数器容量不足导致的淘汰
         ;
         private final int value;
 
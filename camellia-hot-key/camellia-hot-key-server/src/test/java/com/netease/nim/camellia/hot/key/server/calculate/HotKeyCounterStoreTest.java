@@ -0,0 +1,103 @@
+package com.netease.nim.camellia.hot.key.server.calculate;
+
+import com.netease.nim.camellia.hot.key.common.model.KeyAction;
+import com.netease.nim.camellia.hot.key.common.model.Rule;
+import com.netease.nim.camellia.hot.key.server.monitor.HotKeyCalculatorMonitor;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 开启预过滤后，一个检测周期内计数刚好达到checkThreshold的key也要被识别为热key，稳定在阈值以下的key不能被误报
+ */
+public class HotKeyCounterStoreTest {
+
+    private static final long CHECK_MILLIS = 10000;
+    private static final long CHECK_THRESHOLD = 100;
+
+    @Test
+    public void testExactlyThresholdWithPrefilter() {
+        HotKeyCounterStore store = newStore(true);
+        Rule rule = rule();
+        long current = 0;
+        for (int i=0; i<CHECK_THRESHOLD; i++) {
+            current = store.update("ns", "k1", KeyAction.QUERY, 1, null, rule);
+        }
+        Assert.assertTrue(current >= CHECK_THRESHOLD);
+    }
+
+    @Test
+    public void testBelowThresholdWithPrefilter() {
+        HotKeyCounterStore store = newStore(true);
+        Rule rule = rule();
+        long current = 0;
+        for (int i=0; i<CHECK_THRESHOLD - 1; i++) {
+            current = store.update("ns", "k1", KeyAction.QUERY, 1, null, rule);
+        }
+        Assert.assertTrue(current < CHECK_THRESHOLD);
+    }
+
+    @Test
+    public void testSameAsWithoutPrefilter() {
+        HotKeyCounterStore store1 = newStore(true);
+        HotKeyCounterStore store2 = newStore(false);
+        Rule rule = rule();
+        long current1 = 0;
+        long current2 = 0;
+        for (int i=0; i<CHECK_THRESHOLD; i++) {
+            current1 = store1.update("ns", "k1", KeyAction.QUERY, 2, null, rule);
+            current2 = store2.update("ns", "k1", KeyAction.QUERY, 2, null, rule);
+        }
+        Assert.assertEquals(current2, current1);
+    }
+
+    @Test
+    public void testSteadyBelowThresholdWithPrefilter() {
+        HotKeyCounterStore store = newStore(true);
+        Rule rule = rule();
+        //每个检测周期稳定60次，持续10个周期
+        long perWindow = CHECK_THRESHOLD * 60 / 100;
+        long interval = CHECK_MILLIS / perWindow;
+        long now = 1000000;
+        long max = 0;
+        boolean promoted = false;
+        for (int i=0; i<perWindow * 10; i++) {
+            long current = store.update("ns", "k1", KeyAction.QUERY, 1, null, rule, now);
+            if (current >= 0) {
+                promoted = true;
+            }
+            max = Math.max(max, current);
+            now += interval;
+        }
+        Assert.assertTrue(promoted);
+        Assert.assertTrue("max = " + max, max < CHECK_THRESHOLD);
+    }
+
+    @Test
+    public void testSteadyAboveThresholdWithPrefilter() {
+        HotKeyCounterStore store = newStore(true);
+        Rule rule = rule();
+        //每个检测周期稳定120次
+        long perWindow = CHECK_THRESHOLD * 120 / 100;
+        long interval = CHECK_MILLIS / perWindow;
+        long now = 1000000;
+        long max = 0;
+        for (int i=0; i<perWindow * 3; i++) {
+            max = Math.max(max, store.update("ns", "k1", KeyAction.QUERY, 1, null, rule, now));
+            now += interval;
+        }
+        Assert.assertTrue("max = " + max, max >= CHECK_THRESHOLD);
+    }
+
+    private static HotKeyCounterStore newStore(boolean prefilter) {
+        HotKeyPrefilterConfig config = new HotKeyPrefilterConfig(prefilter, null, 50, 1024);
+        return new HotKeyCounterStore(16, 1024, config, new HotKeyCalculatorMonitor());
+    }
+
+    private static Rule rule() {
+        Rule rule = new Rule();
+        rule.setName("test");
+        rule.setCheckMillis(CHECK_MILLIS);
+        rule.setCheckThreshold(CHECK_THRESHOLD);
+        return rule;
+    }
+}
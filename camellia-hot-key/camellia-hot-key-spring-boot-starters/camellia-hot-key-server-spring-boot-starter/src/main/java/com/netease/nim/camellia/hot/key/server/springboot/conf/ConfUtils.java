@@ -23,6 +23,9 @@ public class ConfUtils {
 
         properties.setMaxNamespace(serverProperties.getMaxNamespace());
         properties.setHotKeyCacheCounterCapacity(serverProperties.getHotKeyCacheCounterCapacity());
+        properties.setHotKeyPrefilterEnable(serverProperties.isHotKeyPrefilterEnable());
+        properties.setHotKeyPrefilterNamespaces(serverProperties.getHotKeyPrefilterNamespaces());
+        properties.setHotKeyPrefilterPromotePercent(serverProperties.getHotKeyPrefilterPromotePercent());
 
         properties.setTopnCacheCounterCapacity(serverProperties.getTopnCacheCounterCapacity());
         properties.setTopnCollectSeconds(serverProperties.getTopnCollectSeconds());
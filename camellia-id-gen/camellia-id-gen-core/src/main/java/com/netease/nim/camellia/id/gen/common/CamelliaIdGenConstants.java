@@ -75,6 +75,10 @@ public class CamelliaIdGenConstants {
         public static final int maxStep = 100;
         //id多久被用完后触发步长调整的阈值，低于该值则扩大步长，大于该值的2倍，则缩小步长
         public static final int cacheHoldSeconds = 10;
+        //本地缓存的id个数，每次从redis中批量取这么多id在本地分配，默认0，表示不开启本地缓存
+        public static final int localCacheSize = 0;
+        //本地缓存的id最多使用多久，超时未用完的会被丢弃，多个节点之间只保证在这个窗口内递增
+        public static final long localCacheHoldMillis = 100;
 
         //单元id所占的位数
         //默认为0，表示不需要单元id
@@ -8,7 +8,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -27,41 +26,47 @@ public abstract class AbstractCamelliaSegmentIdGen implements ICamelliaSegmentId
 
     private final Object lock = new Object();
 
-    protected ConcurrentLinkedHashMap<String, LinkedBlockingQueue<Long>> cacheMap;
+    protected ConcurrentLinkedHashMap<String, CamelliaSegmentIdCache> cacheMap;
     protected ConcurrentLinkedHashMap<String, AtomicBoolean> lockMap;
 
     protected ExecutorService asyncLoadThreadPool;
 
     @Override
     public List<Long> genIds(String tag, int count) {
+        long[] ids = genIdArray(tag, count);
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    @Override
+    public long[] genIdArray(String tag, int count) {
         //每次获取的个数不能超过step的5倍
         if (count > step * 5) {
             throw new CamelliaIdGenException("count exceed step*5");
         }
         try {
-            LinkedBlockingQueue<Long> cache = getCacheQueue(tag);
-            List<Long> ids = new ArrayList<>(count);
+            CamelliaSegmentIdCache cache = getCache(tag);
+            long[] ids = new long[count];
+            int size = 0;
             int maxRetry = this.maxRetry;
             while (maxRetry-- > 0) {
-                int needCount = count - ids.size();
-                //发现缓存里已经有了
-                if (cache.size() >= needCount) {
-                    //尝试从缓存里获取到id
-                    cache.drainTo(ids, needCount);
-                    if (ids.size() >= count) {
-                        //获取到了则返回
-                        return ids;
-                    }
-                } else {
-                    //发现缓存里不够，则尝试load一把
-                    boolean success = tryLoad(tag, Math.max(count, step));
-                    if (!success) {
-                        //有并发load，则等待一会看看
-                        try {
-                            TimeUnit.MILLISECONDS.sleep(retryIntervalMillis);
-                        } catch (InterruptedException e) {
-                            logger.error(e.getMessage(), e);
-                        }
+                //尝试从缓存里获取到id，同一个号段内一次性取出连续的一段
+                size += cache.drainTo(ids, size, count - size);
+                if (size >= count) {
+                    //获取到了则返回
+                    return ids;
+                }
+                //发现缓存里不够，则尝试load一把
+                boolean success = tryLoad(tag, Math.max(count, step));
+                if (!success) {
+                    //有并发load，则等待一会看看
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(retryIntervalMillis);
+                    } catch (InterruptedException e) {
+                        logger.error(e.getMessage(), e);
                     }
                 }
             }
@@ -75,12 +80,12 @@ public abstract class AbstractCamelliaSegmentIdGen implements ICamelliaSegmentId
     @Override
     public long genId(String tag) {
         try {
-            LinkedBlockingQueue<Long> cache = getCacheQueue(tag);
+            CamelliaSegmentIdCache cache = getCache(tag);
             int maxRetry = this.maxRetry;
             while (maxRetry-- > 0) {
                 //尝试从缓存里取一把
-                Long id = cache.poll();
-                if (id != null) {
+                long id = cache.poll();
+                if (id != CamelliaSegmentIdCache.EMPTY) {
                     //取到了直接返回
                     return id;
                 } else {
@@ -111,7 +116,7 @@ public abstract class AbstractCamelliaSegmentIdGen implements ICamelliaSegmentId
                 if (logger.isDebugEnabled()) {
                     logger.debug("try load ids, tag = {}, count = {}", tag, count);
                 }
-                checkAndLoadCache(getCacheQueue(tag), tag, count);
+                checkAndLoadCache(getCache(tag), tag, count);
             } finally {
                 getLock(tag).compareAndSet(true, false);
             }
@@ -121,8 +126,8 @@ public abstract class AbstractCamelliaSegmentIdGen implements ICamelliaSegmentId
     }
 
     private void checkAndLoad(String tag, int threshold, int count) {
-        LinkedBlockingQueue<Long> cache = getCacheQueue(tag);
-        int size = cache.size();
+        CamelliaSegmentIdCache cache = getCache(tag);
+        long size = cache.size();
         if (size < threshold) {//如果缓存低于step的一半，则认为快用完了，异步load一把
             //同时最多只有一个load任务
             if (getLock(tag).compareAndSet(false, true)) {
@@ -132,7 +137,7 @@ public abstract class AbstractCamelliaSegmentIdGen implements ICamelliaSegmentId
                 try {
                     asyncLoadThreadPool.submit(() -> {
                         try {
-                            checkAndLoadCache(getCacheQueue(tag), tag, count);
+                            checkAndLoadCache(getCache(tag), tag, count);
                         } finally {
                             getLock(tag).compareAndSet(true, false);
                         }
@@ -144,27 +149,45 @@ public abstract class AbstractCamelliaSegmentIdGen implements ICamelliaSegmentId
         }
     }
 
-    private void checkAndLoadCache(LinkedBlockingQueue<Long> cache, String tag, int count) {
-        int size = cache.size();
-        int maxLoading = cacheMaxCapacity - size;
-        int loadCount = Math.min(maxLoading, count);
+    private void checkAndLoadCache(CamelliaSegmentIdCache cache, String tag, int count) {
+        long size = cache.size();
+        long maxLoading = cacheMaxCapacity - size;
+        int loadCount = (int) Math.min(maxLoading, count);
+        if (loadCount <= 0) {
+            return;
+        }
         loadCache(cache, tag, loadCount);
     }
 
-    protected abstract void loadCache(LinkedBlockingQueue<Long> cache, String tag, int loadCount);
+    /**
+     * 加载一批id到缓存中
+     * @param cache 缓存
+     * @param tag tag
+     * @param loadCount 数量
+     */
+    protected abstract void loadCache(CamelliaSegmentIdCache cache, String tag, int loadCount);
+
+    /**
+     * 号段中的序号到id的转换，默认直接使用序号
+     * @param seq 序号
+     * @return id
+     */
+    protected long encodeId(long seq) {
+        return seq;
+    }
 
-    private LinkedBlockingQueue<Long> getCacheQueue(String tag) {
-        LinkedBlockingQueue<Long> queue = this.cacheMap.get(tag);
-        if (queue == null) {
+    private CamelliaSegmentIdCache getCache(String tag) {
+        CamelliaSegmentIdCache cache = this.cacheMap.get(tag);
+        if (cache == null) {
             synchronized (this.lock) {
-                queue = this.cacheMap.get(tag);
-                if (queue == null) {
-                    queue = new LinkedBlockingQueue<>(cacheMaxCapacity + 1000);
-                    this.cacheMap.put(tag, queue);
+                cache = this.cacheMap.get(tag);
+                if (cache == null) {
+                    cache = new CamelliaSegmentIdCache(this::encodeId);
+                    this.cacheMap.put(tag, cache);
                 }
             }
         }
-        return queue;
+        return cache;
     }
 
     private AtomicBoolean getLock(String tag) {
@@ -0,0 +1,160 @@
+package com.netease.nim.camellia.id.gen.segment;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 一个tag的id缓存，按段存储，每一段是一个连续的号段[start, end]或者一个long[]，通过原子的游标分配，不会装箱，也不需要加锁
+ * <p> 号段里存的是原始的序号，分配时再通过encoder转换成最终的id
+ */
+public class CamelliaSegmentIdCache {
+
+    /**
+     * poll时缓存为空的返回值
+     */
+    public static final long EMPTY = Long.MIN_VALUE;
+
+    //预留足够的空间，避免并发分配时游标溢出
+    private static final int MAX_SEGMENT_LENGTH = 1 << 30;
+
+    private final ConcurrentLinkedQueue<Segment> segments = new ConcurrentLinkedQueue<>();
+    private final AtomicLong size = new AtomicLong();
+    private final LongUnaryOperator encoder;
+
+    /**
+     * @param encoder 序号到id的转换，为null则直接使用序号
+     */
+    public CamelliaSegmentIdCache(LongUnaryOperator encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * 剩余的id个数
+     * @return size
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * 添加一个连续的号段
+     * @param start start（包含）
+     * @param end end（包含）
+     */
+    public void offer(long start, long end) {
+        if (end < start) return;
+        long count = end - start + 1;
+        //单个段的长度用int表示，超长的号段拆成多段
+        while (count > 0) {
+            int len = (int) Math.min(count, MAX_SEGMENT_LENGTH);
+            segments.offer(new Segment(start, null, len));
+            size.addAndGet(len);
+            start += len;
+            count -= len;
+        }
+    }
+
+    /**
+     * 添加一批id（不会再经过encoder转换）
+     * @param ids ids
+     */
+    public void offer(long[] ids) {
+        if (ids == null || ids.length == 0) return;
+        segments.offer(new Segment(0, ids, ids.length));
+        size.addAndGet(ids.length);
+    }
+
+    /**
+     * 取一个id
+     * @return id，缓存为空则返回{@link #EMPTY}
+     */
+    public long poll() {
+        while (true) {
+            Segment segment = segments.peek();
+            if (segment == null) {
+                return EMPTY;
+            }
+            int index = segment.cursor.getAndIncrement();
+            if (index >= segment.length) {
+                segments.remove(segment);
+                continue;
+            }
+            size.decrementAndGet();
+            if (index == segment.length - 1) {
+                segments.remove(segment);
+            }
+            return segment.get(index, encoder);
+        }
+    }
+
+    /**
+     * 取一批id，同一个段内是一次性取出连续的一段
+     * @param dest 目标数组
+     * @param offset 从dest的哪个位置开始写入
+     * @param max 最多取几个
+     * @return 实际取到的个数
+     */
+    public int drainTo(long[] dest, int offset, int max) {
+        int count = 0;
+        while (count < max) {
+            Segment segment = segments.peek();
+            if (segment == null) {
+                break;
+            }
+            int need = max - count;
+            int index = segment.cursor.getAndAdd(need);
+            if (index >= segment.length) {
+                //这一段已经用完了
+                segments.remove(segment);
+                continue;
+            }
+            int got = Math.min(need, segment.length - index);
+            segment.copyTo(index, dest, offset + count, got, encoder);
+            size.addAndGet(-got);
+            count += got;
+            if (index + got >= segment.length) {
+                segments.remove(segment);
+            }
+        }
+        return count;
+    }
+
+    private static class Segment {
+        private final long start;
+        private final long[] ids;
+        private final int length;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        Segment(long start, long[] ids, int length) {
+            this.start = start;
+            this.ids = ids;
+            this.length = length;
+        }
+
+        long get(int index, LongUnaryOperator encoder) {
+            if (ids != null) {
+                return ids[index];
+            }
+            return encoder == null ? start + index : encoder.applyAsLong(start + index);
+        }
+
+        void copyTo(int index, long[] dest, int offset, int count, LongUnaryOperator encoder) {
+            if (ids != null) {
+                System.arraycopy(ids, index, dest, offset, count);
+                return;
+            }
+            long seq = start + index;
+            if (encoder == null) {
+                for (int i = 0; i < count; i++) {
+                    dest[offset + i] = seq + i;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    dest[offset + i] = encoder.applyAsLong(seq + i);
+                }
+            }
+        }
+    }
+}
@@ -7,7 +7,6 @@ import com.netease.nim.camellia.id.gen.common.IDRange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -37,7 +36,7 @@ public class CamelliaSegmentIdGen extends AbstractCamelliaSegmentIdGen {
         this.maxRetry = config.getMaxRetry();
         this.retryIntervalMillis = config.getRetryIntervalMillis();
 
-        this.cacheMap = new ConcurrentLinkedHashMap.Builder<String, LinkedBlockingQueue<Long>>()
+        this.cacheMap = new ConcurrentLinkedHashMap.Builder<String, CamelliaSegmentIdCache>()
                 .initialCapacity(config.getTagCount()).maximumWeightedCapacity(config.getTagCount()).build();
         this.lockMap = new ConcurrentLinkedHashMap.Builder<String, AtomicBoolean>()
                 .initialCapacity(config.getTagCount() * 2).maximumWeightedCapacity(config.getTagCount() * 2L).build();
@@ -60,21 +59,11 @@ public class CamelliaSegmentIdGen extends AbstractCamelliaSegmentIdGen {
     }
 
     @Override
-    protected void loadCache(LinkedBlockingQueue<Long> cache, String tag, int loadCount) {
+    protected void loadCache(CamelliaSegmentIdCache cache, String tag, int loadCount) {
         try {
             IDRange load = idLoader.load(tag, loadCount);
-            for (long i=load.getStart(); i<=load.getEnd(); i++) {
-                long id;
-                if (regionBits == 0) {
-                    id = i;
-                } else if (regionBits > 0 && regionIdShiftingBits == 0) {
-                    id = (i << regionBits) | regionId;
-                    cache.offer(id);
-                } else {
-                    id = ((i >> regionIdShiftingBits) << (regionIdShiftingBits + regionBits)) | (regionId << regionIdShiftingBits) | (i & ((1L << regionIdShiftingBits) - 1));
-                }
-                cache.offer(id);
-            }
+            //号段直接放入缓存，分配时再转换为带regionId的id
+            cache.offer(load.getStart(), load.getEnd());
             if (logger.isDebugEnabled()) {
                 logger.debug("load ids from idLoader success, tag = {}, start = {}, end = {}", tag, load.getStart(), load.getEnd());
             }
@@ -84,6 +73,17 @@ public class CamelliaSegmentIdGen extends AbstractCamelliaSegmentIdGen {
         }
     }
 
+    @Override
+    protected long encodeId(long seq) {
+        if (regionBits == 0) {
+            return seq;
+        } else if (regionBits > 0 && regionIdShiftingBits == 0) {
+            return (seq << regionBits) | regionId;
+        } else {
+            return ((seq >> regionIdShiftingBits) << (regionIdShiftingBits + regionBits)) | (regionId << regionIdShiftingBits) | (seq & ((1L << regionIdShiftingBits) - 1));
+        }
+    }
+
     public long decodeRegionId(long id) {
         if (regionBits == 0) {
             return -1;
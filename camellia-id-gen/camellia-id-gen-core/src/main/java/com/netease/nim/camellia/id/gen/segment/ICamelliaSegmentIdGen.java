@@ -17,6 +17,14 @@ public interface ICamelliaSegmentIdGen {
      */
     List<Long> genIds(String tag, int count);
 
+    /**
+     * 获取一批id，不会装箱
+     * @param tag tag
+     * @param count 数量
+     * @return 一批id
+     */
+    long[] genIdArray(String tag, int count);
+
     /**
      * 获取一个id
      * @param tag tag
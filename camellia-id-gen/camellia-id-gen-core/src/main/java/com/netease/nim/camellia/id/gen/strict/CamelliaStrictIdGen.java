@@ -11,10 +11,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Response;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 基于数据库和redis的严格递增的id生成器
@@ -24,6 +27,11 @@ import java.util.concurrent.TimeUnit;
  * 每个发号器节点先从redis中取id，如果取不到则穿透到数据库进行load
  * redis中的id即将耗尽时会提前从db中load最新一批的id
  * 发号器节点会统计每个批次分配完毕消耗的时间来动态调整批次大小
+ * 从redis中取id时通过lua脚本一次取一批，并同时返回剩余个数，剩余不足时才会触发异步load
+ * <p>
+ * 可以开启本地缓存（localCacheSize大于0），每次从redis中取一批id在本地按顺序分配，
+ * 本地缓存的id最多使用localCacheHoldMillis，超时未用完的会被丢弃，
+ * 此时单个节点内仍然是严格递增的，多个节点之间只保证在localCacheHoldMillis的窗口内递增
  * <p>
  * Created by caojiajun on 2021/9/24
  */
@@ -48,9 +56,17 @@ public class CamelliaStrictIdGen implements ICamelliaStrictIdGen {
     private final int defaultStep;
     private final int maxStep;
     private final int cacheHoldSeconds;
+    private final int localCacheSize;
+    private final long localCacheHoldMillis;
 
     private final ConcurrentLinkedHashMap<String, Long> lastExpireTimeMap = new ConcurrentLinkedHashMap.Builder<String, Long>()
             .initialCapacity(1000).maximumWeightedCapacity(10000).build();
+    private final ConcurrentLinkedHashMap<String, Integer> currentStepMap = new ConcurrentLinkedHashMap.Builder<String, Integer>()
+            .initialCapacity(1000).maximumWeightedCapacity(10000).build();
+    private final ConcurrentLinkedHashMap<String, AtomicBoolean> loadingMap = new ConcurrentLinkedHashMap.Builder<String, AtomicBoolean>()
+            .initialCapacity(1000).maximumWeightedCapacity(10000).build();
+    private final ConcurrentLinkedHashMap<String, LocalCache> localCacheMap = new ConcurrentLinkedHashMap.Builder<String, LocalCache>()
+            .initialCapacity(1000).maximumWeightedCapacity(10000).build();
 
     public CamelliaStrictIdGen(CamelliaStrictIdGenConfig config) {
         this.template = config.getTemplate();
@@ -70,6 +86,8 @@ public class CamelliaStrictIdGen implements ICamelliaStrictIdGen {
         this.defaultStep = config.getDefaultStep();
         this.maxStep = config.getMaxStep();
         this.cacheHoldSeconds = config.getCacheHoldSeconds();
+        this.localCacheSize = config.getLocalCacheSize();
+        this.localCacheHoldMillis = config.getLocalCacheHoldMillis();
         this.regionBits = config.getRegionBits();
         this.regionId = config.getRegionId();
         this.regionIdShiftingBits = config.getRegionIdShiftingBits();
@@ -82,8 +100,8 @@ public class CamelliaStrictIdGen implements ICamelliaStrictIdGen {
         if (this.regionId > maxRegionId) {
             throw new CamelliaIdGenException("regionId too long");
         }
-        logger.info("CamelliaStrictIdGen init success, regionId = {}, regionBits = {}, regionIdShiftingBits = {}, defaultStep = {}, maxStep = {}, maxRetry = {}, retryIntervalMillis = {}",
-                regionId, regionBits, regionIdShiftingBits, defaultStep, maxStep, maxRetry, retryIntervalMillis);
+        logger.info("CamelliaStrictIdGen init success, regionId = {}, regionBits = {}, regionIdShiftingBits = {}, defaultStep = {}, maxStep = {}, maxRetry = {}, retryIntervalMillis = {}, localCacheSize = {}, localCacheHoldMillis = {}",
+                regionId, regionBits, regionIdShiftingBits, defaultStep, maxStep, maxRetry, retryIntervalMillis, localCacheSize, localCacheHoldMillis);
     }
 
     public IDLoader getIdLoader() {
@@ -92,48 +110,65 @@ public class CamelliaStrictIdGen implements ICamelliaStrictIdGen {
 
     @Override
     public long genId(String tag) {
-        try {
-            String cacheKey = cacheKey(tag);
-            //从redis里取一下，如果取到了，则返回
-            String seq = template.rpop(cacheKey);
-            if (seq != null) {
-                try {
-                    return Long.parseLong(seq);
-                } finally {
-                    try {
-                        //此时提交一个异步任务，检查是否需要更新redis队列
-                        asyncLoadThreadPool.submit(() -> checkAndLoad(tag));
-                    } catch (Exception e) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("try checkAndLoad fail", e);
-                        }
-                    }
+        if (localCacheSize > 0) {
+            LocalCache localCache = getLocalCache(tag);
+            synchronized (localCache) {
+                if (!localCache.available()) {
+                    //本地缓存用完了或者超时了，从redis取一批新的
+                    localCache.reset(new long[localCacheSize]);
+                    localCache.size = take(tag, localCache.ids, 0, 1, localCacheSize);
                 }
+                return localCache.ids[localCache.index++];
             }
-            //redis里没有取到，则更新redis队列
-            tryLoadIds(tag);
-            //更新完redis队列，从redis队列里取元素
-            int retry = maxRetry;
-            while (retry-- > 0) {
-                for (int i = 0; i < 10; i++) {
-                    String rpop = template.rpop(cacheKey);
-                    if (rpop == null) {
-                        //取不到，自旋一下
-                        TimeUnit.MILLISECONDS.sleep(retryIntervalMillis);
-                        continue;
-                    }
-                    //取到了直接返回
-                    return Long.parseLong(rpop);
+        }
+        long[] ids = new long[1];
+        take(tag, ids, 0, 1, 1);
+        return ids[0];
+    }
+
+    @Override
+    public List<Long> genIds(String tag, int count) {
+        long[] ids = genIdArray(tag, count);
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    /**
+     * 获取一批严格递增的id，不会装箱
+     * @param tag 业务tag
+     * @param count 数量
+     * @return ids
+     */
+    public long[] genIdArray(String tag, int count) {
+        if (count <= 0) {
+            throw new CamelliaIdGenException("count should > 0");
+        }
+        //每次获取的个数不能超过maxStep的5倍
+        if (count > maxStep * 5) {
+            throw new CamelliaIdGenException("count exceed maxStep*5");
+        }
+        long[] ids = new long[count];
+        if (localCacheSize > 0) {
+            LocalCache localCache = getLocalCache(tag);
+            synchronized (localCache) {
+                //先用掉本地缓存里的，保证顺序
+                int size = 0;
+                if (localCache.available()) {
+                    size = Math.min(count, localCache.size - localCache.index);
+                    System.arraycopy(localCache.ids, localCache.index, ids, 0, size);
+                    localCache.index += size;
                 }
-                //连续取不到，则判断一下是否redis队列被消耗完了
-                tryLoadIds(tag);
+                if (size < count) {
+                    take(tag, ids, size, count - size, count - size);
+                }
+                return ids;
             }
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-            throw new CamelliaIdGenException(e);
         }
-        //超过最大重试次数，则上抛异常
-        throw new CamelliaIdGenException("exceed maxRetry=" + maxRetry);
+        take(tag, ids, 0, count, count);
+        return ids;
     }
 
     @Override
@@ -179,6 +214,145 @@ public class CamelliaStrictIdGen implements ICamelliaStrictIdGen {
         }
     }
 
+    //从redis队列里批量取id，第一个元素是取完之后队列的剩余长度
+    private static final String POP_SCRIPT = "local len = redis.call('llen', KEYS[1])\n" +
+            "local n = math.min(tonumber(ARGV[1]), len)\n" +
+            "local ret = {tostring(len - n)}\n" +
+            "for i=1,n do\n" +
+            " ret[i+1] = redis.call('rpop', KEYS[1])\n" +
+            "end\n" +
+            "return ret";
+
+    //从redis取id写入dest，至少取min个，最多取max个，返回实际取到的个数
+    private int take(String tag, long[] dest, int offset, int min, int max) {
+        try {
+            //从redis里取一下，如果取到了，则返回
+            int size = pop(tag, dest, offset, max);
+            if (size >= min) {
+                return size;
+            }
+            //redis里没有取到，则更新redis队列
+            tryLoadIds(tag);
+            //更新完redis队列，从redis队列里取元素
+            int retry = maxRetry;
+            while (retry-- > 0) {
+                for (int i = 0; i < 10; i++) {
+                    int n = pop(tag, dest, offset + size, max - size);
+                    size += n;
+                    if (size >= min) {
+                        //取到了直接返回
+                        return size;
+                    }
+                    if (n == 0) {
+                        //取不到，自旋一下
+                        TimeUnit.MILLISECONDS.sleep(retryIntervalMillis);
+                    }
+                }
+                //连续取不到，则判断一下是否redis队列被消耗完了
+                tryLoadIds(tag);
+            }
+        } catch (CamelliaIdGenException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            throw new CamelliaIdGenException(e);
+        }
+        //超过最大重试次数，则上抛异常
+        throw new CamelliaIdGenException("exceed maxRetry=" + maxRetry);
+    }
+
+    private int pop(String tag, long[] dest, int offset, int count) {
+        String cacheKey = cacheKey(tag);
+        Object result = template.eval(POP_SCRIPT, Collections.singletonList(cacheKey), Collections.singletonList(String.valueOf(count)));
+        List<?> list = (List<?>) result;
+        long remaining = Long.parseLong(toString(list.get(0)));
+        int size = list.size() - 1;
+        for (int i = 0; i < size; i++) {
+            dest[offset + i] = Long.parseLong(toString(list.get(i + 1)));
+        }
+        checkRemaining(tag, remaining);
+        return size;
+    }
+
+    private static String toString(Object value) {
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+        return String.valueOf(value);
+    }
+
+    //redis里剩余不足一半，或者需要延长redis key的过期时间了，才提交一个异步任务
+    private void checkRemaining(String tag, long remaining) {
+        Integer currentStep = currentStepMap.get(tag);
+        int step = currentStep == null ? defaultStep : currentStep;
+        if (remaining >= step / 2) {
+            Long lastExpireTime = lastExpireTimeMap.get(tag);
+            if (lastExpireTime != null && ((System.currentTimeMillis() - lastExpireTime) / 1000) < (cacheExpireSeconds / 10)) {
+                return;
+            }
+        }
+        AtomicBoolean loading = getLoading(tag);
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            asyncLoadThreadPool.submit(() -> {
+                try {
+                    checkAndLoad(tag);
+                } finally {
+                    loading.set(false);
+                }
+            });
+        } catch (Exception e) {
+            loading.set(false);
+            if (logger.isDebugEnabled()) {
+                logger.debug("try checkAndLoad fail", e);
+            }
+        }
+    }
+
+    private AtomicBoolean getLoading(String tag) {
+        AtomicBoolean loading = loadingMap.get(tag);
+        if (loading == null) {
+            loading = new AtomicBoolean(false);
+            AtomicBoolean old = loadingMap.putIfAbsent(tag, loading);
+            if (old != null) {
+                loading = old;
+            }
+        }
+        return loading;
+    }
+
+    private LocalCache getLocalCache(String tag) {
+        LocalCache localCache = localCacheMap.get(tag);
+        if (localCache == null) {
+            localCache = new LocalCache();
+            LocalCache old = localCacheMap.putIfAbsent(tag, localCache);
+            if (old != null) {
+                localCache = old;
+            }
+        }
+        return localCache;
+    }
+
+    private class LocalCache {
+        private long[] ids;
+        private int index;
+        private int size;
+        private long expireTime;
+
+        boolean available() {
+            return index < size && System.currentTimeMillis() < expireTime;
+        }
+
+        void reset(long[] ids) {
+            this.ids = ids;
+            this.index = 0;
+            this.size = 0;
+            this.expireTime = System.currentTimeMillis() + localCacheHoldMillis;
+        }
+    }
+
     //尝试load一下id，会有分布式的锁来控制并发
     private boolean tryLoadIds(String tag) {
         String cacheKey = cacheKey(tag);
@@ -221,6 +395,7 @@ public class CamelliaStrictIdGen implements ICamelliaStrictIdGen {
                         }
                     }
                 }
+                currentStepMap.put(tag, newStep);
                 //使用调整后的step去load一把
                 IDRange range = idLoader.load(tag, newStep);
                 List<String> ids = new ArrayList<>();
@@ -269,6 +444,7 @@ public class CamelliaStrictIdGen implements ICamelliaStrictIdGen {
             } else {
                 String currentStepStr = template.get(currentStepKey(cacheKey));
                 int currentStep = currentStepStr != null ? Integer.parseInt(currentStepStr) : defaultStep;
+                currentStepMap.put(tag, currentStep);
                 if (size < currentStep / 2) {//如果redis里不足一半了，则需要触发一下load
                     if (logger.isDebugEnabled()) {
                         logger.debug("tag = {}, cacheKey = {}, cache.size/currentStep={}/{}, try load ids from idLoader", tag, cacheKey, size, currentStep);
@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -99,6 +100,15 @@ public class CamelliaStrictIdGen2 implements ICamelliaStrictIdGen {
         }
     }
 
+    @Override
+    public List<Long> genIds(String tag, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            ids.add(genId(tag));
+        }
+        return ids;
+    }
+
     @Override
     public long peekId(String tag) {
         throw new UnsupportedOperationException();
@@ -41,6 +41,12 @@ public class CamelliaStrictIdGenConfig {
     //id多久被用完后触发步长调整的阈值，低于该值则扩大步长，大于该值的2倍，则缩小步长
     private int cacheHoldSeconds = CamelliaIdGenConstants.Strict.cacheHoldSeconds;
 
+    //本地缓存的id个数，每次从redis中批量取这么多id在本地分配，默认0，表示不开启本地缓存
+    private int localCacheSize = CamelliaIdGenConstants.Strict.localCacheSize;
+
+    //本地缓存的id最多使用多久，超时未用完的会被丢弃，多个节点之间只保证在这个窗口内递增
+    private long localCacheHoldMillis = CamelliaIdGenConstants.Strict.localCacheHoldMillis;
+
     //单元id所占的位数
     //默认为0，表示不需要单元id
     //如果为4，则表示最多支持16个单元id，会基于数据库生成的id在右边补上4bit的单元id
@@ -50,6 +56,22 @@ public class CamelliaStrictIdGenConfig {
     //regionId偏移量，默认不偏移
     private int regionIdShiftingBits = 0;
 
+    public int getLocalCacheSize() {
+        return localCacheSize;
+    }
+
+    public void setLocalCacheSize(int localCacheSize) {
+        this.localCacheSize = localCacheSize;
+    }
+
+    public long getLocalCacheHoldMillis() {
+        return localCacheHoldMillis;
+    }
+
+    public void setLocalCacheHoldMillis(long localCacheHoldMillis) {
+        this.localCacheHoldMillis = localCacheHoldMillis;
+    }
+
     public CamelliaRedisTemplate getTemplate() {
         return template;
     }
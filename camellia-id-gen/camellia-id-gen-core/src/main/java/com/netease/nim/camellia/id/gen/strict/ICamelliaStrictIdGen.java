@@ -1,5 +1,7 @@
 package com.netease.nim.camellia.id.gen.strict;
 
+import java.util.List;
+
 /**
  * 可以返回严格递增的消息id
  * Created by caojiajun on 2021/9/24
@@ -13,6 +15,14 @@ public interface ICamelliaStrictIdGen {
      */
     long genId(String tag);
 
+    /**
+     * 生成一批id，批内严格递增
+     * @param tag 业务tag
+     * @param count 数量
+     * @return ids
+     */
+    List<Long> genIds(String tag, int count);
+
     /**
      * 返回最新的id，但是不使用
      * @param tag 业务tag
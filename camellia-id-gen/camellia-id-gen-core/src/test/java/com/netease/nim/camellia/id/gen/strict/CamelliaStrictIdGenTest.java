@@ -0,0 +1,313 @@
+package com.netease.nim.camellia.id.gen.strict;
+
+import com.netease.nim.camellia.core.model.Resource;
+import com.netease.nim.camellia.core.util.ResourceTableUtil;
+import com.netease.nim.camellia.id.gen.common.CamelliaIdGenException;
+import com.netease.nim.camellia.id.gen.common.IDLoader;
+import com.netease.nim.camellia.id.gen.common.IDRange;
+import com.netease.nim.camellia.redis.CamelliaRedisTemplate;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 使用进程内的假redis（模拟了POP_SCRIPT等脚本）验证批量pop和本地缓存
+ */
+public class CamelliaStrictIdGenTest {
+
+    private static FakeRedis redis;
+    private static CamelliaRedisTemplate template;
+    private static ExecutorService asyncLoadThreadPool;
+
+    @BeforeClass
+    public static void start() throws IOException {
+        redis = new FakeRedis();
+        template = new CamelliaRedisTemplate(ResourceTableUtil.simpleTable(new Resource("redis://@127.0.0.1:" + redis.port())));
+        asyncLoadThreadPool = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterClass
+    public static void stop() {
+        asyncLoadThreadPool.shutdownNow();
+        redis.close();
+    }
+
+    @Test
+    public void testNonPositiveCount() {
+        CamelliaStrictIdGen idGen = newIdGen("nonPositive", 0, 0);
+        for (int count : new int[] {0, -1}) {
+            try {
+                idGen.genIdArray("tag", count);
+                Assert.fail("count=" + count);
+            } catch (CamelliaIdGenException ignore) {
+            }
+        }
+    }
+
+    @Test
+    public void testBatchPop() throws Exception {
+        CamelliaStrictIdGen idGen = newIdGen("batchPop", 0, 0);
+        long[] first = idGen.genIdArray("tag", 5);
+        assertIncreasing(first, 1);
+        awaitAsyncLoad();
+
+        //队列里已经有足够的id，一次脚本调用取一批
+        int pops = redis.pops.get();
+        long[] ids = idGen.genIdArray("tag", 5);
+        Assert.assertEquals(pops + 1, redis.pops.get());
+        Assert.assertEquals(first[4] + 1, ids[0]);
+        assertIncreasing(ids, 1);
+
+        //超过一个step的批量会跨越多次load，依然严格递增
+        long[] large = idGen.genIdArray("tag", 35);
+        Assert.assertEquals(ids[4] + 1, large[0]);
+        assertIncreasing(large, 1);
+        Assert.assertEquals(large[34] + 1, idGen.genId("tag"));
+    }
+
+    @Test
+    public void testLocalCache() throws Exception {
+        CamelliaStrictIdGen idGen = newIdGen("localCache", 4, 300);
+        long first = idGen.genId("tag");
+        awaitAsyncLoad();
+        int pops = redis.pops.get();
+        //本地缓存内按顺序分配，不访问redis
+        Assert.assertEquals(first + 1, idGen.genId("tag"));
+        Assert.assertEquals(first + 2, idGen.genId("tag"));
+        Assert.assertEquals(pops, redis.pops.get());
+
+        //genIdArray先用掉本地缓存里剩下的，不足的从redis取
+        long[] ids = idGen.genIdArray("tag", 3);
+        Assert.assertArrayEquals(new long[] {first + 3, first + 4, first + 5}, ids);
+        Assert.assertEquals(pops + 1, redis.pops.get());
+
+        //本地缓存已经用完，再取一批，超时之后没用完的直接丢弃
+        long next = idGen.genId("tag");
+        Assert.assertEquals(first + 6, next);
+        TimeUnit.MILLISECONDS.sleep(400);
+        long afterExpire = idGen.genId("tag");
+        Assert.assertEquals(next + 4, afterExpire);
+        Assert.assertEquals(pops + 3, redis.pops.get());
+    }
+
+    private static CamelliaStrictIdGen newIdGen(String prefix, int localCacheSize, long localCacheHoldMillis) {
+        CamelliaStrictIdGenConfig config = new CamelliaStrictIdGenConfig();
+        config.setTemplate(template);
+        config.setAsyncLoadThreadPool(asyncLoadThreadPool);
+        config.setIdLoader(new MemoryIDLoader());
+        config.setCacheKeyPrefix(prefix);
+        config.setDefaultStep(10);
+        config.setMaxStep(10);
+        config.setRetryIntervalMillis(1);
+        config.setLocalCacheSize(localCacheSize);
+        config.setLocalCacheHoldMillis(localCacheHoldMillis);
+        return new CamelliaStrictIdGen(config);
+    }
+
+    private static void assertIncreasing(long[] ids, long delta) {
+        for (int i = 1; i < ids.length; i++) {
+            Assert.assertEquals(ids[i - 1] + delta, ids[i]);
+        }
+    }
+
+    private static void awaitAsyncLoad() throws Exception {
+        asyncLoadThreadPool.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    private static class MemoryIDLoader implements IDLoader {
+        private final AtomicLong id = new AtomicLong(0);
+
+        @Override
+        public IDRange load(String tag, int step) {
+            long end = id.addAndGet(step);
+            return new IDRange(end - step + 1, end);
+        }
+    }
+
+    /**
+     * 只支持CamelliaStrictIdGen和CamelliaRedisLock用到的命令
+     */
+    private static class FakeRedis implements Closeable {
+        private final ServerSocket serverSocket;
+        private final Map<String, String> strings = new HashMap<>();
+        private final Map<String, LinkedList<String>> lists = new HashMap<>();
+        private final AtomicInteger pops = new AtomicInteger();
+
+        FakeRedis() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread thread = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        Thread handler = new Thread(() -> serve(socket));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException ignore) {
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void close() {
+            try {
+                serverSocket.close();
+            } catch (IOException ignore) {
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (Socket s = socket) {
+                InputStream in = new BufferedInputStream(s.getInputStream());
+                OutputStream out = new BufferedOutputStream(s.getOutputStream());
+                while (true) {
+                    List<String> args = readCommand(in);
+                    if (args == null) return;
+                    synchronized (this) {
+                        writeReply(out, execute(args));
+                    }
+                    if (in.available() == 0) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException ignore) {
+            }
+        }
+
+        private Object execute(List<String> args) {
+            String command = args.get(0).toUpperCase();
+            switch (command) {
+                case "GET":
+                    return strings.get(args.get(1));
+                case "SET":
+                    if (args.size() > 3 && args.get(3).equalsIgnoreCase("NX") && strings.containsKey(args.get(1))) {
+                        return null;
+                    }
+                    strings.put(args.get(1), args.get(2));
+                    return "+OK";
+                case "SETEX":
+                    strings.put(args.get(1), args.get(3));
+                    return "+OK";
+                case "DEL":
+                    boolean removed = strings.remove(args.get(1)) != null | lists.remove(args.get(1)) != null;
+                    return removed ? 1L : 0L;
+                case "EXPIRE":
+                case "PEXPIRE":
+                    return 1L;
+                case "LLEN":
+                    return (long) list(args.get(1)).size();
+                case "LPUSH":
+                    for (int i = 2; i < args.size(); i++) {
+                        list(args.get(1)).addFirst(args.get(i));
+                    }
+                    return (long) list(args.get(1)).size();
+                case "LINDEX": {
+                    LinkedList<String> list = list(args.get(1));
+                    int index = Integer.parseInt(args.get(2));
+                    if (index < 0) index += list.size();
+                    return index >= 0 && index < list.size() ? list.get(index) : null;
+                }
+                case "EVAL":
+                    return eval(args.get(1), args.get(3), args.subList(4, args.size()));
+                default:
+                    return "+OK";
+            }
+        }
+
+        //按脚本内容模拟POP_SCRIPT和CamelliaRedisLock的renew/release脚本
+        private Object eval(String script, String key, List<String> argv) {
+            if (script.contains("rpop")) {
+                pops.incrementAndGet();
+                LinkedList<String> list = list(key);
+                int n = Math.min(Integer.parseInt(argv.get(0)), list.size());
+                List<Object> ret = new ArrayList<>();
+                ret.add(String.valueOf(list.size() - n));
+                for (int i = 0; i < n; i++) {
+                    ret.add(list.removeLast());
+                }
+                return ret;
+            }
+            if (!argv.get(0).equals(strings.get(key))) {
+                return 0L;
+            }
+            if (script.contains("del")) {
+                strings.remove(key);
+            }
+            return 1L;
+        }
+
+        private LinkedList<String> list(String key) {
+            return lists.computeIfAbsent(key, k -> new LinkedList<>());
+        }
+
+        private static List<String> readCommand(InputStream in) throws IOException {
+            String line = readLine(in);
+            if (line == null) return null;
+            int n = Integer.parseInt(line.substring(1));
+            List<String> args = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int len = Integer.parseInt(readLine(in).substring(1));
+                byte[] bytes = new byte[len + 2];
+                int read = 0;
+                while (read < bytes.length) {
+                    int r = in.read(bytes, read, bytes.length - read);
+                    if (r < 0) throw new EOFException();
+                    read += r;
+                }
+                args.add(new String(bytes, 0, len, StandardCharsets.UTF_8));
+            }
+            return args;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder builder = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c < 0) return null;
+                builder.append((char) c);
+            }
+            in.read();
+            return builder.toString();
+        }
+
+        private static void writeReply(OutputStream out, Object reply) throws IOException {
+            if (reply == null) {
+                out.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
+            } else if (reply instanceof Long) {
+                out.write((":" + reply + "\r\n").getBytes(StandardCharsets.UTF_8));
+            } else if (reply instanceof List) {
+                List<?> list = (List<?>) reply;
+                out.write(("*" + list.size() + "\r\n").getBytes(StandardCharsets.UTF_8));
+                for (Object item : list) {
+                    writeReply(out, item);
+                }
+            } else if (((String) reply).startsWith("+")) {
+                out.write((reply + "\r\n").getBytes(StandardCharsets.UTF_8));
+            } else {
+                byte[] bytes = ((String) reply).getBytes(StandardCharsets.UTF_8);
+                out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+                out.write(bytes);
+                out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.netease.nim.camellia.id.gen.common.CamelliaIdGenException;
 import okhttp3.*;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -61,6 +62,38 @@ public class CamelliaIdGenHttpUtils {
         }
     }
 
+    /**
+     * 二进制格式的批量获取，返回的body是连续的8字节id（大端）
+     */
+    public static long[] genIdsBinary(OkHttpClient okHttpClient, String url) {
+        try {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .get()
+                    .build();
+            try (Response response = okHttpClient.newCall(request).execute()) {
+                int httpCode = response.code();
+                if (httpCode != 200) {
+                    throw new CamelliaIdGenException(CamelliaIdGenException.NETWORK_ERROR, "http.code=" + httpCode);
+                }
+                byte[] body = response.body().bytes();
+                if (body.length == 0 || body.length % 8 != 0) {
+                    throw new CamelliaIdGenException("illegal data length=" + body.length);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                long[] ids = new long[body.length / 8];
+                for (int i=0; i<ids.length; i++) {
+                    ids[i] = buffer.getLong();
+                }
+                return ids;
+            }
+        } catch (CamelliaIdGenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CamelliaIdGenException(CamelliaIdGenException.NETWORK_ERROR, e);
+        }
+    }
+
     public static JSONObject invokeGet(OkHttpClient okHttpClient, String url) {
         try {
             Request request = new Request.Builder()
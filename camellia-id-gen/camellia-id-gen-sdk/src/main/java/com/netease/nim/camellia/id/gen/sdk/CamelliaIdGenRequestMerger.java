@@ -0,0 +1,141 @@
+package com.netease.nim.camellia.id.gen.sdk;
+
+import com.netease.nim.camellia.id.gen.common.CamelliaIdGenException;
+import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 把同一个tag的并发请求合并成一次请求
+ * <p> 同一个tag同一时刻最多只有一个批次在请求服务端，期间到达的请求加入下一个批次（数量之和不超过maxCount）
+ * <p> 创建批次的线程是leader，等上一个批次完成后关闭本批次并发起请求；其他线程阻塞等待本批次的future，不会轮询
+ * <p> 新批次通过同一个CAS挂到队尾并记下上一个批次，保证批次之间严格按顺序请求
+ */
+public class CamelliaIdGenRequestMerger {
+
+    public interface Loader {
+        long[] load(String tag, int count);
+    }
+
+    private final Loader loader;
+    private final int maxCount;
+    private final ConcurrentHashMap<String, TagState> stateMap = new ConcurrentHashMap<>();
+
+    public CamelliaIdGenRequestMerger(Loader loader, int maxCount) {
+        this.loader = loader;
+        this.maxCount = maxCount;
+    }
+
+    public long genId(String tag) {
+        return genIds(tag, 1)[0];
+    }
+
+    public long[] genIds(String tag, int count) {
+        if (count >= maxCount) {
+            return loader.load(tag, count);
+        }
+        TagState state = CamelliaMapUtils.computeIfAbsent(stateMap, tag, k -> new TagState());
+        while (true) {
+            Batch batch = state.tail.get();
+            int offset = batch.join(count, maxCount);
+            if (offset >= 0) {
+                return slice(batch, offset, count);
+            }
+            //批次已关闭或者已满，开一个新批次，挂到队尾的同时记下上一个批次
+            Batch newBatch = new Batch(count, batch.future);
+            if (state.tail.compareAndSet(batch, newBatch)) {
+                lead(tag, newBatch);
+                return slice(newBatch, 0, count);
+            }
+        }
+    }
+
+    private void lead(String tag, Batch batch) {
+        try {
+            //上一个批次还在请求中，等它完成，这段时间内到达的请求都会合并到本批次
+            batch.previous.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignore) {
+            //上一个批次的异常由它自己的请求方处理
+        }
+        int total = batch.close();
+        try {
+            batch.future.complete(loader.load(tag, total));
+        } catch (Throwable e) {
+            batch.future.completeExceptionally(e);
+        }
+    }
+
+    private long[] slice(Batch batch, int offset, int count) {
+        long[] ids;
+        try {
+            ids = batch.future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CamelliaIdGenException) {
+                throw (CamelliaIdGenException) cause;
+            }
+            throw new CamelliaIdGenException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CamelliaIdGenException(e);
+        }
+        if (offset + count > ids.length) {
+            throw new CamelliaIdGenException("not enough ids");
+        }
+        long[] result = new long[count];
+        System.arraycopy(ids, offset, result, 0, count);
+        return result;
+    }
+
+    private static class TagState {
+        //最近一个批次，初始是一个已关闭且已完成的批次
+        private final AtomicReference<Batch> tail = new AtomicReference<>(Batch.closed());
+    }
+
+    private static class Batch {
+        private static final int CLOSED = -1;
+
+        private final AtomicInteger total;
+        private final CompletableFuture<long[]> future = new CompletableFuture<>();
+        private final CompletableFuture<long[]> previous;
+
+        Batch(int count, CompletableFuture<long[]> previous) {
+            this.total = new AtomicInteger(count);
+            this.previous = previous;
+        }
+
+        static Batch closed() {
+            Batch batch = new Batch(CLOSED, null);
+            batch.future.complete(new long[0]);
+            return batch;
+        }
+
+        /**
+         * 加入批次
+         * @return 在批次结果中的偏移量，-1表示批次已关闭或者已满
+         */
+        int join(int count, int maxCount) {
+            while (true) {
+                int current = total.get();
+                if (current == CLOSED || current + count > maxCount) {
+                    return -1;
+                }
+                if (total.compareAndSet(current, current + count)) {
+                    return current;
+                }
+            }
+        }
+
+        /**
+         * 关闭批次，之后不再接收新的请求
+         * @return 批次中的id总数
+         */
+        int close() {
+            return total.getAndSet(CLOSED);
+        }
+    }
+}
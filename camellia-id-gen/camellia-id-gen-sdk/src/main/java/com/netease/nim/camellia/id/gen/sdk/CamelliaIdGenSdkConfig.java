@@ -32,6 +32,31 @@ public class CamelliaIdGenSdkConfig {
     private ScheduledExecutorService scheduleThreadPool = defaultScheduleThreadPool;
 
     private SegmentIdGenSdkConfig segmentIdGenSdkConfig = new SegmentIdGenSdkConfig();
+    private StrictIdGenSdkConfig strictIdGenSdkConfig = new StrictIdGenSdkConfig();
+
+    public static class StrictIdGenSdkConfig {
+
+        //是否合并同一个tag的并发genId请求，合并后走genIds接口，默认关闭
+        private boolean mergeEnable = false;
+        //合并后单次请求的最大id数，需要小于服务端maxStep的5倍
+        private int mergeMaxCount = 100;
+
+        public boolean isMergeEnable() {
+            return mergeEnable;
+        }
+
+        public void setMergeEnable(boolean mergeEnable) {
+            this.mergeEnable = mergeEnable;
+        }
+
+        public int getMergeMaxCount() {
+            return mergeMaxCount;
+        }
+
+        public void setMergeMaxCount(int mergeMaxCount) {
+            this.mergeMaxCount = mergeMaxCount;
+        }
+    }
 
     public static class SegmentIdGenSdkConfig {
 
@@ -41,6 +66,12 @@ public class CamelliaIdGenSdkConfig {
         private int tagCount = 10000;
         private int maxRetry = 500;
         private long retryIntervalMillis = 10;
+        //是否使用二进制格式批量获取id，需要服务端版本支持
+        private boolean binaryEnable = false;
+        //是否合并同一个tag的并发请求（不开启缓存时生效），默认关闭
+        private boolean mergeEnable = false;
+        //合并后单次请求的最大id数，需要小于服务端step的5倍
+        private int mergeMaxCount = 500;
         private ExecutorService asyncLoadThreadPool = defaultAsyncLoadThreadPool;
 
         public boolean isCacheEnable() {
@@ -90,6 +121,30 @@ public class CamelliaIdGenSdkConfig {
         public void setRetryIntervalMillis(long retryIntervalMillis) {
             this.retryIntervalMillis = retryIntervalMillis;
         }
+
+        public boolean isBinaryEnable() {
+            return binaryEnable;
+        }
+
+        public void setBinaryEnable(boolean binaryEnable) {
+            this.binaryEnable = binaryEnable;
+        }
+
+        public boolean isMergeEnable() {
+            return mergeEnable;
+        }
+
+        public void setMergeEnable(boolean mergeEnable) {
+            this.mergeEnable = mergeEnable;
+        }
+
+        public int getMergeMaxCount() {
+            return mergeMaxCount;
+        }
+
+        public void setMergeMaxCount(int mergeMaxCount) {
+            this.mergeMaxCount = mergeMaxCount;
+        }
     }
 
     public String getUrl() {
@@ -180,6 +235,14 @@ public class CamelliaIdGenSdkConfig {
         this.segmentIdGenSdkConfig = segmentIdGenSdkConfig;
     }
 
+    public StrictIdGenSdkConfig getStrictIdGenSdkConfig() {
+        return strictIdGenSdkConfig;
+    }
+
+    public void setStrictIdGenSdkConfig(StrictIdGenSdkConfig strictIdGenSdkConfig) {
+        this.strictIdGenSdkConfig = strictIdGenSdkConfig;
+    }
+
     public int getKeepAliveSeconds() {
         return keepAliveSeconds;
     }
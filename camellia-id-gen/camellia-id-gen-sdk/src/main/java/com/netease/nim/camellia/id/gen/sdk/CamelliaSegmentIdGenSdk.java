@@ -2,13 +2,14 @@ package com.netease.nim.camellia.id.gen.sdk;
 
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.netease.nim.camellia.id.gen.segment.AbstractCamelliaSegmentIdGen;
+import com.netease.nim.camellia.id.gen.segment.CamelliaSegmentIdCache;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -24,6 +25,8 @@ public class CamelliaSegmentIdGenSdk extends AbstractCamelliaSegmentIdGen {
     private final CamelliaIdGenInvoker invoker;
 
     private final boolean cacheEnable;
+    private final boolean binaryEnable;
+    private final CamelliaIdGenRequestMerger merger;
 
     public CamelliaSegmentIdGenSdk(CamelliaIdGenSdkConfig config) {
         this.invoker = new CamelliaIdGenInvoker(config);
@@ -31,35 +34,56 @@ public class CamelliaSegmentIdGenSdk extends AbstractCamelliaSegmentIdGen {
         this.okHttpClient = CamelliaIdGenHttpUtils.initOkHttpClient(config);
         CamelliaIdGenSdkConfig.SegmentIdGenSdkConfig segmentIdGenSdkConfig = config.getSegmentIdGenSdkConfig();
         this.cacheEnable = segmentIdGenSdkConfig.isCacheEnable();
+        this.binaryEnable = segmentIdGenSdkConfig.isBinaryEnable();
+        if (!cacheEnable && segmentIdGenSdkConfig.isMergeEnable()) {
+            this.merger = new CamelliaIdGenRequestMerger(this::_genIdArray, segmentIdGenSdkConfig.getMergeMaxCount());
+        } else {
+            this.merger = null;
+        }
 
         this.step = segmentIdGenSdkConfig.getStep();
         this.cacheMaxCapacity = step * 10;
         this.maxRetry = segmentIdGenSdkConfig.getMaxRetry();
         this.retryIntervalMillis = segmentIdGenSdkConfig.getRetryIntervalMillis();
 
-        this.cacheMap = new ConcurrentLinkedHashMap.Builder<String, LinkedBlockingQueue<Long>>()
+        this.cacheMap = new ConcurrentLinkedHashMap.Builder<String, CamelliaSegmentIdCache>()
                 .initialCapacity(segmentIdGenSdkConfig.getTagCount()).maximumWeightedCapacity(segmentIdGenSdkConfig.getTagCount()).build();
         this.lockMap = new ConcurrentLinkedHashMap.Builder<String, AtomicBoolean>()
                 .initialCapacity(segmentIdGenSdkConfig.getTagCount() * 2).maximumWeightedCapacity(segmentIdGenSdkConfig.getTagCount() * 2L).build();
         this.asyncLoadThreadPool = segmentIdGenSdkConfig.getAsyncLoadThreadPool();
 
-        logger.info("CamelliaSegmentIdGenSdk init success, cacheEnable = {}, step = {}, tagCount = {}",
-                cacheEnable, step, segmentIdGenSdkConfig.getTagCount());
+        logger.info("CamelliaSegmentIdGenSdk init success, cacheEnable = {}, binaryEnable = {}, mergeEnable = {}, step = {}, tagCount = {}",
+                cacheEnable, binaryEnable, merger != null, step, segmentIdGenSdkConfig.getTagCount());
     }
 
     @Override
     public List<Long> genIds(String tag, int count) {
         if (cacheEnable) {
             return super.genIds(tag, count);
+        } else if (merger != null || binaryEnable) {
+            return toList(genIdArray(tag, count));
         } else {
             return _genIds(tag, count);
         }
     }
 
+    @Override
+    public long[] genIdArray(String tag, int count) {
+        if (cacheEnable) {
+            return super.genIdArray(tag, count);
+        } else if (merger != null) {
+            return merger.genIds(tag, count);
+        } else {
+            return _genIdArray(tag, count);
+        }
+    }
+
     @Override
     public long genId(String tag) {
         if (cacheEnable) {
             return super.genId(tag);
+        } else if (merger != null) {
+            return merger.genId(tag);
         } else {
             return _genId(tag);
         }
@@ -74,11 +98,25 @@ public class CamelliaSegmentIdGenSdk extends AbstractCamelliaSegmentIdGen {
     }
 
     @Override
-    protected void loadCache(LinkedBlockingQueue<Long> cache, String tag, int loadCount) {
-        List<Long> ids = _genIds(tag, loadCount);
-        for (Long id : ids) {
-            cache.offer(id);
+    protected void loadCache(CamelliaSegmentIdCache cache, String tag, int loadCount) {
+        //服务端返回的已经是最终的id了，不需要转换
+        cache.offer(_genIdArray(tag, loadCount));
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
         }
+        return list;
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        long[] array = new long[ids.size()];
+        for (int i=0; i<array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        return array;
     }
 
     private long _genId(String tag) {
@@ -88,6 +126,16 @@ public class CamelliaSegmentIdGenSdk extends AbstractCamelliaSegmentIdGen {
         }, config.getMaxRetry());
     }
 
+    private long[] _genIdArray(String tag, int count) {
+        if (!binaryEnable) {
+            return toArray(_genIds(tag, count));
+        }
+        return invoker.invoke(server -> {
+            String fullUrl = server.getUrl() + "/camellia/id/gen/segment/genIdsBinary?tag=" + URLEncoder.encode(tag, "utf-8") + "&count=" + count;
+            return CamelliaIdGenHttpUtils.genIdsBinary(okHttpClient, fullUrl);
+        }, config.getMaxRetry());
+    }
+
     private List<Long> _genIds(String tag, int count) {
         return invoker.invoke(server -> {
             String fullUrl = server.getUrl() + "/camellia/id/gen/segment/genIds?tag=" + URLEncoder.encode(tag, "utf-8") + "&count=" + count;
@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URLEncoder;
+import java.util.List;
 
 /**
  * 基于http协议访问中心化部署的发号器
@@ -18,22 +19,50 @@ public class CamelliaStrictIdGenSdk implements ICamelliaStrictIdGen {
     private final CamelliaIdGenSdkConfig config;
     private final OkHttpClient okHttpClient;
     private final CamelliaIdGenInvoker invoker;
+    private final CamelliaIdGenRequestMerger merger;
 
     public CamelliaStrictIdGenSdk(CamelliaIdGenSdkConfig config) {
         this.invoker = new CamelliaIdGenInvoker(config);
         this.config = config;
         this.okHttpClient = CamelliaIdGenHttpUtils.initOkHttpClient(config);
-        logger.info("CamelliaStrictIdGenSdk init success");
+        CamelliaIdGenSdkConfig.StrictIdGenSdkConfig strictIdGenSdkConfig = config.getStrictIdGenSdkConfig();
+        if (strictIdGenSdkConfig.isMergeEnable()) {
+            //合并后的ids是严格递增的，按加入批次的顺序分给各个请求
+            this.merger = new CamelliaIdGenRequestMerger(this::_genIdArray, strictIdGenSdkConfig.getMergeMaxCount());
+        } else {
+            this.merger = null;
+        }
+        logger.info("CamelliaStrictIdGenSdk init success, mergeEnable = {}", merger != null);
     }
 
     @Override
     public long genId(String tag) {
+        if (merger != null) {
+            return merger.genId(tag);
+        }
         return invoker.invoke(server -> {
             String fullUrl = server.getUrl() + "/camellia/id/gen/strict/genId?tag=" + URLEncoder.encode(tag, "utf-8");
             return CamelliaIdGenHttpUtils.genId(okHttpClient, fullUrl);
         }, config.getMaxRetry());
     }
 
+    @Override
+    public List<Long> genIds(String tag, int count) {
+        return invoker.invoke(server -> {
+            String fullUrl = server.getUrl() + "/camellia/id/gen/strict/genIds?tag=" + URLEncoder.encode(tag, "utf-8") + "&count=" + count;
+            return CamelliaIdGenHttpUtils.genIds(okHttpClient, fullUrl);
+        }, config.getMaxRetry());
+    }
+
+    private long[] _genIdArray(String tag, int count) {
+        List<Long> ids = genIds(tag, count);
+        long[] array = new long[ids.size()];
+        for (int i=0; i<array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        return array;
+    }
+
     @Override
     public long peekId(String tag) {
         return invoker.invoke(server -> {
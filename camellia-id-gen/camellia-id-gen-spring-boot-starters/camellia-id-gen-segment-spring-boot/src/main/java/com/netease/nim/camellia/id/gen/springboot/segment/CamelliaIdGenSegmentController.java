@@ -6,8 +6,13 @@ import com.netease.nim.camellia.id.gen.segment.CamelliaSegmentIdGen;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +50,32 @@ public class CamelliaIdGenSegmentController {
         }
     }
 
+    /**
+     * 二进制格式的批量获取，body是连续的8字节id（大端），失败时返回http.code=500
+     */
+    @GetMapping("/genIdsBinary")
+    public ResponseEntity<byte[]> genIdsBinary(@RequestParam("tag") String tag,
+                                               @RequestParam("count") int count) {
+        try {
+            CamelliaIdGenSegmentServerStatus.updateLastUseTime();
+            long[] ids = camelliaSegmentIdGen.genIdArray(tag, count);
+            if (logger.isDebugEnabled()) {
+                logger.debug("genIdsBinary, tag = {}, count = {}, ids.length = {}", tag, count, ids.length);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(ids.length * 8);
+            for (long id : ids) {
+                buffer.putLong(id);
+            }
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(buffer.array());
+        } catch (CamelliaIdGenException e) {
+            logger.error(e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage().getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("internal error".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     @GetMapping("/genId")
     public IdGenResult genId(@RequestParam("tag") String tag) {
         try {
@@ -33,6 +33,8 @@ public class CamelliaIdGenStrictConfiguration {
         config.setDefaultStep(properties.getDefaultStep());
         config.setCacheExpireSeconds(properties.getCacheExpireSeconds());
         config.setCacheHoldSeconds(properties.getCacheHoldSeconds());
+        config.setLocalCacheSize(properties.getLocalCacheSize());
+        config.setLocalCacheHoldMillis(properties.getLocalCacheHoldMillis());
         config.setRegionBits(properties.getRegionBits());
         config.setMaxRetry(properties.getMaxRetry());
         config.setRetryIntervalMillis(properties.getRetryIntervalMillis());
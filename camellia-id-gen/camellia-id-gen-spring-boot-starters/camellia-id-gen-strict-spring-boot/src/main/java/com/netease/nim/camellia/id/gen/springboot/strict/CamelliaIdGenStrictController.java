@@ -8,6 +8,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Created by caojiajun on 2021/9/27
  */
@@ -38,6 +40,25 @@ public class CamelliaIdGenStrictController {
         }
     }
 
+    @GetMapping("/genIds")
+    public IdGenResult genIds(@RequestParam("tag") String tag,
+                              @RequestParam("count") int count) {
+        try {
+            CamelliaIdGenStrictServerStatus.updateLastUseTime();
+            List<Long> ids = camelliaStrictIdGen.genIds(tag, count);
+            if (logger.isDebugEnabled()) {
+                logger.debug("genIds, tag = {}, count = {}, ids = {}", tag, count, ids);
+            }
+            return IdGenResult.success(ids);
+        } catch (CamelliaIdGenException e) {
+            logger.error(e.getMessage(), e);
+            return IdGenResult.error(e.getMessage());
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            return IdGenResult.error("internal error");
+        }
+    }
+
     @GetMapping("/peekId")
     public IdGenResult peekId(@RequestParam("tag") String tag) {
         try {
@@ -17,10 +17,28 @@ public class CamelliaIdGenStrictProperties {
     private int defaultStep = CamelliaIdGenConstants.Strict.defaultStep;
     private int maxStep = CamelliaIdGenConstants.Strict.maxStep;
     private int cacheHoldSeconds = CamelliaIdGenConstants.Strict.cacheHoldSeconds;
+    private int localCacheSize = CamelliaIdGenConstants.Strict.localCacheSize;
+    private long localCacheHoldMillis = CamelliaIdGenConstants.Strict.localCacheHoldMillis;
     private int regionBits = CamelliaIdGenConstants.Strict.regionBits;
     private int regionId;
     private int regionIdShiftingBits = 0;//regionId偏移量，默认不偏移
 
+    public int getLocalCacheSize() {
+        return localCacheSize;
+    }
+
+    public void setLocalCacheSize(int localCacheSize) {
+        this.localCacheSize = localCacheSize;
+    }
+
+    public long getLocalCacheHoldMillis() {
+        return localCacheHoldMillis;
+    }
+
+    public void setLocalCacheHoldMillis(long localCacheHoldMillis) {
+        this.localCacheHoldMillis = localCacheHoldMillis;
+    }
+
     public String getCacheKeyPrefix() {
         return cacheKeyPrefix;
     }
@@ -0,0 +1,627 @@
+package com.netease.nim.camellia.redis;
+
+import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
+import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
+import com.netease.nim.camellia.tools.executor.CamelliaThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * 基于pipeline的异步客户端
+ * <p> 调用方提交的命令先进入队列，少量的io线程从队列中批量取出命令，放到同一个pipeline里发出，再在回调线程池中完成这一批的future（每批一个任务）
+ * <p> 底层仍然是阻塞的jedis连接：io线程在pipeline.sync()期间是阻塞的，一批命令涉及多个redis节点时，sync()会按节点往concurrentExec提交阻塞任务
+ * <p> 因此这里减少的是调用方的线程占用和网络往返次数，而不是把io变成非阻塞，路由、分片、双写复用CamelliaRedisTemplate的pipeline逻辑
+ * <p> mget/del会被拆成单key命令，在同一批pipeline中发出；mset直接在io线程中调用CamelliaRedisTemplate.mset，保持同一个节点上的原子性
+ * <p> 回调线程池的线程数有上限，回调中不要阻塞等待其他异步调用的结果（如join），需要的话请使用thenCompose或者xxxAsync方法切换到自己的线程池
+ */
+public class CamelliaRedisTemplateAsync implements ICamelliaRedisTemplateAsync {
+
+    private static final Logger logger = LoggerFactory.getLogger(CamelliaRedisTemplateAsync.class);
+
+    private static final int defaultThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int defaultMaxBatch = 256;
+    private static final int defaultQueueSize = 100000;
+    private static final int defaultCallbackQueueSize = 1024;
+
+    private final CamelliaRedisTemplate template;
+    private final LinkedBlockingQueue<Command<?>> queue;
+    private final int maxBatch;
+    private final Executor callbackExecutor;
+    private final ExecutorService ownedCallbackExecutor;
+    private final List<Thread> threadList = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    public CamelliaRedisTemplateAsync(CamelliaRedisTemplate template) {
+        this(template, defaultThreads, defaultMaxBatch, defaultQueueSize);
+    }
+
+    /**
+     * @param template 同步客户端，提供路由、分片、双写规则以及连接
+     * @param threads io线程数
+     * @param maxBatch 一个pipeline最多包含的命令数
+     * @param queueSize 等待队列的大小，超过则直接返回失败
+     */
+    public CamelliaRedisTemplateAsync(CamelliaRedisTemplate template, int threads, int maxBatch, int queueSize) {
+        this(template, threads, maxBatch, queueSize, null);
+    }
+
+    /**
+     * @param template 同步客户端，提供路由、分片、双写规则以及连接
+     * @param threads io线程数
+     * @param maxBatch 一个pipeline最多包含的命令数
+     * @param queueSize 等待队列的大小，超过则直接返回失败
+     * @param callbackExecutor 完成future（也就是执行调用方回调）的线程池，每批命令提交一个任务，为null则使用内部的线程池（线程数和io线程数相同）；
+     *                         线程池拒绝时会在io线程中完成future
+     */
+    public CamelliaRedisTemplateAsync(CamelliaRedisTemplate template, int threads, int maxBatch, int queueSize, Executor callbackExecutor) {
+        if (template == null) {
+            throw new IllegalArgumentException("template is null");
+        }
+        if (threads <= 0 || maxBatch <= 0 || queueSize <= 0) {
+            throw new IllegalArgumentException("threads/maxBatch/queueSize should be positive");
+        }
+        this.template = template;
+        this.maxBatch = maxBatch;
+        if (callbackExecutor == null) {
+            //每批命令一个任务，队列满了会在io线程中完成future，反压到io线程
+            this.ownedCallbackExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(defaultCallbackQueueSize), new CamelliaThreadFactory("camellia-redis-async-callback", true));
+            this.callbackExecutor = ownedCallbackExecutor;
+        } else {
+            this.ownedCallbackExecutor = null;
+            this.callbackExecutor = callbackExecutor;
+        }
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+        ThreadFactory threadFactory = new CamelliaThreadFactory(CamelliaRedisTemplateAsync.class, true);
+        for (int i=0; i<threads; i++) {
+            Thread thread = threadFactory.newThread(this::loop);
+            threadList.add(thread);
+            thread.start();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> execute(Function<ICamelliaRedisPipeline, Response<T>> command) {
+        return submit(new Command<>(command, null));
+    }
+
+    //不能拆到pipeline里的命令，在io线程中直接调用同步客户端
+    private <T> CompletableFuture<T> executeSync(Function<CamelliaRedisTemplate, T> command) {
+        return submit(new Command<>(null, command));
+    }
+
+    private <T> CompletableFuture<T> submit(Command<T> command) {
+        if (closed) {
+            command.future.completeExceptionally(new CamelliaRedisException("CamelliaRedisTemplateAsync has closed"));
+            return command.future;
+        }
+        if (!queue.offer(command)) {
+            command.future.completeExceptionally(new CamelliaRedisException("CamelliaRedisTemplateAsync queue full"));
+        }
+        return command.future;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(byte[] key) {
+        return execute(pipeline -> pipeline.exists(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(byte[] key) {
+        return execute(pipeline -> pipeline.del(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> expire(byte[] key, int seconds) {
+        return execute(pipeline -> pipeline.expire(key, seconds));
+    }
+
+    @Override
+    public CompletableFuture<Long> pexpire(byte[] key, long milliseconds) {
+        return execute(pipeline -> pipeline.pexpire(key, milliseconds));
+    }
+
+    @Override
+    public CompletableFuture<Long> ttl(byte[] key) {
+        return execute(pipeline -> pipeline.ttl(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> pttl(byte[] key) {
+        return execute(pipeline -> pipeline.pttl(key));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> get(byte[] key) {
+        return execute(pipeline -> pipeline.get(key));
+    }
+
+    @Override
+    public CompletableFuture<String> set(byte[] key, byte[] value) {
+        return execute(pipeline -> pipeline.set(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> setex(byte[] key, int seconds, byte[] value) {
+        return execute(pipeline -> pipeline.setex(key, seconds, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> incr(byte[] key) {
+        return execute(pipeline -> pipeline.incr(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> incrBy(byte[] key, long integer) {
+        return execute(pipeline -> pipeline.incrBy(key, integer));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> hget(byte[] key, byte[] field) {
+        return execute(pipeline -> pipeline.hget(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(byte[] key, byte[] field, byte[] value) {
+        return execute(pipeline -> pipeline.hset(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(byte[] key, byte[]... field) {
+        return execute(pipeline -> pipeline.hdel(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Map<byte[], byte[]>> hgetAll(byte[] key) {
+        return execute(pipeline -> pipeline.hgetAll(key));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> hmget(byte[] key, byte[]... fields) {
+        return execute(pipeline -> pipeline.hmget(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<String> hmset(byte[] key, Map<byte[], byte[]> hash) {
+        return execute(pipeline -> pipeline.hmset(key, hash));
+    }
+
+    @Override
+    public CompletableFuture<Long> lpush(byte[] key, byte[]... string) {
+        return execute(pipeline -> pipeline.lpush(key, string));
+    }
+
+    @Override
+    public CompletableFuture<Long> rpush(byte[] key, byte[]... string) {
+        return execute(pipeline -> pipeline.rpush(key, string));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> lpop(byte[] key) {
+        return execute(pipeline -> pipeline.lpop(key));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> rpop(byte[] key) {
+        return execute(pipeline -> pipeline.rpop(key));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> lrange(byte[] key, long start, long end) {
+        return execute(pipeline -> pipeline.lrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> sadd(byte[] key, byte[]... member) {
+        return execute(pipeline -> pipeline.sadd(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> srem(byte[] key, byte[]... member) {
+        return execute(pipeline -> pipeline.srem(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Set<byte[]>> smembers(byte[] key) {
+        return execute(pipeline -> pipeline.smembers(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sismember(byte[] key, byte[] member) {
+        return execute(pipeline -> pipeline.sismember(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(byte[] key, double score, byte[] member) {
+        return execute(pipeline -> pipeline.zadd(key, score, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zrem(byte[] key, byte[]... member) {
+        return execute(pipeline -> pipeline.zrem(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Double> zscore(byte[] key, byte[] member) {
+        return execute(pipeline -> pipeline.zscore(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Set<byte[]>> zrange(byte[] key, long start, long end) {
+        return execute(pipeline -> pipeline.zrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        return execute(pipeline -> pipeline.exists(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String key) {
+        return execute(pipeline -> pipeline.del(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> expire(String key, int seconds) {
+        return execute(pipeline -> pipeline.expire(key, seconds));
+    }
+
+    @Override
+    public CompletableFuture<Long> pexpire(String key, long milliseconds) {
+        return execute(pipeline -> pipeline.pexpire(key, milliseconds));
+    }
+
+    @Override
+    public CompletableFuture<Long> ttl(String key) {
+        return execute(pipeline -> pipeline.ttl(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> pttl(String key) {
+        return execute(pipeline -> pipeline.pttl(key));
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key) {
+        return execute(pipeline -> pipeline.get(key));
+    }
+
+    @Override
+    public CompletableFuture<String> set(String key, String value) {
+        return execute(pipeline -> pipeline.set(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> setex(String key, int seconds, String value) {
+        return execute(pipeline -> pipeline.setex(key, seconds, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> incr(String key) {
+        return execute(pipeline -> pipeline.incr(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> incrBy(String key, long integer) {
+        return execute(pipeline -> pipeline.incrBy(key, integer));
+    }
+
+    @Override
+    public CompletableFuture<String> hget(String key, String field) {
+        return execute(pipeline -> pipeline.hget(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(String key, String field, String value) {
+        return execute(pipeline -> pipeline.hset(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(String key, String... field) {
+        return execute(pipeline -> pipeline.hdel(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> hgetAll(String key) {
+        return execute(pipeline -> pipeline.hgetAll(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hmget(String key, String... fields) {
+        return execute(pipeline -> pipeline.hmget(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<String> hmset(String key, Map<String, String> hash) {
+        return execute(pipeline -> pipeline.hmset(key, hash));
+    }
+
+    @Override
+    public CompletableFuture<Long> lpush(String key, String... string) {
+        return execute(pipeline -> pipeline.lpush(key, string));
+    }
+
+    @Override
+    public CompletableFuture<Long> rpush(String key, String... string) {
+        return execute(pipeline -> pipeline.rpush(key, string));
+    }
+
+    @Override
+    public CompletableFuture<String> lpop(String key) {
+        return execute(pipeline -> pipeline.lpop(key));
+    }
+
+    @Override
+    public CompletableFuture<String> rpop(String key) {
+        return execute(pipeline -> pipeline.rpop(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> lrange(String key, long start, long end) {
+        return execute(pipeline -> pipeline.lrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> sadd(String key, String... member) {
+        return execute(pipeline -> pipeline.sadd(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> srem(String key, String... member) {
+        return execute(pipeline -> pipeline.srem(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> smembers(String key) {
+        return execute(pipeline -> pipeline.smembers(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sismember(String key, String member) {
+        return execute(pipeline -> pipeline.sismember(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, double score, String member) {
+        return execute(pipeline -> pipeline.zadd(key, score, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zrem(String key, String... member) {
+        return execute(pipeline -> pipeline.zrem(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Double> zscore(String key, String member) {
+        return execute(pipeline -> pipeline.zscore(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrange(String key, long start, long end) {
+        return execute(pipeline -> pipeline.zrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> mget(byte[]... keys) {
+        List<CompletableFuture<byte[]>> futureList = new ArrayList<>(keys.length);
+        for (byte[] key : keys) {
+            futureList.add(get(key));
+        }
+        return allOf(futureList);
+    }
+
+    @Override
+    public CompletableFuture<String> mset(byte[]... keysvalues) {
+        if (keysvalues.length % 2 != 0) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new CamelliaRedisException("keysvalues not match"));
+            return future;
+        }
+        //和CamelliaRedisTemplate一样按节点合并成mset，而不是拆成多个set
+        return executeSync(template -> template.mset(keysvalues));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(byte[]... keys) {
+        List<CompletableFuture<Long>> futureList = new ArrayList<>(keys.length);
+        for (byte[] key : keys) {
+            futureList.add(del(key));
+        }
+        return allOf(futureList).thenApply(CamelliaRedisTemplateAsync::sum);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mget(String... keys) {
+        List<CompletableFuture<String>> futureList = new ArrayList<>(keys.length);
+        for (String key : keys) {
+            futureList.add(get(key));
+        }
+        return allOf(futureList);
+    }
+
+    @Override
+    public CompletableFuture<String> mset(String... keysvalues) {
+        if (keysvalues.length % 2 != 0) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new CamelliaRedisException("keysvalues not match"));
+            return future;
+        }
+        //和CamelliaRedisTemplate一样按节点合并成mset，而不是拆成多个set
+        return executeSync(template -> template.mset(keysvalues));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String... keys) {
+        List<CompletableFuture<Long>> futureList = new ArrayList<>(keys.length);
+        for (String key : keys) {
+            futureList.add(del(key));
+        }
+        return allOf(futureList).thenApply(CamelliaRedisTemplateAsync::sum);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread thread : threadList) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (ownedCallbackExecutor != null) {
+            ownedCallbackExecutor.shutdown();
+        }
+    }
+
+    private static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futureList) {
+        return CompletableFuture.allOf(futureList.toArray(new CompletableFuture[0])).thenApply(v -> {
+            List<T> result = new ArrayList<>(futureList.size());
+            for (CompletableFuture<T> future : futureList) {
+                result.add(future.join());
+            }
+            return result;
+        });
+    }
+
+    private static long sum(List<Long> list) {
+        long ret = 0;
+        for (Long value : list) {
+            if (value != null) {
+                ret += value;
+            }
+        }
+        return ret;
+    }
+
+    private void loop() {
+        List<Command<?>> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                Command<?> command = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (command == null) {
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(command);
+                queue.drainTo(batch, maxBatch - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                logger.error("CamelliaRedisTemplateAsync loop error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Command<?>> batch) {
+        //每个命令的结果，Response（pipeline命令）、返回值（同步命令）或者异常
+        Object[] results = new Object[batch.size()];
+        int start = 0;
+        while (start < batch.size()) {
+            //按提交顺序执行，连续的pipeline命令合并到同一个pipeline中发出，遇到同步命令则先sync
+            int end = start;
+            while (end < batch.size() && batch.get(end).pipelineCommand != null) {
+                end ++;
+            }
+            if (end > start) {
+                pipeline(batch, results, start, end);
+            }
+            if (end < batch.size()) {
+                Command<?> command = batch.get(end);
+                try {
+                    results[end] = command.syncCommand.apply(template);
+                } catch (Throwable e) {
+                    results[end] = new CommandError(e);
+                }
+                end ++;
+            }
+            start = end;
+        }
+        List<Command<?>> commands = new ArrayList<>(batch);
+        callback(() -> {
+            for (int i=0; i<commands.size(); i++) {
+                commands.get(i).complete(results[i]);
+            }
+        });
+    }
+
+    private void pipeline(List<Command<?>> batch, Object[] results, int start, int end) {
+        try (ICamelliaRedisPipeline pipeline = template.pipelined()) {
+            for (int i=start; i<end; i++) {
+                try {
+                    results[i] = batch.get(i).pipelineCommand.apply(pipeline);
+                } catch (Throwable e) {
+                    results[i] = new CommandError(e);
+                }
+            }
+            pipeline.sync();
+        } catch (Throwable e) {
+            //连接异常等，还没有标记失败的命令都标记为失败
+            for (int i=start; i<end; i++) {
+                if (!(results[i] instanceof CommandError)) {
+                    results[i] = new CommandError(e);
+                }
+            }
+        }
+    }
+
+    //future不在io线程中完成，避免调用方的回调阻塞io线程
+    private void callback(Runnable runnable) {
+        try {
+            callbackExecutor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            logger.warn("CamelliaRedisTemplateAsync callback executor rejected, complete in io thread");
+            runnable.run();
+        }
+    }
+
+    private static class CommandError {
+        private final Throwable error;
+
+        CommandError(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    private static class Command<T> {
+        private final Function<ICamelliaRedisPipeline, Response<T>> pipelineCommand;
+        private final Function<CamelliaRedisTemplate, T> syncCommand;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Command(Function<ICamelliaRedisPipeline, Response<T>> pipelineCommand, Function<CamelliaRedisTemplate, T> syncCommand) {
+            this.pipelineCommand = pipelineCommand;
+            this.syncCommand = syncCommand;
+        }
+
+        void complete(Object result) {
+            if (result instanceof CommandError) {
+                future.completeExceptionally(((CommandError) result).error);
+                return;
+            }
+            try {
+                if (pipelineCommand != null) {
+                    future.complete((T) ((Response<?>) result).get());
+                } else {
+                    future.complete((T) result);
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
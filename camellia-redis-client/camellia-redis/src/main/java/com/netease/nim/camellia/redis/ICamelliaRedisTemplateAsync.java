@@ -0,0 +1,204 @@
+package com.netease.nim.camellia.redis;
+
+import com.netease.nim.camellia.redis.pipeline.ICamelliaRedisPipeline;
+import redis.clients.jedis.Response;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 异步接口，返回CompletableFuture，路由、分片、双写规则和CamelliaRedisTemplate一致
+ * <p> future在回调线程池中完成，不会占用io线程，回调中不要阻塞等待其他异步调用的结果；底层仍是阻塞的jedis pipeline，并不是非阻塞io
+ */
+public interface ICamelliaRedisTemplateAsync {
+
+    /**
+     * 执行任意一个pipeline支持的命令
+     * @param command 命令，如 pipeline -> pipeline.get(key)
+     * @param <T> 返回类型
+     * @return future
+     */
+    <T> CompletableFuture<T> execute(Function<ICamelliaRedisPipeline, Response<T>> command);
+
+    /**
+     * 数据库
+     */
+    CompletableFuture<Boolean> exists(byte[] key);
+
+    CompletableFuture<Long> del(byte[] key);
+
+    CompletableFuture<Long> expire(byte[] key, int seconds);
+
+    CompletableFuture<Long> pexpire(byte[] key, long milliseconds);
+
+    CompletableFuture<Long> ttl(byte[] key);
+
+    CompletableFuture<Long> pttl(byte[] key);
+
+    /**
+     * 字符串
+     */
+    CompletableFuture<byte[]> get(byte[] key);
+
+    CompletableFuture<String> set(byte[] key, byte[] value);
+
+    CompletableFuture<String> setex(byte[] key, int seconds, byte[] value);
+
+    CompletableFuture<Long> incr(byte[] key);
+
+    CompletableFuture<Long> incrBy(byte[] key, long integer);
+
+    /**
+     * 哈希表
+     */
+    CompletableFuture<byte[]> hget(byte[] key, byte[] field);
+
+    CompletableFuture<Long> hset(byte[] key, byte[] field, byte[] value);
+
+    CompletableFuture<Long> hdel(byte[] key, byte[]... field);
+
+    CompletableFuture<Map<byte[], byte[]>> hgetAll(byte[] key);
+
+    CompletableFuture<List<byte[]>> hmget(byte[] key, byte[]... fields);
+
+    CompletableFuture<String> hmset(byte[] key, Map<byte[], byte[]> hash);
+
+    /**
+     * 列表
+     */
+    CompletableFuture<Long> lpush(byte[] key, byte[]... string);
+
+    CompletableFuture<Long> rpush(byte[] key, byte[]... string);
+
+    CompletableFuture<byte[]> lpop(byte[] key);
+
+    CompletableFuture<byte[]> rpop(byte[] key);
+
+    CompletableFuture<List<byte[]>> lrange(byte[] key, long start, long end);
+
+    /**
+     * 集合
+     */
+    CompletableFuture<Long> sadd(byte[] key, byte[]... member);
+
+    CompletableFuture<Long> srem(byte[] key, byte[]... member);
+
+    CompletableFuture<Set<byte[]>> smembers(byte[] key);
+
+    CompletableFuture<Boolean> sismember(byte[] key, byte[] member);
+
+    /**
+     * 有序集合
+     */
+    CompletableFuture<Long> zadd(byte[] key, double score, byte[] member);
+
+    CompletableFuture<Long> zrem(byte[] key, byte[]... member);
+
+    CompletableFuture<Double> zscore(byte[] key, byte[] member);
+
+    CompletableFuture<Set<byte[]>> zrange(byte[] key, long start, long end);
+
+    /**
+     * 多key命令，mget/del按key拆分成单key命令，合并在同一批pipeline中发出；mset和CamelliaRedisTemplate一样按节点执行mset
+     */
+    CompletableFuture<List<byte[]>> mget(byte[]... keys);
+
+    CompletableFuture<String> mset(byte[]... keysvalues);
+
+    CompletableFuture<Long> del(byte[]... keys);
+
+    /**
+     * 数据库
+     */
+    CompletableFuture<Boolean> exists(String key);
+
+    CompletableFuture<Long> del(String key);
+
+    CompletableFuture<Long> expire(String key, int seconds);
+
+    CompletableFuture<Long> pexpire(String key, long milliseconds);
+
+    CompletableFuture<Long> ttl(String key);
+
+    CompletableFuture<Long> pttl(String key);
+
+    /**
+     * 字符串
+     */
+    CompletableFuture<String> get(String key);
+
+    CompletableFuture<String> set(String key, String value);
+
+    CompletableFuture<String> setex(String key, int seconds, String value);
+
+    CompletableFuture<Long> incr(String key);
+
+    CompletableFuture<Long> incrBy(String key, long integer);
+
+    /**
+     * 哈希表
+     */
+    CompletableFuture<String> hget(String key, String field);
+
+    CompletableFuture<Long> hset(String key, String field, String value);
+
+    CompletableFuture<Long> hdel(String key, String... field);
+
+    CompletableFuture<Map<String, String>> hgetAll(String key);
+
+    CompletableFuture<List<String>> hmget(String key, String... fields);
+
+    CompletableFuture<String> hmset(String key, Map<String, String> hash);
+
+    /**
+     * 列表
+     */
+    CompletableFuture<Long> lpush(String key, String... string);
+
+    CompletableFuture<Long> rpush(String key, String... string);
+
+    CompletableFuture<String> lpop(String key);
+
+    CompletableFuture<String> rpop(String key);
+
+    CompletableFuture<List<String>> lrange(String key, long start, long end);
+
+    /**
+     * 集合
+     */
+    CompletableFuture<Long> sadd(String key, String... member);
+
+    CompletableFuture<Long> srem(String key, String... member);
+
+    CompletableFuture<Set<String>> smembers(String key);
+
+    CompletableFuture<Boolean> sismember(String key, String member);
+
+    /**
+     * 有序集合
+     */
+    CompletableFuture<Long> zadd(String key, double score, String member);
+
+    CompletableFuture<Long> zrem(String key, String... member);
+
+    CompletableFuture<Double> zscore(String key, String member);
+
+    CompletableFuture<Set<String>> zrange(String key, long start, long end);
+
+    /**
+     * 多key命令，mget/del按key拆分成单key命令，合并在同一批pipeline中发出；mset和CamelliaRedisTemplate一样按节点执行mset
+     */
+    CompletableFuture<List<String>> mget(String... keys);
+
+    CompletableFuture<String> mset(String... keysvalues);
+
+    CompletableFuture<Long> del(String... keys);
+
+    /**
+     * 关闭，已经提交的命令会执行完
+     */
+    void close();
+}
@@ -0,0 +1,299 @@
+package com.netease.nim.camellia.redis;
+
+import com.netease.nim.camellia.core.model.Resource;
+import com.netease.nim.camellia.core.util.ResourceTableUtil;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 使用进程内的假redis验证异步客户端
+ */
+public class CamelliaRedisTemplateAsyncTest {
+
+    private static FakeRedis redis;
+    private static CamelliaRedisTemplate template;
+
+    @BeforeClass
+    public static void start() throws IOException {
+        redis = new FakeRedis();
+        template = new CamelliaRedisTemplate(ResourceTableUtil.simpleTable(new Resource("redis://@127.0.0.1:" + redis.port())));
+    }
+
+    @AfterClass
+    public static void stop() {
+        redis.close();
+    }
+
+    @Test
+    public void testCommands() throws Exception {
+        CamelliaRedisTemplateAsync async = new CamelliaRedisTemplateAsync(template, 2, 16, 1000);
+        try {
+            Assert.assertEquals("OK", get(async.set("a1", "v1")));
+            Assert.assertEquals("v1", get(async.get("a1")));
+            Assert.assertNull(get(async.get("a2")));
+            Assert.assertEquals(Long.valueOf(1), get(async.incr("a3")));
+            Assert.assertEquals(Long.valueOf(11), get(async.incrBy("a3", 10)));
+            Assert.assertEquals(Long.valueOf(5), get(async.execute(pipeline -> pipeline.incrBy("a4", 5))));
+
+            Assert.assertEquals("OK", get(async.mset("a5", "v5", "a6", "v6")));
+            Assert.assertEquals(Arrays.asList("v5", null, "v6"), get(async.mget("a5", "a7", "a6")));
+            Assert.assertEquals(Long.valueOf(2), get(async.del("a5", "a6", "a7")));
+            Assert.assertEquals(Arrays.asList(null, null), get(async.mget("a5", "a6")));
+        } finally {
+            async.close();
+        }
+    }
+
+    @Test
+    public void testMsetIsNotSplit() throws Exception {
+        CamelliaRedisTemplateAsync async = new CamelliaRedisTemplateAsync(template, 1, 16, 1000);
+        try {
+            redis.commands.clear();
+            Assert.assertEquals("OK", get(async.mset("b1", "v1", "b2", "v2", "b3", "v3")));
+            Assert.assertEquals(Collections.singletonList("MSET"), new ArrayList<>(redis.commands));
+            Assert.assertEquals(Arrays.asList("v1", "v2", "v3"), template.mget("b1", "b2", "b3"));
+
+            try {
+                get(async.mset("b1", "v1", "b2"));
+                Assert.fail();
+            } catch (ExecutionException ignore) {
+            }
+        } finally {
+            async.close();
+        }
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        //只有一个io线程时，pipeline命令和同步命令按提交顺序执行
+        CamelliaRedisTemplateAsync async = new CamelliaRedisTemplateAsync(template, 1, 16, 1000);
+        try {
+            for (int i = 0; i < 20; i++) {
+                async.set("c1", "set" + i);
+                async.mset("c1", "mset" + i);
+                CompletableFuture<String> future = async.get("c1");
+                Assert.assertEquals("mset" + i, get(future));
+            }
+        } finally {
+            async.close();
+        }
+    }
+
+    @Test
+    public void testError() throws Exception {
+        CamelliaRedisTemplateAsync async = new CamelliaRedisTemplateAsync(template, 1, 16, 1000);
+        try {
+            async.set("d1", "v1");
+            CompletableFuture<Long> error = async.incr("d1");
+            CompletableFuture<String> ok = async.get("d1");
+            try {
+                get(error);
+                Assert.fail();
+            } catch (ExecutionException ignore) {
+            }
+            Assert.assertEquals("v1", get(ok));
+        } finally {
+            async.close();
+        }
+
+        CompletableFuture<String> closed = async.get("d1");
+        try {
+            get(closed);
+            Assert.fail();
+        } catch (ExecutionException ignore) {
+        }
+    }
+
+    @Test
+    public void testCallbackThreads() throws Exception {
+        int threads = 2;
+        CamelliaRedisTemplateAsync async = new CamelliaRedisTemplateAsync(template, threads, 16, 100000);
+        try {
+            Set<String> callbackThreads = ConcurrentHashMap.newKeySet();
+            List<CompletableFuture<String>> list = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                list.add(async.set("e" + i, "v").thenApply(v -> {
+                    callbackThreads.add(Thread.currentThread().getName());
+                    return v;
+                }));
+            }
+            for (CompletableFuture<String> future : list) {
+                Assert.assertEquals("OK", get(future));
+            }
+            //回调在有上限的回调线程池中执行，不在io线程中执行
+            Assert.assertTrue(callbackThreads.size() <= threads);
+            for (String name : callbackThreads) {
+                Assert.assertTrue(name, name.contains("camellia-redis-async-callback"));
+            }
+        } finally {
+            async.close();
+        }
+    }
+
+    private static <T> T get(CompletableFuture<T> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 只支持测试用到的string命令，记录收到的命令
+     */
+    private static class FakeRedis implements Closeable {
+        private final ServerSocket serverSocket;
+        private final Map<String, String> strings = new HashMap<>();
+        private final Queue<String> commands = new ConcurrentLinkedQueue<>();
+
+        FakeRedis() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread thread = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        Thread handler = new Thread(() -> serve(socket));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException ignore) {
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void close() {
+            try {
+                serverSocket.close();
+            } catch (IOException ignore) {
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (Socket s = socket) {
+                InputStream in = new BufferedInputStream(s.getInputStream());
+                OutputStream out = new BufferedOutputStream(s.getOutputStream());
+                while (true) {
+                    List<String> args = readCommand(in);
+                    if (args == null) return;
+                    synchronized (this) {
+                        writeReply(out, execute(args));
+                    }
+                    if (in.available() == 0) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException ignore) {
+            }
+        }
+
+        private Object execute(List<String> args) {
+            String command = args.get(0).toUpperCase();
+            commands.add(command);
+            switch (command) {
+                case "GET":
+                    return strings.get(args.get(1));
+                case "SET":
+                    strings.put(args.get(1), args.get(2));
+                    return "+OK";
+                case "MSET":
+                    for (int i = 1; i < args.size(); i += 2) {
+                        strings.put(args.get(i), args.get(i + 1));
+                    }
+                    return "+OK";
+                case "MGET": {
+                    List<Object> list = new ArrayList<>();
+                    for (int i = 1; i < args.size(); i++) {
+                        list.add(strings.get(args.get(i)));
+                    }
+                    return list;
+                }
+                case "DEL": {
+                    long count = 0;
+                    for (int i = 1; i < args.size(); i++) {
+                        if (strings.remove(args.get(i)) != null) count++;
+                    }
+                    return count;
+                }
+                case "INCR":
+                case "INCRBY": {
+                    long value;
+                    try {
+                        value = Long.parseLong(strings.getOrDefault(args.get(1), "0"));
+                    } catch (NumberFormatException e) {
+                        return new IllegalStateException("ERR value is not an integer or out of range");
+                    }
+                    value += command.equals("INCR") ? 1 : Long.parseLong(args.get(2));
+                    strings.put(args.get(1), String.valueOf(value));
+                    return value;
+                }
+                default:
+                    return "+OK";
+            }
+        }
+
+        private static List<String> readCommand(InputStream in) throws IOException {
+            String line = readLine(in);
+            if (line == null) return null;
+            int n = Integer.parseInt(line.substring(1));
+            List<String> args = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int len = Integer.parseInt(readLine(in).substring(1));
+                byte[] bytes = new byte[len + 2];
+                int read = 0;
+                while (read < bytes.length) {
+                    int r = in.read(bytes, read, bytes.length - read);
+                    if (r < 0) throw new EOFException();
+                    read += r;
+                }
+                args.add(new String(bytes, 0, len, StandardCharsets.UTF_8));
+            }
+            return args;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder builder = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c < 0) return null;
+                builder.append((char) c);
+            }
+            in.read();
+            return builder.toString();
+        }
+
+        private static void writeReply(OutputStream out, Object reply) throws IOException {
+            if (reply == null) {
+                out.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
+            } else if (reply instanceof Long) {
+                out.write((":" + reply + "\r\n").getBytes(StandardCharsets.UTF_8));
+            } else if (reply instanceof Exception) {
+                out.write(("-" + ((Exception) reply).getMessage() + "\r\n").getBytes(StandardCharsets.UTF_8));
+            } else if (reply instanceof List) {
+                List<?> list = (List<?>) reply;
+                out.write(("*" + list.size() + "\r\n").getBytes(StandardCharsets.UTF_8));
+                for (Object item : list) {
+                    writeReply(out, item);
+                }
+            } else if (((String) reply).startsWith("+")) {
+                out.write((reply + "\r\n").getBytes(StandardCharsets.UTF_8));
+            } else {
+                byte[] bytes = ((String) reply).getBytes(StandardCharsets.UTF_8);
+                out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+                out.write(bytes);
+                out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmark入口，结果默认以json格式输出到camellia-redis-proxy-benchmark.json，便于不同版本之间对比
+ * <p> java -jar camellia-redis-proxy-benchmarks.jar [jmh options]，如：
+ * <p> java -jar camellia-redis-proxy-benchmarks.jar CommandDecoderBenchmark -rff decoder.json
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmdOptions);
+        if (cmdOptions.getIncludes().isEmpty()) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+        }
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result("camellia-redis-proxy-benchmark.json");
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,177 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConfLoader;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * benchmark公共方法，构造RESP输入数据，以及在进程内修改ProxyDynamicConf
+ */
+public class BenchmarkUtils {
+
+    private static final Map<String, String> conf = new HashMap<>();
+    private static boolean init = false;
+
+    private static final ProxyDynamicConfLoader loader = new ProxyDynamicConfLoader() {
+        @Override
+        public void init(Map<String, String> initConf) {
+        }
+
+        @Override
+        public Map<String, String> load() {
+            synchronized (conf) {
+                return new HashMap<>(conf);
+            }
+        }
+    };
+
+    /**
+     * 更新动态配置，会触发ProxyDynamicConf的回调
+     * @param key key
+     * @param value value
+     */
+    public static synchronized void updateConf(String key, String value) {
+        synchronized (conf) {
+            conf.put(key, value);
+        }
+        if (!init) {
+            ProxyDynamicConf.init(new HashMap<>(), loader);
+            init = true;
+        } else {
+            ProxyDynamicConf.reload();
+        }
+    }
+
+    public static byte[] randomValue(int size) {
+        byte[] value = new byte[size];
+        for (int i = 0; i < size; i++) {
+            value[i] = (byte) ('a' + ThreadLocalRandom.current().nextInt(26));
+        }
+        return value;
+    }
+
+    public static byte[][] args(String... args) {
+        byte[][] bytes = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            bytes[i] = Utils.stringToBytes(args[i]);
+        }
+        return bytes;
+    }
+
+    /**
+     * 构造pipeline请求，GET和SET交替，模拟真实的读写混合流量
+     * @param pipeline pipeline size
+     * @param valueSize value size
+     * @return commands
+     */
+    public static List<Command> pipelineCommands(int pipeline, int valueSize) {
+        List<Command> commands = new ArrayList<>(pipeline);
+        byte[] value = randomValue(valueSize);
+        for (int i = 0; i < pipeline; i++) {
+            byte[] key = Utils.stringToBytes("benchmark:key:" + i);
+            if (i % 2 == 0) {
+                commands.add(new Command(new byte[][]{Utils.stringToBytes("GET"), key}));
+            } else {
+                commands.add(new Command(new byte[][]{Utils.stringToBytes("SET"), key, value}));
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * 把若干命令编码为一个unpooled的ByteBuf
+     * @param commands commands
+     * @return ByteBuf
+     */
+    public static ByteBuf encodeUnpooled(List<Command> commands) {
+        ByteBuf buf = Unpooled.buffer();
+        for (Command command : commands) {
+            byte[][] objects = command.getObjects();
+            writeHeader(buf, '*', objects.length);
+            for (byte[] object : objects) {
+                writeHeader(buf, '$', object.length);
+                buf.writeBytes(object);
+                buf.writeBytes(CRLF);
+            }
+        }
+        return buf;
+    }
+
+    /**
+     * 构造pipeline回包，包含status、integer、bulk、multi-bulk多种类型
+     * @param pipeline pipeline size
+     * @param valueSize value size
+     * @return ByteBuf
+     */
+    public static ByteBuf pipelineReplies(int pipeline, int valueSize) {
+        ByteBuf buf = Unpooled.buffer();
+        byte[] value = randomValue(valueSize);
+        for (int i = 0; i < pipeline; i++) {
+            switch (i % 4) {
+                case 0:
+                    buf.writeBytes(Utils.stringToBytes("+OK\r\n"));
+                    break;
+                case 1:
+                    writeHeader(buf, ':', i);
+                    break;
+                case 2:
+                    writeHeader(buf, '$', value.length);
+                    buf.writeBytes(value);
+                    buf.writeBytes(CRLF);
+                    break;
+                default:
+                    writeHeader(buf, '*', 3);
+                    for (int j = 0; j < 3; j++) {
+                        writeHeader(buf, '$', value.length);
+                        buf.writeBytes(value);
+                        buf.writeBytes(CRLF);
+                    }
+                    break;
+            }
+        }
+        return buf;
+    }
+
+    /**
+     * 把一个完整的ByteBuf切成若干段，模拟TCP分包到达
+     * @param alloc alloc
+     * @param buf buf
+     * @param chunkSize chunk size
+     * @return chunks
+     */
+    public static List<ByteBuf> split(ByteBufAllocator alloc, ByteBuf buf, int chunkSize) {
+        List<ByteBuf> list = new ArrayList<>();
+        ByteBuf duplicate = buf.duplicate();
+        while (duplicate.isReadable()) {
+            int len = Math.min(chunkSize, duplicate.readableBytes());
+            ByteBuf chunk = alloc.buffer(len);
+            duplicate.readBytes(chunk, len);
+            list.add(chunk);
+        }
+        return list;
+    }
+
+    public static ByteBuf copy(ByteBufAllocator alloc, ByteBuf buf) {
+        ByteBuf copy = alloc.buffer(buf.readableBytes());
+        copy.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+        return copy;
+    }
+
+    private static final byte[] CRLF = new byte[]{'\r', '\n'};
+
+    private static void writeHeader(ByteBuf buf, char prefix, long number) {
+        buf.writeByte(prefix);
+        buf.writeBytes(Utils.stringToBytes(String.valueOf(number)));
+        buf.writeBytes(CRLF);
+    }
+}
@@ -0,0 +1,72 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.netty.CommandDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommandDecoder解析pipeline请求，chunkSize模拟一次read到达的字节数
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandDecoderBenchmark {
+
+    @Param({"1", "32", "256"})
+    private int pipeline;
+
+    @Param({"16", "1024"})
+    private int valueSize;
+
+    @Param({"4096", "65536"})
+    private int chunkSize;
+
+    @Param({"-1", "512"})
+    private int zeroCopyThreshold;
+
+    private EmbeddedChannel channel;
+    private List<ByteBuf> chunks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channel = new EmbeddedChannel(new CommandDecoder(256, 32, zeroCopyThreshold));
+        ByteBuf buf = BenchmarkUtils.encodeUnpooled(BenchmarkUtils.pipelineCommands(pipeline, valueSize));
+        chunks = BenchmarkUtils.split(ByteBufAllocator.DEFAULT, buf, chunkSize);
+        buf.release();
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (ByteBuf chunk : chunks) {
+            //和真实的socket read一样，每次都是新分配的ByteBuf，避免cumulator写入共享的chunk
+            channel.writeInbound(BenchmarkUtils.copy(ByteBufAllocator.DEFAULT, chunk));
+        }
+        Object msg;
+        while ((msg = channel.readInbound()) != null) {
+            @SuppressWarnings("unchecked")
+            List<Command> commands = (List<Command>) msg;
+            for (Command command : commands) {
+                blackhole.consume(command);
+                command.release();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        for (ByteBuf chunk : chunks) {
+            chunk.release();
+        }
+    }
+}
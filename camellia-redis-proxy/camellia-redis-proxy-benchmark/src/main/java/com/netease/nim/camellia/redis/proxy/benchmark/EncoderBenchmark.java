@@ -0,0 +1,123 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.netty.CommandPack;
+import com.netease.nim.camellia.redis.proxy.netty.CommandPackEncoder;
+import com.netease.nim.camellia.redis.proxy.netty.CommandPackRecycler;
+import com.netease.nim.camellia.redis.proxy.netty.ReplyEncoder;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommandPackEncoder（proxy到后端redis）和ReplyEncoder（proxy到客户端）的编码开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncoderBenchmark {
+
+    @Param({"1", "32", "256"})
+    private int pipeline;
+
+    @Param({"16", "1024"})
+    private int valueSize;
+
+    private EmbeddedChannel commandChannel;
+    private CommandPackRecycler commandPackRecycler;
+    private Queue<CompletableFuture<Reply>> queue;
+    private List<Command> commands;
+
+    private EmbeddedChannel replyChannel;
+    private Reply[] replies;
+    private long replyId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        commandChannel = new EmbeddedChannel();
+        RedisConnectionConfig config = new RedisConnectionConfig();
+        config.setHost("127.0.0.1");
+        config.setPort(6379);
+        config.setEventLoop(commandChannel.eventLoop());
+        RedisConnection redisConnection = new RedisConnection(config);
+        commandPackRecycler = new CommandPackRecycler(commandChannel.eventLoop());
+        queue = new ArrayDeque<>(pipeline);
+        commandChannel.pipeline().addLast(new CommandPackEncoder(redisConnection, commandPackRecycler, queue));
+        commands = BenchmarkUtils.pipelineCommands(pipeline, valueSize);
+
+        replyChannel = new EmbeddedChannel(new ReplyEncoder());
+        byte[] value = BenchmarkUtils.randomValue(valueSize);
+        replies = new Reply[pipeline];
+        for (int i = 0; i < pipeline; i++) {
+            switch (i % 4) {
+                case 0:
+                    replies[i] = StatusReply.OK;
+                    break;
+                case 1:
+                    replies[i] = new IntegerReply((long) i);
+                    break;
+                case 2:
+                    replies[i] = new BulkReply(value);
+                    break;
+                default:
+                    replies[i] = new MultiBulkReply(new Reply[]{new BulkReply(value), new BulkReply(value), BulkReply.NIL_REPLY});
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void commandPackEncoder(Blackhole blackhole) {
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            futureList.add(new CompletableFuture<>());
+        }
+        CommandPack pack = commandPackRecycler.newInstance(commands, futureList, System.nanoTime());
+        commandChannel.writeOutbound(pack);
+        drain(commandChannel, blackhole);
+        queue.clear();
+    }
+
+    @Benchmark
+    public void replyEncoder(Blackhole blackhole) {
+        //ReplyPack乱序到达时ReplyEncoder需要暂存，这里倒序写入每一对，覆盖重排路径
+        for (int i = 0; i < replies.length; i += 2) {
+            if (i + 1 < replies.length) {
+                replyChannel.write(new ReplyPack(replies[i + 1], replyId + i + 2));
+            }
+            replyChannel.write(new ReplyPack(replies[i], replyId + i + 1));
+        }
+        replyId += replies.length;
+        replyChannel.flush();
+        drain(replyChannel, blackhole);
+    }
+
+    private void drain(EmbeddedChannel channel, Blackhole blackhole) {
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ByteBuf buf = (ByteBuf) msg;
+            blackhole.consume(buf.readableBytes());
+            buf.release();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        commandChannel.finishAndReleaseAll();
+        replyChannel.finishAndReleaseAll();
+    }
+}
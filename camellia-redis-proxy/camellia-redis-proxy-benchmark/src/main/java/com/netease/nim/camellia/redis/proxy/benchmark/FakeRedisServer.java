@@ -0,0 +1,83 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.netty.CommandDecoder;
+import com.netease.nim.camellia.redis.proxy.netty.ReplyEncoder;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * 进程内的假redis，复用proxy的CommandDecoder/ReplyEncoder，对所有key的GET返回固定value，用于端到端压测时排除后端redis的开销
+ */
+public class FakeRedisServer {
+
+    private final EventLoopGroup bossGroup = new NioEventLoopGroup(1);
+    private final EventLoopGroup workGroup = new NioEventLoopGroup(2);
+    private final BulkReply value;
+    private int port;
+
+    public FakeRedisServer(byte[] value) {
+        this.value = new BulkReply(value);
+    }
+
+    public int start() throws Exception {
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new CommandDecoder(256, 32));
+                        channel.pipeline().addLast(new ReplyEncoder());
+                        channel.pipeline().addLast(new FakeRedisHandler());
+                    }
+                });
+        Channel channel = bootstrap.bind("127.0.0.1", 0).sync().channel();
+        port = ((InetSocketAddress) channel.localAddress()).getPort();
+        return port;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void stop() {
+        bossGroup.shutdownGracefully();
+        workGroup.shutdownGracefully();
+    }
+
+    private class FakeRedisHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            @SuppressWarnings("unchecked")
+            List<Command> commands = (List<Command>) msg;
+            for (Command command : commands) {
+                ctx.write(reply(command));
+                command.release();
+            }
+            ctx.flush();
+        }
+
+        private Reply reply(Command command) {
+            RedisCommand redisCommand = command.getRedisCommand();
+            if (redisCommand == RedisCommand.GET) {
+                return value;
+            } else if (redisCommand == RedisCommand.PING) {
+                return StatusReply.PONG;
+            } else if (redisCommand == RedisCommand.DEL || redisCommand == RedisCommand.EXISTS) {
+                return IntegerReply.REPLY_1;
+            } else {
+                return StatusReply.OK;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.auth.IdentityInfo;
+import com.netease.nim.camellia.redis.proxy.plugin.hotkeycache.DummyHotKeyCacheStatsCallback;
+import com.netease.nim.camellia.redis.proxy.plugin.hotkeycache.HotKeyCache;
+import com.netease.nim.camellia.redis.proxy.plugin.hotkeycache.HotKeyCacheConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HotKeyCache.getCache，hotRatio表示请求中访问热key（已被本地缓存）的比例，其余为冷key（只计数）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotKeyCacheBenchmark {
+
+    private static final int HOT_KEYS = 64;
+    private static final int KEYS = 8192;
+
+    @Param({"0", "50", "95"})
+    private int hotRatio;
+
+    private HotKeyCache hotKeyCache;
+    private byte[][] keys;
+
+    @State(Scope.Thread)
+    public static class Index {
+        private int index;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        //避免测试过程中本地缓存过期
+        BenchmarkUtils.updateConf("hot.key.cache.expire.millis", String.valueOf(TimeUnit.HOURS.toMillis(1)));
+        HotKeyCacheConfig config = new HotKeyCacheConfig();
+        config.setHotKeyCacheStatsCallback(new DummyHotKeyCacheStatsCallback());
+        hotKeyCache = new HotKeyCache(new IdentityInfo(1L, "default"), config);
+        byte[][] hotKeys = new byte[HOT_KEYS][];
+        byte[] value = BenchmarkUtils.randomValue(128);
+        for (int i = 0; i < HOT_KEYS; i++) {
+            hotKeys[i] = BenchmarkUtils.randomValue(32);
+            //先访问超过阈值次数，再回填value，使其成为本地缓存的热key
+            for (int j = 0; j < 1000; j++) {
+                hotKeyCache.getCache(hotKeys[i]);
+            }
+            hotKeyCache.tryBuildHotKeyCache(hotKeys[i], value);
+        }
+        keys = new byte[KEYS][];
+        for (int i = 0; i < KEYS; i++) {
+            if (ThreadLocalRandom.current().nextInt(100) < hotRatio) {
+                keys[i] = hotKeys[ThreadLocalRandom.current().nextInt(HOT_KEYS)];
+            } else {
+                keys[i] = BenchmarkUtils.randomValue(32);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object getCache1(Index index) {
+        return getCache(index);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object getCache4(Index index) {
+        return getCache(index);
+    }
+
+    private Object getCache(Index index) {
+        index.index = (index.index + 1) & (KEYS - 1);
+        return hotKeyCache.getCache(keys[index.index]);
+    }
+}
@@ -0,0 +1,109 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.util.CamelliaRedisProxyStarter;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测：客户端 -> proxy -> 进程内的FakeRedisServer
+ * <p> 每次调用发送pipeline个GET，并读取完整的回包
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ProxyEndToEndBenchmark {
+
+    private static final int VALUE_SIZE = 128;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        private FakeRedisServer fakeRedisServer;
+        private int proxyPort;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            fakeRedisServer = new FakeRedisServer(BenchmarkUtils.randomValue(VALUE_SIZE));
+            int redisPort = fakeRedisServer.start();
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                proxyPort = serverSocket.getLocalPort();
+            }
+            CamelliaRedisProxyStarter.updatePort(proxyPort);
+            CamelliaRedisProxyStarter.updateRouteConf("redis://@127.0.0.1:" + redisPort);
+            CamelliaRedisProxyStarter.start();
+            if (!CamelliaRedisProxyStarter.isStart()) {
+                throw new IllegalStateException("proxy start fail");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            fakeRedisServer.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        @Param({"1", "16", "128"})
+        private int pipeline;
+
+        private Socket socket;
+        private OutputStream out;
+        private InputStream in;
+        private byte[] request;
+        private byte[] response;
+
+        @Setup(Level.Trial)
+        public void setup(Server server) throws IOException {
+            socket = new Socket("127.0.0.1", server.proxyPort);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = socket.getInputStream();
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            for (int i = 0; i < pipeline; i++) {
+                String key = "benchmark:key:" + i;
+                buf.write(Utils.stringToBytes("*2\r\n$3\r\nGET\r\n$" + key.length() + "\r\n" + key + "\r\n"));
+            }
+            request = buf.toByteArray();
+            //每个GET的回包固定为 $128\r\n<value>\r\n
+            int replySize = ("$" + VALUE_SIZE + "\r\n").length() + VALUE_SIZE + 2;
+            response = new byte[replySize * pipeline];
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] get(Client client) throws IOException {
+        client.out.write(client.request);
+        client.out.flush();
+        int read = 0;
+        byte[] response = client.response;
+        while (read < response.length) {
+            int n = client.in.read(response, read, response.length - read);
+            if (n < 0) {
+                throw new IOException("connection closed");
+            }
+            read += n;
+        }
+        if (response[0] != '$') {
+            throw new IllegalStateException("unexpected reply: " + Utils.bytesToString(response));
+        }
+        return response;
+    }
+}
@@ -0,0 +1,64 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.util.QuantileCollector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuantileCollector.update，每个请求都会调用一次，多线程并发更新同一个collector
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuantileCollectorBenchmark {
+
+    private static final int VALUES = 4096;
+
+    private QuantileCollector collector;
+    private int[] values;
+
+    @State(Scope.Thread)
+    public static class Index {
+        private int index;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        collector = new QuantileCollector();
+        collector.init();
+        values = new int[VALUES];
+        //单位是0.01ms，绝大多数落在1ms以内，少量长尾
+        for (int i = 0; i < VALUES; i++) {
+            int r = ThreadLocalRandom.current().nextInt(100);
+            if (r < 90) {
+                values[i] = ThreadLocalRandom.current().nextInt(100);
+            } else if (r < 99) {
+                values[i] = ThreadLocalRandom.current().nextInt(10000);
+            } else {
+                values[i] = ThreadLocalRandom.current().nextInt(2000000);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void update1(Index index) {
+        update(index);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void update4(Index index) {
+        update(index);
+    }
+
+    private void update(Index index) {
+        index.index = (index.index + 1) & (VALUES - 1);
+        collector.update(values[index.index]);
+    }
+}
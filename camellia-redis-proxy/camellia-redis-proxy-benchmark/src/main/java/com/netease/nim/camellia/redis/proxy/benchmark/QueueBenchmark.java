@@ -0,0 +1,87 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.command.CommandTask;
+import com.netease.nim.camellia.redis.proxy.command.DefaultQueueFactory;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DefaultQueueFactory生成的各种队列实现
+ * <p> reply队列是单生产者单消费者（同一个后端连接的eventLoop入队，同一个eventLoop出队），使用单线程offer/poll
+ * <p> task队列是多生产者多消费者，使用group让多个线程并发offer/poll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueBenchmark {
+
+    private static final int BATCH = 64;
+
+    @State(Scope.Thread)
+    public static class ReplyQueueState {
+
+        @Param({"LinkedBlockingQueue", "ArrayBlockingQueue", "ConcurrentLinkedQueue", "SpscLinkedQueue",
+                "SpscLinkedAtomicQueue", "SpscArrayQueue", "SpscAtomicArrayQueue", "ArrayDeque", "LinkedList"})
+        private String replyQueueType;
+
+        private Queue<CompletableFuture<Reply>> queue;
+        private final CompletableFuture<Reply> future = new CompletableFuture<>();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            BenchmarkUtils.updateConf("command.reply.queue.type", replyQueueType);
+            queue = new DefaultQueueFactory().generateCommandReplyQueue();
+        }
+    }
+
+    @State(Scope.Group)
+    public static class TaskQueueState {
+
+        @Param({"LinkedBlockingQueue", "ArrayBlockingQueue", "ConcurrentLinkedQueue", "MpmcArrayQueue", "MpmcAtomicArrayQueue"})
+        private String taskQueueType;
+
+        private Queue<CommandTask> queue;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            BenchmarkUtils.updateConf("command.task.queue.type", taskQueueType);
+            queue = new DefaultQueueFactory().generateCommandTaskQueue();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void replyQueueOfferPoll(ReplyQueueState state, Blackhole blackhole) {
+        Queue<CompletableFuture<Reply>> queue = state.queue;
+        for (int i = 0; i < BATCH; i++) {
+            queue.offer(state.future);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(queue.poll());
+        }
+    }
+
+    @Benchmark
+    @Group("taskQueue")
+    @GroupThreads(2)
+    public boolean taskQueueOffer(TaskQueueState state) {
+        //CommandTask的内容与队列性能无关，使用一个占位对象
+        return state.queue.offer(PLACEHOLDER);
+    }
+
+    @Benchmark
+    @Group("taskQueue")
+    @GroupThreads(2)
+    public CommandTask taskQueuePoll(TaskQueueState state) {
+        return state.queue.poll();
+    }
+
+    private static final CommandTask PLACEHOLDER = new CommandTask(null, null, null);
+}
@@ -0,0 +1,64 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.netty.ReplyDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReplyDecoder解析后端redis的pipeline回包，包含status/integer/bulk/multi-bulk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplyDecoderBenchmark {
+
+    @Param({"1", "32", "256"})
+    private int pipeline;
+
+    @Param({"16", "1024", "2097152"})
+    private int valueSize;
+
+    @Param({"65536"})
+    private int chunkSize;
+
+    private EmbeddedChannel channel;
+    private List<ByteBuf> chunks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channel = new EmbeddedChannel(new ReplyDecoder());
+        int replies = valueSize > 1024*1024 ? Math.min(pipeline, 4) : pipeline;
+        ByteBuf buf = BenchmarkUtils.pipelineReplies(replies, valueSize);
+        chunks = BenchmarkUtils.split(ByteBufAllocator.DEFAULT, buf, chunkSize);
+        buf.release();
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (ByteBuf chunk : chunks) {
+            //和真实的socket read一样，每次都是新分配的ByteBuf，避免cumulator写入共享的chunk
+            channel.writeInbound(BenchmarkUtils.copy(ByteBufAllocator.DEFAULT, chunk));
+        }
+        Object reply;
+        while ((reply = channel.readInbound()) != null) {
+            blackhole.consume(reply);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        for (ByteBuf chunk : chunks) {
+            chunk.release();
+        }
+    }
+}
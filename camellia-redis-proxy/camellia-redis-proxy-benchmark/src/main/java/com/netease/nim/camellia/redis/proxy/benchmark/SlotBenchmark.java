@@ -0,0 +1,52 @@
+package com.netease.nim.camellia.redis.proxy.benchmark;
+
+import com.netease.nim.camellia.redis.proxy.util.RedisClusterCRC16Utils;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisClusterCRC16Utils.getSlot，分别覆盖普通key和带hashtag的key
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SlotBenchmark {
+
+    @Param({"16", "64", "256"})
+    private int keySize;
+
+    private static final int KEYS = 1024;
+    private byte[][] keys;
+    private byte[][] hashTagKeys;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = new byte[KEYS][];
+        hashTagKeys = new byte[KEYS][];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = BenchmarkUtils.randomValue(keySize);
+            byte[] key = BenchmarkUtils.randomValue(keySize);
+            byte[] tag = Utils.stringToBytes("{user" + i + "}");
+            System.arraycopy(tag, 0, key, 0, Math.min(tag.length, key.length));
+            hashTagKeys[i] = key;
+        }
+    }
+
+    @Benchmark
+    public int getSlot() {
+        index = (index + 1) & (KEYS - 1);
+        return RedisClusterCRC16Utils.getSlot(keys[index]);
+    }
+
+    @Benchmark
+    public int getSlotWithHashTag() {
+        index = (index + 1) & (KEYS - 1);
+        return RedisClusterCRC16Utils.getSlot(hashTagKeys[index]);
+    }
+}
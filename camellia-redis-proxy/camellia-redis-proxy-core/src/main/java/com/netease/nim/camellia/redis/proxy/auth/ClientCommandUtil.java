@@ -7,6 +7,7 @@ import com.netease.nim.camellia.redis.proxy.monitor.ChannelMonitor;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.reply.BulkReply;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
+import com.netease.nim.camellia.redis.proxy.reply.IntegerReply;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
 import com.netease.nim.camellia.redis.proxy.reply.StatusReply;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
@@ -40,6 +41,12 @@ public class ClientCommandUtil {
                         return new BulkReply(Utils.stringToBytes(clientInfo(channelInfo)));
                     }
                 }
+                boolean id = Utils.checkStringIgnoreCase(objects[1], RedisKeyword.ID.name());
+                if (id) {
+                    if (channelInfo != null) {
+                        return new IntegerReply(channelInfo.getId());
+                    }
+                }
                 boolean list = Utils.checkStringIgnoreCase(objects[1], RedisKeyword.LIST.name());
                 if (list) {
                     return new BulkReply(Utils.stringToBytes(clientList()));
@@ -6,12 +6,17 @@ import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.util.KeyParser;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
 
 import java.util.List;
 
 public class Command {
 
     private byte[][] objects;
+    //zero-copy模式下，较大的参数以ByteBuf的形式持有（对应的objects[i]为null），在需要byte[]时才会拷贝
+    private volatile ByteBuf[] retainedArgs;
+    //持有的ByteBuf参数是否已经释放（释放后objects中对应位置仍为null，命令不能再下发给upstream）
+    private volatile boolean released = false;
     private String name;
     private RedisCommand redisCommand;
     private ChannelInfo channelInfo;
@@ -26,7 +31,18 @@ public class Command {
         this.objects = objects;
     }
 
+    /**
+     * zero-copy模式下由CommandDecoder使用
+     * @param objects args，retainedArgs中不为null的位置，objects对应位置为null
+     * @param retainedArgs retained slice of inbound ByteBuf
+     */
+    public Command(byte[][] objects, ByteBuf[] retainedArgs) {
+        this.objects = objects;
+        this.retainedArgs = retainedArgs;
+    }
+
     public void updateObjects(byte[][] args) {
+        release();
         this.objects = args;
         this.name = null;
         this.keys = null;
@@ -51,9 +67,86 @@ public class Command {
     }
 
     public byte[][] getObjects() {
+        if (retainedArgs != null) {
+            materialize();
+        }
+        return objects;
+    }
+
+    /**
+     * 获取args，但不触发ByteBuf参数的拷贝，只能用于读取命令名和第一个key（args[0]和args[1]一定不为null），或者给upstream编码使用（需要配合retainedArgsForWrite）
+     * @return args，持有ByteBuf参数的位置可能为null
+     */
+    public byte[][] getRawObjects() {
         return objects;
     }
 
+    /**
+     * 是否还持有未拷贝的ByteBuf参数
+     * @return true/false
+     */
+    public boolean hasRetainedArgs() {
+        return retainedArgs != null;
+    }
+
+    /**
+     * 把持有的ByteBuf参数拷贝为byte[]，并释放ByteBuf
+     */
+    public synchronized void materialize() {
+        ByteBuf[] args = retainedArgs;
+        if (args == null) return;
+        for (int i = 0; i < args.length; i++) {
+            ByteBuf buf = args[i];
+            if (buf != null) {
+                byte[] bytes = new byte[buf.readableBytes()];
+                buf.getBytes(buf.readerIndex(), bytes);
+                objects[i] = bytes;
+                buf.release();
+            }
+        }
+        retainedArgs = null;
+    }
+
+    /**
+     * 给upstream编码使用，返回持有的ByteBuf参数的retainedDuplicate，由调用方负责释放
+     * @return 如果没有持有ByteBuf参数，返回null
+     */
+    public synchronized ByteBuf[] retainedArgsForWrite() {
+        ByteBuf[] args = retainedArgs;
+        if (args == null) return null;
+        ByteBuf[] result = new ByteBuf[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] != null) {
+                result[i] = args[i].retainedDuplicate();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 返回给客户端之后释放持有的ByteBuf参数，之后不会再访问这些参数
+     * <p> 只释放ByteBuf，不会修改objects，已经编码的命令持有的是retainedDuplicate，不受影响；释放后的命令不能再编码下发
+     */
+    public synchronized void release() {
+        ByteBuf[] args = retainedArgs;
+        if (args == null) return;
+        for (ByteBuf buf : args) {
+            if (buf != null) {
+                buf.release();
+            }
+        }
+        retainedArgs = null;
+        released = true;
+    }
+
+    /**
+     * 持有的ByteBuf参数是否已经释放
+     * @return true/false
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
     public void clearKeysCache() {
         keysStr = null;
         keys = null;
@@ -141,6 +234,7 @@ public class Command {
     }
 
     public void fillParameters(Class<?>[] parameterTypes, Object[] parameters) {
+        byte[][] objects = getObjects();
         int position = 0;
         for (Class<?> type : parameterTypes) {
             if (type == byte[].class) {
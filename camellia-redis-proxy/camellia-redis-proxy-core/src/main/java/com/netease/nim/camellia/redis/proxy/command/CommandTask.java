@@ -30,6 +30,17 @@ public class CommandTask {
     }
 
     public void replyCompleted(Reply reply, boolean fromPlugin) {
+        try {
+            replyCompleted0(reply, fromPlugin);
+        } finally {
+            if (command != null) {
+                //zero-copy模式下释放命令持有的ByteBuf参数
+                command.release();
+            }
+        }
+    }
+
+    private void replyCompleted0(Reply reply, boolean fromPlugin) {
         try {
             if (plugins != null && !plugins.isEmpty()) {
                 ProxyReply proxyReply = new ProxyReply(command, reply, fromPlugin);
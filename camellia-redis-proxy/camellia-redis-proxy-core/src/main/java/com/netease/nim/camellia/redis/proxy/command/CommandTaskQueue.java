@@ -1,5 +1,6 @@
 package com.netease.nim.camellia.redis.proxy.command;
 
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.netty.GlobalRedisProxyEnv;
@@ -11,9 +12,11 @@ import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -28,14 +31,33 @@ public class CommandTaskQueue {
     private static final Logger logger = LoggerFactory.getLogger(CommandTaskQueue.class);
 
     private final ChannelInfo channelInfo;
-    private final Queue<CommandTask> queue = GlobalRedisProxyEnv.getQueueFactory().generateCommandTaskQueue();
-    private final AtomicBoolean callbacking = new AtomicBoolean(false);
+    private final Queue<CommandTask> queue;
+    private final AtomicBoolean callbacking;
     private final AtomicLong id = new AtomicLong(0);
 
+    //严格的eventLoop亲和模式下，队列只在客户端连接所在的eventLoop上访问，不需要并发控制
+    private final EventLoop eventLoop;
+    private final int capacity;
+    private final Runnable callbackTask;
+    private boolean callbackingInEventLoop = false;
+
     private List<ProxyPlugin> plugins;
 
     public CommandTaskQueue(ChannelInfo channelInfo) {
         this.channelInfo = channelInfo;
+        if (GlobalRedisProxyEnv.isStrictEventLoopAffinityEnable()) {
+            this.eventLoop = channelInfo.getCtx().channel().eventLoop();
+            this.capacity = ProxyDynamicConf.getInt("command.task.queue.capacity", 1024*32);
+            this.queue = new ArrayDeque<>();
+            this.callbacking = null;
+            this.callbackTask = this::callback;
+        } else {
+            this.eventLoop = null;
+            this.capacity = -1;
+            this.queue = GlobalRedisProxyEnv.getQueueFactory().generateCommandTaskQueue();
+            this.callbacking = new AtomicBoolean(false);
+            this.callbackTask = null;
+        }
     }
 
     public ChannelInfo getChannelInfo() {
@@ -47,7 +69,7 @@ public class CommandTaskQueue {
             return true;
         }
         plugins = task.getPlugins();
-        boolean offer = queue.offer(task);
+        boolean offer = (capacity <= 0 || queue.size() < capacity) && queue.offer(task);
         if (!offer) {
             logger.warn("CommandTaskQueue full, consid = {}", channelInfo.getConsid());
         }
@@ -55,6 +77,10 @@ public class CommandTaskQueue {
     }
 
     public void clear() {
+        if (eventLoop != null && !eventLoop.inEventLoop()) {
+            eventLoop.execute(queue::clear);
+            return;
+        }
         queue.clear();
     }
 
@@ -63,52 +89,73 @@ public class CommandTaskQueue {
     }
 
     public void callback() {
+        if (eventLoop != null) {
+            if (!eventLoop.inEventLoop()) {
+                //回包来自其他线程（如不在同一个eventLoop上的后端连接），切换到客户端连接的eventLoop再处理
+                eventLoop.execute(callbackTask);
+                return;
+            }
+            if (callbackingInEventLoop) {
+                return;
+            }
+            callbackingInEventLoop = true;
+            try {
+                callback0();
+            } finally {
+                callbackingInEventLoop = false;
+            }
+            return;
+        }
         if (callbacking.compareAndSet(false, true)) {
             try {
-                if (queue.isEmpty()) {
-                    return;
-                }
-                ChannelFuture future = null;
-                do {
-                    CommandTask task = queue.peek();
-                    Reply reply = task.getReply();
-                    if (reply != null) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("CommandTaskQueue callback, command = {}, reply = {}, consid = {}",
-                                    task.getCommand() == null ? null : task.getCommand().getName(),
-                                    reply.getClass().getSimpleName(), channelInfo.getConsid());
-                        }
-                        future = channelInfo.getCtx().writeAndFlush(new ReplyPack(reply, id.incrementAndGet()));
-                        queue.poll();
-                    } else {
-                        break;
-                    }
-                } while (!queue.isEmpty());
-                //check subscribe
-                if (channelInfo.isInSubscribe()) {
-                    RedisConnection bindConnection = channelInfo.getBindConnection();
-                    if (bindConnection == null || !bindConnection.isValid()) {
-                        if (future == null) {
-                            logger.warn("client connection in subscribe status forced disconnect" +
-                                            " because bind redis connection is null or invalid, bindConnection = {}, consid = {} in task queue without future",
-                                    bindConnection == null ? null : bindConnection.getConnectionName(), channelInfo.getConsid());
-                            channelInfo.getCtx().close();
-                        } else {
-                            future.addListener((ChannelFutureListener) channelFuture -> {
-                                logger.warn("client connection in subscribe status forced disconnect" +
-                                                " because bind redis connection is null or invalid, bindConnection = {}, consid = {} in task queue with future",
-                                        bindConnection == null ? null : bindConnection.getConnectionName(), channelInfo.getConsid());
-                                channelInfo.getCtx().close();
-                            });
-                        }
-                    }
-                }
+                callback0();
             } finally {
                 callbacking.compareAndSet(true, false);
             }
         }
     }
 
+    private void callback0() {
+        if (queue.isEmpty()) {
+            return;
+        }
+        ChannelFuture future = null;
+        do {
+            CommandTask task = queue.peek();
+            Reply reply = task.getReply();
+            if (reply != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("CommandTaskQueue callback, command = {}, reply = {}, consid = {}",
+                            task.getCommand() == null ? null : task.getCommand().getName(),
+                            reply.getClass().getSimpleName(), channelInfo.getConsid());
+                }
+                future = channelInfo.getCtx().writeAndFlush(new ReplyPack(reply, id.incrementAndGet()));
+                queue.poll();
+            } else {
+                break;
+            }
+        } while (!queue.isEmpty());
+        //check subscribe
+        if (channelInfo.isInSubscribe()) {
+            RedisConnection bindConnection = channelInfo.getBindConnection();
+            if (bindConnection == null || !bindConnection.isValid()) {
+                if (future == null) {
+                    logger.warn("client connection in subscribe status forced disconnect" +
+                                    " because bind redis connection is null or invalid, bindConnection = {}, consid = {} in task queue without future",
+                            bindConnection == null ? null : bindConnection.getConnectionName(), channelInfo.getConsid());
+                    channelInfo.getCtx().close();
+                } else {
+                    future.addListener((ChannelFutureListener) channelFuture -> {
+                        logger.warn("client connection in subscribe status forced disconnect" +
+                                        " because bind redis connection is null or invalid, bindConnection = {}, consid = {} in task queue with future",
+                                bindConnection == null ? null : bindConnection.getConnectionName(), channelInfo.getConsid());
+                        channelInfo.getCtx().close();
+                    });
+                }
+            }
+        }
+    }
+
     public void reply(RedisCommand redisCommand, Reply reply, boolean fromPlugin) {
         if (!channelInfo.isInSubscribe()) {
             return;
@@ -18,6 +18,7 @@ import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
 import com.netease.nim.camellia.redis.proxy.reply.StatusReply;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingManager;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
 import com.netease.nim.camellia.redis.proxy.util.Utils;
@@ -87,6 +88,7 @@ public class CommandsTransponder {
                 channelInfo.getCtx().channel().close();
                 logger.warn("too many connects, connect will be force closed, consid = {}, client.addr = {}",
                         channelInfo.getConsid(), channelInfo.getCtx().channel().remoteAddress());
+                releaseUnsentCommands(Collections.emptyList(), commands, null);
                 return;
             }
 
@@ -97,6 +99,11 @@ public class CommandsTransponder {
                 //设置channelInfo
                 command.setChannelInfo(channelInfo);
 
+                //开启了client tracking的连接，记录读过的key
+                if (channelInfo.getClientTrackingInfo() != null) {
+                    ClientTrackingManager.getInstance().track(channelInfo, command);
+                }
+
                 //任务
                 CommandTask task = new CommandTask(taskQueue, command, proxyPluginInitResp.getReplyPlugins());
                 boolean add = taskQueue.add(task);
@@ -104,6 +111,7 @@ public class CommandsTransponder {
                     taskQueue.clear();
                     logger.warn("CommandTaskQueue full, client connect will be disconnect, remote.ip = {}", ctx.channel().remoteAddress());
                     ctx.writeAndFlush(ErrorReply.TOO_BUSY).addListener((ChannelFutureListener) future -> ctx.close());
+                    releaseUnsentCommands(tasks, commands, command);
                     return;
                 }
 
@@ -170,6 +178,7 @@ public class CommandsTransponder {
                     //quit命令直接断开连接
                     if (redisCommand == RedisCommand.QUIT) {
                         channelInfo.getCtx().close();
+                        releaseUnsentCommands(tasks, commands, command);
                         return;
                     }
 
@@ -179,7 +188,10 @@ public class CommandsTransponder {
                         Reply reply = authCommandProcessor.invokeAuthCommand(channelInfo, command);
                         if (!hasBidBgroup) {
                             boolean pass = checkConnectLimit(channelInfo);
-                            if (!pass) return;
+                            if (!pass) {
+                                releaseUnsentCommands(tasks, commands, command);
+                                return;
+                            }
                         }
                         task.replyCompleted(reply);
                         hasCommandsSkip = true;
@@ -192,7 +204,10 @@ public class CommandsTransponder {
                         Reply reply = HelloCommandUtil.invokeHelloCommand(channelInfo, authCommandProcessor, command);
                         if (!hasBidBgroup) {
                             boolean pass = checkConnectLimit(channelInfo);
-                            if (!pass) return;
+                            if (!pass) {
+                                releaseUnsentCommands(tasks, commands, command);
+                                return;
+                            }
                         }
                         task.replyCompleted(reply);
                         hasCommandsSkip = true;
@@ -269,11 +284,21 @@ public class CommandsTransponder {
 
                     //client命令，可以用于选择路由
                     if (redisCommand == RedisCommand.CLIENT) {
+                        //client tracking命令
+                        if (ClientTrackingManager.getInstance().isClientTrackingCommand(command)) {
+                            CompletableFuture<Reply> future = ClientTrackingManager.getInstance().clientTracking(channelInfo, command, factory);
+                            future.thenAccept(task::replyCompleted);
+                            hasCommandsSkip = true;
+                            continue;
+                        }
                         boolean hasBidBgroup = channelInfo.getBid() != null && channelInfo.getBgroup() != null;
                         Reply reply = ClientCommandUtil.invokeClientCommand(channelInfo, command);
                         if (!hasBidBgroup) {
                             boolean pass = checkConnectLimit(channelInfo);
-                            if (!pass) return;
+                            if (!pass) {
+                                releaseUnsentCommands(tasks, commands, command);
+                                return;
+                            }
                         }
                         task.replyCompleted(reply);
                         hasCommandsSkip = true;
@@ -376,11 +401,28 @@ public class CommandsTransponder {
         if (channelInfo.isInSubscribe()) {
             CommandTaskQueue taskQueue = channelInfo.getCommandTaskQueue();
             taskQueue.reply(redisCommand, reply, fromPlugin);
+            task.getCommand().release();
         } else {
             task.replyCompleted(reply, fromPlugin);
         }
     }
 
+    //连接即将关闭，释放还未下发给后端的命令持有的ByteBuf参数（zero-copy模式）
+    private void releaseUnsentCommands(List<CommandTask> tasks, List<Command> commands, Command current) {
+        for (CommandTask task : tasks) {
+            task.getCommand().release();
+        }
+        boolean unsent = current == null;
+        for (Command command : commands) {
+            if (command == current) {
+                unsent = true;
+            }
+            if (unsent) {
+                command.release();
+            }
+        }
+    }
+
     private boolean checkConnectLimit(ChannelInfo channelInfo) {
         try {
             Long bid = channelInfo.getBid();
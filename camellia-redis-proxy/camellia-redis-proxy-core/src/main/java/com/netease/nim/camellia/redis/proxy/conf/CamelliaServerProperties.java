@@ -39,6 +39,7 @@ public class CamelliaServerProperties {
     private boolean clusterModeEnable = Constants.Server.clusterModeEnable;
     private String clusterModeProviderClassName = Constants.Server.clusterModeProviderClassName;
     private String queueFactoryClassName = Constants.Server.queueFactoryClassName;
+    private boolean strictEventLoopAffinityEnable = Constants.Server.strictEventLoopAffinityEnable;
 
     private NettyTransportMode nettyTransportMode = Constants.Server.nettyTransportMode;
     private int bossThread = 1;
@@ -56,6 +57,7 @@ public class CamelliaServerProperties {
     private int writeBufferWaterMarkHigh = Constants.Server.writeBufferWaterMarkHigh;
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
+    private int commandDecodeZeroCopyThreshold = Constants.Server.commandDecodeZeroCopyThreshold;
 
     public int getPort() {
         return port;
@@ -227,6 +229,14 @@ public class CamelliaServerProperties {
         this.queueFactoryClassName = queueFactoryClassName;
     }
 
+    public boolean isStrictEventLoopAffinityEnable() {
+        return strictEventLoopAffinityEnable;
+    }
+
+    public void setStrictEventLoopAffinityEnable(boolean strictEventLoopAffinityEnable) {
+        this.strictEventLoopAffinityEnable = strictEventLoopAffinityEnable;
+    }
+
     public NettyTransportMode getNettyTransportMode() {
         return nettyTransportMode;
     }
@@ -354,4 +364,12 @@ public class CamelliaServerProperties {
     public void setCommandDecodeBufferInitializerSize(int commandDecodeBufferInitializerSize) {
         this.commandDecodeBufferInitializerSize = commandDecodeBufferInitializerSize;
     }
+
+    public int getCommandDecodeZeroCopyThreshold() {
+        return commandDecodeZeroCopyThreshold;
+    }
+
+    public void setCommandDecodeZeroCopyThreshold(int commandDecodeZeroCopyThreshold) {
+        this.commandDecodeZeroCopyThreshold = commandDecodeZeroCopyThreshold;
+    }
 }
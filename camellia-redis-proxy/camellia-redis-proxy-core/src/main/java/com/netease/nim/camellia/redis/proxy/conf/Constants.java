@@ -32,6 +32,7 @@ public class Constants {
         public static final boolean clusterModeEnable = false;
         public static final String clusterModeProviderClassName = DefaultProxyClusterModeProvider.class.getName();
         public static final String queueFactoryClassName = DefaultQueueFactory.class.getName();
+        public static final boolean strictEventLoopAffinityEnable = false;
 
         public static final String upstreamClientTemplateFactoryClassName = UpstreamRedisClientTemplateFactory.class.getName();
 
@@ -40,6 +41,7 @@ public class Constants {
         public static final int workThread = SysUtils.getCpuNum();
         public static final int commandDecodeMaxBatchSize = 256;
         public static final int commandDecodeBufferInitializerSize = 32;
+        public static final int commandDecodeZeroCopyThreshold = -1;
 
         public static final NettyTransportMode nettyTransportMode = NettyTransportMode.nio;
         public static final boolean tcpNoDelay = true;
@@ -22,6 +22,7 @@ public enum RedisKeyword {
     STREAMS,BLOCK,
     SLOTS, NODES, INFO, PROXY_HEARTBEAT,
     DELETE,DUMP,RESTORE,STATS,
+    ID, TRACKING, ON, OFF, REDIRECT, BCAST, PREFIX, OPTIN, OPTOUT, NOLOOP,
     ;
 
     private final byte[] raw;
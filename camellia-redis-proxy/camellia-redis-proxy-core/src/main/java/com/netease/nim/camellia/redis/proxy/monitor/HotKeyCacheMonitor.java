@@ -1,6 +1,7 @@
 package com.netease.nim.camellia.redis.proxy.monitor;
 
 import com.netease.nim.camellia.redis.proxy.auth.IdentityInfo;
+import com.netease.nim.camellia.redis.proxy.monitor.model.HotKeyCacheCountStats;
 import com.netease.nim.camellia.redis.proxy.monitor.model.HotKeyCacheStats;
 import com.netease.nim.camellia.redis.proxy.plugin.hotkeycache.HotKeyCacheInfo;
 import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
@@ -23,6 +24,7 @@ public class HotKeyCacheMonitor {
     private static final Logger logger = LoggerFactory.getLogger(HotKeyMonitor.class);
 
     private static ConcurrentHashMap<String, HotKeyCacheStatsBean> statsMap = new ConcurrentHashMap<>();
+    private static ConcurrentHashMap<String, HotKeyCacheCountBean> countMap = new ConcurrentHashMap<>();
 
     public static void hotKeyCache(IdentityInfo identityInfo, HotKeyCacheInfo hotKeyCacheInfo,
                                    long checkMillis, long checkThreshold) {
@@ -45,6 +47,39 @@ public class HotKeyCacheMonitor {
         }
     }
 
+    public static void hotKeyCacheCount(IdentityInfo identityInfo, long hitCount, long missCount, long invalidateCount) {
+        try {
+            if (hitCount == 0 && missCount == 0 && invalidateCount == 0) return;
+            String bid = identityInfo.getBid() == null ? "default" : String.valueOf(identityInfo.getBid());
+            String bgroup = identityInfo.getBgroup() == null ? "default" : identityInfo.getBgroup();
+            String uniqueKey = bid + "|" + bgroup;
+            HotKeyCacheCountBean countBean = CamelliaMapUtils.computeIfAbsent(countMap, uniqueKey, k -> new HotKeyCacheCountBean());
+            countBean.bid = bid;
+            countBean.bgroup = bgroup;
+            countBean.hitCount.addAndGet(hitCount);
+            countBean.missCount.addAndGet(missCount);
+            countBean.invalidateCount.addAndGet(invalidateCount);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    public static List<HotKeyCacheCountStats> collectCountStats() {
+        ConcurrentHashMap<String, HotKeyCacheCountBean> countMap = HotKeyCacheMonitor.countMap;
+        HotKeyCacheMonitor.countMap = new ConcurrentHashMap<>();
+        List<HotKeyCacheCountStats> list = new ArrayList<>();
+        for (HotKeyCacheCountBean countBean : countMap.values()) {
+            HotKeyCacheCountStats stats = new HotKeyCacheCountStats();
+            stats.setBid(countBean.bid);
+            stats.setBgroup(countBean.bgroup);
+            stats.setHitCount(countBean.hitCount.get());
+            stats.setMissCount(countBean.missCount.get());
+            stats.setInvalidateCount(countBean.invalidateCount.get());
+            list.add(stats);
+        }
+        return list;
+    }
+
     public static List<HotKeyCacheStats> collect() {
         ConcurrentHashMap<String, HotKeyCacheStatsBean> statsMap = HotKeyCacheMonitor.statsMap;
         HotKeyCacheMonitor.statsMap = new ConcurrentHashMap<>();
@@ -71,4 +106,12 @@ public class HotKeyCacheMonitor {
         long checkThreshold;
     }
 
+    private static class HotKeyCacheCountBean {
+        String bid;
+        String bgroup;
+        AtomicLong hitCount = new AtomicLong();
+        AtomicLong missCount = new AtomicLong();
+        AtomicLong invalidateCount = new AtomicLong();
+    }
+
 }
@@ -113,6 +113,13 @@ public class LoggingMonitorCallback implements MonitorCallback {
                         hotKeyCacheStats.getBgroup(), hotKeyCacheStats.getKey(),
                         hotKeyCacheStats.getHitCount(), hotKeyCacheStats.getCheckMillis(), hotKeyCacheStats.getCheckThreshold());
             }
+            logger.info("====hot.key.cache.count.stats====");
+            List<HotKeyCacheCountStats> hotKeyCacheCountStatsList = stats.getHotKeyCacheCountStatsList();
+            for (HotKeyCacheCountStats hotKeyCacheCountStats : hotKeyCacheCountStatsList) {
+                logger.info("bid={},bgroup={},hitCount={},missCount={},invalidateCount={}", hotKeyCacheCountStats.getBid(),
+                        hotKeyCacheCountStats.getBgroup(), hotKeyCacheCountStats.getHitCount(),
+                        hotKeyCacheCountStats.getMissCount(), hotKeyCacheCountStats.getInvalidateCount());
+            }
 
             logger.info("====slow.command.stats====");
             List<SlowCommandStats> slowCommandStatsList = stats.getSlowCommandStatsList();
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 统计到后端redis的连接数
@@ -22,6 +23,9 @@ public class RedisConnectionMonitor {
 
     private static final ConcurrentHashMap<RedisConnectionAddr, ConcurrentHashMap<String, RedisConnection>> redisClientMap = new ConcurrentHashMap<>();
 
+    private static final LongAdder flushCount = new LongAdder();
+    private static final LongAdder flushPackCount = new LongAdder();
+
     /**
      * 统计RedisClient，增加
      * @param redisConnection RedisClient
@@ -73,6 +77,15 @@ public class RedisConnectionMonitor {
         }
     }
 
+    /**
+     * 统计到后端redis的flush次数，以及每次flush包含的CommandPack个数
+     * @param packs CommandPack count
+     */
+    public static void flush(int packs) {
+        flushCount.increment();
+        flushPackCount.add(packs);
+    }
+
     public static ConcurrentHashMap<RedisConnectionAddr, ConcurrentHashMap<String, RedisConnection>> getRedisClientMap() {
         return redisClientMap;
     }
@@ -91,6 +104,8 @@ public class RedisConnectionMonitor {
             detailList.add(detail);
         }
         redisConnectStats.setDetailList(detailList);
+        redisConnectStats.setFlushCount(flushCount.sumThenReset());
+        redisConnectStats.setFlushPackCount(flushPackCount.sumThenReset());
         return redisConnectStats;
     }
 }
@@ -209,6 +209,9 @@ public class StatsJsonConverter {
         JSONArray redisConnectTotalStatsJsonArray = new JSONArray();
         JSONObject redisConnectTotalStatsJson = new JSONObject();
         redisConnectTotalStatsJson.put("connect", redisConnectStats.getConnectCount());
+        redisConnectTotalStatsJson.put("flushQps", redisConnectStats.getFlushCount() / (stats.getIntervalSeconds() * 1.0));
+        redisConnectTotalStatsJson.put("avgPacksPerFlush", redisConnectStats.getFlushCount() == 0 ? 0.0
+                : redisConnectStats.getFlushPackCount() / (redisConnectStats.getFlushCount() * 1.0));
         redisConnectTotalStatsJsonArray.add(redisConnectTotalStatsJson);
         monitorJson.put("redisConnectStats", redisConnectTotalStatsJsonArray);
 
@@ -303,6 +306,19 @@ public class StatsJsonConverter {
         }
         monitorJson.put("hotKeyCacheStats", hotKeyCacheStatsJsonArray);
 
+        List<HotKeyCacheCountStats> hotKeyCacheCountStatsList = stats.getHotKeyCacheCountStatsList();
+        JSONArray hotKeyCacheCountStatsJsonArray = new JSONArray();
+        for (HotKeyCacheCountStats hotKeyCacheCountStats : hotKeyCacheCountStatsList) {
+            JSONObject hotKeyCacheCountStatsJson = new JSONObject();
+            hotKeyCacheCountStatsJson.put("bid", hotKeyCacheCountStats.getBid());
+            hotKeyCacheCountStatsJson.put("bgroup", hotKeyCacheCountStats.getBgroup());
+            hotKeyCacheCountStatsJson.put("hitCount", hotKeyCacheCountStats.getHitCount());
+            hotKeyCacheCountStatsJson.put("missCount", hotKeyCacheCountStats.getMissCount());
+            hotKeyCacheCountStatsJson.put("invalidateCount", hotKeyCacheCountStats.getInvalidateCount());
+            hotKeyCacheCountStatsJsonArray.add(hotKeyCacheCountStatsJson);
+        }
+        monitorJson.put("hotKeyCacheCountStats", hotKeyCacheCountStatsJsonArray);
+
         List<UpstreamFailStats> upstreamFailStatsList = stats.getUpstreamFailStatsList();
         JSONArray upstreamFailStatsJsonArray = new JSONArray();
         for (UpstreamFailStats upstreamFailStats : upstreamFailStatsList) {
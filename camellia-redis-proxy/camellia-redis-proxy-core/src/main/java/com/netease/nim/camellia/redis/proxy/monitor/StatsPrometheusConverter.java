@@ -165,6 +165,15 @@ public class StatsPrometheusConverter {
                 sb.append(String.format("redis_proxy_redis_connect_stats{redis_addr=\"%s\",} %d\n", detail.getAddr(), detail.getConnectCount()));
             }
 
+            // ====redis.flush.stats====
+            sb.append("# HELP redis_proxy_redis_flush_qps Redis Proxy Redis Flush Qps\n");
+            sb.append("# TYPE redis_proxy_redis_flush_qps gauge\n");
+            sb.append(String.format("redis_proxy_redis_flush_qps %f\n", redisConnectStats.getFlushCount() / (stats.getIntervalSeconds() * 1.0)));
+            sb.append("# HELP redis_proxy_redis_flush_avg_packs Redis Proxy Redis Avg Packs Per Flush\n");
+            sb.append("# TYPE redis_proxy_redis_flush_avg_packs gauge\n");
+            sb.append(String.format("redis_proxy_redis_flush_avg_packs %f\n", redisConnectStats.getFlushCount() == 0 ? 0.0
+                    : redisConnectStats.getFlushPackCount() / (redisConnectStats.getFlushCount() * 1.0)));
+
             // ====upstream.redis.spend.stats====
             sb.append("# HELP redis_proxy_upstream_redis_spend_stats Redis Proxy Upstream Redis Spend Stats\n");
             sb.append("# TYPE redis_proxy_upstream_redis_spend_stats summary\n");
@@ -249,6 +258,17 @@ public class StatsPrometheusConverter {
                         entry.getValue()));
             }
 
+            // ====hot.key.cache.count.stats====
+            sb.append("# HELP redis_proxy_hot_key_cache_count_stats Redis Proxy Hot Key Cache Count Stats\n");
+            sb.append("# TYPE redis_proxy_hot_key_cache_count_stats gauge\n");
+            for (HotKeyCacheCountStats hotKeyCacheCountStats : stats.getHotKeyCacheCountStatsList()) {
+                String bid = hotKeyCacheCountStats.getBid() == null ? DEFAULT : hotKeyCacheCountStats.getBid();
+                String bgroup = hotKeyCacheCountStats.getBgroup() == null ? DEFAULT : hotKeyCacheCountStats.getBgroup();
+                sb.append(String.format("redis_proxy_hot_key_cache_count_stats{bid=\"%s\",bgroup=\"%s\",type=\"hit\",} %d\n", bid, bgroup, hotKeyCacheCountStats.getHitCount()));
+                sb.append(String.format("redis_proxy_hot_key_cache_count_stats{bid=\"%s\",bgroup=\"%s\",type=\"miss\",} %d\n", bid, bgroup, hotKeyCacheCountStats.getMissCount()));
+                sb.append(String.format("redis_proxy_hot_key_cache_count_stats{bid=\"%s\",bgroup=\"%s\",type=\"invalidate\",} %d\n", bid, bgroup, hotKeyCacheCountStats.getInvalidateCount()));
+            }
+
             // ====slow.command.stats====
             sb.append("# HELP redis_proxy_slow_command_stats Redis Proxy Slow Command Stats\n");
             sb.append("# TYPE redis_proxy_slow_command_stats gauge\n");
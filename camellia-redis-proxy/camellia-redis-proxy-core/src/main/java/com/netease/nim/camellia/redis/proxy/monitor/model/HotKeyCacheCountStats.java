@@ -0,0 +1,53 @@
+package com.netease.nim.camellia.redis.proxy.monitor.model;
+
+
+/**
+ * 热key缓存的命中、未命中、失效次数（按bid/bgroup汇总）
+ */
+public class HotKeyCacheCountStats {
+    private String bid;
+    private String bgroup;
+    private long hitCount;
+    private long missCount;
+    private long invalidateCount;
+
+    public String getBid() {
+        return bid;
+    }
+
+    public void setBid(String bid) {
+        this.bid = bid;
+    }
+
+    public String getBgroup() {
+        return bgroup;
+    }
+
+    public void setBgroup(String bgroup) {
+        this.bgroup = bgroup;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public long getInvalidateCount() {
+        return invalidateCount;
+    }
+
+    public void setInvalidateCount(long invalidateCount) {
+        this.invalidateCount = invalidateCount;
+    }
+}
@@ -8,6 +8,8 @@ import java.util.List;
  */
 public class RedisConnectStats {
     private int connectCount;
+    private long flushCount;
+    private long flushPackCount;
     private List<Detail> detailList = new ArrayList<>();
 
     public int getConnectCount() {
@@ -18,6 +20,22 @@ public class RedisConnectStats {
         this.connectCount = connectCount;
     }
 
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public void setFlushCount(long flushCount) {
+        this.flushCount = flushCount;
+    }
+
+    public long getFlushPackCount() {
+        return flushPackCount;
+    }
+
+    public void setFlushPackCount(long flushPackCount) {
+        this.flushPackCount = flushPackCount;
+    }
+
     public List<Detail> getDetailList() {
         return detailList;
     }
@@ -37,6 +37,7 @@ public class Stats {
     private List<BigKeyStats> bigKeyStatsList = new ArrayList<>();
     private List<HotKeyStats> hotKeyStatsList = new ArrayList<>();
     private List<HotKeyCacheStats> hotKeyCacheStatsList = new ArrayList<>();
+    private List<HotKeyCacheCountStats> hotKeyCacheCountStatsList = new ArrayList<>();
     private List<SlowCommandStats> slowCommandStatsList = new ArrayList<>();
     private List<UpstreamFailStats> upstreamFailStatsList = new ArrayList<>();
 
@@ -240,6 +241,14 @@ public class Stats {
         this.hotKeyCacheStatsList = hotKeyCacheStatsList;
     }
 
+    public List<HotKeyCacheCountStats> getHotKeyCacheCountStatsList() {
+        return hotKeyCacheCountStatsList;
+    }
+
+    public void setHotKeyCacheCountStatsList(List<HotKeyCacheCountStats> hotKeyCacheCountStatsList) {
+        this.hotKeyCacheCountStatsList = hotKeyCacheCountStatsList;
+    }
+
     public List<SlowCommandStats> getSlowCommandStatsList() {
         return slowCommandStatsList;
     }
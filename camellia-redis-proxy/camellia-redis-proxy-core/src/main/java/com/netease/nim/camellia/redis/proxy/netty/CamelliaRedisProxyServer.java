@@ -100,7 +100,7 @@ public class CamelliaRedisProxyServer {
                                     serverProperties.getWriterIdleTimeSeconds(), serverProperties.getAllIdleTimeSeconds()));
                         }
                         //command decoder
-                        pipeline.addLast(new CommandDecoder(serverProperties.getCommandDecodeMaxBatchSize(), serverProperties.getCommandDecodeBufferInitializerSize()));
+                        pipeline.addLast(new CommandDecoder(serverProperties.getCommandDecodeMaxBatchSize(), serverProperties.getCommandDecodeBufferInitializerSize(), serverProperties.getCommandDecodeZeroCopyThreshold()));
                         //reply encoder
                         pipeline.addLast(new ReplyEncoder());
                         //connect manager
@@ -216,7 +216,7 @@ public class CamelliaRedisProxyServer {
                                     serverProperties.getWriterIdleTimeSeconds(), serverProperties.getAllIdleTimeSeconds()));
                         }
                         //command decoder
-                        pipeline.addLast(new CommandDecoder(serverProperties.getCommandDecodeMaxBatchSize(), serverProperties.getCommandDecodeBufferInitializerSize()));
+                        pipeline.addLast(new CommandDecoder(serverProperties.getCommandDecodeMaxBatchSize(), serverProperties.getCommandDecodeBufferInitializerSize(), serverProperties.getCommandDecodeZeroCopyThreshold()));
                         //reply encoder
                         pipeline.addLast(new ReplyEncoder());
                         //connect manager
@@ -8,6 +8,7 @@ import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.monitor.ProxyMonitorCollector;
 import com.netease.nim.camellia.redis.proxy.monitor.UpstreamFailMonitor;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingInfo;
 import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClient;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
@@ -66,6 +67,7 @@ public class ChannelInfo {
     private volatile ConcurrentHashMap<BytesKey, Boolean> subscribeChannels;
     private volatile ConcurrentHashMap<BytesKey, Boolean> psubscribeChannels;
     private volatile ConcurrentHashMap<BytesKey, Boolean> ssubscribeChannels;
+    private volatile ClientTrackingInfo clientTrackingInfo;
     private volatile long subscribeCount = 0;
     private volatile long ssubscribeCount = 0;
 
@@ -226,6 +228,14 @@ public class ChannelInfo {
         inTransaction = false;
     }
 
+    public ClientTrackingInfo getClientTrackingInfo() {
+        return clientTrackingInfo;
+    }
+
+    public void setClientTrackingInfo(ClientTrackingInfo clientTrackingInfo) {
+        this.clientTrackingInfo = clientTrackingInfo;
+    }
+
     public ChannelHandlerContext getCtx() {
         return ctx;
     }
@@ -367,6 +377,10 @@ public class ChannelInfo {
         }
     }
 
+    public boolean containsSubscribeChannel(byte[] channel) {
+        return subscribeChannels != null && subscribeChannels.containsKey(new BytesKey(channel));
+    }
+
     public void removeSubscribeChannels(byte[]...channels) {
         if (subscribeChannels != null && channels != null) {
             for (byte[] channel : channels) {
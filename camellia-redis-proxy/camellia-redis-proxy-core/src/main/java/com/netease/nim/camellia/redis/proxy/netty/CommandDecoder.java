@@ -19,12 +19,23 @@ public class CommandDecoder extends ByteToMessageDecoder {
     private List<Command> commands;
 
     private byte[][] bytes;
+    private ByteBuf[] retainedArgs;
     private int index = 0;
 
     private int commandDecodeMaxBatchSize = Constants.Server.commandDecodeMaxBatchSize;
     private int commandDecodeBufferInitializerSize = Constants.Server.commandDecodeBufferInitializerSize;
+    private int commandDecodeZeroCopyThreshold = Constants.Server.commandDecodeZeroCopyThreshold;
 
     public CommandDecoder(int commandDecodeMaxBatchSize, int commandDecodeBufferInitializerSize) {
+        this(commandDecodeMaxBatchSize, commandDecodeBufferInitializerSize, Constants.Server.commandDecodeZeroCopyThreshold);
+    }
+
+    /**
+     * @param commandDecodeMaxBatchSize max batch size
+     * @param commandDecodeBufferInitializerSize buffer initializer size
+     * @param commandDecodeZeroCopyThreshold 大于0时开启zero-copy模式，除命令名和第一个key外，长度不小于该阈值的参数不会拷贝为byte[]，而是持有ByteBuf的retained slice
+     */
+    public CommandDecoder(int commandDecodeMaxBatchSize, int commandDecodeBufferInitializerSize, int commandDecodeZeroCopyThreshold) {
         super();
         if (commandDecodeMaxBatchSize > 0) {
             this.commandDecodeMaxBatchSize = commandDecodeMaxBatchSize;
@@ -32,6 +43,11 @@ public class CommandDecoder extends ByteToMessageDecoder {
         if (commandDecodeBufferInitializerSize > 0) {
             this.commandDecodeBufferInitializerSize = commandDecodeBufferInitializerSize;
         }
+        this.commandDecodeZeroCopyThreshold = commandDecodeZeroCopyThreshold;
+        if (commandDecodeZeroCopyThreshold > 0) {
+            //retained slice会导致cumulation的refCnt大于1，使用COMPOSITE_CUMULATOR避免每次read都拷贝cumulation
+            setCumulator(COMPOSITE_CUMULATOR);
+        }
         this.commands = new ArrayList<>(this.commandDecodeBufferInitializerSize);
     }
 
@@ -79,8 +95,15 @@ public class CommandDecoder extends ByteToMessageDecoder {
                             }
                             int size = (int)parseRedisNumber(byteBuf);
                             if (in.readableBytes() >= size + 2) {
-                                bytes[i] = new byte[size];
-                                in.readBytes(bytes[i]);
+                                if (commandDecodeZeroCopyThreshold > 0 && i >= 2 && size >= commandDecodeZeroCopyThreshold) {
+                                    if (retainedArgs == null) {
+                                        retainedArgs = new ByteBuf[numArgs];
+                                    }
+                                    retainedArgs[i] = in.readRetainedSlice(size);
+                                } else {
+                                    bytes[i] = new byte[size];
+                                    in.readBytes(bytes[i]);
+                                }
                                 in.skipBytes(2);
                             } else {
                                 in.readerIndex(readerIndex);
@@ -92,7 +115,12 @@ public class CommandDecoder extends ByteToMessageDecoder {
                         }
                     }
                     try {
-                        Command command = new Command(bytes);
+                        Command command;
+                        if (retainedArgs == null) {
+                            command = new Command(bytes);
+                        } else {
+                            command = new Command(bytes, retainedArgs);
+                        }
                         commands.add(command);
                         if (commands.size() >= commandDecodeMaxBatchSize) {
                             out.add(commands);
@@ -100,6 +128,7 @@ public class CommandDecoder extends ByteToMessageDecoder {
                         }
                     } finally {
                         bytes = null;
+                        retainedArgs = null;
                         index = 0;
                     }
                 }
@@ -112,6 +141,19 @@ public class CommandDecoder extends ByteToMessageDecoder {
         }
     }
 
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) {
+        //释放解析了一半的命令持有的ByteBuf
+        if (retainedArgs != null) {
+            for (ByteBuf buf : retainedArgs) {
+                if (buf != null) {
+                    buf.release();
+                }
+            }
+            retainedArgs = null;
+        }
+    }
+
     private static final int POSITIVE_LONG_MAX_LENGTH = 19; // length of Long.MAX_VALUE
     private static final int EOL_LENGTH = 2;
 
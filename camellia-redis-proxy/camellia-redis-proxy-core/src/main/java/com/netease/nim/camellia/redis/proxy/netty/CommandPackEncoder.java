@@ -41,11 +41,32 @@ public class CommandPackEncoder extends MessageToMessageEncoder<CommandPack> {
     protected void encode(ChannelHandlerContext ctx, CommandPack msg, List<Object> out) {
         try {
             List<Command> commands = msg.getCommands();
+            List<CompletableFuture<Reply>> futures = msg.getCompletableFutureList();
             long startTime = msg.getStartTime();
             RedisConnectionStatus status = redisConnection.getStatus();
-            for (CompletableFuture<Reply> future : msg.getCompletableFutureList()) {
-                if (status == RedisConnectionStatus.INVALID) {
+            if (status == RedisConnectionStatus.INVALID) {
+                for (CompletableFuture<Reply> future : futures) {
                     future.complete(ErrorReply.UPSTREAM_CONNECTION_STATUS_INVALID);
+                }
+                return;
+            }
+            //commands和futures一一对应时，逐个检查，只下发成功入队的命令；不对应时（如订阅），入队失败则整体不下发
+            boolean aligned = commands.size() == futures.size();
+            List<Command> toEncode = aligned ? new ArrayList<>(commands.size()) : commands;
+            boolean queueFull = false;
+            for (int i=0; i<futures.size(); i++) {
+                CompletableFuture<Reply> future = futures.get(i);
+                Command command = aligned ? commands.get(i) : null;
+                if (future.isDone()) {
+                    //已经完成的命令不再下发（完成时zero-copy模式下的参数可能已经被释放）
+                    continue;
+                }
+                if (command != null && command.isReleased()) {
+                    future.complete(ErrorReply.NOT_AVAILABLE);
+                    continue;
+                }
+                if (queueFull) {
+                    future.complete(ErrorReply.UPSTREAM_CONNECTION_QUEUE_FULL);
                     continue;
                 }
                 boolean offer;
@@ -57,13 +78,19 @@ public class CommandPackEncoder extends MessageToMessageEncoder<CommandPack> {
                 if (!offer) {
                     String log = redisConnection.getConnectionName() + ", queue full, will stop";
                     ErrorLogCollector.collect(CommandPackEncoder.class, log);
+                    queueFull = true;
                     future.complete(ErrorReply.UPSTREAM_CONNECTION_QUEUE_FULL);
                     redisConnection.stop();
+                    continue;
+                }
+                if (command != null) {
+                    toEncode.add(command);
                 }
             }
-            if (status == RedisConnectionStatus.INVALID) {
+            if (!aligned && queueFull) {
                 return;
             }
+            commands = toEncode;
             if (commands.isEmpty()) return;
             ByteBufAllocator allocator = ctx.channel().alloc();
             ByteBuf buf = CommandsEncodeUtil.encode(allocator, commands);
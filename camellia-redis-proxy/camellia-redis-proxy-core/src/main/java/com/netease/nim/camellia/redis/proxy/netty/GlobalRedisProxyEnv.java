@@ -67,6 +67,7 @@ public class GlobalRedisProxyEnv {
     private static boolean clusterModeEnable;
 
     private static QueueFactory queueFactory = new DefaultQueueFactory();
+    private static boolean strictEventLoopAffinityEnable = false;
 
     private static final DefaultProxyShutdown proxyShutdown = new DefaultProxyShutdown();
 
@@ -127,6 +128,8 @@ public class GlobalRedisProxyEnv {
             }
             queueFactory = (QueueFactory) serverProperties.getProxyBeanFactory()
                     .getBean(BeanInitUtils.parseClass(serverProperties.getQueueFactoryClassName()));
+            strictEventLoopAffinityEnable = serverProperties.isStrictEventLoopAffinityEnable();
+            logger.info("strictEventLoopAffinityEnable = {}", strictEventLoopAffinityEnable);
             initOk.set(true);
         }
     }
@@ -302,6 +305,14 @@ public class GlobalRedisProxyEnv {
         return queueFactory;
     }
 
+    /**
+     * 严格的eventLoop亲和模式，客户端连接使用的后端连接都和客户端连接在同一个eventLoop上
+     * @return true/false
+     */
+    public static boolean isStrictEventLoopAffinityEnable() {
+        return strictEventLoopAffinityEnable;
+    }
+
     public static DefaultProxyShutdown getProxyShutdown() {
         return proxyShutdown;
     }
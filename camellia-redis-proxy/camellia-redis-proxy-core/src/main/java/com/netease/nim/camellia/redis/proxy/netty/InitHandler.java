@@ -3,6 +3,7 @@ package com.netease.nim.camellia.redis.proxy.netty;
 import com.netease.nim.camellia.redis.proxy.auth.ConnectLimiter;
 import com.netease.nim.camellia.redis.proxy.monitor.ChannelMonitor;
 import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
+import com.netease.nim.camellia.redis.proxy.tracking.ClientTrackingManager;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
 import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
 import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
@@ -76,6 +77,9 @@ public class InitHandler extends ChannelInboundHandlerAdapter {
         if (channelInfo != null) {
             channelInfo.clear();
             ChannelMonitor.remove(channelInfo);
+            if (channelInfo.getClientTrackingInfo() != null) {
+                ClientTrackingManager.getInstance().remove(channelInfo);
+            }
             ConcurrentHashMap<String, RedisConnection> map1 = channelInfo.getBindRedisConnectionCache();
             if (map1 != null) {
                 for (Map.Entry<String, RedisConnection> entry : map1.entrySet()) {
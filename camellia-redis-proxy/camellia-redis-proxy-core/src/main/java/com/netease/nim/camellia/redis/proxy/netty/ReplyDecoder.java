@@ -1,5 +1,6 @@
 package com.netease.nim.camellia.redis.proxy.netty;
 
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
 import com.netease.nim.camellia.redis.proxy.reply.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -15,8 +16,20 @@ import java.util.List;
  */
 public class ReplyDecoder extends ByteToMessageDecoder {
 
+    private static int bulkStreamDecodeThreshold;
+    static {
+        reloadConf();
+        ProxyDynamicConf.registerCallback(ReplyDecoder::reloadConf);
+    }
+    private static void reloadConf() {
+        bulkStreamDecodeThreshold = ProxyDynamicConf.getInt("upstream.reply.bulk.stream.decode.threshold", 1024*1024);
+    }
+
     private Marker marker;
     private int bulkSize = Integer.MIN_VALUE;
+    //大value的BulkReply，解析到header之后就分配好byte[]，数据到达一部分就拷贝一部分，避免cumulation缓存整个value后再拷贝一次
+    private byte[] bulkRaw;
+    private int bulkReadIndex;
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
@@ -55,9 +68,28 @@ public class ReplyDecoder extends ByteToMessageDecoder {
                             bulkSize = Integer.MIN_VALUE;
                             continue;
                         }
+                        if (bulkStreamDecodeThreshold > 0 && bulkSize >= bulkStreamDecodeThreshold) {
+                            bulkRaw = new byte[bulkSize];
+                            bulkReadIndex = 0;
+                        }
                         readerIndex = in.readerIndex();
                     }
-                    if (in.readableBytes() >= bulkSize + 2) {
+                    if (bulkRaw != null) {
+                        int readSize = Math.min(in.readableBytes(), bulkSize - bulkReadIndex);
+                        if (readSize > 0) {
+                            in.readBytes(bulkRaw, bulkReadIndex, readSize);
+                            bulkReadIndex += readSize;
+                        }
+                        if (bulkReadIndex < bulkSize || in.readableBytes() < 2) {
+                            return;
+                        }
+                        in.skipBytes(2);
+                        out.add(new BulkReply(bulkRaw));
+                        marker = null;
+                        bulkSize = Integer.MIN_VALUE;
+                        bulkRaw = null;
+                        bulkReadIndex = 0;
+                    } else if (in.readableBytes() >= bulkSize + 2) {
                         byte[] raw = new byte[bulkSize];
                         in.readBytes(raw);
                         in.skipBytes(2);
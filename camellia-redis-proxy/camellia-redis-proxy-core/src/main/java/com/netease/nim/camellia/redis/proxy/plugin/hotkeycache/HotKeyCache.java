@@ -1,8 +1,5 @@
 package com.netease.nim.camellia.redis.proxy.plugin.hotkeycache;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
-import com.netease.nim.camellia.tools.utils.BytesKey;
-import com.netease.nim.camellia.tools.utils.CamelliaMapUtils;
 import com.netease.nim.camellia.redis.proxy.auth.IdentityInfo;
 import com.netease.nim.camellia.redis.proxy.conf.Constants;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
@@ -13,9 +10,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 一段时间间隔内，达到某一个阈值，即为hot-key
@@ -27,15 +24,27 @@ public class HotKeyCache {
     private static final Logger logger = LoggerFactory.getLogger(HotKeyCache.class);
 
     private final IdentityInfo identityInfo;
-    private final Object lockObj = new Object();
-    private final ConcurrentLinkedHashMap<BytesKey, Object> refreshLockMap;
-    private final ConcurrentLinkedHashMap<BytesKey, Long> lastRefreshTimeMap;
 
     /**
-     * LRU cache container.
+     * 本地缓存，缓存项自带刷新时间戳和刷新标记
+     * <p> Local cache, entry carries its own refresh timestamp and refresh flag.
      */
-    private final ConcurrentLinkedHashMap<BytesKey, HotValueWrapper> cache;
-    private final LRUCounter hotKeyCounter;
+    private final HotKeyCacheTable cache;
+    /**
+     * 访问频率统计，用于热key判断和缓存准入（TinyLFU）
+     * <p> Frequency sketch, used for hot key check and cache admission.
+     */
+    private final FrequencySketch hotKeyCounter;
+    /**
+     * 写命令的失效时间戳（System.nanoTime()），按key的hash分槽，版本号不大于失效时间戳的缓存项视为已失效
+     * <p> Invalidation timestamps of write commands, slotted by key hash.
+     */
+    private final AtomicLongArray invalidateStamps;
+    private final int invalidateStampMask;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder invalidateCount = new LongAdder();
 
     /**
      * Cache expiration time, in milliseconds
@@ -60,11 +69,10 @@ public class HotKeyCache {
      */
     private boolean cacheNull;
     private boolean enable;
-
     /**
-     * BytesKey，value is hitCount
+     * 集合类型（HGETALL、ZRANGE等）最多缓存多少个元素
      */
-    private ConcurrentHashMap<BytesKey, AtomicLong> statsMap = new ConcurrentHashMap<>();
+    private int collectionMaxSize;
 
     /**
      * @param identityInfo tenant identity information，bid + bgroup can represent one tenant.
@@ -81,38 +89,42 @@ public class HotKeyCache {
         reloadHotKeyCacheConfig();
         int cacheMaxCapacity = ProxyDynamicConf.getInt("hot.key.cache.max.capacity",
                 identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheMaxCapacity);
-        this.cache = new ConcurrentLinkedHashMap.Builder<BytesKey, HotValueWrapper>()
-                .initialCapacity(cacheMaxCapacity)
-                .maximumWeightedCapacity(cacheMaxCapacity)
-                .build();
+        this.cache = new HotKeyCacheTable(cacheMaxCapacity);
+        int stampSize = 1;
+        while (stampSize < cacheMaxCapacity * 4) {
+            stampSize <<= 1;
+        }
+        this.invalidateStamps = new AtomicLongArray(stampSize);
+        this.invalidateStampMask = stampSize - 1;
+        long now = System.nanoTime();
+        for (int i = 0; i < stampSize; i++) {
+            invalidateStamps.set(i, now);
+        }
         // 热key的容量，一共计算多少热key
         int counterMaxCapacity = ProxyDynamicConf.getInt("hot.key.cache.counter.capacity",
                 identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheCounterMaxCapacity);
-        // 热key的时间间隔
+        // 热key的时间间隔，每个时间间隔计数器减半
         long counterCheckMillis = ProxyDynamicConf.getLong("hot.key.cache.counter.check.millis",
                 identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheCounterCheckMillis);
-        this.hotKeyCounter = new LRUCounter(counterMaxCapacity, counterMaxCapacity, counterCheckMillis);
-        int refreshMapMaxCapacity = cacheMaxCapacity * 2;
-        this.lastRefreshTimeMap = new ConcurrentLinkedHashMap.Builder<BytesKey, Long>()
-                .initialCapacity(refreshMapMaxCapacity).maximumWeightedCapacity(refreshMapMaxCapacity).build();
-        this.refreshLockMap = new ConcurrentLinkedHashMap.Builder<BytesKey, Object>()
-                .initialCapacity(refreshMapMaxCapacity).maximumWeightedCapacity(refreshMapMaxCapacity).build();
+        this.hotKeyCounter = new FrequencySketch(counterMaxCapacity);
+        ExecutorUtils.scheduleAtFixedRate(hotKeyCounter::reset, counterCheckMillis, counterCheckMillis, TimeUnit.MILLISECONDS);
 
         long callbackIntervalSeconds = ProxyDynamicConf.getLong("hot.key.cache.stats.callback.interval.seconds",
                 identityInfo.getBid(), identityInfo.getBgroup(), Constants.Server.hotKeyCacheStatsCallbackIntervalSeconds);
         ExecutorUtils.scheduleAtFixedRate(() -> {
             try {
-                if (HotKeyCache.this.statsMap.isEmpty()) return;
-                ConcurrentHashMap<BytesKey, AtomicLong> statsMap = HotKeyCache.this.statsMap;
-                HotKeyCache.this.statsMap = new ConcurrentHashMap<>();
-
                 List<HotKeyCacheInfo.Stats> list = new ArrayList<>();
-                for (Map.Entry<BytesKey, AtomicLong> entry : statsMap.entrySet()) {
-                    HotKeyCacheInfo.Stats stats = new HotKeyCacheInfo.Stats();
-                    stats.setKey(entry.getKey().getKey());
-                    stats.setHitCount(entry.getValue().get());
-                    list.add(stats);
-                }
+                cache.forEach(entry -> {
+                    long hitCount = entry.getHits().sumThenReset();
+                    if (hitCount > 0) {
+                        HotKeyCacheInfo.Stats stats = new HotKeyCacheInfo.Stats();
+                        stats.setKey(entry.getKey());
+                        stats.setHitCount(hitCount);
+                        list.add(stats);
+                    }
+                });
+                HotKeyCacheMonitor.hotKeyCacheCount(identityInfo, hitCount.sumThenReset(), missCount.sumThenReset(), invalidateCount.sumThenReset());
+                if (list.isEmpty()) return;
                 HotKeyCacheInfo hotKeyCacheStats = new HotKeyCacheInfo();
                 hotKeyCacheStats.setStatsList(list);
                 HotKeyCacheMonitor.hotKeyCache(identityInfo, hotKeyCacheStats, counterCheckMillis, hotKeyCheckThreshold);
@@ -130,44 +142,92 @@ public class HotKeyCache {
      * @return HotValue
      */
     public HotValue getCache(byte[] key) {
+        return getCache(key, (byte[]) null);
+    }
+
+    /**
+     * 获取本地缓存
+     * @param key key
+     * @param field field，如hash的field，null表示整个key
+     * @return HotValue
+     */
+    public HotValue getCache(byte[] key, byte[] field) {
         if (!enable) return null;
         if (keyChecker != null && !keyChecker.needCache(identityInfo, key)) {
             return null;
         }
-        BytesKey bytesKey = new BytesKey(key);
-        this.hotKeyCounter.increment(bytesKey);
-        HotValueWrapper wrapper = cache.get(bytesKey);
-        if (wrapper != null) {
-            // 过期删除
-            if (TimeCache.currentMillis - wrapper.timestamp > cacheExpireMillis) {
-                cache.remove(bytesKey);
+        int keyHash = HotKeyCacheTable.hash(key);
+        this.hotKeyCounter.increment(keyHash);
+        HotValue value = lookup(key, keyHash, field);
+        if (value == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 获取本地缓存，所有field都命中才返回，如HMGET
+     * @param key key
+     * @param fields fields
+     * @return HotValue数组，和fields一一对应，任意一个field未命中则返回null
+     */
+    public HotValue[] getCache(byte[] key, byte[][] fields) {
+        if (!enable) return null;
+        if (keyChecker != null && !keyChecker.needCache(identityInfo, key)) {
+            return null;
+        }
+        int keyHash = HotKeyCacheTable.hash(key);
+        this.hotKeyCounter.increment(keyHash);
+        HotValue[] values = new HotValue[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            HotValue value = lookup(key, keyHash, fields[i]);
+            if (value == null) {
+                missCount.increment();
                 return null;
             }
-            HotValue value = wrapper.hotValue;
-            if (value != null) {
-                Long lastRefreshTime = lastRefreshTimeMap.get(bytesKey);
-                // 当cache的过期时间已经达到一半值，打一个tag，穿透到redis进行本地缓存刷新
-                if (lastRefreshTime != null && TimeCache.currentMillis - lastRefreshTime > cacheExpireMillis / 2) {
-                    Object old = refreshLockMap.putIfAbsent(bytesKey, lockObj);
-                    if (old == null) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("try refresh hotKey's value, key = {}", Utils.bytesToString(bytesKey.getKey()));
-                        }
-                        return null;
-                    }
-                }
-                if (logger.isDebugEnabled()) {
-                    logger.debug("getCache of hotKey = {}", Utils.bytesToString(bytesKey.getKey()));
-                }
-                // 计算命中
-                if (callback != null) {
-                    AtomicLong hit = CamelliaMapUtils.computeIfAbsent(statsMap, bytesKey, k -> new AtomicLong());
-                    hit.incrementAndGet();
-                }
+            values[i] = value;
+        }
+        hitCount.increment();
+        return values;
+    }
+
+    private HotValue lookup(byte[] key, int keyHash, byte[] field) {
+        HotKeyCacheTable.Entry entry = cache.get(key, field, HotKeyCacheTable.hash(keyHash, field));
+        if (entry == null) {
+            return null;
+        }
+        // 被写命令失效
+        if (entry.getVersion() - invalidateStamps.get(keyHash & invalidateStampMask) <= 0) {
+            cache.remove(entry);
+            invalidateCount.increment();
+            if (logger.isDebugEnabled()) {
+                logger.debug("hotKey's value invalidated, key = {}", Utils.bytesToString(key));
             }
-            return value;
+            return null;
+        }
+        long age = TimeCache.currentMillis - entry.getTimestamp();
+        // 过期删除
+        if (age > cacheExpireMillis) {
+            cache.remove(entry);
+            return null;
+        }
+        // 当cache的过期时间已经达到一半值，打一个tag，穿透到redis进行本地缓存刷新
+        if (age > cacheExpireMillis / 2 && entry.tryMarkRefresh()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("try refresh hotKey's value, key = {}", Utils.bytesToString(key));
+            }
+            return null;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("getCache of hotKey = {}", Utils.bytesToString(key));
         }
-        return null;
+        // 计算命中
+        if (callback != null) {
+            entry.getHits().increment();
+        }
+        return entry.getHotValue();
     }
 
     /**
@@ -176,48 +236,103 @@ public class HotKeyCache {
      * @param value value
      */
     public void tryBuildHotKeyCache(byte[] key, byte[] value) {
+        tryBuildHotKeyCache(key, null, new HotValue(value), System.nanoTime());
+    }
+
+    /**
+     * 重建缓存
+     * @param key key
+     * @param field field，null表示整个key
+     * @param value value
+     * @param version 发起读请求时的System.nanoTime()，在此之后到达的写命令会使得缓存失效
+     */
+    public void tryBuildHotKeyCache(byte[] key, byte[] field, HotValue value, long version) {
         if (!enable) return;
-        if (value == null && !cacheNull) {
+        if (value.isNull() && !cacheNull) {
+            return;
+        }
+        byte[][] values = value.getValues();
+        if (values != null && values.length > collectionMaxSize) {
             return;
         }
         // 是否需要缓存
         if (keyChecker != null && !keyChecker.needCache(identityInfo, key)) {
             return;
         }
-        BytesKey bytesKey = new BytesKey(key);
+        int keyHash = HotKeyCacheTable.hash(key);
         // 计数器判断有没有到达阈值
-        Long count = this.hotKeyCounter.get(bytesKey);
-        if (count == null || count < hotKeyCheckThreshold) {
+        int frequency = this.hotKeyCounter.frequency(keyHash);
+        if (frequency < hotKeyCheckThreshold) {
+            return;
+        }
+        build(key, keyHash, field, value, frequency, version);
+    }
+
+    /**
+     * 重建缓存，如HMGET
+     * @param key key
+     * @param fields fields
+     * @param values values，和fields一一对应
+     * @param version 发起读请求时的System.nanoTime()，在此之后到达的写命令会使得缓存失效
+     */
+    public void tryBuildHotKeyCache(byte[] key, byte[][] fields, byte[][] values, long version) {
+        if (!enable) return;
+        if (keyChecker != null && !keyChecker.needCache(identityInfo, key)) {
+            return;
+        }
+        int keyHash = HotKeyCacheTable.hash(key);
+        int frequency = this.hotKeyCounter.frequency(keyHash);
+        if (frequency < hotKeyCheckThreshold) {
+            return;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            if (values[i] == null && !cacheNull) {
+                continue;
+            }
+            build(key, keyHash, fields[i], new HotValue(values[i]), frequency, version);
+        }
+    }
+
+    private void build(byte[] key, int keyHash, byte[] field, HotValue value, int frequency, long version) {
+        // 写命令在读请求之后到达，则不缓存
+        if (version - invalidateStamps.get(keyHash & invalidateStampMask) <= 0) {
             return;
         }
-        // 建立缓存
-        cache.put(bytesKey, new HotValueWrapper(new HotValue(value)));
-        lastRefreshTimeMap.put(bytesKey, TimeCache.currentMillis);
-        refreshLockMap.remove(bytesKey);
+        // 建立缓存，bucket满了的时候，只有访问频率更高的key才能替换
+        HotKeyCacheTable.Entry entry = new HotKeyCacheTable.Entry(key, field, HotKeyCacheTable.hash(keyHash, field), value, version);
+        boolean success = cache.put(entry, frequency, hotKeyCounter, cacheExpireMillis);
         if (logger.isDebugEnabled()) {
-            logger.debug("refresh hotKey's value success, key = {}", Utils.bytesToString(bytesKey.getKey()));
+            logger.debug("refresh hotKey's value, key = {}, success = {}", Utils.bytesToString(key), success);
         }
     }
 
+    /**
+     * 写命令使得key的所有缓存（包括各个field）失效
+     * @param key key
+     */
+    public void invalidate(byte[] key) {
+        if (!enable) return;
+        int index = HotKeyCacheTable.hash(key) & invalidateStampMask;
+        long now = System.nanoTime();
+        while (true) {
+            long stamp = invalidateStamps.get(index);
+            // 并发的写命令，时间戳只能往前推进
+            if (now - stamp <= 0 || invalidateStamps.compareAndSet(index, stamp, now)) {
+                return;
+            }
+        }
+    }
+
+    public int getCollectionMaxSize() {
+        return collectionMaxSize;
+    }
+
     private void reloadHotKeyCacheConfig() {
         Long bid = identityInfo.getBid();
         String bgroup = identityInfo.getBgroup();
         this.hotKeyCheckThreshold = ProxyDynamicConf.getLong("hot.key.cache.check.threshold", bid, bgroup, Constants.Server.hotKeyCacheCounterCheckThreshold);
         this.enable = ProxyDynamicConf.getBoolean("hot.key.cache.enable", bid, bgroup, true);
         this.cacheNull = ProxyDynamicConf.getBoolean("hot.key.cache.null", bid, bgroup, Constants.Server.hotKeyCacheNeedCacheNull);
+        this.collectionMaxSize = ProxyDynamicConf.getInt("hot.key.cache.collection.max.size", bid, bgroup, 128);
     }
-
-    /**
-     * 记录value的时间戳
-     * Record the timestamp of the value.
-     */
-    private static class HotValueWrapper {
-        private final long timestamp = TimeCache.currentMillis;
-        private final HotValue hotValue;
-
-        public HotValueWrapper(HotValue hotValue) {
-            this.hotValue = hotValue;
-        }
-    }
-
 }
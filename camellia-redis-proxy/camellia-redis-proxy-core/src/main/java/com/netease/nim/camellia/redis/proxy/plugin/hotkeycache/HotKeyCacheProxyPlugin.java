@@ -6,14 +6,21 @@ import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.plugin.*;
 import com.netease.nim.camellia.redis.proxy.reply.BulkReply;
+import com.netease.nim.camellia.redis.proxy.reply.MultiBulkReply;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
 import com.netease.nim.camellia.redis.proxy.util.BeanInitUtils;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 /**
  * Created by caojiajun on 2022/9/13
  */
 public class HotKeyCacheProxyPlugin implements ProxyPlugin {
 
+    private static final byte FIELD = 1;
+    private static final byte COLLECTION = 2;
+
     private HotKeyCacheManager manager;
 
     @Override
@@ -50,19 +57,52 @@ public class HotKeyCacheProxyPlugin implements ProxyPlugin {
     public ProxyPluginResponse executeRequest(ProxyRequest proxyRequest) {
         Command command = proxyRequest.getCommand();
         RedisCommand redisCommand = command.getRedisCommand();
-        // 只对get命令做缓存
+        if (!isCacheCommand(redisCommand)) {
+            return ProxyPluginResponse.SUCCESS;
+        }
+        byte[][] objects = command.getObjects();
+        if (objects.length < 2) {
+            return ProxyPluginResponse.SUCCESS;
+        }
+        // 记录读请求的发起时间，作为缓存的版本号，在此之后到达的写命令会使得缓存失效
+        if (command.getStartNanoTime() == -1) {
+            command.initStartNanoTime();
+        }
+        CommandContext commandContext = command.getCommandContext();
+        HotKeyCache hotKeyCache = manager.get(commandContext.getBid(), commandContext.getBgroup());
+        byte[] key = objects[1];
+        Reply reply = null;
         if (redisCommand == RedisCommand.GET) {
-            byte[][] objects = command.getObjects();
-            if (objects.length > 1) {
-                CommandContext commandContext = command.getCommandContext();
-                HotKeyCache hotKeyCache = manager.get(commandContext.getBid(), commandContext.getBgroup());
-                byte[] key = objects[1];
-                HotValue value = hotKeyCache.getCache(key);
+            HotValue value = hotKeyCache.getCache(key);
+            if (value != null) {
+                reply = new BulkReply(value.getValue());
+            }
+        } else if (redisCommand == RedisCommand.HGET) {
+            if (objects.length == 3) {
+                HotValue value = hotKeyCache.getCache(key, fieldKey(objects[2]));
                 if (value != null) {
-                    BulkReply bulkReply = new BulkReply(value.getValue());
-                    return new ProxyPluginResponse(false, bulkReply);
+                    reply = new BulkReply(value.getValue());
+                }
+            }
+        } else if (redisCommand == RedisCommand.HMGET) {
+            if (objects.length > 2) {
+                HotValue[] values = hotKeyCache.getCache(key, fieldKeys(objects));
+                if (values != null) {
+                    Reply[] replies = new Reply[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        replies[i] = new BulkReply(values[i].getValue());
+                    }
+                    reply = new MultiBulkReply(replies);
                 }
             }
+        } else {
+            HotValue value = hotKeyCache.getCache(key, collectionKey(redisCommand, objects));
+            if (value != null) {
+                reply = toMultiBulkReply(value.getValues());
+            }
+        }
+        if (reply != null) {
+            return new ProxyPluginResponse(false, reply);
         }
         return ProxyPluginResponse.SUCCESS;
     }
@@ -73,16 +113,116 @@ public class HotKeyCacheProxyPlugin implements ProxyPlugin {
         Command command = proxyReply.getCommand();
         if (command == null) return ProxyPluginResponse.SUCCESS;
         RedisCommand redisCommand = command.getRedisCommand();
+        if (redisCommand == null) return ProxyPluginResponse.SUCCESS;
+        CommandContext commandContext = proxyReply.getCommandContext();
+        // 写命令，使得相关key的本地缓存失效（只对经过本proxy的写命令生效）
+        if (redisCommand.getType() == RedisCommand.Type.WRITE) {
+            List<byte[]> keys = command.getKeys();
+            if (keys != null && !keys.isEmpty()) {
+                HotKeyCache hotKeyCache = manager.get(commandContext.getBid(), commandContext.getBgroup());
+                for (byte[] key : keys) {
+                    hotKeyCache.invalidate(key);
+                }
+            }
+            return ProxyPluginResponse.SUCCESS;
+        }
+        if (!isCacheCommand(redisCommand)) {
+            return ProxyPluginResponse.SUCCESS;
+        }
+        long version = command.getStartNanoTime();
+        if (version == -1) {
+            return ProxyPluginResponse.SUCCESS;
+        }
+        byte[][] objects = command.getObjects();
+        byte[] key = objects[1];
+        Reply reply = proxyReply.getReply();
+        HotKeyCache hotKeyCache = manager.get(commandContext.getBid(), commandContext.getBgroup());
         if (redisCommand == RedisCommand.GET) {
-            Reply reply = proxyReply.getReply();
             if (reply instanceof BulkReply) {
-                CommandContext commandContext = proxyReply.getCommandContext();
-                HotKeyCache hotKeyCache = manager.get(commandContext.getBid(), commandContext.getBgroup());
-                byte[] key = command.getObjects()[1];
-                byte[] value = ((BulkReply) reply).getRaw();
-                hotKeyCache.tryBuildHotKeyCache(key, value);
+                hotKeyCache.tryBuildHotKeyCache(key, null, new HotValue(((BulkReply) reply).getRaw()), version);
+            }
+        } else if (redisCommand == RedisCommand.HGET) {
+            if (objects.length == 3 && reply instanceof BulkReply) {
+                hotKeyCache.tryBuildHotKeyCache(key, fieldKey(objects[2]), new HotValue(((BulkReply) reply).getRaw()), version);
+            }
+        } else if (redisCommand == RedisCommand.HMGET) {
+            if (objects.length > 2 && reply instanceof MultiBulkReply) {
+                byte[][] values = toValues(((MultiBulkReply) reply).getReplies(), objects.length - 2);
+                if (values != null) {
+                    hotKeyCache.tryBuildHotKeyCache(key, fieldKeys(objects), values, version);
+                }
+            }
+        } else {
+            if (reply instanceof MultiBulkReply) {
+                Reply[] replies = ((MultiBulkReply) reply).getReplies();
+                if (replies != null && replies.length <= hotKeyCache.getCollectionMaxSize()) {
+                    byte[][] values = toValues(replies, replies.length);
+                    if (values != null) {
+                        hotKeyCache.tryBuildHotKeyCache(key, collectionKey(redisCommand, objects), new HotValue(values), version);
+                    }
+                }
             }
         }
         return ProxyPluginResponse.SUCCESS;
     }
+
+    private static boolean isCacheCommand(RedisCommand redisCommand) {
+        return redisCommand == RedisCommand.GET || redisCommand == RedisCommand.HGET || redisCommand == RedisCommand.HMGET
+                || redisCommand == RedisCommand.HGETALL || redisCommand == RedisCommand.ZRANGE;
+    }
+
+    // hash的field级别的缓存，HGET和HMGET共用
+    private static byte[] fieldKey(byte[] field) {
+        byte[] fieldKey = new byte[field.length + 1];
+        fieldKey[0] = FIELD;
+        System.arraycopy(field, 0, fieldKey, 1, field.length);
+        return fieldKey;
+    }
+
+    private static byte[][] fieldKeys(byte[][] objects) {
+        byte[][] fieldKeys = new byte[objects.length - 2][];
+        for (int i = 2; i < objects.length; i++) {
+            fieldKeys[i - 2] = fieldKey(objects[i]);
+        }
+        return fieldKeys;
+    }
+
+    // 集合类型整体缓存，使用命令名+参数区分，如ZRANGE key 0 10和ZRANGE key 0 -1是不同的缓存项
+    private static byte[] collectionKey(RedisCommand redisCommand, byte[][] objects) {
+        int size = 2;
+        for (int i = 2; i < objects.length; i++) {
+            size += 4 + objects[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(COLLECTION);
+        buffer.put((byte) redisCommand.ordinal());
+        for (int i = 2; i < objects.length; i++) {
+            buffer.putInt(objects[i].length);
+            buffer.put(objects[i]);
+        }
+        return buffer.array();
+    }
+
+    private static byte[][] toValues(Reply[] replies, int expectSize) {
+        if (replies == null || replies.length != expectSize) {
+            return null;
+        }
+        byte[][] values = new byte[replies.length][];
+        for (int i = 0; i < replies.length; i++) {
+            if (!(replies[i] instanceof BulkReply)) {
+                return null;
+            }
+            values[i] = ((BulkReply) replies[i]).getRaw();
+        }
+        return values;
+    }
+
+    // 每次返回新的reply对象，避免后续plugin修改缓存的内容
+    private static Reply toMultiBulkReply(byte[][] values) {
+        Reply[] replies = new Reply[values.length];
+        for (int i = 0; i < values.length; i++) {
+            replies[i] = new BulkReply(values[i]);
+        }
+        return new MultiBulkReply(replies);
+    }
 }
@@ -0,0 +1,214 @@
+package com.netease.nim.camellia.redis.proxy.plugin.hotkeycache;
+
+import com.netease.nim.camellia.redis.proxy.util.FrequencySketch;
+import com.netease.nim.camellia.redis.proxy.util.TimeCache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 热key本地缓存的存储结构，组相联的定长数组，每个key（或者key+field）只会落在一个bucket（4个slot）内，读写都是无锁的
+ * <p> bucket满了之后，使用{@link FrequencySketch}做TinyLFU准入：只有新key的访问频率高于bucket内频率最低的key时才替换
+ */
+public class HotKeyCacheTable {
+
+    private static final int WAYS = 4;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int bucketMask;
+
+    public HotKeyCacheTable(int capacity) {
+        int buckets = 1;
+        int target = Math.max(capacity, WAYS) / WAYS;
+        while (buckets < target) {
+            buckets <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(buckets * WAYS);
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * 计算key的hash，一次请求只计算一次，用于table和FrequencySketch
+     * @param key key
+     * @return hash
+     */
+    public static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * 计算key+field的hash，field为null时和{@link #hash(byte[])}相同
+     * @param keyHash key的hash
+     * @param field field
+     * @return hash
+     */
+    public static int hash(int keyHash, byte[] field) {
+        if (field == null) {
+            return keyHash;
+        }
+        int h = keyHash * 31 + Arrays.hashCode(field);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * 查询
+     * @param key key
+     * @param field field，可以为null
+     * @param hash hash
+     * @return entry，不存在则返回null
+     */
+    public Entry get(byte[] key, byte[] field, int hash) {
+        int base = (hash & bucketMask) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            Entry entry = slots.get(i);
+            if (entry != null && entry.match(key, field, hash)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写入，相同的key直接覆盖；否则优先使用空的或者过期的slot，bucket满了则和频率最低的key比较后决定是否替换
+     * @param entry entry
+     * @param frequency 新key的访问频率
+     * @param sketch sketch
+     * @param expireMillis 过期时间
+     * @return 是否写入成功
+     */
+    public boolean put(Entry entry, int frequency, FrequencySketch sketch, long expireMillis) {
+        int base = (entry.hash & bucketMask) * WAYS;
+        int victimIndex = -1;
+        Entry victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int i = base; i < base + WAYS; i++) {
+            Entry old = slots.get(i);
+            if (old != null && old.match(entry.key, entry.field, entry.hash)) {
+                return slots.compareAndSet(i, old, entry);
+            }
+            if (victimFrequency < 0) continue;
+            if (old == null || TimeCache.currentMillis - old.timestamp > expireMillis) {
+                victimIndex = i;
+                victim = old;
+                victimFrequency = -1;
+                continue;
+            }
+            int f = sketch.frequency(old.hash);
+            if (f < victimFrequency) {
+                victimIndex = i;
+                victim = old;
+                victimFrequency = f;
+            }
+        }
+        if (victimIndex < 0 || frequency <= victimFrequency) {
+            return false;
+        }
+        return slots.compareAndSet(victimIndex, victim, entry);
+    }
+
+    /**
+     * 删除指定的entry（如已过期或者已失效）
+     * @param entry entry
+     */
+    public void remove(Entry entry) {
+        int base = (entry.hash & bucketMask) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (slots.get(i) == entry) {
+                slots.compareAndSet(i, entry, null);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 遍历所有entry
+     * @param consumer consumer
+     */
+    public void forEach(Consumer<Entry> consumer) {
+        for (int i = 0; i < slots.length(); i++) {
+            Entry entry = slots.get(i);
+            if (entry != null) {
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * 缓存项，自带加载时间戳、版本号、刷新标记和命中计数
+     */
+    public static class Entry {
+        private static final AtomicIntegerFieldUpdater<Entry> REFRESHING = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "refreshing");
+
+        private final byte[] key;
+        private final byte[] field;
+        private final int hash;
+        private final HotValue hotValue;
+        private final long version;
+        private final long timestamp = TimeCache.currentMillis;
+        private final LongAdder hits = new LongAdder();
+        private volatile int refreshing = 0;
+
+        /**
+         * @param key key
+         * @param field field，可以为null
+         * @param hash {@link #hash(int, byte[])}
+         * @param hotValue value
+         * @param version 版本号，发起读请求时的System.nanoTime()，用于和写请求的失效时间戳比较
+         */
+        public Entry(byte[] key, byte[] field, int hash, HotValue hotValue, long version) {
+            this.key = key;
+            this.field = field;
+            this.hash = hash;
+            this.hotValue = hotValue;
+            this.version = version;
+        }
+
+        private boolean match(byte[] key, byte[] field, int hash) {
+            return this.hash == hash && Arrays.equals(this.key, key) && Arrays.equals(this.field, field);
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public byte[] getField() {
+            return field;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public HotValue getHotValue() {
+            return hotValue;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public LongAdder getHits() {
+            return hits;
+        }
+
+        /**
+         * 标记为正在刷新，只有第一个调用者会返回true
+         * @return true/false
+         */
+        public boolean tryMarkRefresh() {
+            return refreshing == 0 && REFRESHING.compareAndSet(this, 0, 1);
+        }
+    }
+}
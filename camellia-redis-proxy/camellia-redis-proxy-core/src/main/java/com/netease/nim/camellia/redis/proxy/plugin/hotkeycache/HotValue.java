@@ -7,12 +7,31 @@ package com.netease.nim.camellia.redis.proxy.plugin.hotkeycache;
 public class HotValue {
 
     private final byte[] value;
+    private final byte[][] values;
 
     public HotValue(byte[] value) {
         this.value = value;
+        this.values = null;
+    }
+
+    /**
+     * 集合类型的value，如HGETALL、ZRANGE的返回
+     * @param values values
+     */
+    public HotValue(byte[][] values) {
+        this.value = null;
+        this.values = values;
     }
 
     public byte[] getValue() {
         return value;
     }
+
+    public byte[][] getValues() {
+        return values;
+    }
+
+    public boolean isNull() {
+        return value == null && values == null;
+    }
 }
@@ -0,0 +1,85 @@
+package com.netease.nim.camellia.redis.proxy.tracking;
+
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.tools.utils.BytesKey;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个开启了CLIENT TRACKING的客户端连接的状态
+ * <p> 默认模式下记录该连接读过的key，BCAST模式下按照前缀匹配
+ */
+public class ClientTrackingInfo {
+
+    private final ChannelInfo channelInfo;
+    private final ChannelInfo redirect;
+    private final boolean bcast;
+    private final byte[][] prefixes;
+    private final Set<BytesKey> keys;
+
+    public ClientTrackingInfo(ChannelInfo channelInfo, ChannelInfo redirect, boolean bcast, byte[][] prefixes) {
+        this.channelInfo = channelInfo;
+        this.redirect = redirect;
+        this.bcast = bcast;
+        this.prefixes = prefixes;
+        this.keys = bcast ? null : ConcurrentHashMap.newKeySet();
+    }
+
+    public ChannelInfo getChannelInfo() {
+        return channelInfo;
+    }
+
+    /**
+     * 接收invalidate消息的连接（需要订阅__redis__:invalidate）
+     * @return ChannelInfo
+     */
+    public ChannelInfo getRedirect() {
+        return redirect;
+    }
+
+    public boolean isBcast() {
+        return bcast;
+    }
+
+    public byte[][] getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * 默认模式下，该连接读过的key，BCAST模式下为null
+     * @return keys
+     */
+    public Set<BytesKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * BCAST模式下，key是否匹配前缀，没有配置前缀则匹配所有key
+     * @param key key
+     * @return true/false
+     */
+    public boolean matchPrefix(byte[] key) {
+        if (prefixes == null || prefixes.length == 0) {
+            return true;
+        }
+        for (byte[] prefix : prefixes) {
+            if (startsWith(key, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
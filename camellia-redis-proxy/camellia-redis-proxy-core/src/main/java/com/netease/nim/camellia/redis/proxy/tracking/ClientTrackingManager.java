@@ -0,0 +1,307 @@
+package com.netease.nim.camellia.redis.proxy.tracking;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
+import com.netease.nim.camellia.redis.proxy.monitor.ChannelMonitor;
+import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClientTemplate;
+import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClientTemplateFactory;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.ExecutorUtils;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.tools.utils.BytesKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * server-assisted client side caching（CLIENT TRACKING）
+ * <p> proxy只支持RESP2，因此客户端需要使用REDIRECT模式：一个连接订阅__redis__:invalidate，另一个连接执行CLIENT TRACKING ON REDIRECT {id}
+ * <p> proxy对每个租户的后端节点以BCAST模式订阅invalidate消息，再按照客户端的模式（默认模式记录读过的key，BCAST模式匹配前缀）转发给对应的连接
+ */
+public class ClientTrackingManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientTrackingManager.class);
+
+    public static final byte[] INVALIDATE_CHANNEL = Utils.stringToBytes("__redis__:invalidate");
+    private static final byte[] MESSAGE = Utils.stringToBytes("message");
+
+    private static final ErrorReply REDIRECT_REQUIRED = new ErrorReply("ERR proxy only support RESP2, CLIENT TRACKING ON need REDIRECT option");
+    private static final ErrorReply REDIRECT_NOT_EXISTS = new ErrorReply("ERR The client ID you want redirect to does not exist");
+    private static final ErrorReply PREFIX_REQUIRES_BCAST = new ErrorReply("ERR PREFIX option requires BCAST mode to be enabled");
+    private static final ErrorReply OPTIN_OPTOUT_NOT_SUPPORT = new ErrorReply("ERR OPTIN/OPTOUT option not support by proxy");
+    private static final ErrorReply UPSTREAM_NOT_SUPPORT = new ErrorReply("ERR client tracking not support by upstream");
+    private static final ErrorReply UPSTREAM_SUBSCRIBE_FAIL = new ErrorReply("ERR client tracking subscribe upstream fail");
+
+    private static final ClientTrackingManager instance = new ClientTrackingManager();
+
+    private final ConcurrentHashMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    private boolean enable;
+    private int maxKeys;
+
+    private ClientTrackingManager() {
+        reloadConf();
+        ProxyDynamicConf.registerCallback(this::reloadConf);
+        int intervalSeconds = ProxyDynamicConf.getInt("client.tracking.upstream.check.interval.seconds", 5);
+        ExecutorUtils.scheduleAtFixedRate(this::checkTenants, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static ClientTrackingManager getInstance() {
+        return instance;
+    }
+
+    private void reloadConf() {
+        enable = ProxyDynamicConf.getBoolean("client.tracking.enable", false);
+        maxKeys = ProxyDynamicConf.getInt("client.tracking.max.keys", 100000);
+    }
+
+    /**
+     * 是否是CLIENT TRACKING命令
+     * @param command command
+     * @return true/false
+     */
+    public boolean isClientTrackingCommand(Command command) {
+        if (!enable) return false;
+        byte[][] objects = command.getObjects();
+        return objects.length >= 3 && Utils.checkStringIgnoreCase(objects[1], RedisKeyword.TRACKING.name());
+    }
+
+    /**
+     * CLIENT TRACKING ON|OFF [REDIRECT client-id] [PREFIX prefix [PREFIX prefix ...]] [BCAST] [NOLOOP]
+     * @param channelInfo channelInfo
+     * @param command command
+     * @param factory factory
+     * @return reply
+     */
+    public CompletableFuture<Reply> clientTracking(ChannelInfo channelInfo, Command command, IUpstreamClientTemplateFactory factory) {
+        byte[][] objects = command.getObjects();
+        if (Utils.checkStringIgnoreCase(objects[2], RedisKeyword.OFF.name())) {
+            if (objects.length != 3) {
+                return CompletableFuture.completedFuture(ErrorReply.SYNTAX_ERROR);
+            }
+            remove(channelInfo);
+            return CompletableFuture.completedFuture(StatusReply.OK);
+        }
+        if (!Utils.checkStringIgnoreCase(objects[2], RedisKeyword.ON.name())) {
+            return CompletableFuture.completedFuture(ErrorReply.SYNTAX_ERROR);
+        }
+        Long redirectId = null;
+        boolean bcast = false;
+        List<byte[]> prefixes = new ArrayList<>();
+        for (int i = 3; i < objects.length; i++) {
+            String option = Utils.bytesToString(objects[i]);
+            if (option.equalsIgnoreCase(RedisKeyword.REDIRECT.name()) && i + 1 < objects.length) {
+                redirectId = Utils.bytesToNum(objects[++i]);
+            } else if (option.equalsIgnoreCase(RedisKeyword.PREFIX.name()) && i + 1 < objects.length) {
+                prefixes.add(objects[++i]);
+            } else if (option.equalsIgnoreCase(RedisKeyword.BCAST.name())) {
+                bcast = true;
+            } else if (option.equalsIgnoreCase(RedisKeyword.NOLOOP.name())) {
+                // 后端的invalidate消息无法区分是哪个客户端写的，忽略NOLOOP，只会多发invalidate消息
+            } else if (option.equalsIgnoreCase(RedisKeyword.OPTIN.name()) || option.equalsIgnoreCase(RedisKeyword.OPTOUT.name())) {
+                return CompletableFuture.completedFuture(OPTIN_OPTOUT_NOT_SUPPORT);
+            } else {
+                return CompletableFuture.completedFuture(ErrorReply.SYNTAX_ERROR);
+            }
+        }
+        if (redirectId == null) {
+            return CompletableFuture.completedFuture(REDIRECT_REQUIRED);
+        }
+        if (!bcast && !prefixes.isEmpty()) {
+            return CompletableFuture.completedFuture(PREFIX_REQUIRES_BCAST);
+        }
+        ChannelInfo redirect = null;
+        for (ChannelInfo info : ChannelMonitor.getChannelMap().values()) {
+            if (info.getId() == redirectId) {
+                redirect = info;
+                break;
+            }
+        }
+        if (redirect == null || !Objects.equals(redirect.getBid(), channelInfo.getBid()) || !Objects.equals(redirect.getBgroup(), channelInfo.getBgroup())) {
+            return CompletableFuture.completedFuture(REDIRECT_NOT_EXISTS);
+        }
+        IUpstreamClientTemplate template = factory.getOrInitialize(channelInfo.getBid(), channelInfo.getBgroup());
+        if (template == null) {
+            return CompletableFuture.completedFuture(UPSTREAM_NOT_SUPPORT);
+        }
+        remove(channelInfo);
+        ClientTrackingInfo trackingInfo = new ClientTrackingInfo(channelInfo, redirect, bcast, prefixes.toArray(new byte[0][]));
+        Tenant tenant = tenants.computeIfAbsent(tenantKey(channelInfo.getBid(), channelInfo.getBgroup()),
+                k -> new Tenant(k, channelInfo.getBid(), channelInfo.getBgroup(), template));
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        // 后端订阅成功之后才返回OK，避免客户端缓存了订阅之前读到的数据
+        tenant.subscriber.check(tenant.upstreamPrefixes()).thenAccept(success -> {
+            if (!success) {
+                future.complete(UPSTREAM_SUBSCRIBE_FAIL);
+                return;
+            }
+            tenant.clients.add(trackingInfo);
+            channelInfo.setClientTrackingInfo(trackingInfo);
+            // 并发情况下tenant可能刚好因为没有客户端被定时任务关闭了，重试一次
+            if (tenants.get(tenant.key) != tenant) {
+                remove(channelInfo);
+                clientTracking(channelInfo, command, factory).thenAccept(future::complete);
+                return;
+            }
+            future.complete(StatusReply.OK);
+        });
+        return future;
+    }
+
+    /**
+     * 默认模式下，记录客户端读过的key
+     * @param channelInfo channelInfo
+     * @param command command
+     */
+    public void track(ChannelInfo channelInfo, Command command) {
+        ClientTrackingInfo trackingInfo = channelInfo.getClientTrackingInfo();
+        if (trackingInfo == null || trackingInfo.isBcast()) return;
+        RedisCommand redisCommand = command.getRedisCommand();
+        if (redisCommand == null || redisCommand.getType() != RedisCommand.Type.READ) return;
+        List<byte[]> keys = command.getKeys();
+        if (keys == null || keys.isEmpty()) return;
+        Set<BytesKey> set = trackingInfo.getKeys();
+        for (byte[] key : keys) {
+            set.add(new BytesKey(key));
+        }
+        // 超过上限，淘汰一部分key，并通知客户端
+        if (set.size() > maxKeys) {
+            List<byte[]> evicted = new ArrayList<>();
+            Iterator<BytesKey> iterator = set.iterator();
+            while (set.size() > maxKeys && iterator.hasNext()) {
+                evicted.add(iterator.next().getKey());
+                iterator.remove();
+            }
+            sendInvalidate(trackingInfo, evicted.toArray(new byte[0][]));
+        }
+    }
+
+    /**
+     * 关闭CLIENT TRACKING，连接断开时也需要调用
+     * @param channelInfo channelInfo
+     */
+    public void remove(ChannelInfo channelInfo) {
+        ClientTrackingInfo trackingInfo = channelInfo.getClientTrackingInfo();
+        if (trackingInfo == null) return;
+        channelInfo.setClientTrackingInfo(null);
+        Tenant tenant = tenants.get(tenantKey(channelInfo.getBid(), channelInfo.getBgroup()));
+        if (tenant != null) {
+            tenant.clients.remove(trackingInfo);
+        }
+    }
+
+    private void invalidate(Tenant tenant, byte[][] keys) {
+        for (ClientTrackingInfo trackingInfo : tenant.clients) {
+            try {
+                if (keys == null) {
+                    if (!trackingInfo.isBcast()) {
+                        trackingInfo.getKeys().clear();
+                    }
+                    sendInvalidate(trackingInfo, null);
+                    continue;
+                }
+                List<byte[]> matched = null;
+                for (byte[] key : keys) {
+                    boolean match;
+                    if (trackingInfo.isBcast()) {
+                        match = trackingInfo.matchPrefix(key);
+                    } else {
+                        match = trackingInfo.getKeys().remove(new BytesKey(key));
+                    }
+                    if (match) {
+                        if (matched == null) {
+                            matched = new ArrayList<>();
+                        }
+                        matched.add(key);
+                    }
+                }
+                if (matched != null) {
+                    sendInvalidate(trackingInfo, matched.toArray(new byte[0][]));
+                }
+            } catch (Exception e) {
+                ErrorLogCollector.collect(ClientTrackingManager.class, "invalidate error", e);
+            }
+        }
+    }
+
+    // message __redis__:invalidate [key1, key2, ...]，keys为null表示清空所有缓存
+    private void sendInvalidate(ClientTrackingInfo trackingInfo, byte[][] keys) {
+        ChannelInfo redirect = trackingInfo.getRedirect();
+        if (!redirect.isInSubscribe() || !redirect.containsSubscribeChannel(INVALIDATE_CHANNEL)) {
+            return;
+        }
+        Reply keysReply;
+        if (keys == null) {
+            keysReply = MultiBulkReply.NIL_REPLY;
+        } else {
+            Reply[] replies = new Reply[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                replies[i] = new BulkReply(keys[i]);
+            }
+            keysReply = new MultiBulkReply(replies);
+        }
+        Reply[] message = new Reply[] {new BulkReply(MESSAGE), new BulkReply(INVALIDATE_CHANNEL), keysReply};
+        redirect.getCommandTaskQueue().reply(RedisCommand.SUBSCRIBE, new MultiBulkReply(message), false);
+    }
+
+    //定时检查后端订阅，重建断开的订阅、感知后端节点变化，没有客户端时关闭订阅
+    private void checkTenants() {
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            Tenant tenant = entry.getValue();
+            try {
+                tenant.clients.removeIf(info -> !info.getChannelInfo().getCtx().channel().isActive());
+                if (tenant.clients.isEmpty()) {
+                    tenants.remove(tenant.key, tenant);
+                    tenant.subscriber.stop();
+                    logger.info("client tracking subscriber stopped for no clients, bid = {}, bgroup = {}", tenant.bid, tenant.bgroup);
+                    continue;
+                }
+                tenant.subscriber.check(tenant.upstreamPrefixes());
+            } catch (Exception e) {
+                logger.error("check client tracking tenant error, bid = {}, bgroup = {}", tenant.bid, tenant.bgroup, e);
+            }
+        }
+    }
+
+    private static String tenantKey(Long bid, String bgroup) {
+        return (bid == null ? "default" : String.valueOf(bid)) + "|" + (bgroup == null ? "default" : bgroup);
+    }
+
+    private class Tenant {
+        private final String key;
+        private final Long bid;
+        private final String bgroup;
+        private final Set<ClientTrackingInfo> clients = ConcurrentHashMap.newKeySet();
+        private final UpstreamInvalidationSubscriber subscriber;
+
+        Tenant(String key, Long bid, String bgroup, IUpstreamClientTemplate template) {
+            this.key = key;
+            this.bid = bid;
+            this.bgroup = bgroup;
+            this.subscriber = new UpstreamInvalidationSubscriber(template, keys -> invalidate(this, keys));
+        }
+
+        //后端订阅的前缀，默认订阅所有key
+        byte[][] upstreamPrefixes() {
+            String prefixes = ProxyDynamicConf.getString("client.tracking.upstream.prefixes", bid, bgroup, "");
+            if (prefixes.isEmpty()) {
+                return null;
+            }
+            List<byte[]> list = new ArrayList<>();
+            for (String prefix : prefixes.split(",")) {
+                if (!prefix.trim().isEmpty()) {
+                    list.add(Utils.stringToBytes(prefix.trim()));
+                }
+            }
+            return list.toArray(new byte[0][]);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.netease.nim.camellia.redis.proxy.tracking;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
+import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
+import com.netease.nim.camellia.redis.proxy.reply.*;
+import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClient;
+import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClientTemplate;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionAddr;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
+import com.netease.nim.camellia.redis.proxy.util.ErrorLogCollector;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import com.netease.nim.camellia.redis.proxy.monitor.PasswordMaskUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 一个租户（bid/bgroup）的后端invalidate消息订阅
+ * <p> 对后端的每个节点建立一个独立连接，依次执行CLIENT ID、CLIENT TRACKING ON REDIRECT {self} BCAST [PREFIX ...]、SUBSCRIBE __redis__:invalidate
+ * <p> 连接断开期间可能丢失invalidate消息，重连时会通知所有客户端清空缓存
+ * <p> 订阅过程中的节点记录在pending里，SUBSCRIBE成功之后才会放入connections，并发的check会等待同一个订阅结果
+ */
+public class UpstreamInvalidationSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamInvalidationSubscriber.class);
+
+    private final IUpstreamClientTemplate template;
+    private final Consumer<byte[][]> invalidateCallback;
+    private final ConcurrentHashMap<String, RedisConnection> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Pending> pendings = new ConcurrentHashMap<>();
+    private volatile boolean stopped = false;
+
+    /**
+     * @param template 后端
+     * @param invalidateCallback 收到invalidate消息的回调，参数为null表示需要清空所有缓存（如FLUSHALL或者订阅连接断开）
+     */
+    public UpstreamInvalidationSubscriber(IUpstreamClientTemplate template, Consumer<byte[][]> invalidateCallback) {
+        this.template = template;
+        this.invalidateCallback = invalidateCallback;
+    }
+
+    /**
+     * 检查后端的每个节点都已经订阅，新增的节点会新建订阅，失效的连接会重建订阅
+     * @param prefixes 订阅的前缀，为空表示所有key
+     * @return 是否所有节点都订阅成功
+     */
+    public synchronized CompletableFuture<Boolean> check(byte[][] prefixes) {
+        Map<String, RedisConnectionAddr> addrs = new HashMap<>();
+        Map<String, IUpstreamClient> clients = new HashMap<>();
+        for (IUpstreamClient client : template.getUpstreamClients()) {
+            for (RedisConnectionAddr addr : client.getAllAddrs()) {
+                addrs.put(addr.getUrl(), addr);
+                clients.put(addr.getUrl(), client);
+            }
+        }
+        if (addrs.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        boolean lost = false;
+        for (Map.Entry<String, RedisConnection> entry : new ArrayList<>(connections.entrySet())) {
+            RedisConnection connection = entry.getValue();
+            if (!addrs.containsKey(entry.getKey()) || !connection.isValid()) {
+                connections.remove(entry.getKey());
+                connection.stop(true);
+                lost = true;
+            }
+        }
+        // 订阅连接断开期间可能丢失了invalidate消息
+        if (lost) {
+            invalidateCallback.accept(null);
+        }
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (Map.Entry<String, RedisConnectionAddr> entry : addrs.entrySet()) {
+            if (connections.containsKey(entry.getKey())) continue;
+            Pending pending = pendings.get(entry.getKey());
+            if (pending != null) {
+                //正在订阅中，等待同一个结果
+                futures.add(pending.future);
+                continue;
+            }
+            futures.add(subscribe(clients.get(entry.getKey()), entry.getValue(), prefixes));
+        }
+        if (futures.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenAccept(v -> {
+            boolean success = true;
+            for (CompletableFuture<Boolean> f : futures) {
+                if (!f.join()) {
+                    success = false;
+                }
+            }
+            future.complete(success);
+        });
+        return future;
+    }
+
+    /**
+     * 关闭所有订阅
+     */
+    public synchronized void stop() {
+        stopped = true;
+        for (RedisConnection connection : connections.values()) {
+            connection.stop(true);
+        }
+        connections.clear();
+        for (Pending pending : pendings.values()) {
+            pending.connection.stop(true);
+            pending.future.complete(false);
+        }
+        pendings.clear();
+    }
+
+    private CompletableFuture<Boolean> subscribe(IUpstreamClient client, RedisConnectionAddr addr, byte[][] prefixes) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        RedisConnection connection = RedisConnectionHub.getInstance().newConnection(client, addr);
+        if (connection == null) {
+            logger.warn("client tracking subscribe fail, new connection fail, addr = {}", PasswordMaskUtils.maskAddr(addr));
+            future.complete(false);
+            return future;
+        }
+        Pending pending = new Pending(connection, future);
+        pendings.put(addr.getUrl(), pending);
+        connection.sendCommand(RedisCommand.CLIENT.raw(), RedisKeyword.ID.getRaw()).thenAccept(idReply -> {
+            if (!(idReply instanceof IntegerReply)) {
+                fail(addr, pending, idReply);
+                return;
+            }
+            List<byte[]> args = new ArrayList<>();
+            args.add(RedisCommand.CLIENT.raw());
+            args.add(RedisKeyword.TRACKING.getRaw());
+            args.add(RedisKeyword.ON.getRaw());
+            args.add(RedisKeyword.REDIRECT.getRaw());
+            args.add(Utils.stringToBytes(String.valueOf(((IntegerReply) idReply).getInteger())));
+            args.add(RedisKeyword.BCAST.getRaw());
+            if (prefixes != null) {
+                for (byte[] prefix : prefixes) {
+                    args.add(RedisKeyword.PREFIX.getRaw());
+                    args.add(prefix);
+                }
+            }
+            connection.sendCommand(args.toArray(new byte[0][])).thenAccept(trackingReply -> {
+                if (!(trackingReply instanceof StatusReply)) {
+                    fail(addr, pending, trackingReply);
+                    return;
+                }
+                CompletableFuture<Reply> subscribeFuture = new CompletableFuture<>();
+                List<CompletableFuture<Reply>> futures = new ArrayList<>();
+                futures.add(subscribeFuture);
+                futures.addAll(listenFutures(connection));
+                Command subscribe = new Command(new byte[][]{RedisCommand.SUBSCRIBE.raw(), ClientTrackingManager.INVALIDATE_CHANNEL});
+                connection.sendCommand(Collections.singletonList(subscribe), futures);
+                subscribeFuture.thenAccept(subscribeReply -> {
+                    if (subscribeReply instanceof ErrorReply) {
+                        fail(addr, pending, subscribeReply);
+                        return;
+                    }
+                    success(addr, pending);
+                });
+            });
+        });
+        return future;
+    }
+
+    //SUBSCRIBE成功之后才放入connections，之后的check才会认为这个节点已经订阅
+    private synchronized void success(RedisConnectionAddr addr, Pending pending) {
+        if (stopped || !pendings.remove(addr.getUrl(), pending)) {
+            pending.connection.stop(true);
+            pending.future.complete(false);
+            return;
+        }
+        connections.put(addr.getUrl(), pending.connection);
+        logger.info("client tracking subscribe success, addr = {}", PasswordMaskUtils.maskAddr(addr));
+        pending.future.complete(true);
+    }
+
+    private void fail(RedisConnectionAddr addr, Pending pending, Reply reply) {
+        logger.warn("client tracking subscribe fail, addr = {}, reply = {}", PasswordMaskUtils.maskAddr(addr), reply);
+        pendings.remove(addr.getUrl(), pending);
+        pending.connection.stop(true);
+        pending.future.complete(false);
+    }
+
+    private static class Pending {
+        private final RedisConnection connection;
+        private final CompletableFuture<Boolean> future;
+
+        Pending(RedisConnection connection, CompletableFuture<Boolean> future) {
+            this.connection = connection;
+            this.future = future;
+        }
+    }
+
+    //和PubSubUtils一样，预先放入一批future用于接收消息，消费到一定程度后再补充
+    private List<CompletableFuture<Reply>> listenFutures(RedisConnection connection) {
+        List<CompletableFuture<Reply>> futures = new ArrayList<>(16);
+        for (int i = 0; i < 16; i++) {
+            CompletableFuture<Reply> future = new CompletableFuture<>();
+            future.thenAccept(reply -> {
+                if (connection.queueSize() < 8 && connection.isValid()) {
+                    connection.sendCommand(Collections.emptyList(), listenFutures(connection));
+                }
+                onMessage(reply);
+            });
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    // message __redis__:invalidate [key1, key2, ...]，FLUSHALL/FLUSHDB时keys为null
+    private void onMessage(Reply reply) {
+        try {
+            if (!(reply instanceof MultiBulkReply)) return;
+            Reply[] replies = ((MultiBulkReply) reply).getReplies();
+            if (replies == null || replies.length != 3) return;
+            if (!(replies[0] instanceof BulkReply) || !Utils.checkStringIgnoreCase(((BulkReply) replies[0]).getRaw(), RedisKeyword.MESSAGE.name())) {
+                return;
+            }
+            Reply keysReply = replies[2];
+            if (keysReply instanceof MultiBulkReply) {
+                Reply[] keyReplies = ((MultiBulkReply) keysReply).getReplies();
+                if (keyReplies == null) {
+                    invalidateCallback.accept(null);
+                    return;
+                }
+                byte[][] keys = new byte[keyReplies.length][];
+                for (int i = 0; i < keyReplies.length; i++) {
+                    keys[i] = ((BulkReply) keyReplies[i]).getRaw();
+                }
+                invalidateCallback.accept(keys);
+            } else if (keysReply instanceof BulkReply) {
+                byte[] key = ((BulkReply) keysReply).getRaw();
+                invalidateCallback.accept(key == null ? null : new byte[][]{key});
+            }
+        } catch (Exception e) {
+            ErrorLogCollector.collect(UpstreamInvalidationSubscriber.class, "onMessage error", e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionA
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionHub;
 import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionStatus;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -31,6 +32,14 @@ public interface IUpstreamClient {
 
     void renew();
 
+    /**
+     * 后端的所有节点地址，用于client tracking等需要和每个节点单独建连的场景
+     * @return 节点地址列表，不支持的返回空列表
+     */
+    default List<RedisConnectionAddr> getAllAddrs() {
+        return Collections.emptyList();
+    }
+
     default RedisConnectionStatus getStatus(RedisConnectionAddr addr) {
         if (addr == null) return RedisConnectionStatus.INVALID;
         RedisConnection redisConnection = RedisConnectionHub.getInstance().get(this, addr);
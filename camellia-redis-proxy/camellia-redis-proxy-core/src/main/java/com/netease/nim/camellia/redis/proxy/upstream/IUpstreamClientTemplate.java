@@ -3,6 +3,7 @@ package com.netease.nim.camellia.redis.proxy.upstream;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.reply.Reply;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -25,6 +26,14 @@ public interface IUpstreamClientTemplate {
      */
     boolean isMultiDBSupport();
 
+    /**
+     * 所有后端的client，用于client tracking等需要和每个节点单独建连的场景
+     * @return client列表，不支持的返回空列表
+     */
+    default List<IUpstreamClient> getUpstreamClients() {
+        return Collections.emptyList();
+    }
+
     /**
      * 关闭
      */
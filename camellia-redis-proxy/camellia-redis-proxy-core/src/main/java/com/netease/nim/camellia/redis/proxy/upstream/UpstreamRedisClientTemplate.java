@@ -644,7 +644,7 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
             }
 
             RedisCommand.Type type = redisCommand.getType();
-            byte[][] args = command.getObjects();
+            byte[][] args = command.getRawObjects();
             if (type == RedisCommand.Type.READ) {
                 Resource resource;
                 if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && args.length >= 2) {
@@ -686,6 +686,16 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
         return multiDBSupport;
     }
 
+    @Override
+    public List<IUpstreamClient> getUpstreamClients() {
+        Set<Resource> allResources = this.resourceSelector.getAllResources();
+        List<IUpstreamClient> clients = new ArrayList<>(allResources.size());
+        for (Resource resource : allResources) {
+            clients.add(factory.get(resource.getUrl()));
+        }
+        return clients;
+    }
+
     @Override
     public ResourceTable getResourceTable() {
         return resourceSelector.getResourceTable();
@@ -809,6 +819,8 @@ public class UpstreamRedisClientTemplate implements IUpstreamRedisClientTemplate
 
     private CompletableFuture<Reply> doWrite(List<Resource> writeResources, UpstreamClientCommandFlusher commandFlusher, Command command) {
         if (writeResources.size() > 1) {
+            //双写时第一个resource的回包可能早于其他resource的编码，因此需要提前把ByteBuf参数拷贝出来
+            command.materialize();
             if (command.getChannelInfo().isInTransaction()) {
                 writeResources = new ArrayList<>(Collections.singletonList(writeResources.get(0)));
             } else if (command.getChannelInfo().isTransactionTag()) {
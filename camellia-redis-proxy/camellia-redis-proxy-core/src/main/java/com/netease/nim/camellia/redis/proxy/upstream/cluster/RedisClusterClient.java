@@ -10,6 +10,7 @@ import com.netease.nim.camellia.redis.proxy.netty.ChannelInfo;
 import com.netease.nim.camellia.redis.proxy.upstream.IUpstreamClient;
 import com.netease.nim.camellia.redis.proxy.command.CommandTaskQueue;
 import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.conf.DynamicConfCallback;
 import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.enums.RedisKeyword;
@@ -51,6 +52,10 @@ public class RedisClusterClient implements IUpstreamClient {
 
     private Renew renew;
 
+    //按slot分组下发mget/mset/del等多key命令，而不是拆成单key命令
+    private volatile boolean multiKeySlotGroupEnable;
+    private final DynamicConfCallback confCallback = this::reloadConf;
+
     public RedisClusterClient(RedisClusterSlavesResource resource, int maxAttempts) {
         this.cursorCalculator = new ScanCursorCalculator(ProxyDynamicConf.getInt("redis-cluster.scan.node.bits.len", 10));
         this.resource = resource;
@@ -98,6 +103,8 @@ public class RedisClusterClient implements IUpstreamClient {
         }
         int intervalSeconds = ProxyDynamicConf.getInt("redis.cluster.schedule.renew.interval.seconds", 600);
         renew = new Renew(getResource(), this::renew0, intervalSeconds);
+        reloadConf();
+        ProxyDynamicConf.registerCallback(confCallback);
         logger.info("RedisClusterClient start success, resource = {}", PasswordMaskUtils.maskResource(getResource()));
     }
 
@@ -108,6 +115,15 @@ public class RedisClusterClient implements IUpstreamClient {
         }
     }
 
+    private void reloadConf() {
+        boolean enable = ProxyDynamicConf.getBoolean("redis-cluster.multi.key.slot.group.enable", false);
+        if (enable != multiKeySlotGroupEnable) {
+            logger.info("RedisClusterClient multiKeySlotGroupEnable, {} -> {}, resource = {}",
+                    multiKeySlotGroupEnable, enable, PasswordMaskUtils.maskResource(getResource()));
+            multiKeySlotGroupEnable = enable;
+        }
+    }
+
     private boolean renew0() {
         try {
             return clusterSlotInfo.renew();
@@ -138,6 +154,16 @@ public class RedisClusterClient implements IUpstreamClient {
         logger.info("preheat ok, url = {}", PasswordMaskUtils.maskResource(url));
     }
 
+    @Override
+    public List<RedisConnectionAddr> getAllAddrs() {
+        Set<RedisClusterSlotInfo.Node> nodes = this.clusterSlotInfo.getNodes();
+        List<RedisConnectionAddr> addrs = new ArrayList<>(nodes.size());
+        for (RedisClusterSlotInfo.Node node : nodes) {
+            addrs.add(node.getAddr());
+        }
+        return addrs;
+    }
+
     @Override
     public boolean isValid() {
         return clusterSlotInfo.isValid();
@@ -148,6 +174,7 @@ public class RedisClusterClient implements IUpstreamClient {
         if (renew != null) {
             renew.close();
         }
+        ProxyDynamicConf.deregisterCallback(confCallback);
         logger.warn("upstream client shutdown, resource = {}", PasswordMaskUtils.maskResource(getResource()));
     }
 
@@ -169,7 +196,7 @@ public class RedisClusterClient implements IUpstreamClient {
         if (commands.size() == 1) {
             Command command = commands.get(0);
             if (isPassThroughCommand(command)) {
-                byte[][] args = command.getObjects();
+                byte[][] args = command.getRawObjects();
                 if (args.length >= 2) {
                     byte[] key = args[1];
                     int slot = RedisClusterCRC16Utils.getSlot(key);
@@ -314,7 +341,11 @@ public class RedisClusterClient implements IUpstreamClient {
                             if (argLen -1 > initializerSize) {
                                 commandFlusher.updateInitializerSize(argLen - 1);//调整initializerSize
                             }
-                            mget(command, commandFlusher, future);
+                            if (multiKeySlotGroupEnable) {
+                                slotGroupMerge(command, 1, commandFlusher, future);
+                            } else {
+                                mget(command, commandFlusher, future);
+                            }
                             continueOk = true;
                             commandFlusher.updateInitializerSize(initializerSize);
                         }
@@ -330,7 +361,11 @@ public class RedisClusterClient implements IUpstreamClient {
                             if (argLen -1 > initializerSize) {
                                 commandFlusher.updateInitializerSize(argLen - 1);//调整initializerSize
                             }
-                            simpleIntegerReplyMerge(command, commandFlusher, future);
+                            if (multiKeySlotGroupEnable) {
+                                slotGroupMerge(command, 1, commandFlusher, future);
+                            } else {
+                                simpleIntegerReplyMerge(command, commandFlusher, future);
+                            }
                             continueOk = true;
                             commandFlusher.updateInitializerSize(initializerSize);
                         }
@@ -344,7 +379,15 @@ public class RedisClusterClient implements IUpstreamClient {
                             if (keyCount > initializerSize) {
                                 commandFlusher.updateInitializerSize(keyCount);//调整initializerSize
                             }
-                            mset(command, commandFlusher, future);
+                            if (multiKeySlotGroupEnable) {
+                                if ((argLen - 1) % 2 != 0) {
+                                    future.complete(new ErrorReply("wrong number of arguments for 'mset' command"));
+                                } else {
+                                    slotGroupMerge(command, 2, commandFlusher, future);
+                                }
+                            } else {
+                                mset(command, commandFlusher, future);
+                            }
                             continueOk = true;
                             commandFlusher.updateInitializerSize(initializerSize);
                         }
@@ -368,7 +411,7 @@ public class RedisClusterClient implements IUpstreamClient {
                 if (continueOk) continue;
             }
 
-            byte[][] args = command.getObjects();
+            byte[][] args = command.getRawObjects();
             int slot;
             byte[] key;
             if (redisCommand.getCommandKeyType() == RedisCommand.CommandKeyType.SIMPLE_SINGLE && args.length >= 2) {
@@ -999,6 +1042,154 @@ public class RedisClusterClient implements IUpstreamClient {
         CompletableFutureUtils.allOf(futureList).thenAccept(replies -> future.complete(Utils.mergeIntegerReply(replies)));
     }
 
+    /**
+     * 把mget/mset/del/exists/unlink/touch的key按slot分组，每个slot下发一个原生的多key命令，最后按原始key的顺序合并结果
+     * @param command 原始命令
+     * @param step 每个key占用的参数个数，mset为2（key+value），其他为1
+     * @param commandFlusher commandFlusher
+     * @param future future
+     */
+    private void slotGroupMerge(Command command, int step, RedisConnectionCommandFlusher commandFlusher, CompletableFuture<Reply> future) {
+        byte[][] args = command.getObjects();
+        RedisCommand redisCommand = command.getRedisCommand();
+        List<KeySlotGroup> groups = groupBySlot(args, step);
+        if (groups.size() == 1) {
+            //所有key都在同一个slot，原样透传即可
+            int slot = groups.get(0).slot;
+            RedisConnection connection = getConnection(slot);
+            if (logger.isDebugEnabled()) {
+                logger.debug("sendCommand, command = {}, keys = {}, slot = {}", command.getName(), groups.get(0).size, slot);
+            }
+            commandFlusher.sendCommand(connection, command, new CompletableFutureWrapper(this, future, command));
+            return;
+        }
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(groups.size());
+        for (KeySlotGroup group : groups) {
+            byte[][] subArgs = new byte[group.size * step + 1][];
+            subArgs[0] = args[0];
+            int index = 1;
+            for (int i = 0; i < group.size; i++) {
+                int keyIndex = group.indexes[i];
+                for (int j = 0; j < step; j++) {
+                    subArgs[index++] = args[keyIndex + j];
+                }
+            }
+            Command subCommand = new Command(subArgs);
+            CompletableFuture<Reply> subFuture = new CompletableFuture<>();
+            CompletableFuture<Reply> groupFuture = new CompletableFuture<>();
+            subFuture.thenAccept(reply -> {
+                if (reply instanceof ErrorReply && ((ErrorReply) reply).getError().startsWith("TRYAGAIN")) {
+                    //slot迁移中且部分key已经迁移走了，多key命令无法执行，退化为单key命令
+                    ErrorLogCollector.collect(RedisClusterClient.class, "TRYAGAIN, command = " + command.getName() + ", slot = " + group.slot + ", fallback to single key command");
+                    slotGroupFallback(args, step, group, redisCommand, groupFuture);
+                } else {
+                    groupFuture.complete(reply);
+                }
+            });
+            RedisConnection connection = getConnection(group.slot);
+            commandFlusher.sendCommand(connection, subCommand, new CompletableFutureWrapper(this, subFuture, subCommand));
+            futureList.add(groupFuture);
+        }
+        if (redisCommand == RedisCommand.MGET) {
+            CompletableFutureUtils.allOf(futureList).thenAccept(replies -> {
+                Reply[] retReplies = new Reply[args.length - 1];
+                for (int i = 0; i < replies.size(); i++) {
+                    Reply reply = replies.get(i);
+                    KeySlotGroup group = groups.get(i);
+                    if (!(reply instanceof MultiBulkReply)) {
+                        future.complete(reply instanceof ErrorReply ? reply : ErrorReply.NOT_AVAILABLE);
+                        return;
+                    }
+                    Reply[] subReplies = ((MultiBulkReply) reply).getReplies();
+                    if (subReplies == null || subReplies.length != group.size) {
+                        future.complete(ErrorReply.NOT_AVAILABLE);
+                        return;
+                    }
+                    for (int j = 0; j < group.size; j++) {
+                        retReplies[group.indexes[j] - 1] = subReplies[j];
+                    }
+                }
+                future.complete(new MultiBulkReply(retReplies));
+            });
+        } else if (redisCommand == RedisCommand.MSET) {
+            CompletableFutureUtils.allOf(futureList).thenAccept(replies -> future.complete(Utils.mergeStatusReply(replies)));
+        } else {
+            CompletableFutureUtils.allOf(futureList).thenAccept(replies -> future.complete(Utils.mergeIntegerReply(replies)));
+        }
+    }
+
+    private void slotGroupFallback(byte[][] args, int step, KeySlotGroup group, RedisCommand redisCommand, CompletableFuture<Reply> groupFuture) {
+        List<CompletableFuture<Reply>> futureList = new ArrayList<>(group.size);
+        for (int i = 0; i < group.size; i++) {
+            int keyIndex = group.indexes[i];
+            byte[][] subArgs = new byte[step + 1][];
+            subArgs[0] = args[0];
+            System.arraycopy(args, keyIndex, subArgs, 1, step);
+            Command subCommand = new Command(subArgs);
+            CompletableFuture<Reply> subFuture = new CompletableFuture<>();
+            RedisConnection connection = getConnection(group.slot);
+            if (connection == null) {
+                subFuture.complete(ErrorReply.UPSTREAM_CONNECTION_NULL);
+            } else {
+                connection.sendCommand(Collections.singletonList(subCommand), Collections.singletonList(new CompletableFutureWrapper(this, subFuture, subCommand)));
+            }
+            futureList.add(subFuture);
+        }
+        CompletableFutureUtils.allOf(futureList).thenAccept(replies -> {
+            if (redisCommand == RedisCommand.MGET) {
+                Reply[] retReplies = new Reply[replies.size()];
+                for (int i = 0; i < replies.size(); i++) {
+                    Reply reply = replies.get(i);
+                    if (reply instanceof MultiBulkReply && ((MultiBulkReply) reply).getReplies().length == 1) {
+                        retReplies[i] = ((MultiBulkReply) reply).getReplies()[0];
+                    } else {
+                        groupFuture.complete(reply instanceof ErrorReply ? reply : ErrorReply.NOT_AVAILABLE);
+                        return;
+                    }
+                }
+                groupFuture.complete(new MultiBulkReply(retReplies));
+            } else if (redisCommand == RedisCommand.MSET) {
+                groupFuture.complete(Utils.mergeStatusReply(replies));
+            } else {
+                groupFuture.complete(Utils.mergeIntegerReply(replies));
+            }
+        });
+    }
+
+    private static List<KeySlotGroup> groupBySlot(byte[][] args, int step) {
+        List<KeySlotGroup> groups = new ArrayList<>();
+        Map<Integer, KeySlotGroup> map = new HashMap<>();
+        for (int i = 1; i < args.length; i += step) {
+            int slot = RedisClusterCRC16Utils.getSlot(args[i]);
+            KeySlotGroup group = map.get(slot);
+            if (group == null) {
+                group = new KeySlotGroup(slot);
+                map.put(slot, group);
+                groups.add(group);
+            }
+            group.add(i);
+        }
+        return groups;
+    }
+
+    private static class KeySlotGroup {
+        private final int slot;
+        private int[] indexes;
+        private int size;
+
+        KeySlotGroup(int slot) {
+            this.slot = slot;
+            this.indexes = new int[8];
+        }
+
+        void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+    }
+
     private void blockingCommand(int slot, Command command, RedisConnectionCommandFlusher commandFlusher, CompletableFuture<Reply> future) {
         if (slot < 0) {
             future.complete(new ErrorReply("CROSSSLOT Keys in request don't hash to the same slot"));
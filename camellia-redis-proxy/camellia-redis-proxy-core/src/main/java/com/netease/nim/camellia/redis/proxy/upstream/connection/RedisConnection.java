@@ -5,6 +5,7 @@ import com.netease.nim.camellia.redis.base.exception.CamelliaRedisException;
 import com.netease.nim.camellia.redis.proxy.netty.*;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import com.netease.nim.camellia.redis.proxy.conf.Constants;
+import com.netease.nim.camellia.redis.proxy.conf.ProxyDynamicConf;
 import com.netease.nim.camellia.redis.proxy.enums.RedisCommand;
 import com.netease.nim.camellia.redis.proxy.monitor.PasswordMaskUtils;
 import com.netease.nim.camellia.redis.proxy.monitor.RedisConnectionMonitor;
@@ -46,6 +47,20 @@ public class RedisConnection {
     private static final ExecutorService initializeExecutor = new ThreadPoolExecutor(SysUtils.getCpuNum(), SysUtils.getCpuNum(), 0, TimeUnit.SECONDS,
             new LinkedBlockingQueue<>(10240), new DefaultThreadFactory("camellia-redis-connection-initialize"), new ThreadPoolExecutor.AbortPolicy());
 
+    //合并flush，同一个eventLoop内多次写入只在最后flush一次，减少系统调用
+    private static boolean writeCoalesceEnable;
+    private static int writeCoalesceMaxPacks;
+    private static long writeCoalesceDelayMicros;
+    static {
+        reloadConf();
+        ProxyDynamicConf.registerCallback(RedisConnection::reloadConf);
+    }
+    private static void reloadConf() {
+        writeCoalesceEnable = ProxyDynamicConf.getBoolean("upstream.redis.write.coalesce.enable", false);
+        writeCoalesceMaxPacks = ProxyDynamicConf.getInt("upstream.redis.write.coalesce.max.packs", 64);
+        writeCoalesceDelayMicros = ProxyDynamicConf.getLong("upstream.redis.write.coalesce.delay.micros", 0L);
+    }
+
     private final RedisConnectionConfig config;
 
     private final RedisConnectionAddr addr;
@@ -82,6 +97,11 @@ public class RedisConnection {
 
     private final CommandPackRecycler commandPackRecycler;
 
+    //only access in eventLoop
+    private int pendingFlushPacks;
+    private boolean flushScheduled;
+    private final Runnable flushTask = this::flushPendingPacks;
+
     public RedisConnection(RedisConnectionConfig config) {
         this.config = config;
         this.host = config.getHost();
@@ -374,7 +394,7 @@ public class RedisConnection {
             logger.debug("{} receive commands, commands.size = {}, commands = {}", connectionName, commands.size(), commandNames);
         }
         if (status == RedisConnectionStatus.VALID || status == RedisConnectionStatus.CLOSING) {
-            channel.writeAndFlush(pack);
+            writeCommandPack(pack);
         } else if (status == RedisConnectionStatus.INITIALIZE) {
             synchronized (cachedCommands) {
                 if (status == RedisConnectionStatus.VALID || status == RedisConnectionStatus.CLOSING) {
@@ -731,6 +751,43 @@ public class RedisConnection {
         }
     }
 
+    //写入命令，开启合并flush时，在eventLoop内只write，等到本轮eventLoop任务结束（或达到最大pack数、延迟时间）时再统一flush
+    private void writeCommandPack(CommandPack pack) {
+        if (!writeCoalesceEnable || !eventLoop.inEventLoop()) {
+            channel.writeAndFlush(pack);
+            if (ProxyMonitorCollector.isMonitorEnable()) {
+                RedisConnectionMonitor.flush(1);
+            }
+            return;
+        }
+        channel.write(pack);
+        pendingFlushPacks ++;
+        if (pendingFlushPacks >= writeCoalesceMaxPacks) {
+            flushPendingPacks();
+            return;
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            if (writeCoalesceDelayMicros > 0) {
+                eventLoop.schedule(flushTask, writeCoalesceDelayMicros, TimeUnit.MICROSECONDS);
+            } else {
+                eventLoop.execute(flushTask);
+            }
+        }
+    }
+
+    //flush已经write的命令
+    private void flushPendingPacks() {
+        flushScheduled = false;
+        if (pendingFlushPacks == 0) return;
+        int packs = pendingFlushPacks;
+        pendingFlushPacks = 0;
+        channel.flush();
+        if (ProxyMonitorCollector.isMonitorEnable()) {
+            RedisConnectionMonitor.flush(packs);
+        }
+    }
+
     //刷新缓存的命令
     private void flushCachedCommands() {
         while (!cachedCommands.isEmpty()) {
@@ -223,6 +223,12 @@ public class RedisConnectionHub {
                     addr.setCache(connection);//如果是使用当前eventLoop初始化的，则可以放入快速缓存
                     return connection;
                 }
+                //严格的eventLoop亲和模式下，不回退到公共连接池，避免跨线程写入
+                if (GlobalRedisProxyEnv.isStrictEventLoopAffinityEnable()) {
+                    String log = "get RedisConnection fail in strict event loop affinity mode, url = " + url;
+                    ErrorLogCollector.collect(RedisConnectionHub.class, log);
+                    return null;
+                }
             }
             //否则看看公共连接池，如果有，直接返回
             RedisConnection connection = map.get(url);
@@ -55,6 +55,15 @@ public abstract class AbstractSimpleRedisClient implements IUpstreamClient {
         return target;
     }
 
+    @Override
+    public List<RedisConnectionAddr> getAllAddrs() {
+        RedisConnectionAddr addr = getAddr();
+        if (addr == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(addr);
+    }
+
     @Override
     public void preheat() {
         if (logger.isInfoEnabled()) {
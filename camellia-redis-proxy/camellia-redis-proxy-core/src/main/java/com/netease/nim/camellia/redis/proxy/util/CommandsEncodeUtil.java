@@ -3,6 +3,7 @@ package com.netease.nim.camellia.redis.proxy.util;
 import com.netease.nim.camellia.redis.proxy.command.Command;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 
 import java.util.List;
 
@@ -59,6 +60,17 @@ public class CommandsEncodeUtil {
     }
 
     public static ByteBuf encode(ByteBufAllocator alloc, List<Command> commands) {
+        for (Command command : commands) {
+            if (command.isReleased()) {
+                //参数已经释放的命令不能再下发，否则会写出不完整的参数
+                throw new IllegalStateException("command args already released, command = " + command.getName());
+            }
+        }
+        for (Command command : commands) {
+            if (command.hasRetainedArgs()) {
+                return encodeZeroCopy(alloc, commands);
+            }
+        }
         int serializedSize = 0;
         for (Command command : commands) {
             serializedSize += serializedSize(command.getObjects());
@@ -74,6 +86,41 @@ public class CommandsEncodeUtil {
         return buf;
     }
 
+    /**
+     * 命令持有ByteBuf参数（zero-copy模式）时，ByteBuf参数直接作为CompositeByteBuf的component写出，不再拷贝
+     */
+    private static ByteBuf encodeZeroCopy(ByteBufAllocator alloc, List<Command> commands) {
+        CompositeByteBuf composite = alloc.compositeBuffer(Integer.MAX_VALUE);
+        ByteBuf buf = alloc.ioBuffer();
+        for (Command command : commands) {
+            ByteBuf[] retainedArgs = command.retainedArgsForWrite();
+            if (retainedArgs == null) {
+                byte[][] args = command.getObjects();
+                writeParamCount(buf, args.length);
+                for (byte[] arg : args) {
+                    writeParam(buf, arg);
+                }
+                continue;
+            }
+            byte[][] args = command.getRawObjects();
+            writeParamCount(buf, args.length);
+            for (int i = 0; i < args.length; i++) {
+                ByteBuf arg = retainedArgs[i];
+                if (arg == null) {
+                    writeParam(buf, args[i]);
+                } else {
+                    buf.writeByte('$').writeBytes(toBytes(arg.readableBytes())).writeBytes(CRLF);
+                    composite.addComponent(true, buf);
+                    composite.addComponent(true, arg);
+                    buf = alloc.ioBuffer();
+                    buf.writeBytes(CRLF);
+                }
+            }
+        }
+        composite.addComponent(true, buf);
+        return composite;
+    }
+
     private static void writeParamCount(ByteBuf buf, int paramCount) {
         buf.writeByte('*').writeBytes(toBytes(paramCount)).writeBytes(CRLF);
     }
@@ -0,0 +1,105 @@
+package com.netease.nim.camellia.redis.proxy.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * count-min sketch实现的频率统计（TinyLFU），每个计数器16bit，一个long存4个计数器，每个key在4个计数器上计数，取最小值作为估计值
+ * <p> 调用方需要定期调用{@link #reset()}把所有计数器减半，使得历史访问频率逐渐衰减
+ * <p> Frequency sketch (count-min, TinyLFU style) with 16bit counters, 4 counters per long.
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = new long[] {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long MAX_COUNTER = 0xFFFFL;
+    private static final long RESET_MASK = 0x7FFF7FFF7FFF7FFFL;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+
+    /**
+     * @param capacity 预计需要统计的key的个数
+     */
+    public FrequencySketch(int capacity) {
+        int size = 1;
+        int maxSize = 1 << 28;
+        int target = Math.max(capacity, 16) / 4;
+        while (size < target && size < maxSize) {
+            size <<= 1;
+        }
+        this.table = new AtomicLongArray(size);
+        this.tableMask = size - 1;
+    }
+
+    /**
+     * 计数+1
+     * @param hash key的hash，由调用方计算一次后复用
+     * @return 计数之后的频率估计值
+     */
+    public int increment(int hash) {
+        long min = MAX_COUNTER;
+        for (int i = 0; i < 4; i++) {
+            long h = indexHash(hash, i);
+            int index = (int) (h >>> 2) & tableMask;
+            int offset = ((int) h & 3) << 4;
+            long count = incrementAt(index, offset);
+            if (count < min) {
+                min = count;
+            }
+        }
+        return (int) min;
+    }
+
+    /**
+     * 获取频率估计值
+     * @param hash key的hash
+     * @return 频率估计值
+     */
+    public int frequency(int hash) {
+        long min = MAX_COUNTER;
+        for (int i = 0; i < 4; i++) {
+            long h = indexHash(hash, i);
+            int index = (int) (h >>> 2) & tableMask;
+            int offset = ((int) h & 3) << 4;
+            long count = (table.get(index) >>> offset) & MAX_COUNTER;
+            if (count < min) {
+                min = count;
+            }
+        }
+        return (int) min;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    public void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            while (true) {
+                long value = table.get(i);
+                if (value == 0) break;
+                if (table.compareAndSet(i, value, (value >>> 1) & RESET_MASK)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private long incrementAt(int index, int offset) {
+        long mask = MAX_COUNTER << offset;
+        while (true) {
+            long value = table.get(index);
+            long count = (value & mask) >>> offset;
+            if (count == MAX_COUNTER) {
+                return count;
+            }
+            if (table.compareAndSet(index, value, value + (1L << offset))) {
+                return count + 1;
+            }
+        }
+    }
+
+    private static long indexHash(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += (h >>> 32);
+        return h;
+    }
+}
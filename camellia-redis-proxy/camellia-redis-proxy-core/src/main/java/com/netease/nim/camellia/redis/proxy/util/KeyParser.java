@@ -22,8 +22,8 @@ public class KeyParser {
             return Collections.emptyList();
         }
         if (commandKeyType == RedisCommand.CommandKeyType.None) return Collections.emptyList();
-        if (commandKeyType == RedisCommand.CommandKeyType.SIMPLE_SINGLE && command.getObjects().length >= 2) {
-            return Collections.singletonList(command.getObjects()[1]);
+        if (commandKeyType == RedisCommand.CommandKeyType.SIMPLE_SINGLE && command.getRawObjects().length >= 2) {
+            return Collections.singletonList(command.getRawObjects()[1]);
         } else if (commandKeyType == RedisCommand.CommandKeyType.SIMPLE_MULTI && command.getObjects().length >= 2) {
             List<byte[]> keys = new ArrayList<>(command.getObjects().length - 1);
             byte[][] objects = command.getObjects();
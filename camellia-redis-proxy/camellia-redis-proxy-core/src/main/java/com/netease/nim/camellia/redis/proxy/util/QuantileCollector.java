@@ -1,24 +1,41 @@
 package com.netease.nim.camellia.redis.proxy.util;
 
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * 0.00-10.00ms 0.01ms 1001-buckets total-1001-buckets
- * 10.01-50.00ms 0.05ms 800-buckets total-1801-buckets
- * 50.01-100.00ms 0.1ms 500-buckets total-2301-buckets
- * 100.01-500.00ms 1ms 400-buckets total-2701-buckets
- * 500.01-2000.00ms 50ms 30-buckets total-2731-buckets
- * 2000.01-10000.00ms 200ms 40-buckets total-2771-buckets
- * total 2771-buckets
+ * 分位数统计，value的单位是0.01ms，HDR风格的对数-线性分桶：
+ * <p> 0.00-1.27ms 0.01ms 128-buckets，精确值
+ * <p> 1.28-10000.00ms 每个2的幂次区间分为64个桶，相对误差不超过1/64，827-buckets
+ * <p> 10000.00ms以上 1-bucket，根据max线性插值
+ * <p> total 956-buckets
+ * <p> 所有桶放在一个AtomicLongArray里，按线程分为若干组（stripe）以降低多线程更新同一个桶的竞争，读取时合并
  * Created by caojiajun on 2022/11/11
  */
 public class QuantileCollector {
 
-    private static final int CAPACITY = 2771;
+    private static final int LINEAR_BUCKETS = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int LINEAR_BITS = 7;
+    private static final long MAX_VALUE = 1000000L;//10000.00ms
+    private static final int OVERFLOW_INDEX = bucketIndex(MAX_VALUE) + 1;
+    private static final int CAPACITY = OVERFLOW_INDEX + 1;
+    private static final int STRIPES;
+    static {
+        int stripes = 1;
+        int cpu = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        while (stripes < cpu) {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    //用于getQuantileValueAndReset，避免每次统计都分配数组
+    private static final ThreadLocal<long[]> snapshot = ThreadLocal.withInitial(() -> new long[CAPACITY]);
 
     private final AtomicBoolean initOk = new AtomicBoolean(false);
-    private LongAdder[] distribute;
+    private AtomicLongArray distribute;
 
     private final MaxValue maxValue = new MaxValue();
 
@@ -31,51 +48,39 @@ public class QuantileCollector {
 
     public void init() {
         if (initOk.compareAndSet(false, true)) {
-            distribute = new LongAdder[CAPACITY];
-            for (int i = 0; i < CAPACITY; i++) {
-                distribute[i] = new LongAdder();
-            }
+            distribute = new AtomicLongArray(CAPACITY * STRIPES);
         }
     }
 
     public void update(int value) {
         if (value < 0) return;
         maxValue.update(value);
-        LongAdder distributeCounter;
-        if (value <= 1000) {//0.00-10.00
-            distributeCounter = distribute[value];
-        } else if (value <= 5000) {//10.01-50.00
-            distributeCounter = distribute[1001 + (value - 1001) / 5];
-        } else if (value <= 10000) {//50.01-100.00
-            distributeCounter = distribute[1801 + (value - 5001) / 10];
-        } else if (value <= 50000) {
-            distributeCounter = distribute[2301 + (value - 10001) / 100];
-        } else if (value <= 200000) {
-            distributeCounter = distribute[2701 + (value - 50001) / 5000];
-        } else if (value <= 1000000) {
-            distributeCounter = distribute[2731 + (value - 200001) / 20000];
-        } else {
-            distributeCounter = distribute[CAPACITY - 1];
-        }
-        if (distributeCounter != null) {
-            distributeCounter.increment();
-        }
+        int index = value > MAX_VALUE ? OVERFLOW_INDEX : bucketIndex(value);
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        distribute.incrementAndGet(stripe * CAPACITY + index);
     }
 
     public void reset() {
         this.maxValue.getAndSet(0);
-        for (LongAdder adder : distribute) {
-            adder.reset();
+        for (int i = 0; i < distribute.length(); i++) {
+            if (distribute.get(i) != 0) {
+                distribute.set(i, 0);
+            }
         }
     }
 
     public QuantileValue getQuantileValueAndReset() {
         long max = this.maxValue.getAndSet(0);
-        long[] tmp = new long[distribute.length];
+        long[] tmp = snapshot.get();
         long count = 0;
-        for (int i=0; i < distribute.length; i++) {
-            LongAdder adder = distribute[i];
-            long sum = adder.sumThenReset();
+        for (int i = 0; i < CAPACITY; i++) {
+            long sum = 0;
+            for (int j = 0; j < STRIPES; j++) {
+                int index = j * CAPACITY + i;
+                if (distribute.get(index) != 0) {
+                    sum += distribute.getAndSet(index, 0);
+                }
+            }
             tmp[i] = sum;
             count += sum;
         }
@@ -92,7 +97,7 @@ public class QuantileCollector {
         long p95 = -1;
         long p99 = -1;
         long p999 = -1;
-        for (int i=0; i < tmp.length; i++) {
+        for (int i = 0; i < CAPACITY; i++) {
             long current = tmp[i];
             c += current;
             if (p50 == -1 && c >= p50Position) {
@@ -101,50 +106,52 @@ public class QuantileCollector {
             }
             if (p75 == -1 && c >= p75Position) {
                 long offset = current - (c - p75Position);
-                p75 = index2Real(i, current, offset, max);;
+                p75 = index2Real(i, current, offset, max);
             }
             if (p90 == -1 && c >= p90Position) {
                 long offset = current - (c - p90Position);
-                p90 = index2Real(i, current, offset, max);;
+                p90 = index2Real(i, current, offset, max);
             }
             if (p95 == -1 && c >= p95Position) {
                 long offset = current - (c - p95Position);
-                p95 = index2Real(i, current, offset, max);;
+                p95 = index2Real(i, current, offset, max);
             }
             if (p99 == -1 && c >= p99Position) {
                 long offset = current - (c - p99Position);
-                p99 = index2Real(i, current, offset, max);;
+                p99 = index2Real(i, current, offset, max);
             }
             if (p999 == -1 && c >= p999Position) {
                 long offset = current - (c - p999Position);
-                p999 = index2Real(i, current, offset, max);;
+                p999 = index2Real(i, current, offset, max);
             }
         }
         return new QuantileValue(p50, p75, p90, p95, p99, p999, max);
     }
 
-    private long index2Real(int index, long current, long offset, long max) {
-        if (index >= 0 && index <= 1000) {
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (msb - LINEAR_BITS) * SUB_BUCKETS + sub;
+    }
+
+    private static long index2Real(int index, long current, long offset, long max) {
+        if (index < LINEAR_BUCKETS) {
             return index;
-        } else if (index <= 1801) {
-            double rate = offset / (current*1.0);
-            return 1000 + (index - 1000 + 1) * 5L + (long)(5 * rate);
-        } else if (index <= 2301) {
-            double rate = offset / (current*1.0);
-            return 5000 + (index - 1801 + 1) * 10L + (long)(10 * rate);
-        } else if (index <= 2701) {
-            double rate = offset / (current*1.0);
-            return 10000 + (index - 2301 + 1) * 100L + (long)(100 * rate);
-        } else if (index <= 2731) {
-            double rate = offset / (current*1.0);
-            return 50000 + (index - 2701 + 1) * 5000L + (long)(5000 * rate);
-        } else if (index < 2770) {
-            double rate = offset / (current*1.0);
-            return 200000 + (index - 2731 + 1) * 20000L + (long)(20000 * rate);
-        } else if (index == 2770) {
-            return 1000000L + (long)(offset / (current*1.0) * (max - 1000000L));
-        }
-        return 0;
+        }
+        double rate = current == 0 ? 0 : offset / (current * 1.0);
+        if (index == OVERFLOW_INDEX) {
+            return MAX_VALUE + (long) (rate * (max - MAX_VALUE));
+        }
+        int msb = (index - LINEAR_BUCKETS) / SUB_BUCKETS + LINEAR_BITS;
+        int sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = msb - SUB_BUCKET_BITS;
+        long low = (long) sub << shift;
+        long width = 1L << shift;
+        return low + (long) (width * rate);
     }
 
     public static class QuantileValue {
@@ -0,0 +1,174 @@
+package com.netease.nim.camellia.redis.proxy.netty;
+
+import com.netease.nim.camellia.redis.proxy.command.Command;
+import com.netease.nim.camellia.redis.proxy.reply.ErrorReply;
+import com.netease.nim.camellia.redis.proxy.reply.Reply;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnection;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionConfig;
+import com.netease.nim.camellia.redis.proxy.upstream.connection.RedisConnectionStatus;
+import com.netease.nim.camellia.redis.proxy.util.CommandsEncodeUtil;
+import com.netease.nim.camellia.redis.proxy.util.Utils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * zero-copy模式下，入队失败或者连接不可用时，命令不能以被释放后的参数下发
+ */
+public class CommandPackEncoderTest {
+
+    @Test
+    public void testQueueFullWithZeroCopy() {
+        Queue<CompletableFuture<Reply>> queue = new ArrayBlockingQueue<>(2);
+        queue.offer(new CompletableFuture<>());
+        TestConnection connection = new TestConnection(RedisConnectionStatus.VALID);
+        EmbeddedChannel channel = newChannel(connection, queue);
+
+        Command command1 = zeroCopySet("k1", "v1");
+        Command command2 = zeroCopySet("k2", "v2");
+        CompletableFuture<Reply> future1 = replyFuture(command1);
+        CompletableFuture<Reply> future2 = replyFuture(command2);
+
+        write(channel, new CommandPack(Arrays.asList(command1, command2), Arrays.asList(future1, future2), 0));
+
+        Assert.assertFalse(future1.isDone());
+        Assert.assertEquals(ErrorReply.UPSTREAM_CONNECTION_QUEUE_FULL, future2.getNow(null));
+        Assert.assertTrue(command2.isReleased());
+        Assert.assertTrue(connection.stopped);
+
+        String written = readAll(channel);
+        Assert.assertEquals("*3\r\n$3\r\nSET\r\n$2\r\nk1\r\n$2\r\nv1\r\n", written);
+        channel.finishAndReleaseAll();
+        command1.release();
+    }
+
+    @Test
+    public void testInvalidWithZeroCopy() {
+        Queue<CompletableFuture<Reply>> queue = new ArrayBlockingQueue<>(16);
+        TestConnection connection = new TestConnection(RedisConnectionStatus.INVALID);
+        EmbeddedChannel channel = newChannel(connection, queue);
+
+        Command command = zeroCopySet("k", "v");
+        CompletableFuture<Reply> future = replyFuture(command);
+
+        write(channel, new CommandPack(Collections.singletonList(command), Collections.singletonList(future), 0));
+
+        Assert.assertEquals(ErrorReply.UPSTREAM_CONNECTION_STATUS_INVALID, future.getNow(null));
+        Assert.assertTrue(command.isReleased());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals("", readAll(channel));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testCompletedCommandNotWritten() {
+        Queue<CompletableFuture<Reply>> queue = new ArrayBlockingQueue<>(16);
+        TestConnection connection = new TestConnection(RedisConnectionStatus.VALID);
+        EmbeddedChannel channel = newChannel(connection, queue);
+
+        Command command1 = zeroCopySet("k1", "v1");
+        Command command2 = zeroCopySet("k2", "v2");
+        CompletableFuture<Reply> future1 = replyFuture(command1);
+        CompletableFuture<Reply> future2 = replyFuture(command2);
+        future1.complete(ErrorReply.NOT_AVAILABLE);
+
+        write(channel, new CommandPack(Arrays.asList(command1, command2), Arrays.asList(future1, future2), 0));
+
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals("*3\r\n$3\r\nSET\r\n$2\r\nk2\r\n$2\r\nv2\r\n", readAll(channel));
+        channel.finishAndReleaseAll();
+        command2.release();
+    }
+
+    @Test
+    public void testReleaseKeepsObjects() {
+        Command command = zeroCopySet("k", "v");
+        ByteBuf[] retained = command.retainedArgsForWrite();
+        command.release();
+        Assert.assertTrue(command.isReleased());
+        Assert.assertNull(command.getRawObjects()[2]);
+        //已经编码持有的retainedDuplicate不受release影响
+        Assert.assertEquals("v", retained[2].toString(Utils.utf8Charset));
+        retained[2].release();
+        try {
+            CommandsEncodeUtil.encode(ByteBufAllocator.DEFAULT, Collections.singletonList(command));
+            Assert.fail("released command should not be encoded");
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    private static EmbeddedChannel newChannel(RedisConnection connection, Queue<CompletableFuture<Reply>> queue) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline().addLast(new CommandPackEncoder(connection, new CommandPackRecycler(channel.eventLoop()), queue));
+        return channel;
+    }
+
+    //没有命令下发时encoder不产生输出，write的promise会失败（和连接不可用时的原有行为一致），这里不关心promise的结果
+    private static void write(EmbeddedChannel channel, CommandPack pack) {
+        channel.writeOneOutbound(pack);
+        channel.flushOutbound();
+    }
+
+    //zero-copy模式下的SET命令，value以ByteBuf持有
+    private static Command zeroCopySet(String key, String value) {
+        byte[][] objects = new byte[][]{Utils.stringToBytes("SET"), Utils.stringToBytes(key), null};
+        ByteBuf[] retainedArgs = new ByteBuf[]{null, null, Unpooled.copiedBuffer(Utils.stringToBytes(value))};
+        return new Command(objects, retainedArgs);
+    }
+
+    //和CommandTask一样，回包完成后释放命令持有的ByteBuf参数
+    private static CompletableFuture<Reply> replyFuture(Command command) {
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        future.whenComplete((reply, e) -> command.release());
+        return future;
+    }
+
+    private static String readAll(EmbeddedChannel channel) {
+        List<String> list = new ArrayList<>();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            list.add(buf.toString(Utils.utf8Charset));
+            buf.release();
+        }
+        return String.join("", list);
+    }
+
+    private static class TestConnection extends RedisConnection {
+
+        private final RedisConnectionStatus status;
+        private boolean stopped;
+
+        TestConnection(RedisConnectionStatus status) {
+            super(config());
+            this.status = status;
+        }
+
+        private static RedisConnectionConfig config() {
+            RedisConnectionConfig config = new RedisConnectionConfig();
+            config.setHost("127.0.0.1");
+            config.setPort(6379);
+            return config;
+        }
+
+        @Override
+        public RedisConnectionStatus getStatus() {
+            return status;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+        }
+    }
+}
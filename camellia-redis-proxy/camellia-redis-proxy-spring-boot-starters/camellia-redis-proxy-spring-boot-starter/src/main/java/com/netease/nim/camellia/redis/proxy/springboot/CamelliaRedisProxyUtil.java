@@ -50,6 +50,7 @@ public class CamelliaRedisProxyUtil {
         serverProperties.setPlugins(properties.getPlugins());
         serverProperties.setConfig(properties.getConfig());
         serverProperties.setQueueFactoryClassName(properties.getQueueFactoryClassName());
+        serverProperties.setStrictEventLoopAffinityEnable(properties.isStrictEventLoopAffinityEnable());
         serverProperties.setNettyTransportMode(properties.getNettyTransportMode());
         NettyProperties netty = properties.getNetty();
         serverProperties.setBossThread(netty.getBossThread());
@@ -64,6 +65,7 @@ public class CamelliaRedisProxyUtil {
         serverProperties.setUdsPath(properties.getUdsPath());
         serverProperties.setCommandDecodeMaxBatchSize(netty.getCommandDecodeMaxBatchSize());
         serverProperties.setCommandDecodeBufferInitializerSize(netty.getCommandDecodeBufferInitializerSize());
+        serverProperties.setCommandDecodeZeroCopyThreshold(netty.getCommandDecodeZeroCopyThreshold());
         serverProperties.setTcpNoDelay(netty.isTcpNoDelay());
         serverProperties.setSoBacklog(netty.getSoBacklog());
         serverProperties.setSoRcvbuf(netty.getSoRcvbuf());
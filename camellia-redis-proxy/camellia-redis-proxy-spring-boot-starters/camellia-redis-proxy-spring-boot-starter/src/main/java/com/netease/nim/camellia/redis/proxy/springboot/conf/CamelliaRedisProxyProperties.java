@@ -112,6 +112,11 @@ public class CamelliaRedisProxyProperties {
      */
     private String queueFactoryClassName = Constants.Server.queueFactoryClassName;
 
+    /**
+     * 严格的eventLoop亲和模式，客户端连接使用的后端连接都绑定在客户端连接所在的eventLoop上，修改需要重启
+     */
+    private boolean strictEventLoopAffinityEnable = Constants.Server.strictEventLoopAffinityEnable;
+
     /**
      * 插件
      */
@@ -306,6 +311,14 @@ public class CamelliaRedisProxyProperties {
         this.queueFactoryClassName = queueFactoryClassName;
     }
 
+    public boolean isStrictEventLoopAffinityEnable() {
+        return strictEventLoopAffinityEnable;
+    }
+
+    public void setStrictEventLoopAffinityEnable(boolean strictEventLoopAffinityEnable) {
+        this.strictEventLoopAffinityEnable = strictEventLoopAffinityEnable;
+    }
+
     public NettyProperties getNetty() {
         return netty;
     }